@@ -3,14 +3,22 @@ package de.eisi05.npc.api;
 import de.eisi05.npc.api.listeners.*;
 import de.eisi05.npc.api.manager.NpcManager;
 import de.eisi05.npc.api.manager.TeamManager;
+import de.eisi05.npc.api.objects.LightweightNpc;
 import de.eisi05.npc.api.objects.NPC;
 import de.eisi05.npc.api.objects.NameDisplayOptions;
 import de.eisi05.npc.api.objects.NpcConfig;
 import de.eisi05.npc.api.objects.NpcHolder;
+import de.eisi05.npc.api.pathfinding.FlowFieldNavigator;
+import de.eisi05.npc.api.pathfinding.HierarchicalPathfinder;
 import de.eisi05.npc.api.pathfinding.Path;
+import de.eisi05.npc.api.pathfinding.PathCache;
+import de.eisi05.npc.api.pathfinding.PathfindingExecutor;
+import de.eisi05.npc.api.pathfinding.TimeSlicedPathfinder;
+import de.eisi05.npc.api.scheduler.MovementSystem;
 import de.eisi05.npc.api.scheduler.Tasks;
 import de.eisi05.npc.api.utils.Metrics;
 import de.eisi05.npc.api.utils.PacketReader;
+import de.eisi05.npc.api.utils.serialize.ItemStackCodec;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
@@ -35,7 +43,7 @@ import java.util.function.Function;
 public final class NpcApi
 {
     private static final List<Listener> listeners = new ArrayList<>(List.of(new ChangeWorldListener(), new ConnectionListener(), new NpcInteractListener(),
-            new WorldLoadListener(), new ServerReadyListener(), new ProjectileHitListener()));
+            new WorldLoadListener(), new ServerReadyListener(), new ProjectileHitListener(), new BlockChangeListener()));
 
     /**
      * A static reference to the Bukkit plugin instance that is using this API. This is set during the API's initialization.
@@ -132,6 +140,27 @@ public final class NpcApi
             }
         });
         NpcManager.getList().forEach(NPC::hideNpcFromAllPlayers);
+        NpcManager.getLightweightNPCs().forEach(npc -> Bukkit.getOnlinePlayers().forEach(npc::despawn));
+        LightweightNpc.clearTemplates();
+        ItemStackCodec.clearCache();
+        PathCache.clear();
+        HierarchicalPathfinder.clear();
+        FlowFieldNavigator.clear();
+        PathfindingExecutor.shutdown();
+        TimeSlicedPathfinder.shutdown();
+        MovementSystem.shutdown();
+
+        try
+        {
+            NpcManager.getStorage().close();
+        }
+        catch(IOException e)
+        {
+            plugin.getLogger().warning("Failed to close the NPC storage: " + e.getMessage());
+            if(config.debug())
+                e.printStackTrace();
+        }
+
         NpcManager.clear();
         PacketReader.uninjectAll();
         Tasks.stop();
@@ -7,6 +7,8 @@ import de.eisi05.npc.api.objects.NPC;
 import de.eisi05.npc.api.objects.NpcOption;
 import de.eisi05.npc.api.pathfinding.AStarPathfinder;
 import de.eisi05.npc.api.pathfinding.Path;
+import de.eisi05.npc.api.pathfinding.PathRequest;
+import de.eisi05.npc.api.pathfinding.PathfindingExecutor;
 import de.eisi05.npc.api.scheduler.Tasks;
 import de.eisi05.npc.api.utils.SerializableConsumer;
 import net.minecraft.world.entity.Entity;
@@ -37,6 +39,7 @@ public class WalkToLocationGoal extends Goal
     private static final long serialVersionUID = 1L;
     private static final int PATH_CHECK_AHEAD = 5;
     private static final long PATHABILITY_CHECK_INTERVAL_MS = 5000;
+    private static final long PATHFINDING_DEADLINE_MILLIS = 2000;
 
     private Path.SerializablePath.SerializableLocation serializableLocation;
     private double speed;
@@ -44,6 +47,7 @@ public class WalkToLocationGoal extends Goal
     private boolean allowDiagonal;
     private SerializableConsumer<WalkingResult> completionCallback;
     private boolean withRotation;
+    private boolean sharedPath;
 
     private transient Location targetLocation;
     private transient CompletableFuture<Path> pathfindingFuture;
@@ -68,6 +72,7 @@ public class WalkToLocationGoal extends Goal
         this.allowDiagonal = builder.allowDiagonal;
         this.completionCallback = builder.completionCallback;
         this.withRotation = builder.withRotation;
+        this.sharedPath = builder.sharedPath;
     }
 
     /**
@@ -84,6 +89,7 @@ public class WalkToLocationGoal extends Goal
         this.allowDiagonal = goal.allowDiagonal;
         this.completionCallback = goal.completionCallback;
         this.withRotation = goal.withRotation;
+        this.sharedPath = goal.sharedPath;
     }
 
     /**
@@ -186,6 +192,26 @@ public class WalkToLocationGoal extends Goal
         this.withRotation = withRotation;
     }
 
+    /**
+     * Gets whether the path is read off the shared {@link de.eisi05.npc.api.pathfinding.FlowField} of the target location.
+     *
+     * @return true if the path is shared with other NPCs walking to the same target
+     */
+    public boolean isSharedPath()
+    {
+        return sharedPath;
+    }
+
+    /**
+     * Sets whether the path is read off the shared {@link de.eisi05.npc.api.pathfinding.FlowField} of the target location.
+     *
+     * @param sharedPath the new shared path setting
+     */
+    public void setSharedPath(boolean sharedPath)
+    {
+        this.sharedPath = sharedPath;
+    }
+
     /**
      * Checks if this goal can be used by the NPC.
      *
@@ -351,7 +377,8 @@ public class WalkToLocationGoal extends Goal
             return;
         }
 
-        CompletableFuture<Path> future = npc.findPathAsync(List.of(start, end), maxIterations, allowDiagonal, null);
+        CompletableFuture<Path> future = PathfindingExecutor.submit(npc.newPathRequest(List.of(start, end)).maxIterations(maxIterations)
+                .allowDiagonal(allowDiagonal).priority(PathRequest.Priority.LOW).build());
         Tasks.trackFuture(future);
         future.thenAcceptAsync(path -> pathable = path != null, task -> Bukkit.getScheduler().runTask(NpcApi.plugin, task))
                 .exceptionally(e ->
@@ -381,7 +408,11 @@ public class WalkToLocationGoal extends Goal
 
         isWalking = true;
 
-        pathfindingFuture = npc.findPathAsync(List.of(start, end), maxIterations, allowDiagonal, null);
+        if(sharedPath)
+            pathfindingFuture = npc.findSharedPathAsync(end, maxIterations, allowDiagonal);
+        else
+            pathfindingFuture = PathfindingExecutor.submit(npc.newPathRequest(List.of(start, end)).maxIterations(maxIterations)
+                    .allowDiagonal(allowDiagonal).deadline(PATHFINDING_DEADLINE_MILLIS).build());
         Tasks.trackFuture(pathfindingFuture);
         pathfindingFuture.thenAcceptAsync(path ->
                 {
@@ -436,7 +467,8 @@ public class WalkToLocationGoal extends Goal
     }
 
     /**
-     * Checks if the current path is invalid due to block changes. Uses similar validation logic to AStarPathfinder for consistency.
+     * Checks if the current path is invalid due to block changes. Nodes broken by a block change are repaired locally by the walking task; the path is only
+     * recalculated if that repair failed or the target itself became invalid. Uses similar validation logic to AStarPathfinder for consistency.
      *
      * @param npc the NPC to check path for
      * @return true if the path is invalid and should be recalculated
@@ -450,10 +482,13 @@ public class WalkToLocationGoal extends Goal
         if(npcLoc.getWorld() == null)
             return true;
 
+        if(npc.isWalkingBlocked())
+            return true;
+
         AABB boundingBox = ((Entity) npc.getEntity()).getBoundingBox();
         double scale = npc.getOption(NpcOption.SCALE);
         int checkAhead = Math.min(PATH_CHECK_AHEAD, currentPath.getWaypoints().size());
-        for(int i = 0; i < checkAhead; i++)
+        for(int i = 1; i < checkAhead; i++)
         {
             Location waypoint = currentPath.getWaypoints().get(i);
             if(!waypoint.getWorld().equals(npcLoc.getWorld()))
@@ -527,6 +562,7 @@ public class WalkToLocationGoal extends Goal
         private boolean allowDiagonal = true;
         private SerializableConsumer<WalkingResult> completionCallback;
         private boolean withRotation = true;
+        private boolean sharedPath;
 
         /**
          * Creates a new Builder with the required target location.
@@ -598,6 +634,19 @@ public class WalkToLocationGoal extends Goal
             return this;
         }
 
+        /**
+         * Sets whether the path is read off the shared {@link de.eisi05.npc.api.pathfinding.FlowField} of the target location. Use this when many NPCs walk
+         * to the same location, e.g. the exit of an event area.
+         *
+         * @param sharedPath If true, all NPCs walking to the target share one flow field instead of searching a path each
+         * @return this builder for chaining
+         */
+        public Builder sharedPath(boolean sharedPath)
+        {
+            this.sharedPath = sharedPath;
+            return this;
+        }
+
         /**
          * Builds the WalkToLocationGoal instance.
          *
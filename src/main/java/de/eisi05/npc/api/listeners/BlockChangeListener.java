@@ -0,0 +1,193 @@
+package de.eisi05.npc.api.listeners;
+
+import de.eisi05.npc.api.pathfinding.FlowFieldNavigator;
+import de.eisi05.npc.api.pathfinding.HierarchicalPathfinder;
+import de.eisi05.npc.api.pathfinding.PathCache;
+import de.eisi05.npc.api.pathfinding.SectionChanges;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.Openable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.util.*;
+
+public class BlockChangeListener implements Listener
+{
+    private final Map<UUID, Set<Long>> tickSections = new HashMap<>();
+    private int tick = -1;
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event)
+    {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event)
+    {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPhysics(BlockPhysicsEvent event)
+    {
+        // The event fires before the block reacts to the update, so whether it changes is not known yet
+        invalidateSection(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onBlockRedstone(BlockRedstoneEvent event)
+    {
+        if(event.getOldCurrent() != event.getNewCurrent())
+            invalidateSection(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerInteract(PlayerInteractEvent event)
+    {
+        Block block = event.getClickedBlock();
+        if(event.getAction() == Action.RIGHT_CLICK_BLOCK && event.useInteractedBlock() != Event.Result.DENY && block != null
+                && block.getBlockData() instanceof Openable)
+            invalidate(block);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent event)
+    {
+        invalidate(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event)
+    {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event)
+    {
+        invalidate(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event)
+    {
+        invalidate(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event)
+    {
+        invalidatePiston(event.getBlock(), event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event)
+    {
+        invalidatePiston(event.getBlock(), event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event)
+    {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent event)
+    {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event)
+    {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockGrow(BlockGrowEvent event)
+    {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onLeavesDecay(LeavesDecayEvent event)
+    {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStructureGrow(StructureGrowEvent event)
+    {
+        for(BlockState state : event.getBlocks())
+            invalidate(state.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event)
+    {
+        PathCache.invalidate(event.getWorld());
+        HierarchicalPathfinder.invalidate(event.getWorld());
+        FlowFieldNavigator.invalidate(event.getWorld());
+    }
+
+    private void invalidatePiston(Block piston, List<Block> blocks, BlockFace direction)
+    {
+        invalidate(piston.getRelative(direction));
+        for(Block block : blocks)
+        {
+            invalidate(block);
+            invalidate(block.getRelative(direction));
+        }
+    }
+
+    private void invalidate(List<Block> blocks)
+    {
+        blocks.forEach(this::invalidate);
+    }
+
+    /**
+     * Invalidates the whole section of a block, at most once per tick. Used for events that fire often and for many blocks of a section at once.
+     */
+    private void invalidateSection(Block block)
+    {
+        int currentTick = Bukkit.getCurrentTick();
+        if(currentTick != tick)
+        {
+            tickSections.clear();
+            tick = currentTick;
+        }
+
+        World world = block.getWorld();
+        int sx = block.getX() >> 4;
+        int sy = block.getY() >> 4;
+        int sz = block.getZ() >> 4;
+        if(!tickSections.computeIfAbsent(world.getUID(), uuid -> new HashSet<>()).add(SectionChanges.sectionKey(sx, sy, sz)))
+            return;
+
+        // The corners of a section touch all of its neighbors, so this covers a change of any block in it
+        for(int corner = 0; corner < 8; corner++)
+            PathCache.invalidate(world, (sx << 4) + ((corner & 1) == 0 ? 0 : 15), (sy << 4) + ((corner & 2) == 0 ? 0 : 15),
+                    (sz << 4) + ((corner & 4) == 0 ? 0 : 15));
+        FlowFieldNavigator.invalidate(world, sx << 4, sz << 4, (sx << 4) + 15, (sz << 4) + 15);
+    }
+
+    private void invalidate(Block block)
+    {
+        PathCache.invalidate(block.getWorld(), block.getX(), block.getY(), block.getZ());
+        FlowFieldNavigator.invalidate(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+}
@@ -28,6 +28,14 @@ public class ChangeWorldListener implements Listener
                         npc.addWalkingViewer(event.getPlayer());
                     }
                 });
+
+                NpcManager.getLightweightNPCs().forEach(npc ->
+                {
+                    if(npc.getVisibilityManager().shouldShowToPlayer(event.getPlayer().getUniqueId()))
+                        npc.showToPlayer(event.getPlayer());
+                    else
+                        npc.despawn(event.getPlayer());
+                });
             }
         }.runTaskLater(NpcApi.plugin, 10L);
     }
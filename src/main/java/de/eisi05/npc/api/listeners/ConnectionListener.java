@@ -3,6 +3,7 @@ package de.eisi05.npc.api.listeners;
 import de.eisi05.npc.api.NpcApi;
 import de.eisi05.npc.api.manager.NpcManager;
 import de.eisi05.npc.api.manager.TeamManager;
+import de.eisi05.npc.api.objects.LightweightNpc;
 import de.eisi05.npc.api.objects.NPC;
 import de.eisi05.npc.api.objects.NpcOption;
 import de.eisi05.npc.api.objects.NpcSkin;
@@ -47,6 +48,12 @@ public class ConnectionListener implements Listener
 
                     Tasks.updateSkin(event.getPlayer(), npc, npcSkin);
                 }
+
+                for(LightweightNpc npc : NpcManager.getLightweightNPCs())
+                {
+                    if(npc.getVisibilityManager().shouldShowToPlayer(event.getPlayer().getUniqueId()))
+                        npc.showToPlayer(event.getPlayer());
+                }
             }
         }.runTaskLater(NpcApi.plugin, 10L);
     }
@@ -65,5 +72,7 @@ public class ConnectionListener implements Listener
             if(NpcApi.config.autoManageVisibility())
                 npc.hideNpcFromPlayer(event.getPlayer());
         }
+
+        NpcManager.getLightweightNPCs().forEach(npc -> npc.removeViewer(event.getPlayer()));
     }
 }
@@ -23,6 +23,8 @@ public class WorldLoadListener implements Listener
     @EventHandler
     public void onChunkLoad(ChunkLoadEvent event)
     {
+        NpcManager.loadChunk(event.getChunk());
+
         if(!NpcApi.config.autoManageVisibility())
             return;
 
@@ -41,11 +43,19 @@ public class WorldLoadListener implements Listener
                         npc.addWalkingViewer(player);
                     }
                 }));
+
+        NpcManager.getLightweightNPCs(event.getChunk()).forEach(npc -> players.forEach(player ->
+        {
+            if(npc.getVisibilityManager().shouldShowToPlayer(player.getUniqueId()))
+                npc.showToPlayer(player);
+        }));
     }
 
     @EventHandler
     public void onChunkUnload(ChunkUnloadEvent event)
     {
+        NpcManager.unloadChunk(event.getChunk());
+
         if(!NpcApi.config.autoManageVisibility())
             return;
 
@@ -58,5 +68,7 @@ public class WorldLoadListener implements Listener
                 .filter(npc -> npc.getLocation().getWorld().getUID().equals(event.getChunk().getWorld().getUID()))
                 .filter(npc -> (npc.getLocation().getBlockX() >> 4) == chunkX && ((npc.getLocation().getBlockZ() >> 4) == chunkZ))
                 .forEach(npc -> players.forEach(npc::hideNpcFromPlayer));
+
+        NpcManager.getLightweightNPCs(event.getChunk()).forEach(npc -> players.forEach(npc::despawn));
     }
 }
@@ -2,22 +2,28 @@ package de.eisi05.npc.api.manager;
 
 import com.mojang.datafixers.util.Either;
 import de.eisi05.npc.api.NpcApi;
+import de.eisi05.npc.api.objects.LightweightNpc;
 import de.eisi05.npc.api.objects.NPC;
-import de.eisi05.npc.api.utils.serialize.ObjectSaver;
+import de.eisi05.npc.api.objects.Skin;
+import de.eisi05.npc.api.storage.FileNpcStorage;
+import de.eisi05.npc.api.storage.NpcStorage;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.Entity;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages the collection and lifecycle of NPC instances.
@@ -30,8 +36,34 @@ public class NpcManager
      */
     private static final Map<UUID, List<NPC.SerializedNPC>> toLoadNPCs = new HashMap<>();
 
+    /**
+     * Stores serialized NPCs whose chunk is not loaded while {@link de.eisi05.npc.api.objects.NpcConfig#lazyLoading()} is enabled. The key is the world UUID,
+     * the inner key the chunk key.
+     */
+    private static final Map<UUID, Map<Long, List<NPC.SerializedNPC>>> dormantNPCs = new HashMap<>();
+
+    /**
+     * The tasks that turn the NPCs of an unloaded chunk back into serialized NPCs once the grace period is over, by world UUID and chunk key.
+     */
+    private static final Map<UUID, Map<Long, BukkitTask>> pendingUnloads = new HashMap<>();
+
+    /**
+     * The registered {@link LightweightNpc lightweight NPCs}, by world UUID and chunk key.
+     */
+    private static final Map<UUID, Map<Long, Set<LightweightNpc>>> lightweightNPCs = new HashMap<>();
+
     private static final Map<Integer, NPC> npcById = new HashMap<>();
 
+    /**
+     * The loaded NPCs, by world UUID and chunk key, and the chunk each of them is indexed under.
+     */
+    private static final Map<UUID, Map<Long, Set<NPC>>> npcsByChunk = new HashMap<>();
+    private static final Map<NPC, ChunkRef> npcChunks = new IdentityHashMap<>();
+
+    private static CompletableFuture<Void> loadFuture = CompletableFuture.completedFuture(null);
+    private static BukkitTask loadTask;
+    private static NpcStorage storage;
+
     /**
      * Map storing the file name and the exception that occurred during loading.
      */
@@ -45,6 +77,65 @@ public class NpcManager
     public static void addNPC(@NotNull NPC npc)
     {
         npcById.put(((ServerPlayer) npc.getServerPlayer()).getId(), npc);
+        moveNPC(npc);
+    }
+
+    /**
+     * Moves an NPC to the chunk of its current location in the chunk index. Called whenever the location of the NPC changes.
+     *
+     * @param npc the NPC that moved
+     */
+    public static void moveNPC(@NotNull NPC npc)
+    {
+        Location location = npc.getLocation();
+        ChunkRef old = npcChunks.get(npc);
+        UUID world = location.getWorld().getUID();
+        long key = chunkKey(location);
+        if(old != null && old.chunk == key && old.world.equals(world))
+            return;
+
+        unindexNPC(npc, old);
+        npcChunks.put(npc, new ChunkRef(world, key));
+        npcsByChunk.computeIfAbsent(world, uuid -> new HashMap<>()).computeIfAbsent(key, k -> new LinkedHashSet<>()).add(npc);
+    }
+
+    private static void unindexNPC(@NotNull NPC npc, @Nullable ChunkRef ref)
+    {
+        if(ref == null)
+            return;
+
+        Map<Long, Set<NPC>> chunks = npcsByChunk.get(ref.world);
+        if(chunks == null)
+            return;
+
+        Set<NPC> npcs = chunks.get(ref.chunk);
+        if(npcs == null || !npcs.remove(npc) || !npcs.isEmpty())
+            return;
+
+        chunks.remove(ref.chunk);
+        if(chunks.isEmpty())
+            npcsByChunk.remove(ref.world);
+    }
+
+    /**
+     * Returns the loaded NPCs standing in the given chunk.
+     *
+     * @param chunk the chunk to look up
+     * @return a non-null list of the NPCs in the chunk
+     */
+    public static @NotNull List<NPC> getNPCs(@NotNull Chunk chunk)
+    {
+        return getNPCs(chunk.getWorld().getUID(), chunk.getChunkKey());
+    }
+
+    private static @NotNull List<NPC> getNPCs(@NotNull UUID world, long chunkKey)
+    {
+        Map<Long, Set<NPC>> chunks = npcsByChunk.get(world);
+        if(chunks == null)
+            return List.of();
+
+        Set<NPC> npcs = chunks.get(chunkKey);
+        return npcs == null ? List.of() : List.copyOf(npcs);
     }
 
     /**
@@ -66,6 +157,7 @@ public class NpcManager
     {
         npcById.remove(((ServerPlayer) npc.getServerPlayer()).getId());
         npcById.remove(((Entity) npc.getEntity()).getId());
+        unindexNPC(npc, npcChunks.remove(npc));
     }
 
     public static void addID(int id, @NotNull NPC npc)
@@ -78,9 +170,23 @@ public class NpcManager
      */
     public static void clear()
     {
+        if(loadTask != null)
+        {
+            loadTask.cancel();
+            loadTask = null;
+        }
+
+        loadFuture.cancel(false);
+        pendingUnloads.values().forEach(tasks -> tasks.values().forEach(BukkitTask::cancel));
+        pendingUnloads.clear();
+        dormantNPCs.clear();
+        lightweightNPCs.clear();
         npcById.clear();
+        npcsByChunk.clear();
+        npcChunks.clear();
         toLoadNPCs.clear();
         loadExceptions.clear();
+        storage = null;
     }
 
     /**
@@ -116,88 +222,304 @@ public class NpcManager
     }
 
     /**
-     * Loads NPCs from disk files in the plugin data folder. Logs the count of successfully and unsuccessfully loaded NPCs.
+     * Returns a flattened list of all serialized NPCs that wait for their chunk to load.
+     *
+     * @return a non-null list containing all dormant {@link NPC.SerializedNPC} instances across all worlds
+     * @see de.eisi05.npc.api.objects.NpcConfig#lazyLoading()
+     */
+    public static @NotNull List<NPC.SerializedNPC> getDormantNPCs()
+    {
+        return dormantNPCs.values().stream().flatMap(chunks -> chunks.values().stream()).flatMap(Collection::stream).toList();
+    }
+
+    /**
+     * Registers a lightweight NPC. This is called by the constructor of {@link LightweightNpc}.
+     *
+     * @param npc the lightweight NPC to add
      */
-    public static void loadNPCs()
+    public static void addLightweightNPC(@NotNull LightweightNpc npc)
     {
-        File file = new File(NpcApi.plugin.getDataFolder(), "NPC");
+        Location location = npc.getLocation();
+        lightweightNPCs.computeIfAbsent(location.getWorld().getUID(), uuid -> new HashMap<>())
+                .computeIfAbsent(chunkKey(location), key -> new LinkedHashSet<>()).add(npc);
+    }
 
-        File[] files = file.listFiles();
-        if(files == null)
+    /**
+     * Removes a lightweight NPC from the manager.
+     *
+     * @param npc the lightweight NPC to remove
+     */
+    public static void removeLightweightNPC(@NotNull LightweightNpc npc)
+    {
+        removeLightweightNPC(npc, npc.getLocation());
+    }
+
+    /**
+     * Moves a lightweight NPC to the chunk of its current location.
+     *
+     * @param npc         the lightweight NPC that moved
+     * @param oldLocation the location the NPC was registered at before
+     */
+    public static void moveLightweightNPC(@NotNull LightweightNpc npc, @NotNull Location oldLocation)
+    {
+        removeLightweightNPC(npc, oldLocation);
+        addLightweightNPC(npc);
+    }
+
+    private static void removeLightweightNPC(@NotNull LightweightNpc npc, @NotNull Location location)
+    {
+        Map<Long, Set<LightweightNpc>> chunks = lightweightNPCs.get(location.getWorld().getUID());
+        if(chunks == null)
             return;
 
-        long failCounter = 0;
-        long successCounter = 0;
-        long migrations = 0;
+        long key = chunkKey(location);
+        Set<LightweightNpc> npcs = chunks.get(key);
+        if(npcs == null || !npcs.remove(npc) || !npcs.isEmpty())
+            return;
 
-        Exception exception = null;
-        for(File file1 : files)
+        chunks.remove(key);
+        if(chunks.isEmpty())
+            lightweightNPCs.remove(location.getWorld().getUID());
+    }
+
+    /**
+     * Returns all registered lightweight NPCs.
+     *
+     * @return a non-null list of the lightweight NPCs across all worlds
+     */
+    public static @NotNull List<LightweightNpc> getLightweightNPCs()
+    {
+        return lightweightNPCs.values().stream().flatMap(chunks -> chunks.values().stream()).flatMap(Collection::stream).toList();
+    }
+
+    /**
+     * Returns the lightweight NPCs standing in the given chunk.
+     *
+     * @param chunk the chunk to look up
+     * @return a non-null list of the lightweight NPCs in the chunk
+     */
+    public static @NotNull List<LightweightNpc> getLightweightNPCs(@NotNull Chunk chunk)
+    {
+        Map<Long, Set<LightweightNpc>> chunks = lightweightNPCs.get(chunk.getWorld().getUID());
+        if(chunks == null)
+            return List.of();
+
+        Set<LightweightNpc> npcs = chunks.get(chunk.getChunkKey());
+        return npcs == null ? List.of() : List.copyOf(npcs);
+    }
+
+    private static long chunkKey(@NotNull Location location)
+    {
+        return Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    private record ChunkRef(@NotNull UUID world, long chunk) {}
+
+    /**
+     * Gets the storage the NPCs are persisted in. If no storage was configured with {@link de.eisi05.npc.api.objects.NpcConfig#storage(NpcStorage)}, a
+     * {@link FileNpcStorage} in the {@code NPC} folder of the plugin is used.
+     *
+     * @return the storage of the NPCs, never {@code null}
+     */
+    public static synchronized @NotNull NpcStorage getStorage()
+    {
+        if(storage == null)
         {
-            if(!file1.getName().endsWith(".npc") && !file1.getName().endsWith(".npc.json"))
-                continue;
+            storage = NpcApi.config.storage();
+            if(storage == null)
+                storage = new FileNpcStorage(new File(NpcApi.plugin.getDataFolder(), "NPC"), NpcApi.config.binaryStorage());
+        }
+
+        return storage;
+    }
+
+    /**
+     * Loads all NPCs from the {@link #getStorage() storage}.
+     * <p>
+     * The storage is read on a worker thread. The read NPCs are then constructed on the main thread in batches of
+     * {@link de.eisi05.npc.api.objects.NpcConfig#loadBatchSize()} per tick. Logs the count of successfully and unsuccessfully loaded NPCs together with the
+     * time the loading took.
+     *
+     * @return a future that completes on the main thread once all NPCs are constructed
+     */
+    public static @NotNull CompletableFuture<Void> loadNPCs()
+    {
+        NpcStorage storage = getStorage();
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        loadFuture = future;
+
+        Thread thread = new Thread(() ->
+        {
+            Map<String, Exception> errors = new LinkedHashMap<>();
+            List<NPC.SerializedNPC> serializedNPCs;
 
-            if(NpcApi.config.debug())
-                NpcApi.plugin.getLogger().info("Loading NPC: " + file1.getName());
             try
             {
-                ObjectSaver saver = new ObjectSaver(file1);
+                serializedNPCs = storage.loadAll(errors::put);
+            }
+            catch(Exception e)
+            {
+                NpcApi.plugin.getLogger().severe("Failed to read the NPC storage: " + e.getMessage());
+                if(NpcApi.config.debug())
+                    e.printStackTrace();
 
-                NPC.SerializedNPC serializedNPC;
-                if(!saver.isJson())
-                {
-                    File backupFolder = new File(file, "backup");
-                    if (!backupFolder.exists())
-                        backupFolder.mkdirs();
+                serializedNPCs = List.of();
+            }
 
-                    File backupFile = new File(backupFolder, file1.getName());
-                    Files.copy(file1.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            long readTime = System.nanoTime() - start;
+            if(!serializedNPCs.isEmpty() || !errors.isEmpty())
+                NpcApi.plugin.getLogger().info("Read " + (serializedNPCs.size() + errors.size()) + " NPCs in " +
+                        TimeUnit.NANOSECONDS.toMillis(readTime) + "ms (" +
+                        Math.round((serializedNPCs.size() + errors.size()) / Math.max(readTime / 1_000_000_000.0, 0.001)) + " NPCs/s)");
 
-                    serializedNPC = saver.read();
-                    file1.delete();
+            List<NPC.SerializedNPC> result = serializedNPCs;
+            try
+            {
+                Bukkit.getScheduler().runTask(NpcApi.plugin, () -> constructNPCs(result, errors, start, future));
+            }
+            catch(Exception e)
+            {
+                future.completeExceptionally(e);
+            }
+        }, "NpcApi-Loader");
+        thread.setDaemon(true);
+        thread.start();
 
-                    File jsonFile = new File(file, file1.getName() + ".json");
-                    new ObjectSaver(jsonFile).write(serializedNPC, false);
-                    migrations++;
-                }
-                else
-                    serializedNPC = saver.read(NPC.SerializedNPC.class);
-                Either<NPC, UUID> npcEither = serializedNPC.deserializedNPC();
+        return future;
+    }
 
-                if(npcEither.right().isPresent())
-                {
-                    toLoadNPCs.computeIfAbsent(npcEither.right().get(), k -> new ArrayList<>()).add(serializedNPC);
-                    continue;
-                }
+    /**
+     * Constructs the given NPCs on the main thread, spread over multiple ticks.
+     *
+     * @param serializedNPCs the read NPCs
+     * @param errors         the NPCs that could not be read, by name
+     * @param start          the time the loading started, in nanoseconds
+     * @param future         the future to complete once all NPCs are constructed
+     */
+    private static void constructNPCs(@NotNull List<NPC.SerializedNPC> serializedNPCs, @NotNull Map<String, Exception> errors, long start,
+            @NotNull CompletableFuture<Void> future)
+    {
+        LoadProgress progress = new LoadProgress();
+        errors.forEach((name, e) ->
+        {
+            progress.fail++;
+            progress.exception = e;
+            loadExceptions.put(name, e);
+        });
 
-                if(npcEither.left().isEmpty())
-                    continue;
+        if(serializedNPCs.isEmpty())
+        {
+            progress.log(start);
+            future.complete(null);
+            return;
+        }
+
+        Set<String> skinReferences = new HashSet<>();
+        serializedNPCs.forEach(npc -> skinReferences.addAll(npc.getSkinReferences()));
+        prefetchSkins(skinReferences);
+
+        loadTask = new BukkitRunnable()
+        {
+            int index = 0;
+
+            @Override
+            public void run()
+            {
+                int end = Math.min(index + NpcApi.config.loadBatchSize(), serializedNPCs.size());
+                for(; index < end; index++)
+                    constructNPC(serializedNPCs.get(index), progress);
+
+                if(index < serializedNPCs.size())
+                    return;
 
-                loadNpc(npcEither.left().get());
-                successCounter++;
+                cancel();
+                loadTask = null;
+                progress.log(start);
+                future.complete(null);
             }
-            catch(Exception e)
+        }.runTaskTimer(NpcApi.plugin, 0, 1);
+    }
+
+    /**
+     * Constructs a single read NPC, or queues it if its world is not loaded yet.
+     *
+     * @param serializedNPC the read NPC
+     * @param progress      the progress to update
+     */
+    private static void constructNPC(@NotNull NPC.SerializedNPC serializedNPC, @NotNull LoadProgress progress)
+    {
+        if(NpcApi.config.debug())
+            NpcApi.plugin.getLogger().info("Loading NPC: " + serializedNPC.getId());
+
+        if(deferToChunk(serializedNPC))
+        {
+            progress.dormant++;
+            return;
+        }
+
+        try
+        {
+            Either<NPC, UUID> npcEither = serializedNPC.deserializedNPC();
+
+            if(npcEither.right().isPresent())
             {
-                failCounter++;
-                exception = e;
-                loadExceptions.put(file1.getName(), e);
+                toLoadNPCs.computeIfAbsent(npcEither.right().get(), k -> new ArrayList<>()).add(serializedNPC);
+                return;
             }
+
+            if(npcEither.left().isEmpty())
+                return;
+
+            loadNpc(npcEither.left().get());
+            progress.success++;
+        }
+        catch(Exception e)
+        {
+            progress.fail++;
+            progress.exception = e;
+            loadExceptions.put(serializedNPC.getId().toString(), e);
         }
+    }
 
-        if(migrations > 0)
-            NpcApi.plugin.getLogger().info("Successfully migrated " + migrations + " NPC's");
+    /**
+     * Checks whether the NPCs saved on disk are still being loaded.
+     *
+     * @return {@code true} if the loading started by {@link #loadNPCs()} has not finished yet
+     */
+    public static boolean isLoading()
+    {
+        return !loadFuture.isDone();
+    }
 
-        if(successCounter == 1)
-            NpcApi.plugin.getLogger().info("Successfully loaded " + successCounter + " NPC");
-        else if(successCounter > 1)
-            NpcApi.plugin.getLogger().info("Successfully loaded " + successCounter + " NPC's");
+    /**
+     * Gets the future of the currently running or last finished NPC loading.
+     *
+     * @return a future that completes once all saved NPCs are constructed
+     */
+    public static @NotNull CompletableFuture<Void> getLoadFuture()
+    {
+        return loadFuture;
+    }
 
-        if(failCounter == 1)
-            NpcApi.plugin.getLogger().warning("Failed to load " + failCounter + " NPC");
-        else if(failCounter > 1)
-            NpcApi.plugin.getLogger().warning("Failed to load " + failCounter + " NPC's");
+    /**
+     * Loads the skins referenced by the loaded NPCs in the background, so they are cached before the first player joins.
+     *
+     * @param skinReferences the player names, UUIDs or URLs referenced by the NPCs
+     */
+    private static void prefetchSkins(@NotNull Set<String> skinReferences)
+    {
+        if(skinReferences.isEmpty())
+            return;
 
-        if(exception != null && NpcApi.config.debug())
-            exception.printStackTrace();
+        long start = System.currentTimeMillis();
+        Skin.prefetchAsync(skinReferences).thenAccept(cached ->
+        {
+            if(NpcApi.config.debug())
+                NpcApi.plugin.getLogger().info("Prefetched " + cached + "/" + skinReferences.size() + " skins in " +
+                        (System.currentTimeMillis() - start) + "ms");
+        });
     }
 
     /**
@@ -215,6 +537,9 @@ public class NpcManager
         Exception exception = null;
         for(NPC.SerializedNPC serializedNPC : serializedNPCS)
         {
+            if(deferToChunk(serializedNPC))
+                continue;
+
             try
             {
                 Either<NPC, ?> either = serializedNPC.deserializedNPC();
@@ -257,6 +582,19 @@ public class NpcManager
                 }
         );
 
+        Map<Long, List<NPC.SerializedNPC>> dormantChunks = dormantNPCs.get(serializedNPC.getWorld());
+        if(dormantChunks != null)
+        {
+            dormantChunks.computeIfPresent(serializedNPC.getChunkKey(), (k, list) ->
+            {
+                list.remove(serializedNPC);
+                return list.isEmpty() ? null : list;
+            });
+
+            if(dormantChunks.isEmpty())
+                dormantNPCs.remove(serializedNPC.getWorld());
+        }
+
         if(location != null)
             serializedNPC.setLocation(location);
 
@@ -281,6 +619,140 @@ public class NpcManager
         }
     }
 
+    /**
+     * Keeps the given NPC as a dormant serialized NPC if {@link de.eisi05.npc.api.objects.NpcConfig#lazyLoading()} is enabled, its world is loaded and its
+     * chunk is not. It is constructed once its chunk loads.
+     *
+     * @param serializedNPC the NPC to check
+     * @return {@code true} if the NPC was deferred, {@code false} if it should be constructed now
+     */
+    private static boolean deferToChunk(@NotNull NPC.SerializedNPC serializedNPC)
+    {
+        if(!NpcApi.config.lazyLoading())
+            return false;
+
+        World world = Bukkit.getWorld(serializedNPC.getWorld());
+        long chunkKey = serializedNPC.getChunkKey();
+        if(world == null || world.isChunkLoaded((int) chunkKey, (int) (chunkKey >> 32)))
+            return false;
+
+        dormantNPCs.computeIfAbsent(world.getUID(), k -> new HashMap<>()).computeIfAbsent(chunkKey, k -> new ArrayList<>()).add(serializedNPC);
+        return true;
+    }
+
+    /**
+     * Constructs all dormant NPCs of the given chunk and cancels a pending unload of it.
+     *
+     * @param chunk the chunk that was loaded
+     */
+    public static void loadChunk(@NotNull Chunk chunk)
+    {
+        UUID worldId = chunk.getWorld().getUID();
+        long chunkKey = chunk.getChunkKey();
+
+        Map<Long, BukkitTask> pending = pendingUnloads.get(worldId);
+        if(pending != null)
+        {
+            BukkitTask task = pending.remove(chunkKey);
+            if(task != null)
+                task.cancel();
+
+            if(pending.isEmpty())
+                pendingUnloads.remove(worldId);
+        }
+
+        Map<Long, List<NPC.SerializedNPC>> chunks = dormantNPCs.get(worldId);
+        if(chunks == null)
+            return;
+
+        List<NPC.SerializedNPC> serializedNPCS = chunks.remove(chunkKey);
+        if(chunks.isEmpty())
+            dormantNPCs.remove(worldId);
+
+        if(serializedNPCS == null)
+            return;
+
+        Exception exception = null;
+        for(NPC.SerializedNPC serializedNPC : serializedNPCS)
+        {
+            try
+            {
+                serializedNPC.deserializedNPC().left().ifPresent(NpcManager::loadNpc);
+            }
+            catch(Exception e)
+            {
+                exception = e;
+            }
+        }
+
+        if(exception != null && NpcApi.config.debug())
+            exception.printStackTrace();
+    }
+
+    /**
+     * Schedules the NPCs of the given chunk to be turned back into dormant serialized NPCs once the configured grace period is over. Does nothing unless
+     * {@link de.eisi05.npc.api.objects.NpcConfig#lazyLoading()} is enabled.
+     *
+     * @param chunk the chunk that was unloaded
+     */
+    public static void unloadChunk(@NotNull Chunk chunk)
+    {
+        if(!NpcApi.config.lazyLoading())
+            return;
+
+        World world = chunk.getWorld();
+        long chunkKey = chunk.getChunkKey();
+
+        BukkitTask task = Bukkit.getScheduler().runTaskLater(NpcApi.plugin, () -> dematerializeChunk(world, chunkKey),
+                NpcApi.config.lazyUnloadDelay());
+
+        BukkitTask old = pendingUnloads.computeIfAbsent(world.getUID(), k -> new HashMap<>()).put(chunkKey, task);
+        if(old != null)
+            old.cancel();
+    }
+
+    /**
+     * Turns the NPCs of a chunk that is still unloaded into dormant serialized NPCs. Only NPCs that are saved in the storage, are not walking and have no
+     * running goals are unloaded, unsaved changes are saved first.
+     *
+     * @param world    the world of the chunk
+     * @param chunkKey the key of the chunk
+     */
+    private static void dematerializeChunk(@NotNull World world, long chunkKey)
+    {
+        Map<Long, BukkitTask> pending = pendingUnloads.get(world.getUID());
+        if(pending != null)
+        {
+            pending.remove(chunkKey);
+            if(pending.isEmpty())
+                pendingUnloads.remove(world.getUID());
+        }
+
+        if(world.isChunkLoaded((int) chunkKey, (int) (chunkKey >> 32)))
+            return;
+
+        for(NPC npc : getNPCs(world.getUID(), chunkKey))
+        {
+            if(npc.isWalking() || npc.isGoalSystemRunning() || !npc.isSaved())
+                continue;
+
+            try
+            {
+                if(npc.hasUnsavedChanges())
+                    npc.save();
+
+                NPC.SerializedNPC serializedNPC = NPC.SerializedNPC.serializedNPC(npc);
+                npc.unload();
+                dormantNPCs.computeIfAbsent(world.getUID(), k -> new HashMap<>()).computeIfAbsent(chunkKey, k -> new ArrayList<>()).add(serializedNPC);
+            }
+            catch(Exception e)
+            {
+                if(NpcApi.config.debug())
+                    e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * Initializes the given NPC, applying editability rules based on its creation time and making it visible to all online players.
      *
@@ -305,4 +777,36 @@ public class NpcManager
                 npc.showNPCToPlayer(player);
             });
     }
+
+    /**
+     * Counts the results while the NPCs are constructed.
+     */
+    private static class LoadProgress
+    {
+        long success;
+        long fail;
+        long dormant;
+        Exception exception;
+
+        void log(long start)
+        {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            if(success == 1)
+                NpcApi.plugin.getLogger().info("Successfully loaded " + success + " NPC in " + millis + "ms");
+            else if(success > 1)
+                NpcApi.plugin.getLogger().info("Successfully loaded " + success + " NPC's in " + millis + "ms");
+
+            if(dormant > 0)
+                NpcApi.plugin.getLogger().info("Deferred " + dormant + " NPC's until their chunks load");
+
+            if(fail == 1)
+                NpcApi.plugin.getLogger().warning("Failed to load " + fail + " NPC");
+            else if(fail > 1)
+                NpcApi.plugin.getLogger().warning("Failed to load " + fail + " NPC's");
+
+            if(exception != null && NpcApi.config.debug())
+                exception.printStackTrace();
+        }
+    }
 }
@@ -2,6 +2,7 @@ package de.eisi05.npc.api.movement;
 
 import de.eisi05.npc.api.NpcApi;
 import de.eisi05.npc.api.objects.NPC;
+import de.eisi05.npc.api.scheduler.UpdateRate;
 import de.eisi05.npc.api.wrapper.packets.TeleportEntityPacket;
 import net.minecraft.network.protocol.game.ClientboundRotateHeadPacket;
 import net.minecraft.network.protocol.game.ClientboundTeleportEntityPacket;
@@ -17,6 +18,8 @@ import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -25,6 +28,9 @@ import java.util.function.Consumer;
 
 /**
  * Replays recorded movements on NPCs with precise timing and smooth transitions. Supports different replay modes and provides callbacks for completion.
+ * <p>
+ * Distant viewers are sent the movement less often, as decided by the {@link UpdateRate}; the first and last position and jumps are sent to all viewers.
+ * </p>
  */
 public class MovementReplayer
 {
@@ -136,6 +142,7 @@ public class MovementReplayer
         private BukkitTask replayTask;
         private int currentIndex;
         private long lastTimestamp;
+        private long tick;
 
         private ReplaySession(@NotNull NPC npc, @NotNull MovementRecording recording, double speedMultiplier, boolean changeRealLocation,
                               @Nullable Consumer<ReplayResult> onComplete, long replayId, @Nullable Player... viewers)
@@ -203,10 +210,11 @@ public class MovementReplayer
                 @Override
                 public void run()
                 {
+                    tick++;
                     if(currentIndex >= recording.getMovementCount())
                     {
                         if(!recording.movements().isEmpty())
-                            executeMovement(recording.getLastMovement());
+                            executeMovement(recording.getLastMovement(), true);
 
                         complete(ReplayResult.COMPLETED);
                         return;
@@ -223,7 +231,7 @@ public class MovementReplayer
 
                         if(elapsedTime >= scaledTime)
                         {
-                            executeMovement(currentMovement);
+                            executeMovement(currentMovement, false);
                             currentIndex++;
                             movementsProcessed++;
                         }
@@ -234,7 +242,7 @@ public class MovementReplayer
             }.runTaskTimer(NpcApi.plugin, 1L, 1L);
         }
 
-        private void executeMovement(@NotNull MovementData movement)
+        private void executeMovement(@NotNull MovementData movement, boolean sendToAll)
         {
             World world = Bukkit.getWorld(movement.getWorldUUID());
             if(world == null)
@@ -269,7 +277,7 @@ public class MovementReplayer
                     ClientboundTeleportEntityPacket teleport = (ClientboundTeleportEntityPacket) TeleportEntityPacket.create((Entity) npc.getEntity(),
                             currentVec3, movementVec3, targetLocation.getYaw(), targetLocation.getPitch(), Set.of(), true);
 
-                    npc.sendNpcMovePackets(teleport, head, viewers);
+                    npc.sendNpcMovePackets(teleport, head, sendToAll ? viewers : getDueViewers(targetLocation));
                 }
             }
             else
@@ -289,6 +297,36 @@ public class MovementReplayer
             lastTimestamp = movement.getTimestamp();
         }
 
+        private Player @NotNull [] getDueViewers(@NotNull Location location)
+        {
+            List<Player> due = new ArrayList<>();
+            if(viewers != null)
+            {
+                for(Player viewer : viewers)
+                {
+                    if(viewer != null && isDue(viewer, location))
+                        due.add(viewer);
+                }
+            }
+            else
+            {
+                for(UUID uuid : npc.getViewers())
+                {
+                    Player viewer = Bukkit.getPlayer(uuid);
+                    if(viewer != null && isDue(viewer, location))
+                        due.add(viewer);
+                }
+            }
+
+            return due.toArray(new Player[0]);
+        }
+
+        private boolean isDue(@NotNull Player viewer, @NotNull Location location)
+        {
+            int tier = UpdateRate.getTier(viewer, location.getWorld(), location.getX(), location.getY(), location.getZ());
+            return UpdateRate.isDue(tier, tick, ((Entity) npc.getEntity()).getId());
+        }
+
         private void stop()
         {
             if(replayTask != null)
@@ -0,0 +1,606 @@
+package de.eisi05.npc.api.objects;
+
+import com.google.common.collect.Multimaps;
+import com.mojang.authlib.GameProfile;
+import com.mojang.authlib.properties.Property;
+import com.mojang.authlib.properties.PropertyMap;
+import de.eisi05.npc.api.NpcApi;
+import de.eisi05.npc.api.ai.GoalSelector;
+import de.eisi05.npc.api.enums.NpcVisibility;
+import de.eisi05.npc.api.enums.SkinParts;
+import de.eisi05.npc.api.manager.NpcManager;
+import de.eisi05.npc.api.manager.NpcVisibilityManager;
+import de.eisi05.npc.api.manager.TeamManager;
+import de.eisi05.npc.api.utils.Reflections;
+import de.eisi05.npc.api.utils.Versions;
+import de.eisi05.npc.api.wrapper.enums.ChatFormat;
+import de.eisi05.npc.api.wrapper.packets.SetPlayerTeamPacket;
+import io.netty.buffer.Unpooled;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.json.JSONComponentSerializer;
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.*;
+import net.minecraft.network.syncher.EntityDataSerializers;
+import net.minecraft.network.syncher.SynchedEntityData;
+import net.minecraft.server.network.ServerGamePacketListenerImpl;
+import net.minecraft.world.entity.Display;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.ai.attributes.AttributeInstance;
+import net.minecraft.world.entity.ai.attributes.Attributes;
+import net.minecraft.world.level.GameType;
+import net.minecraft.world.phys.Vec3;
+import net.minecraft.world.scores.PlayerTeam;
+import net.minecraft.world.scores.Team;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.bukkit.craftbukkit.entity.CraftPlayer;
+import org.bukkit.craftbukkit.inventory.CraftItemStack;
+import org.bukkit.craftbukkit.util.CraftChatMessage;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Pose;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A packet-only player NPC that is not backed by an NMS {@code ServerPlayer}.
+ * <p>
+ * A {@code LightweightNpc} keeps only the state needed to build its spawn packets: the UUID, two entity ids for the body and the nametag, the location, the
+ * name and the {@link NpcOption options}. Game profiles, metadata and the nametag data are generated per viewer when the NPC is shown, so thousands of them
+ * cost kilobytes instead of a full server player, connection and text display each.
+ * </p>
+ * <p>
+ * It is meant for decorative NPCs that never walk, fight or use goals. The following options are supported: {@link NpcOption#SKIN}, {@link
+ * NpcOption#USE_PLAYER_SKIN}, {@link NpcOption#SHOW_TAB_LIST}, {@link NpcOption#LATENCY}, {@link NpcOption#LIST_ORDER}, {@link NpcOption#HIDE_NAMETAG},
+ * {@link NpcOption#EQUIPMENT}, {@link NpcOption#SKIN_PARTS}, {@link NpcOption#LOOK_AT_PLAYER}, {@link NpcOption#VISIBILITY}, {@link NpcOption#GLOWING},
+ * {@link NpcOption#COLLISION}, {@link NpcOption#POSE} and {@link NpcOption#SCALE}. Dynamic skins resolve to their fallback skin, the {@link NpcOption#ENTITY}
+ * option and the {@link Pose#SITTING sitting} pose are not supported. Lightweight NPCs are not saved and have to be recreated by the owning plugin. They
+ * need Minecraft 1.21.4 or newer.
+ * </p>
+ */
+public class LightweightNpc extends NpcHolder
+{
+    /**
+     * Text displays used to build the nametag metadata, one per world. They are never spawned, only their data is sent with the id of each NPC.
+     */
+    private static final Map<UUID, CustomNameTag> NAME_TAG_TEMPLATES = new HashMap<>();
+
+    private final UUID uuid;
+    private final String profileName;
+    private final int entityId;
+    private final int nameTagId;
+    private final UUID nameTagUUID = UUID.randomUUID();
+    private final Set<UUID> viewers = new HashSet<>();
+
+    private Location location;
+
+    /**
+     * Creates a lightweight NPC at the specified location with a random UUID and an empty name.
+     *
+     * @param location the location of the NPC. Must not be null.
+     */
+    public LightweightNpc(@NotNull Location location)
+    {
+        this(location, UUID.randomUUID(), NpcName.empty());
+    }
+
+    /**
+     * Creates a lightweight NPC at the specified location with a random UUID and the given name.
+     *
+     * @param location the location of the NPC. Must not be null.
+     * @param name     the display name of the NPC. Must not be null.
+     */
+    public LightweightNpc(@NotNull Location location, @NotNull NpcName name)
+    {
+        this(location, UUID.randomUUID(), name);
+    }
+
+    /**
+     * Creates a lightweight NPC at the specified location with the given UUID and name. The NPC is registered in the {@link NpcManager} but not shown to
+     * anyone yet.
+     *
+     * @param location the location of the NPC. Must not be null.
+     * @param uuid     the UUID of the NPC. Must not be null.
+     * @param name     the display name of the NPC. Must not be null.
+     * @throws UnsupportedOperationException if the server runs a Minecraft version older than 1.21.4
+     */
+    public LightweightNpc(@NotNull Location location, @NotNull UUID uuid, @NotNull NpcName name)
+    {
+        if(Versions.isCurrentVersionSmallerThan(Versions.V1_21_4))
+            throw new UnsupportedOperationException("Lightweight NPCs require Minecraft 1.21.4 or newer");
+
+        this.location = location.clone();
+        this.uuid = uuid;
+        this.name = name;
+        this.profileName = "NPC" + uuid.toString().substring(0, 13);
+        this.entityId = Bukkit.getUnsafe().nextEntityId();
+        this.nameTagId = Bukkit.getUnsafe().nextEntityId();
+
+        // Only the options with mutable state are stored; everything else falls back to the option defaults to keep the NPC small
+        Map<NpcOption<?, ?>, Object> globalOptions = options.computeIfAbsent(GLOBAL_UUID, k -> new HashMap<>());
+        globalOptions.put(NpcOption.ENABLED, true);
+        globalOptions.put(NpcOption.VISIBILITY_MANAGER, new NpcVisibilityManager());
+        NpcManager.addLightweightNPC(this);
+    }
+
+    @Override
+    public @NotNull UUID getUUID()
+    {
+        return uuid;
+    }
+
+    @Override
+    public @NotNull Component getName()
+    {
+        Component component = name.getName();
+        return component == null ? Component.empty() : component;
+    }
+
+    @Override
+    public void setName(@NotNull NpcName name)
+    {
+        this.name = name;
+        markChange();
+        refresh();
+    }
+
+    /**
+     * Gets the name object of this NPC.
+     *
+     * @return the {@link NpcName}. Never null.
+     */
+    public @NotNull NpcName getNpcName()
+    {
+        return name;
+    }
+
+    /**
+     * Lightweight NPCs have no goal system.
+     *
+     * @return always {@code null}
+     */
+    @Override
+    protected @Nullable GoalSelector getGoalSelector()
+    {
+        return null;
+    }
+
+    /**
+     * Gets the entity id of the NPC's body, as used in packets.
+     *
+     * @return the entity id
+     */
+    public int getEntityId()
+    {
+        return entityId;
+    }
+
+    /**
+     * Gets the name of the game profile of this NPC, which is also used as its team entry.
+     *
+     * @return the profile name. Never null.
+     */
+    public @NotNull String getGameProfileName()
+    {
+        return profileName;
+    }
+
+    /**
+     * Gets a copy of the NPC's location.
+     *
+     * @return the location. Never null.
+     */
+    public @NotNull Location getLocation()
+    {
+        return location.clone();
+    }
+
+    /**
+     * Moves the NPC to a new location and respawns it for all viewers.
+     *
+     * @param location the new location. Must not be null.
+     */
+    public void setLocation(@NotNull Location location)
+    {
+        Location oldLocation = this.location;
+        this.location = location.clone();
+        NpcManager.moveLightweightNPC(this, oldLocation);
+        markChange();
+
+        List<Player> players = getViewerPlayers();
+        players.forEach(this::despawn);
+        players.forEach(this::showToPlayer);
+    }
+
+    /**
+     * Gets the visibility manager of this NPC.
+     *
+     * @return the {@link NpcVisibilityManager}. Never null.
+     */
+    public @NotNull NpcVisibilityManager getVisibilityManager()
+    {
+        return getOption(NpcOption.VISIBILITY_MANAGER, GLOBAL_UUID);
+    }
+
+    /**
+     * Gets the UUIDs of the players that currently see this NPC.
+     *
+     * @return an unmodifiable view of the viewers. Never null.
+     */
+    public @NotNull Set<UUID> getViewers()
+    {
+        return Collections.unmodifiableSet(viewers);
+    }
+
+    /**
+     * Makes the NPC visible to all online players in its world and marks it to be shown to future players.
+     */
+    public void showToAllPlayers()
+    {
+        if(!getVisibilityManager().shouldShowToAllPlayers())
+        {
+            getVisibilityManager().setShowToAllPlayers(true);
+            markChange();
+        }
+        Bukkit.getOnlinePlayers().forEach(this::showToPlayer);
+    }
+
+    /**
+     * Makes the NPC visible to a specific player. If the NPC is not shown to all players, the player is added to the specific players. Players in another
+     * world only see the NPC once they enter its world.
+     *
+     * @param player the player to show the NPC to. Must not be null.
+     */
+    public void showToPlayer(@NotNull Player player)
+    {
+        if(!getOption(NpcOption.ENABLED, GLOBAL_UUID) && !player.isPermissionSet("npc.admin") && !player.isOp())
+            return;
+
+        if(!getVisibilityManager().shouldShowToAllPlayers() && getVisibilityManager().addSpecificPlayer(player.getUniqueId()))
+            markChange();
+
+        if(!player.getWorld().getUID().equals(location.getWorld().getUID()))
+        {
+            despawn(player);
+            return;
+        }
+
+        if(!viewers.add(player.getUniqueId()))
+            return;
+
+        ServerGamePacketListenerImpl connection = ((CraftPlayer) player).getHandle().connection;
+        createSpawnPackets(player).forEach(connection::send);
+    }
+
+    /**
+     * Hides the NPC from all online players and resets the visibility settings.
+     */
+    public void hideFromAllPlayers()
+    {
+        NpcVisibilityManager visibilityManager = getVisibilityManager();
+        if(visibilityManager.shouldShowToAllPlayers() || !visibilityManager.getSpecificPlayers().isEmpty())
+        {
+            visibilityManager.setShowToAllPlayers(false);
+            visibilityManager.clearSpecificPlayers();
+            markChange();
+        }
+
+        getViewerPlayers().forEach(this::despawn);
+        viewers.clear();
+    }
+
+    /**
+     * Hides the NPC from a specific player. If the NPC is not shown to all players, the player is removed from the specific players.
+     *
+     * @param player the player to hide the NPC from. Must not be null.
+     */
+    public void hideFromPlayer(@NotNull Player player)
+    {
+        if(!getVisibilityManager().shouldShowToAllPlayers() && getVisibilityManager().removeSpecificPlayer(player.getUniqueId()))
+            markChange();
+
+        despawn(player);
+    }
+
+    /**
+     * Removes the NPC from the client of a player without changing the visibility settings, for example when its chunk unloads.
+     *
+     * @param player the player to remove the NPC for. Must not be null.
+     */
+    @ApiStatus.Internal
+    public void despawn(@NotNull Player player)
+    {
+        if(!viewers.remove(player.getUniqueId()))
+            return;
+
+        ServerGamePacketListenerImpl connection = ((CraftPlayer) player).getHandle().connection;
+        connection.send(new ClientboundRemoveEntitiesPacket(entityId, nameTagId));
+        connection.send(new ClientboundPlayerInfoRemovePacket(List.of(uuid)));
+
+        if(TeamManager.exists(player, profileName))
+        {
+            connection.send((Packet<?>) SetPlayerTeamPacket.createRemovePacket((PlayerTeam) TeamManager.create(player, profileName)));
+            TeamManager.clear(player.getUniqueId(), profileName);
+        }
+    }
+
+    /**
+     * Forgets a viewer that left the server. No packets are sent.
+     *
+     * @param player the player that left. Must not be null.
+     */
+    @ApiStatus.Internal
+    public void removeViewer(@NotNull Player player)
+    {
+        viewers.remove(player.getUniqueId());
+    }
+
+    /**
+     * Respawns the NPC for all viewers, applying changed options and names.
+     */
+    public void refresh()
+    {
+        List<Player> players = getViewerPlayers();
+        players.forEach(this::despawn);
+        players.forEach(this::showToPlayer);
+    }
+
+    /**
+     * Rotates the head and body of the NPC towards the given player, for that player only.
+     *
+     * @param player the player to look at. Must not be null.
+     */
+    public void lookAtPlayer(@NotNull Player player)
+    {
+        if(!viewers.contains(player.getUniqueId()))
+            return;
+
+        Location eye = location.clone().add(0, 1.62 * getOption(NpcOption.SCALE, player), 0);
+        Vector direction = player.getEyeLocation().toVector().subtract(eye.toVector());
+        if(direction.lengthSquared() < 1.0E-6)
+            return;
+
+        Location facing = eye.setDirection(direction);
+        byte yaw = (byte) (facing.getYaw() * 256 / 360);
+        byte pitch = (byte) (facing.getPitch() * 256 / 360);
+
+        ServerGamePacketListenerImpl connection = ((CraftPlayer) player).getHandle().connection;
+        connection.send(new ClientboundMoveEntityPacket.Rot(entityId, yaw, pitch, true));
+        connection.send(createRotateHeadPacket(yaw));
+    }
+
+    /**
+     * Hides the NPC from all players and removes it from the {@link NpcManager}. The NPC must not be used afterward.
+     */
+    public void delete()
+    {
+        getViewerPlayers().forEach(this::despawn);
+        viewers.clear();
+        NpcManager.removeLightweightNPC(this);
+    }
+
+    private @NotNull List<Player> getViewerPlayers()
+    {
+        return viewers.stream().map(Bukkit::getPlayer).filter(Objects::nonNull).toList();
+    }
+
+    private @NotNull List<Packet<?>> createSpawnPackets(@NotNull Player player)
+    {
+        List<Packet<?>> packets = new ArrayList<>();
+
+        Component tabName = name.getName(player);
+        boolean listed = getOption(NpcOption.SHOW_TAB_LIST, player) && name.isStatic();
+        packets.add(createPlayerInfoPacket(createProfile(resolveSkin(player)), listed, getOption(NpcOption.LATENCY, player),
+                CraftChatMessage.fromJSON(JSONComponentSerializer.json().serialize(tabName == null ? Component.empty() : tabName)),
+                getOption(NpcOption.LIST_ORDER, player)));
+
+        packets.add(new ClientboundAddEntityPacket(entityId, uuid, location.getX(), location.getY(), location.getZ(), location.getPitch(), location.getYaw(),
+                playerType(), 0, Vec3.ZERO, location.getYaw()));
+        packets.add(new ClientboundSetEntityDataPacket(entityId, createMetadata(player)));
+        packets.add(createRotateHeadPacket((byte) (location.getYaw() * 256 / 360)));
+
+        Map<EquipmentSlot, ItemStack> equipment = getOption(NpcOption.EQUIPMENT, player);
+        if(equipment != null && !equipment.isEmpty())
+        {
+            List<com.mojang.datafixers.util.Pair<net.minecraft.world.entity.EquipmentSlot, net.minecraft.world.item.ItemStack>> list = new ArrayList<>();
+            equipment.forEach((slot, item) -> list.add(new com.mojang.datafixers.util.Pair<>(
+                    net.minecraft.world.entity.EquipmentSlot.values()[slot.ordinal()], CraftItemStack.asNMSCopy(item))));
+            packets.add(new ClientboundSetEquipmentPacket(entityId, list));
+        }
+
+        double scale = getOption(NpcOption.SCALE, player);
+        if(scale != 1.0)
+        {
+            AttributeInstance instance = new AttributeInstance(Attributes.SCALE, attributeInstance -> {});
+            instance.setBaseValue(scale);
+            packets.add(new ClientboundUpdateAttributesPacket(entityId, List.of(instance)));
+        }
+
+        packets.addAll(createTeamPackets(player));
+
+        if(!getOption(NpcOption.HIDE_NAMETAG, player))
+        {
+            Component nameTag = isEnabled() ? name.getName(player) : NpcApi.DISABLED_MESSAGE_PROVIDER.apply(player).appendNewline().append(name.getName(player));
+            SynchedEntityData data = (SynchedEntityData) getNameTagTemplate().applyData(nameTag, name.getDisplayOptions());
+
+            packets.add(new ClientboundAddEntityPacket(nameTagId, nameTagUUID, location.getX(), location.getY() + 2, location.getZ(), 0, 0,
+                    textDisplayType(), 0, Vec3.ZERO, 0));
+            packets.add(new ClientboundSetEntityDataPacket(nameTagId, data.packAll()));
+            packets.add(createPassengersPacket());
+        }
+
+        return packets;
+    }
+
+    private boolean isEnabled()
+    {
+        return getOption(NpcOption.ENABLED, GLOBAL_UUID);
+    }
+
+    private @NotNull List<SynchedEntityData.DataValue<?>> createMetadata(@NotNull Player player)
+    {
+        List<SynchedEntityData.DataValue<?>> values = new ArrayList<>();
+
+        Pose pose = getOption(NpcOption.POSE, player);
+        byte flags = 0;
+        if(getOption(NpcOption.VISIBILITY, player) != NpcVisibility.FULLY_VISIBLE)
+            flags |= 0x20;
+        if(getOption(NpcOption.GLOWING, player) != null)
+            flags |= 0x40;
+        if(pose == Pose.SWIMMING)
+            flags |= 0x10;
+        if(pose == Pose.FALL_FLYING)
+            flags |= (byte) 0x80;
+
+        values.add(SynchedEntityData.DataValue.create(EntityDataSerializers.BYTE.createAccessor(0), flags));
+        values.add(SynchedEntityData.DataValue.create(EntityDataSerializers.POSE.createAccessor(6),
+                net.minecraft.world.entity.Pose.values()[pose == Pose.SITTING ? Pose.STANDING.ordinal() : pose.ordinal()]));
+
+        if(pose == Pose.SPIN_ATTACK)
+            values.add(SynchedEntityData.DataValue.create(EntityDataSerializers.BYTE.createAccessor(8), (byte) 0x04));
+
+        SkinParts[] skinParts = getOption(NpcOption.SKIN_PARTS, player);
+        values.add(SynchedEntityData.DataValue.create(
+                EntityDataSerializers.BYTE.createAccessor(Versions.isCurrentVersionSmallerThan(Versions.V1_21_9) ? 17 : 16),
+                (byte) Arrays.stream(skinParts).mapToInt(SkinParts::getValue).sum()));
+
+        return values;
+    }
+
+    private @NotNull List<Packet<?>> createTeamPackets(@NotNull Player player)
+    {
+        List<Packet<?>> packets = new ArrayList<>();
+
+        if(getOption(NpcOption.VISIBILITY, player) == NpcVisibility.TRANSPARENT)
+        {
+            String teamName = "trans-" + player.getEntityId();
+            boolean exists = TeamManager.exists(player, teamName);
+            PlayerTeam team = (PlayerTeam) TeamManager.create(player, teamName);
+            team.setSeeFriendlyInvisibles(true);
+            team.setNameTagVisibility(Team.Visibility.NEVER);
+            team.getPlayers().add(profileName);
+            team.getPlayers().add(player.getScoreboardEntryName());
+
+            packets.add((Packet<?>) SetPlayerTeamPacket.createAddOrModifyPacket(team, !exists));
+            packets.add((Packet<?>) SetPlayerTeamPacket.createPlayerPacket(team, profileName, ClientboundSetPlayerTeamPacket.Action.ADD));
+            packets.add((Packet<?>) SetPlayerTeamPacket.createPlayerPacket(team, player.getScoreboardEntryName(), ClientboundSetPlayerTeamPacket.Action.ADD));
+            return packets;
+        }
+
+        boolean exists = TeamManager.exists(player, profileName);
+        PlayerTeam team = (PlayerTeam) TeamManager.create(player, profileName);
+        team.setNameTagVisibility(Team.Visibility.NEVER);
+        team.setCollisionRule(getOption(NpcOption.COLLISION, player) ? Team.CollisionRule.ALWAYS : Team.CollisionRule.NEVER);
+
+        ChatFormat color = getOption(NpcOption.GLOWING, player);
+        if(color != null)
+        {
+            if(Versions.isCurrentVersionSmallerThan(Versions.V26_2))
+                team.setColor(ChatFormatting.getByCode(color.getColorCode()));
+            else
+                Reflections.invokeMethod(team, "setColor", Optional.of(SetPlayerTeamPacket.getTeamColor(ChatFormatting.getByCode(color.getColorCode()))));
+        }
+
+        team.getPlayers().add(profileName);
+        packets.add((Packet<?>) SetPlayerTeamPacket.createAddOrModifyPacket(team, !exists));
+        packets.add((Packet<?>) SetPlayerTeamPacket.createPlayerPacket(team, profileName, ClientboundSetPlayerTeamPacket.Action.ADD));
+        return packets;
+    }
+
+    private @Nullable Skin resolveSkin(@NotNull Player player)
+    {
+        if(getOption(NpcOption.USE_PLAYER_SKIN, player))
+        {
+            return player.getPlayerProfile().getProperties().stream()
+                    .filter(property -> property.getName().equals("textures"))
+                    .findFirst()
+                    .map(property -> new Skin(null, property.getValue(), Objects.requireNonNullElse(property.getSignature(), "")))
+                    .orElse(null);
+        }
+
+        NpcSkin skin = getOption(NpcOption.SKIN, player);
+        return skin == null ? null : skin.getSkin();
+    }
+
+    private @NotNull GameProfile createProfile(@Nullable Skin skin)
+    {
+        if(!Versions.isCurrentVersionSmallerThan(Versions.V1_21_9))
+            return new GameProfile(uuid, profileName, new PropertyMap(
+                    Multimaps.forMap(skin == null ? Map.of() : Map.of("textures", new Property("textures", skin.value(), skin.signature())))));
+
+        GameProfile profile = new GameProfile(uuid, profileName);
+        if(skin != null)
+            ((PropertyMap) Reflections.invokeMethod(profile, "getProperties").get()).put("textures", new Property("textures", skin.value(), skin.signature()));
+        return profile;
+    }
+
+    private @NotNull Packet<?> createRotateHeadPacket(byte yaw)
+    {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeVarInt(entityId);
+        buf.writeByte(yaw);
+        return ClientboundRotateHeadPacket.STREAM_CODEC.decode(buf);
+    }
+
+    private @NotNull Packet<?> createPassengersPacket()
+    {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeVarInt(entityId);
+        buf.writeVarIntArray(new int[]{nameTagId});
+        return ClientboundSetPassengersPacket.STREAM_CODEC.decode(buf);
+    }
+
+    private @NotNull CustomNameTag getNameTagTemplate()
+    {
+        return NAME_TAG_TEMPLATES.computeIfAbsent(location.getWorld().getUID(), uuid -> new CustomNameTag(
+                new Display.TextDisplay(textDisplayType(), ((CraftWorld) location.getWorld()).getHandle())));
+    }
+
+    /**
+     * Removes the cached nametag templates, e.g. when the API is disabled.
+     */
+    @ApiStatus.Internal
+    public static void clearTemplates()
+    {
+        NAME_TAG_TEMPLATES.clear();
+    }
+
+    private static @NotNull EntityType<?> playerType()
+    {
+        return Versions.isCurrentVersionSmallerThan(Versions.V26_2) ?
+                EntityType.PLAYER : Reflections.getStaticField("net.minecraft.world.entity.EntityTypes", "PLAYER");
+    }
+
+    private static @NotNull EntityType<Display.TextDisplay> textDisplayType()
+    {
+        return Versions.isCurrentVersionSmallerThan(Versions.V26_2) ?
+                EntityType.TEXT_DISPLAY : Reflections.getStaticField("net.minecraft.world.entity.EntityTypes", "TEXT_DISPLAY");
+    }
+
+    /**
+     * Creates an {@code ADD_PLAYER} info packet for a single entry without a server player. The packet only has a constructor taking server players, so the
+     * entry is set afterward.
+     */
+    private @NotNull Packet<?> createPlayerInfoPacket(@NotNull GameProfile profile, boolean listed, int latency,
+            @Nullable net.minecraft.network.chat.Component displayName, int listOrder)
+    {
+        ClientboundPlayerInfoUpdatePacket.Entry entry = new ClientboundPlayerInfoUpdatePacket.Entry(uuid, profile, listed, latency,
+                GameType.SURVIVAL, displayName, true, listOrder, null);
+
+        EnumSet<ClientboundPlayerInfoUpdatePacket.Action> actions = EnumSet.of(ClientboundPlayerInfoUpdatePacket.Action.ADD_PLAYER,
+                ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LISTED, ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LATENCY,
+                ClientboundPlayerInfoUpdatePacket.Action.UPDATE_DISPLAY_NAME, ClientboundPlayerInfoUpdatePacket.Action.UPDATE_LIST_ORDER);
+
+        ClientboundPlayerInfoUpdatePacket packet = new ClientboundPlayerInfoUpdatePacket(actions, List.of());
+        Reflections.setField(packet, "entries", List.of(entry));
+        return packet;
+    }
+}
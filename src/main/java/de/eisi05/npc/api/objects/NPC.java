@@ -14,12 +14,13 @@ import de.eisi05.npc.api.interfaces.NpcClickAction;
 import de.eisi05.npc.api.manager.NpcManager;
 import de.eisi05.npc.api.manager.NpcVisibilityManager;
 import de.eisi05.npc.api.manager.TeamManager;
+import de.eisi05.npc.api.pathfinding.FlowFieldNavigator;
 import de.eisi05.npc.api.pathfinding.PathfindingUtils;
+import de.eisi05.npc.api.pathfinding.TimeSlicedPathfinder;
 import de.eisi05.npc.api.scheduler.PathTask;
 import de.eisi05.npc.api.utils.Reflections;
 import de.eisi05.npc.api.utils.Var;
 import de.eisi05.npc.api.utils.Versions;
-import de.eisi05.npc.api.utils.serialize.ObjectSaver;
 import de.eisi05.npc.api.wrapper.packets.AnimatePacket;
 import de.eisi05.npc.api.wrapper.packets.SetEntityDataPacket;
 import de.eisi05.npc.api.wrapper.packets.SetPlayerTeamPacket;
@@ -46,6 +47,7 @@ import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.Vec3;
 import net.minecraft.world.scores.PlayerTeam;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.World;
@@ -65,8 +67,6 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.io.Serial;
 import java.io.Serializable;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -83,7 +83,6 @@ public class NPC extends NpcHolder
     transient final Map<UUID, Map<String, Integer>> toDeleteEntities = new HashMap<>();
     private final Set<UUID> viewers = new HashSet<>();
     private final CustomNameTag nameTag;
-    private final Path npcPath;
     private final Map<UUID, PathTask> pathTasks = new HashMap<>();
     private final Set<PathTask> walkingTasks = new LinkedHashSet<>();
     public transient String data;
@@ -147,8 +146,6 @@ public class NPC extends NpcHolder
         this.entity = this.serverPlayer = new ServerPlayer(server, level, profile, ClientInformation.createDefault());
         Var.moveEntity(serverPlayer, location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
 
-        npcPath = NpcApi.plugin.getDataFolder().toPath().resolve("NPC").resolve(uuid + ".npc.json");
-
         serverPlayer.connection = new ServerGamePacketListenerImpl(server, new Connection(PacketFlow.SERVERBOUND), serverPlayer,
                 CommonListenerCookie.createInitial(profile, true));
 
@@ -212,17 +209,17 @@ public class NPC extends NpcHolder
     }
 
     /**
-     * Checks if this NPC has been saved to a file.
+     * Checks if this NPC has been saved to the {@link NpcManager#getStorage() storage}.
      *
-     * @return {@code true} if the NPC's data file exists, {@code false} otherwise.
+     * @return {@code true} if the NPC is stored, {@code false} otherwise.
      */
     public boolean isSaved()
     {
-        return Files.exists(npcPath);
+        return NpcManager.getStorage().contains(getUUID());
     }
 
     /**
-     * Saves the NPC's data to a file. This method serializes the NPC's current state and writes it to a .npc file.
+     * Saves the NPC's data to the {@link NpcManager#getStorage() storage}. This method serializes the NPC's current state and writes it to the storage.
      *
      * @throws IOException if an I/O error occurs during saving.
      */
@@ -232,8 +229,7 @@ public class NPC extends NpcHolder
         if(getUUID() == null)
             return;
 
-        npcPath.toFile().getParentFile().mkdirs();
-        new ObjectSaver(npcPath.toFile()).write(SerializedNPC.serializedNPC(this), false);
+        NpcManager.getStorage().save(SerializedNPC.serializedNPC(this));
         super.save();
     }
 
@@ -414,6 +410,8 @@ public class NPC extends NpcHolder
         if(serverPlayer == null)
             return;
 
+        NpcManager.moveNPC(this);
+
         Var.moveEntity(serverPlayer, location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
         if(!entity.equals(serverPlayer))
             Var.moveEntity(entity, location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
@@ -629,7 +627,8 @@ public class NPC extends NpcHolder
     }
 
     /**
-     * Updates the NPC's skin for the specified players by hiding and then showing the NPC. This forces a skin refresh for each player in the provided array.
+     * Updates the NPC's skin for the specified players by hiding and then showing the NPC. This forces a full refresh for each player in the provided array.
+     * If only the skin changed, {@link #swapSkin(Player...)} is the cheaper alternative.
      *
      * @param players the players who should see the updated skin. If no players are provided, no action is taken.
      * @throws IllegalArgumentException if the players array is null
@@ -645,6 +644,63 @@ public class NPC extends NpcHolder
             showNPCToPlayer(player);
     }
 
+    /**
+     * Swaps the NPC's skin for the specified players without respawning everything that belongs to the NPC.
+     * <p>
+     * Only the player info entry and the player entity are sent again, together with the entity's current metadata, equipment, scale and rotation. Teams, the
+     * nametag and interaction entities stay untouched, which makes this considerably cheaper than {@link #updateSkin(Player...)}. Players that are not viewing
+     * the NPC and NPCs that are disguised as another entity are skipped, as the skin is not visible for them.
+     * </p>
+     *
+     * @param players the players who should see the updated skin
+     */
+    public void swapSkin(@NotNull Player... players)
+    {
+        for(Player player : players)
+        {
+            if(!viewers.contains(player.getUniqueId()) || !serverPlayer.equals(entity))
+                continue;
+
+            ServerPlayer oldServerPlayer = serverPlayer;
+            List<SynchedEntityData.DataValue<?>> data = oldServerPlayer.getEntityData().getNonDefaultValues();
+
+            NpcOption.USE_PLAYER_SKIN.getPacket(this, player);
+            NpcOption.SKIN.getPacket(this, player);
+
+            if(serverPlayer != oldServerPlayer)
+            {
+                if(data != null)
+                    serverPlayer.getEntityData().assignValues(data);
+
+                serverPlayer.setPose(oldServerPlayer.getPose());
+                entity = serverPlayer;
+            }
+
+            List<Packet<?>> packets = new ArrayList<>();
+            packets.add(new ClientboundPlayerInfoRemovePacket(List.of(getUUID())));
+            packets.add(new ClientboundRemoveEntitiesPacket(serverPlayer.getId()));
+
+            NpcOption.SHOW_TAB_LIST.getPacket(this, player).ifPresent(o -> packets.add((Packet<?>) o));
+            packets.add(ClientboundPlayerInfoUpdatePacket.createSinglePlayerInitializing(serverPlayer, true));
+            NpcOption.LATENCY.getPacket(this, player).ifPresent(o -> packets.add((Packet<?>) o));
+
+            packets.add(serverPlayer.getAddEntityPacket(Var.getServerEntity(serverPlayer, Var.getServerLevel(serverPlayer))));
+            packets.add((Packet<?>) SetEntityDataPacket.create(serverPlayer.getId(), serverPlayer.getEntityData()));
+            NpcOption.SCALE.getPacket(this, player).ifPresent(o -> packets.add((Packet<?>) o));
+            NpcOption.EQUIPMENT.getPacket(this, player).ifPresent(o -> packets.add((Packet<?>) o));
+            packets.add(new ClientboundRotateHeadPacket(serverPlayer, (byte) (location.getYaw() * 256 / 360)));
+
+            if(!serverPlayer.passengers.isEmpty())
+                packets.add(new ClientboundSetPassengersPacket(serverPlayer));
+
+            if(getOption(NpcOption.POSE, player) != Pose.STANDING)
+                NpcOption.POSE.getPacket(this, player).ifPresent(o -> packets.add((Packet<?>) o));
+
+            ServerGamePacketListenerImpl connection = ((CraftPlayer) player).getHandle().connection;
+            packets.forEach(connection::send);
+        }
+    }
+
     /**
      * Gets the timestamp when this NPC was created.
      *
@@ -795,13 +851,15 @@ public class NPC extends NpcHolder
     }
 
     /**
-     * Deletes the NPC. This hides the NPC from all players, removes it from the NPC manager, and deletes its saved data file.
+     * Deletes the NPC. This hides the NPC from all players, removes it from the NPC manager, and deletes it from the storage.
      */
     public void delete() throws IOException
     {
         if(serverPlayer == null)
             return;
 
+        UUID uuid = getUUID();
+
         stopGoals();
         hideNpcFromAllPlayers();
         NpcManager.removeNPC(this);
@@ -809,11 +867,39 @@ public class NPC extends NpcHolder
         serverPlayer.remove(Entity.RemovalReason.DISCARDED);
         entity = serverPlayer = null;
 
-        npcPath.toFile().getParentFile().mkdirs();
-        Files.deleteIfExists(npcPath);
+        NpcManager.getStorage().delete(uuid);
         super.save();
     }
 
+    /**
+     * Unloads the NPC without deleting it from the storage. This stops its goals and walking tasks, hides it from all players and removes it from the NPC
+     * manager. Unlike {@link #hideNpcFromAllPlayers()}, the visibility settings are not touched. The NPC must not be used afterward, it can be loaded again
+     * from its {@link SerializedNPC}.
+     */
+    @ApiStatus.Internal
+    public void unload()
+    {
+        if(serverPlayer == null)
+            return;
+
+        cancelWalking();
+        if(isGoalSystemRunning())
+            stopGoals();
+
+        new ArrayList<>(viewers).forEach(uuid ->
+        {
+            Player player = Bukkit.getPlayer(uuid);
+            if(player != null)
+                hideNpcFromPlayer(player);
+        });
+        viewers.clear();
+        toDeleteEntities.clear();
+        NpcManager.removeNPC(this);
+
+        serverPlayer.remove(Entity.RemovalReason.DISCARDED);
+        entity = serverPlayer = null;
+    }
+
     /**
      * Rotates the NPC's head to the specified yaw and pitch angles. This sends rotation packets to all current viewers.
      *
@@ -940,7 +1026,8 @@ public class NPC extends NpcHolder
     /**
      * Asynchronously calculates a path through the specified waypoints.
      * <p>
-     * This method executes the pathfinding logic off the main thread using the Bukkit scheduler.
+     * This method executes the pathfinding logic on the {@link de.eisi05.npc.api.pathfinding.PathfindingExecutor}. The blocks are read from a
+     * {@link de.eisi05.npc.api.pathfinding.SnapshotPathWorld} captured on the main thread.
      * </p>
      *
      * @param waypoints             the list of locations the path must pass through, must not be null
@@ -954,17 +1041,63 @@ public class NPC extends NpcHolder
                                                                                         boolean allowDiagonalMovement,
                                                                                         @Nullable BiConsumer<Integer, Integer> progressListener)
     {
-        return CompletableFuture.supplyAsync(() ->
-        {
-            try
-            {
-                return findPath(waypoints, maxIterations, allowDiagonalMovement, progressListener);
-            }
-            catch(PathfindingUtils.PathfindingException e)
-            {
-                throw new RuntimeException(e);
-            }
-        }, runnable -> Bukkit.getScheduler().runTaskAsynchronously(NpcApi.plugin, runnable));
+        AABB boundingBox = entity.getBoundingBox();
+        double scale = getOption(NpcOption.SCALE);
+        return PathfindingUtils.findPathAsync(waypoints, maxIterations, allowDiagonalMovement, boundingBox.getYsize() * scale,
+                boundingBox.getXsize() * scale, progressListener);
+    }
+
+    /**
+     * Asynchronously calculates a path to a destination that many NPCs walk to, reading it off the shared
+     * {@link de.eisi05.npc.api.pathfinding.FlowField} of the destination instead of running a search per NPC.
+     *
+     * @param goal                  the destination, must not be null
+     * @param maxIterations         the maximum number of iterations of the fallback search if the NPC is outside the field
+     * @param allowDiagonalMovement {@code true} to allow diagonal movement between nodes, {@code false} for straight lines only
+     * @return a {@link CompletableFuture} that will complete with the calculated {@link de.eisi05.npc.api.pathfinding.Path}
+     */
+    public @NotNull CompletableFuture<de.eisi05.npc.api.pathfinding.Path> findSharedPathAsync(@NotNull Location goal, int maxIterations,
+                                                                                              boolean allowDiagonalMovement)
+    {
+        AABB boundingBox = entity.getBoundingBox();
+        double scale = getOption(NpcOption.SCALE);
+        return FlowFieldNavigator.findPath(getLocation(), goal, maxIterations, allowDiagonalMovement, boundingBox.getYsize() * scale,
+                boundingBox.getXsize() * scale);
+    }
+
+    /**
+     * Calculates a path through the specified waypoints on the main thread, spread over several ticks by the
+     * {@link de.eisi05.npc.api.pathfinding.TimeSlicedPathfinder}. Use this instead of {@link #findPathAsync} where the world must not be read off the main
+     * thread.
+     *
+     * @param waypoints             the list of locations the path must pass through, must not be null
+     * @param maxIterations         the maximum number of node expansions per segment
+     * @param allowDiagonalMovement {@code true} to allow diagonal movement between nodes, {@code false} for straight lines only
+     * @param progressListener      an optional listener to receive progress updates (segmentIndex, totalSegments), can be null
+     * @return a {@link CompletableFuture} that completes on the main thread with the calculated {@link de.eisi05.npc.api.pathfinding.Path}
+     */
+    public @NotNull CompletableFuture<de.eisi05.npc.api.pathfinding.Path> findPathTimeSliced(@NotNull List<Location> waypoints, int maxIterations,
+                                                                                             boolean allowDiagonalMovement,
+                                                                                             @Nullable BiConsumer<Integer, Integer> progressListener)
+    {
+        AABB boundingBox = entity.getBoundingBox();
+        double scale = getOption(NpcOption.SCALE);
+        return TimeSlicedPathfinder.findPath(waypoints, maxIterations, allowDiagonalMovement, boundingBox.getYsize() * scale,
+                boundingBox.getXsize() * scale, progressListener);
+    }
+
+    /**
+     * Creates a {@link de.eisi05.npc.api.pathfinding.PathRequest.Builder} for the specified waypoints with the size set to the entity's current bounding box
+     * and scale. The built request can be submitted to the {@link de.eisi05.npc.api.pathfinding.PathfindingExecutor}.
+     *
+     * @param waypoints the list of locations the path must pass through, must not be null
+     * @return a new builder. Never null.
+     */
+    public @NotNull de.eisi05.npc.api.pathfinding.PathRequest.Builder newPathRequest(@NotNull List<Location> waypoints)
+    {
+        AABB boundingBox = entity.getBoundingBox();
+        double scale = getOption(NpcOption.SCALE);
+        return new de.eisi05.npc.api.pathfinding.PathRequest.Builder(waypoints).entitySize(boundingBox.getYsize() * scale, boundingBox.getXsize() * scale);
     }
 
     /**
@@ -1086,7 +1219,7 @@ public class NPC extends NpcHolder
         for(Player player : viewers)
             pathTasks.put(player.getUniqueId(), pathTask);
 
-        return pathTask.runTaskTimer(NpcApi.plugin, 1L, 1L);
+        return pathTask.start();
     }
 
     /**
@@ -1099,6 +1232,17 @@ public class NPC extends NpcHolder
         return walkingTasks.stream().anyMatch(task -> !task.isFinished());
     }
 
+    /**
+     * Checks whether an active walking task of this NPC is blocked, i.e. a block change broke its path and the path could not be repaired locally.
+     *
+     * @return true if a walking task of this NPC is blocked; false otherwise
+     * @see PathTask#isBlocked()
+     */
+    public boolean isWalkingBlocked()
+    {
+        return walkingTasks.stream().anyMatch(task -> !task.isFinished() && task.isBlocked());
+    }
+
     /**
      * Checks whether this NPC is currently walking for the specified viewer.
      *
@@ -1671,6 +1815,45 @@ public class NPC extends NpcHolder
             return name instanceof NpcName npcName ? npcName : null;
         }
 
+        /**
+         * Gets the skin references of this NPC that can be resolved before any player is online.
+         * <p>
+         * These are the placeholders of dynamic skins that do not contain a PlaceholderAPI placeholder, i.e. plain player names, UUIDs or skin URLs.
+         * Placeholders that depend on the viewing player are left out.
+         * </p>
+         *
+         * @return a set of skin references, never {@code null}
+         */
+        public @NotNull Set<String> getSkinReferences()
+        {
+            Set<String> references = new HashSet<>();
+
+            if(newOptions == null)
+                return references;
+
+            for(HashMap<String, Serializable> options : newOptions.values())
+            {
+                if(options == null || !(options.get(NpcOption.SKIN.getPath()) instanceof NpcSkin skin) || skin.isStatic())
+                    continue;
+
+                String placeholder = skin.getPlaceholder();
+                if(placeholder != null && !placeholder.isBlank() && !placeholder.contains("%"))
+                    references.add(placeholder);
+            }
+
+            return references;
+        }
+
+        /**
+         * Gets the key of the chunk this NPC is located in, as returned by {@link Chunk#getChunkKey()}.
+         *
+         * @return the chunk key
+         */
+        public long getChunkKey()
+        {
+            return Chunk.getChunkKey(Location.locToBlock(x) >> 4, Location.locToBlock(z) >> 4);
+        }
+
         /**
          * Updates this NPC's location based on the given {@link Location}.
          * <p>
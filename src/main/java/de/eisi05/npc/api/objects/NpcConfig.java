@@ -1,7 +1,10 @@
 package de.eisi05.npc.api.objects;
 
+import de.eisi05.npc.api.pathfinding.SearchMode;
+import de.eisi05.npc.api.storage.NpcStorage;
 import de.eisi05.npc.api.utils.ApiOnly;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Configuration settings for NPC behavior. This class allows for customizing various aspects of an NPC, such as interaction timers.
@@ -96,6 +99,183 @@ public class NpcConfig
      */
     private boolean loadChunksOnPath = false;
 
+    /**
+     * The maximum amount of NPCs that are constructed per server tick while the saved NPCs are loaded on startup.
+     * <p>
+     * Reading and parsing the NPC files happens on worker threads, only the construction of the NPCs has to run on the main thread. Spreading it over
+     * multiple ticks keeps large amounts of NPCs from stalling the server.
+     * <p>
+     * Default: 50
+     */
+    private int loadBatchSize = 50;
+
+    /**
+     * The storage backend the NPCs are saved in. If {@code null}, every NPC is stored in its own JSON file in the {@code NPC} folder of the plugin.
+     * <p>
+     * Default: null
+     */
+    private NpcStorage storage = null;
+
+    /**
+     * Whether the default file storage saves NPCs in the compact {@link de.eisi05.npc.api.utils.serialize.BinaryNpcCodec binary format} instead of JSON.
+     * Existing files in the other format are still read and converted the next time the NPC is saved.
+     * <p>
+     * Default: false
+     */
+    private boolean binaryStorage = false;
+
+    /**
+     * Whether NPCs in unloaded chunks are kept as lightweight serialized records instead of fully constructed NPCs. An NPC is constructed when its chunk loads
+     * and turned back into a record {@link #lazyUnloadDelay() some time} after its chunk unloaded, as long as it is saved, not walking and has no running
+     * goals.
+     * <p>
+     * Note that {@link de.eisi05.npc.api.manager.NpcManager#fromUUID(java.util.UUID)} only finds NPCs in loaded chunks while this is enabled.
+     * <p>
+     * Default: false
+     */
+    private boolean lazyLoading = false;
+
+    /**
+     * The delay in ticks after a chunk unloads before its NPCs are unloaded, if {@link #lazyLoading()} is enabled. Chunks that load again in the meantime keep
+     * their NPCs.
+     * <p>
+     * Default: 600 (30 seconds)
+     */
+    private int lazyUnloadDelay = 600;
+
+    /**
+     * The number of blocks added around the waypoints when the blocks for an asynchronous path search are captured. Searches cannot leave the captured area,
+     * so larger values allow bigger detours at the cost of capturing more chunks on the main thread.
+     * <p>
+     * Default: 48
+     */
+    private int pathfindingSnapshotMargin = 48;
+
+    /**
+     * The maximum number of path segments kept in the {@link de.eisi05.npc.api.pathfinding.PathCache}. Cached segments are dropped when blocks near them
+     * change. A value of 0 disables the cache.
+     * <p>
+     * Default: 512
+     */
+    private int pathCacheSize = 512;
+
+    /**
+     * The horizontal distance in blocks from which a path segment is planned with the {@link de.eisi05.npc.api.pathfinding.HierarchicalPathfinder} instead
+     * of a plain A* search. A value of 0 disables hierarchical planning.
+     * <p>
+     * Default: 64
+     */
+    private int hierarchicalPathfindingDistance = 64;
+
+    /**
+     * Whether found paths are smoothed by the {@link de.eisi05.npc.api.pathfinding.PathSmoother}. Nodes between which the NPC can walk in a straight line
+     * are removed, so NPCs walk straight instead of turning at every block.
+     * <p>
+     * Default: true
+     */
+    private boolean smoothPaths = true;
+
+    /**
+     * The number of worker threads of the {@link de.eisi05.npc.api.pathfinding.PathfindingExecutor}. Changes take effect the next time the executor is
+     * started, i.e. after the API was disabled.
+     * <p>
+     * Default: half the available processors, between 1 and 4
+     */
+    private int pathfindingThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    /**
+     * The maximum number of path searches waiting for a worker of the {@link de.eisi05.npc.api.pathfinding.PathfindingExecutor}. When the queue is full,
+     * the search with the lowest priority is rejected.
+     * <p>
+     * Default: 256
+     */
+    private int pathfindingQueueSize = 256;
+
+    /**
+     * The time in nanoseconds that the {@link de.eisi05.npc.api.pathfinding.TimeSlicedPathfinder} may spend searching per tick, shared by all of its
+     * searches.
+     * <p>
+     * Default: 2000000 (2 ms)
+     */
+    private long timeSlicedPathfindingNanos = 2_000_000L;
+
+    /**
+     * The number of nodes that the {@link de.eisi05.npc.api.pathfinding.TimeSlicedPathfinder} may expand per tick, shared by all of its searches. Set to 0
+     * to only limit the time.
+     * <p>
+     * Default: 4000
+     */
+    private int timeSlicedPathfindingExpansions = 4000;
+
+    /**
+     * The horizontal radius in blocks around a destination covered by the shared {@link de.eisi05.npc.api.pathfinding.FlowField} of the
+     * {@link de.eisi05.npc.api.pathfinding.FlowFieldNavigator}. NPCs further away fall back to a regular search.
+     * <p>
+     * Default: 48
+     */
+    private int flowFieldRadius = 48;
+
+    /**
+     * Whether the segments between the waypoints of a path are searched in parallel on the pathfinding segment pool. Only applies to asynchronous searches,
+     * which read an immutable snapshot of the world.
+     * <p>
+     * Default: true
+     */
+    private boolean parallelPathSegments = true;
+
+    /**
+     * The search mode of paths found without an explicit mode, e.g. by {@link de.eisi05.npc.api.pathfinding.PathfindingUtils#findPathAsync}.
+     * <p>
+     * Default: {@link SearchMode#EUCLIDEAN}
+     */
+    private SearchMode searchMode = SearchMode.EUCLIDEAN;
+
+    /**
+     * Whether walking NPCs repair their path locally when a block change breaks it, instead of walking into the obstacle or searching the whole path again.
+     * Only applies to paths planned by the pathfinder.
+     * <p>
+     * Default: true
+     */
+    private boolean repairPaths = true;
+
+    /**
+     * The distance in blocks up to which viewers are sent the movement of walking and replaying NPCs every tick.
+     * <p>
+     * Default: 24
+     */
+    private double nearUpdateDistance = 24;
+
+    /**
+     * The distance in blocks up to which viewers are sent the movement of walking and replaying NPCs every {@link #midUpdateInterval()} ticks. Viewers
+     * further away are sent it every {@link #farUpdateInterval()} ticks.
+     * <p>
+     * Default: 64
+     */
+    private double farUpdateDistance = 64;
+
+    /**
+     * The number of ticks between two movement updates of viewers between {@link #nearUpdateDistance()} and {@link #farUpdateDistance()} blocks away
+     * from an NPC. 1 sends every tick.
+     * <p>
+     * Default: 3
+     */
+    private int midUpdateInterval = 3;
+
+    /**
+     * The number of ticks between two movement updates of viewers more than {@link #farUpdateDistance()} blocks away from an NPC. 1 sends every tick.
+     * <p>
+     * Default: 8
+     */
+    private int farUpdateInterval = 8;
+
+    /**
+     * The maximum number of chunks captured for an asynchronous path search. Waypoints far apart capture a corridor along their segments, whose margin is
+     * reduced down to 8 blocks to stay within the limit; searches whose area is still larger fail.
+     * <p>
+     * Default: 1024
+     */
+    private int pathfindingSnapshotMaxChunks = 1024;
+
     /**
      * Sets the duration an NPC will look at a player after an interaction.
      *
@@ -251,6 +431,271 @@ public class NpcConfig
          return this;
     }
 
+    /**
+     * Sets the maximum amount of NPCs that are constructed per server tick while loading.
+     *
+     * @param loadBatchSize the amount of NPCs per tick, values below 1 are treated as 1
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig loadBatchSize(int loadBatchSize)
+    {
+        this.loadBatchSize = Math.max(1, loadBatchSize);
+        return this;
+    }
+
+    /**
+     * Sets the storage backend the NPCs are saved in. Has to be set before the API is enabled.
+     *
+     * @param storage the storage to use, or {@code null} to use a {@link de.eisi05.npc.api.storage.FileNpcStorage}
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig storage(@Nullable NpcStorage storage)
+    {
+        this.storage = storage;
+        return this;
+    }
+
+    /**
+     * Sets whether the default file storage saves NPCs in the compact binary format instead of JSON. Has no effect if a custom {@link #storage(NpcStorage)}
+     * is set.
+     *
+     * @param binaryStorage {@code true} to save NPCs in the binary format, {@code false} to save them as JSON
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig binaryStorage(boolean binaryStorage)
+    {
+        this.binaryStorage = binaryStorage;
+        return this;
+    }
+
+    /**
+     * Sets whether NPCs in unloaded chunks are kept as lightweight serialized records. Has to be set before the API is enabled.
+     *
+     * @param lazyLoading {@code true} to only construct NPCs in loaded chunks, {@code false} to construct all NPCs on startup
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig lazyLoading(boolean lazyLoading)
+    {
+        this.lazyLoading = lazyLoading;
+        return this;
+    }
+
+    /**
+     * Sets the delay after a chunk unloads before its NPCs are unloaded.
+     *
+     * @param lazyUnloadDelay the delay in ticks, values below 1 are treated as 1
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig lazyUnloadDelay(int lazyUnloadDelay)
+    {
+        this.lazyUnloadDelay = Math.max(1, lazyUnloadDelay);
+        return this;
+    }
+
+    /**
+     * Sets the number of blocks added around the waypoints when the blocks for an asynchronous path search are captured.
+     *
+     * @param pathfindingSnapshotMargin the margin in blocks, negative values are treated as 0
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig pathfindingSnapshotMargin(int pathfindingSnapshotMargin)
+    {
+        this.pathfindingSnapshotMargin = Math.max(0, pathfindingSnapshotMargin);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of path segments kept in the path cache.
+     *
+     * @param pathCacheSize the number of segments, 0 or less disables the cache
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig pathCacheSize(int pathCacheSize)
+    {
+        this.pathCacheSize = Math.max(0, pathCacheSize);
+        return this;
+    }
+
+    /**
+     * Sets the horizontal distance in blocks from which a path segment is planned hierarchically.
+     *
+     * @param hierarchicalPathfindingDistance the distance in blocks, 0 or less disables hierarchical planning
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig hierarchicalPathfindingDistance(int hierarchicalPathfindingDistance)
+    {
+        this.hierarchicalPathfindingDistance = Math.max(0, hierarchicalPathfindingDistance);
+        return this;
+    }
+
+    /**
+     * Sets whether found paths are smoothed.
+     *
+     * @param smoothPaths true to remove nodes between which the NPC can walk in a straight line
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig smoothPaths(boolean smoothPaths)
+    {
+        this.smoothPaths = smoothPaths;
+        return this;
+    }
+
+    /**
+     * Sets the number of pathfinding worker threads.
+     *
+     * @param pathfindingThreads the number of threads, at least 1
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig pathfindingThreads(int pathfindingThreads)
+    {
+        this.pathfindingThreads = Math.max(1, pathfindingThreads);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of queued path searches.
+     *
+     * @param pathfindingQueueSize the queue size, at least 1
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig pathfindingQueueSize(int pathfindingQueueSize)
+    {
+        this.pathfindingQueueSize = Math.max(1, pathfindingQueueSize);
+        return this;
+    }
+
+    /**
+     * Sets the time per tick that main-thread path searches may spend.
+     *
+     * @param timeSlicedPathfindingNanos the time in nanoseconds
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig timeSlicedPathfindingNanos(long timeSlicedPathfindingNanos)
+    {
+        this.timeSlicedPathfindingNanos = timeSlicedPathfindingNanos;
+        return this;
+    }
+
+    /**
+     * Sets the number of nodes per tick that main-thread path searches may expand.
+     *
+     * @param timeSlicedPathfindingExpansions the number of expansions, 0 for no limit
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig timeSlicedPathfindingExpansions(int timeSlicedPathfindingExpansions)
+    {
+        this.timeSlicedPathfindingExpansions = timeSlicedPathfindingExpansions;
+        return this;
+    }
+
+    /**
+     * Sets the radius covered by shared flow fields.
+     *
+     * @param flowFieldRadius the radius in blocks
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig flowFieldRadius(int flowFieldRadius)
+    {
+        this.flowFieldRadius = flowFieldRadius;
+        return this;
+    }
+
+    /**
+     * Sets whether path segments are searched in parallel.
+     *
+     * @param parallelPathSegments true to search the segments of multi-waypoint paths in parallel
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig parallelPathSegments(boolean parallelPathSegments)
+    {
+        this.parallelPathSegments = parallelPathSegments;
+        return this;
+    }
+
+    /**
+     * Sets the default search mode of path searches.
+     *
+     * @param searchMode the search mode
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig searchMode(@NotNull SearchMode searchMode)
+    {
+        this.searchMode = searchMode;
+        return this;
+    }
+
+    /**
+     * Sets whether walking NPCs repair their path locally when a block change breaks it.
+     *
+     * @param repairPaths true to repair broken paths locally
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig repairPaths(boolean repairPaths)
+    {
+        this.repairPaths = repairPaths;
+        return this;
+    }
+
+    /**
+     * Sets the distance up to which viewers are sent the movement of NPCs every tick.
+     *
+     * @param nearUpdateDistance the distance in blocks
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig nearUpdateDistance(double nearUpdateDistance)
+    {
+        this.nearUpdateDistance = nearUpdateDistance;
+        return this;
+    }
+
+    /**
+     * Sets the distance up to which viewers are sent the movement of NPCs every {@link #midUpdateInterval()} ticks.
+     *
+     * @param farUpdateDistance the distance in blocks
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig farUpdateDistance(double farUpdateDistance)
+    {
+        this.farUpdateDistance = farUpdateDistance;
+        return this;
+    }
+
+    /**
+     * Sets the number of ticks between two movement updates of viewers at a medium distance.
+     *
+     * @param midUpdateInterval the interval in ticks
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig midUpdateInterval(int midUpdateInterval)
+    {
+        this.midUpdateInterval = midUpdateInterval;
+        return this;
+    }
+
+    /**
+     * Sets the number of ticks between two movement updates of distant viewers.
+     *
+     * @param farUpdateInterval the interval in ticks
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig farUpdateInterval(int farUpdateInterval)
+    {
+        this.farUpdateInterval = farUpdateInterval;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of chunks captured for an asynchronous path search.
+     *
+     * @param pathfindingSnapshotMaxChunks the number of chunks, values below 1 are treated as 1
+     * @return This {@link NpcConfig} instance for method chaining. Never null.
+     */
+    public @NotNull NpcConfig pathfindingSnapshotMaxChunks(int pathfindingSnapshotMaxChunks)
+    {
+        this.pathfindingSnapshotMaxChunks = Math.max(1, pathfindingSnapshotMaxChunks);
+        return this;
+    }
+
     /**
      * Gets the configured duration an NPC will look at a player.
      *
@@ -370,4 +815,224 @@ public class NpcConfig
     {
         return loadChunksOnPath;
     }
+
+    /**
+     * Gets the maximum amount of NPCs that are constructed per server tick while loading.
+     *
+     * @return the amount of NPCs per tick
+     */
+    public int loadBatchSize()
+    {
+        return loadBatchSize;
+    }
+
+    /**
+     * Gets the configured storage backend.
+     *
+     * @return the storage, or {@code null} if the default file storage is used
+     */
+    public @Nullable NpcStorage storage()
+    {
+        return storage;
+    }
+
+    /**
+     * Gets whether the default file storage saves NPCs in the binary format.
+     *
+     * @return {@code true} if NPCs are saved in the binary format, {@code false} if they are saved as JSON
+     */
+    public boolean binaryStorage()
+    {
+        return binaryStorage;
+    }
+
+    /**
+     * Gets whether NPCs in unloaded chunks are kept as lightweight serialized records.
+     *
+     * @return {@code true} if NPCs are only constructed in loaded chunks
+     */
+    public boolean lazyLoading()
+    {
+        return lazyLoading;
+    }
+
+    /**
+     * Gets the delay after a chunk unloads before its NPCs are unloaded.
+     *
+     * @return the delay in ticks
+     */
+    public int lazyUnloadDelay()
+    {
+        return lazyUnloadDelay;
+    }
+
+    /**
+     * Gets the number of blocks added around the waypoints when the blocks for an asynchronous path search are captured.
+     *
+     * @return the margin in blocks
+     */
+    public int pathfindingSnapshotMargin()
+    {
+        return pathfindingSnapshotMargin;
+    }
+
+    /**
+     * Gets the maximum number of path segments kept in the path cache.
+     *
+     * @return the number of segments, 0 if the cache is disabled
+     */
+    public int pathCacheSize()
+    {
+        return pathCacheSize;
+    }
+
+    /**
+     * Gets the horizontal distance in blocks from which a path segment is planned hierarchically.
+     *
+     * @return the distance in blocks, 0 if hierarchical planning is disabled
+     */
+    public int hierarchicalPathfindingDistance()
+    {
+        return hierarchicalPathfindingDistance;
+    }
+
+    /**
+     * Gets whether found paths are smoothed.
+     *
+     * @return true if paths are smoothed
+     */
+    public boolean smoothPaths()
+    {
+        return smoothPaths;
+    }
+
+    /**
+     * Gets the number of pathfinding worker threads.
+     *
+     * @return the number of threads
+     */
+    public int pathfindingThreads()
+    {
+        return pathfindingThreads;
+    }
+
+    /**
+     * Gets the maximum number of queued path searches.
+     *
+     * @return the queue size
+     */
+    public int pathfindingQueueSize()
+    {
+        return pathfindingQueueSize;
+    }
+
+    /**
+     * Gets the time per tick that main-thread path searches may spend.
+     *
+     * @return the time in nanoseconds
+     */
+    public long timeSlicedPathfindingNanos()
+    {
+        return timeSlicedPathfindingNanos;
+    }
+
+    /**
+     * Gets the number of nodes per tick that main-thread path searches may expand.
+     *
+     * @return the number of expansions, 0 for no limit
+     */
+    public int timeSlicedPathfindingExpansions()
+    {
+        return timeSlicedPathfindingExpansions;
+    }
+
+    /**
+     * Gets the radius covered by shared flow fields.
+     *
+     * @return the radius in blocks
+     */
+    public int flowFieldRadius()
+    {
+        return flowFieldRadius;
+    }
+
+    /**
+     * Gets whether path segments are searched in parallel.
+     *
+     * @return true if segments are searched in parallel
+     */
+    public boolean parallelPathSegments()
+    {
+        return parallelPathSegments;
+    }
+
+    /**
+     * Gets the default search mode of path searches.
+     *
+     * @return the search mode. Never null.
+     */
+    public @NotNull SearchMode searchMode()
+    {
+        return searchMode;
+    }
+
+    /**
+     * Gets whether walking NPCs repair their path locally when a block change breaks it.
+     *
+     * @return true if broken paths are repaired locally
+     */
+    public boolean repairPaths()
+    {
+        return repairPaths;
+    }
+
+    /**
+     * Gets the distance up to which viewers are sent the movement of NPCs every tick.
+     *
+     * @return the distance in blocks
+     */
+    public double nearUpdateDistance()
+    {
+        return nearUpdateDistance;
+    }
+
+    /**
+     * Gets the distance up to which viewers are sent the movement of NPCs every {@link #midUpdateInterval()} ticks.
+     *
+     * @return the distance in blocks
+     */
+    public double farUpdateDistance()
+    {
+        return farUpdateDistance;
+    }
+
+    /**
+     * Gets the number of ticks between two movement updates of viewers at a medium distance.
+     *
+     * @return the interval in ticks
+     */
+    public int midUpdateInterval()
+    {
+        return midUpdateInterval;
+    }
+
+    /**
+     * Gets the number of ticks between two movement updates of distant viewers.
+     *
+     * @return the interval in ticks
+     */
+    public int farUpdateInterval()
+    {
+        return farUpdateInterval;
+    }
+
+    /**
+     * Gets the maximum number of chunks captured for an asynchronous path search.
+     *
+     * @return the number of chunks
+     */
+    public int pathfindingSnapshotMaxChunks()
+    {
+        return pathfindingSnapshotMaxChunks;
+    }
 }
@@ -136,7 +136,7 @@ public abstract class NpcHolder implements InventoryHolder
         {
             if(option.equals(NpcOption.SKIN) || option.equals(NpcOption.USE_PLAYER_SKIN))
             {
-                npc.updateSkin(npc.getViewers().stream().map(Bukkit::getPlayer).filter(Objects::nonNull).toArray(Player[]::new));
+                npc.swapSkin(npc.getViewers().stream().map(Bukkit::getPlayer).filter(Objects::nonNull).toArray(Player[]::new));
                 return;
             }
 
@@ -155,6 +155,8 @@ public abstract class NpcHolder implements InventoryHolder
                 option.getPacket(npc, player).ifPresent(packetWrapper -> ((CraftPlayer) player).getHandle().connection.send((Packet<?>) packetWrapper));
             });
         }
+        else if(NpcApi.config.autoUpdate() && this instanceof LightweightNpc lightweightNpc)
+            lightweightNpc.refresh();
     }
 
     /**
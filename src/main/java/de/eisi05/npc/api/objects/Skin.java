@@ -51,6 +51,11 @@ public record Skin(@Nullable String name, @NotNull String value, @NotNull String
     private static final Map<File, Skin> skinCacheFile = new ConcurrentHashMap<>();
     private static final Map<String, Skin> skinCacheUrl = new ConcurrentHashMap<>();
 
+    /**
+     * The maximum amount of names the bulk profile endpoint accepts per request.
+     */
+    private static final int BULK_LOOKUP_LIMIT = 10;
+
     /**
      * Retrieves the skin data directly from a currently online Bukkit player. This method uses reflection to access the player's game profile properties.
      *
@@ -142,6 +147,9 @@ public record Skin(@Nullable String name, @NotNull String value, @NotNull String
         if (input.toLowerCase().startsWith("http://") || input.toLowerCase().startsWith("https://"))
             return fetchSkinByUrl(input);
 
+        if(skinCacheName.containsKey(input))
+            return Optional.ofNullable(skinCacheName.get(input));
+
         try
         {
             URL url = URI.create("https://api.mojang.com/users/profiles/minecraft/" + input).toURL();
@@ -311,6 +319,147 @@ public record Skin(@Nullable String name, @NotNull String value, @NotNull String
         return future;
     }
 
+    /**
+     * Resolves the UUIDs of the given player names using Mojang's bulk profile endpoint.
+     * <p>
+     * Names are sent in batches of at most {@value #BULK_LOOKUP_LIMIT}, so a large set of names only costs a fraction of the requests the single name lookup
+     * in {@link #fetchSkin(String)} would need. Names that do not belong to an existing account are missing from the result.
+     * </p>
+     *
+     * @param names the player names to resolve
+     * @return a map of the requested names (in their original spelling) to the UUIDs of the accounts, never {@code null}
+     */
+    public static @NotNull Map<String, UUID> lookupUUIDs(@NotNull Collection<String> names)
+    {
+        Map<String, UUID> result = new HashMap<>();
+        List<String> distinct = names.stream().filter(name -> name != null && !name.isBlank()).distinct().toList();
+
+        if(distinct.isEmpty())
+            return result;
+
+        try(HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build())
+        {
+            for(int i = 0; i < distinct.size(); i += BULK_LOOKUP_LIMIT)
+            {
+                List<String> batch = distinct.subList(i, Math.min(i + BULK_LOOKUP_LIMIT, distinct.size()));
+
+                JsonArray body = new JsonArray();
+                batch.forEach(body::add);
+
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create("https://api.minecraftservices.com/minecraft/profile/lookup/bulk/byname"))
+                        .timeout(Duration.ofSeconds(10))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                        .build();
+
+                try
+                {
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+                    if(response.statusCode() != 200)
+                        continue;
+
+                    Map<String, String> requested = new HashMap<>();
+                    batch.forEach(name -> requested.put(name.toLowerCase(), name));
+
+                    for(JsonElement element : JsonParser.parseString(response.body()).getAsJsonArray())
+                    {
+                        JsonObject profile = element.getAsJsonObject();
+                        String name = requested.get(profile.get("name").getAsString().toLowerCase());
+
+                        if(name == null)
+                            continue;
+
+                        result.put(name, UUID.fromString(profile.get("id").getAsString().replaceFirst(
+                                "(\\w{8})(\\w{4})(\\w{4})(\\w{4})(\\w{12})",
+                                "$1-$2-$3-$4-$5")));
+                    }
+                }
+                catch(IOException | RuntimeException e)
+                {
+                    if(NpcApi.config.debug())
+                        e.printStackTrace();
+                }
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        return result;
+    }
+
+    /**
+     * Loads the skins of the given references into the cache, so they are available without a request once they are needed.
+     * <p>
+     * A reference can be a player name, a UUID or a skin URL. Player names are resolved in batches through {@link #lookupUUIDs(Collection)} before their
+     * textures are fetched, references that are already cached are skipped.
+     * </p>
+     *
+     * @param references the skin references to load
+     * @return the amount of references that are cached after this call
+     */
+    public static int prefetch(@NotNull Collection<String> references)
+    {
+        int cached = 0;
+        List<String> names = new ArrayList<>();
+
+        for(String reference : new HashSet<>(references))
+        {
+            if(reference == null || reference.isBlank())
+                continue;
+
+            if(reference.toLowerCase().startsWith("http://") || reference.toLowerCase().startsWith("https://"))
+            {
+                cached += fetchSkinByUrl(reference).isPresent() ? 1 : 0;
+                continue;
+            }
+
+            try
+            {
+                cached += fetchSkin(UUID.fromString(reference)).isPresent() ? 1 : 0;
+            }
+            catch(IllegalArgumentException e)
+            {
+                if(skinCacheName.containsKey(reference))
+                    cached++;
+                else
+                    names.add(reference);
+            }
+        }
+
+        for(var entry : lookupUUIDs(names).entrySet())
+        {
+            Optional<Skin> skin = fetchSkin(entry.getValue());
+
+            if(skin.isEmpty())
+                continue;
+
+            skinCacheName.put(entry.getKey(), skin.get());
+            cached++;
+        }
+
+        return cached;
+    }
+
+    /**
+     * Asynchronously loads the skins of the given references into the cache.
+     *
+     * @param references the skin references to load
+     * @return a CompletableFuture containing the amount of cached references
+     * @see #prefetch(Collection)
+     */
+    public static CompletableFuture<Integer> prefetchAsync(@NotNull Collection<String> references)
+    {
+        List<String> copy = new ArrayList<>(references);
+        CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> prefetch(copy),
+                runnable -> Bukkit.getScheduler().runTaskAsynchronously(NpcApi.plugin, runnable));
+        Tasks.trackFuture(future);
+        return future;
+    }
+
     private static byte[] combine(byte[]... arrays) throws IOException
     {
         int length = 0;
@@ -1,14 +1,10 @@
 package de.eisi05.npc.api.pathfinding;
 
 import de.eisi05.npc.api.NpcApi;
-import de.eisi05.npc.api.utils.Var;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
-import org.bukkit.block.data.Openable;
-import org.bukkit.util.BoundingBox;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -16,6 +12,8 @@ import java.util.*;
 
 public class AStarPathfinder
 {
+    private static final double DIAGONAL_COST = 1.414;
+    private static final double TIE_BREAK = 1 + 1.0 / 1024;
     private static final double[][][] MOVE_COSTS = new double[3][3][3];
 
     static
@@ -29,7 +27,7 @@ public class AStarPathfinder
                     if(x == 0 && y == 0 && z == 0)
                         MOVE_COSTS[x + 1][y + 1][z + 1] = 0;
                     else
-                        MOVE_COSTS[x + 1][y + 1][z + 1] = (Math.abs(x) + Math.abs(y) + Math.abs(z)) > 1 ? 1.414 : 1.0;
+                        MOVE_COSTS[x + 1][y + 1][z + 1] = (Math.abs(x) + Math.abs(y) + Math.abs(z)) > 1 ? DIAGONAL_COST : 1.0;
                 }
             }
         }
@@ -39,21 +37,32 @@ public class AStarPathfinder
     private final boolean allowDiagonal;
     private final double entityHeight;
     private final double entityWidth;
-    private final PriorityQueue<Node> openSet = new PriorityQueue<>();
-    private final Set<Long> openSetIds = new HashSet<>();
-    private final Map<Long, Node> allNodes = new HashMap<>();
-    private World world;
+    private final SearchMode mode;
+    private PathWorld view;
+    private PathingResult lastResult = PathingResult.NO_PATH;
+    private int lastExpansions;
+
+    private int startX, startY, startZ;
+    private int goalX, goalY, goalZ;
+    private double meetCost;
+    private long meetKey;
 
     public AStarPathfinder(int maxIterations, boolean allowDiagonal, double entityHeight, double entityWidth)
+    {
+        this(maxIterations, allowDiagonal, entityHeight, entityWidth, SearchMode.EUCLIDEAN);
+    }
+
+    public AStarPathfinder(int maxIterations, boolean allowDiagonal, double entityHeight, double entityWidth, @NotNull SearchMode mode)
     {
         this.maxIterations = maxIterations;
         this.allowDiagonal = allowDiagonal;
         this.entityHeight = entityHeight;
         this.entityWidth = entityWidth;
+        this.mode = mode;
     }
 
     /**
-     * Checks if a position is valid (not inside a solid block).
+     * Checks if a position is valid (not inside a solid block). Reads the live world, so it must be called on the main thread.
      *
      * @param world        The world to check in
      * @param tx           The x coordinate of the position
@@ -64,6 +73,22 @@ public class AStarPathfinder
      * @return true if the position is valid, false otherwise
      */
     public static boolean isPositionValid(@NotNull World world, double tx, double ty, double tz, double entityHeight, double entityWidth)
+    {
+        return isPositionValid(new LivePathWorld(world), tx, ty, tz, entityHeight, entityWidth);
+    }
+
+    /**
+     * Checks if a position is valid (not inside a solid block).
+     *
+     * @param view         The view of the world to check in
+     * @param tx           The x coordinate of the position
+     * @param ty           The y coordinate of the position
+     * @param tz           The z coordinate of the position
+     * @param entityHeight The height of the entity
+     * @param entityWidth  The width of the entity
+     * @return true if the position is valid, false otherwise
+     */
+    public static boolean isPositionValid(@NotNull PathWorld view, double tx, double ty, double tz, double entityHeight, double entityWidth)
     {
         double radius = entityWidth / 2.0;
         double minX = tx - radius;
@@ -72,8 +97,6 @@ public class AStarPathfinder
         double minZ = tz - radius;
         double maxZ = tz + radius;
 
-        BoundingBox entityBox = new BoundingBox(minX, ty, minZ, maxX, maxY, maxZ);
-
         int minBlockX = (int) Math.floor(minX);
         int maxBlockX = (int) Math.floor(maxX);
         int minBlockY = (int) Math.floor(ty);
@@ -89,20 +112,11 @@ public class AStarPathfinder
             {
                 for(int z = minBlockZ; z <= maxBlockZ; z++)
                 {
-                    Block block = world.getBlockAt(x, y, z);
-                    if(block.getBlockData() instanceof Openable)
+                    if(view.isOpenable(x, y, z))
                         continue;
 
-                    Collection<BoundingBox> blockBoxes = block.getCollisionShape().getBoundingBoxes();
-                    if(blockBoxes.isEmpty())
-                        continue;
-
-                    for(BoundingBox blockBox : blockBoxes)
-                    {
-                        BoundingBox absoluteBox = blockBox.clone().shift(x, y, z);
-                        if(entityBox.overlaps(absoluteBox))
-                            return false;
-                    }
+                    if(view.intersects(x, y, z, minX, ty, minZ, maxX, maxY, maxZ))
+                        return false;
                 }
             }
         }
@@ -110,105 +124,355 @@ public class AStarPathfinder
         return true;
     }
 
+    /**
+     * Finds a path between two locations in the live world. Must be called on the main thread.
+     *
+     * @param start the start location
+     * @param end   the end location
+     * @return the path, or {@code null} if no path was found
+     * @throws PathfindingUtils.PathfindingException if the start or end is not on a valid floor
+     */
     public @Nullable List<Location> getPath(@NotNull Location start, @NotNull Location end) throws PathfindingUtils.PathfindingException
     {
         if(start.getWorld() == null || end.getWorld() == null)
             return null;
 
-        if(!start.getWorld().equals(end.getWorld()))
+        return getPath(new LivePathWorld(start.getWorld()), start, end);
+    }
+
+    /**
+     * Finds a path between two locations, reading blocks only from the given view. With a {@link SnapshotPathWorld} this is safe to call from any thread.
+     *
+     * @param view  the view of the world to search in
+     * @param start the start location
+     * @param end   the end location
+     * @return the path, or {@code null} if no path was found
+     * @throws PathfindingUtils.PathfindingException if the start or end is not on a valid floor
+     */
+    public @Nullable List<Location> getPath(@NotNull PathWorld view, @NotNull Location start, @NotNull Location end) throws PathfindingUtils.PathfindingException
+    {
+        if(start.getWorld() == null || end.getWorld() == null)
             return null;
 
-        openSet.clear();
-        openSetIds.clear();
-        allNodes.clear();
-        this.world = start.getWorld();
+        lastResult = PathingResult.NO_PATH;
+        lastExpansions = 0;
+        if(!start.getWorld().equals(end.getWorld()) || !start.getWorld().equals(view.getWorld()))
+            return null;
 
-        int startFloorY = resolveFloorY(start);
-        int endFloorY = resolveFloorY(end);
+        try
+        {
+            return mode == SearchMode.BIDIRECTIONAL ? searchBidirectional(view, start, end) : search(view, start, end);
+        }
+        finally
+        {
+            mode.record(lastExpansions);
+        }
+    }
 
-        Block startFloor = world.getBlockAt(start.getBlockX(), startFloorY, start.getBlockZ());
-        if(NpcApi.config.checkValidPath() && !isSafeFloor(startFloor))
-            throw new PathfindingUtils.PathfindingException("Start not on a valid floor: " + start);
+    /**
+     * Gets the outcome of the last {@link #getPath(PathWorld, Location, Location)} call.
+     *
+     * @return the result, {@link PathingResult#NO_PATH} before the first search
+     */
+    public @NotNull PathingResult getLastResult()
+    {
+        return lastResult;
+    }
 
-        Block endFloor = world.getBlockAt(end.getBlockX(), endFloorY, end.getBlockZ());
-        if(NpcApi.config.checkValidPath() && !isSafeFloor(endFloor))
-            throw new PathfindingUtils.PathfindingException("End not on a valid floor: " + end);
+    /**
+     * Gets the number of nodes the last {@link #getPath(PathWorld, Location, Location)} call expanded.
+     *
+     * @return the number of expansions
+     */
+    public int getLastExpansions()
+    {
+        return lastExpansions;
+    }
 
-        Node startNode = new Node(start.getBlockX(), startFloorY, start.getBlockZ(), null);
-        startNode.gCost = 0;
-        startNode.calculateH(end);
+    /**
+     * Gets the search mode of this pathfinder.
+     *
+     * @return the mode. Never null.
+     */
+    public @NotNull SearchMode getMode()
+    {
+        return mode;
+    }
+
+    private @Nullable List<Location> search(@NotNull PathWorld view, @NotNull Location start, @NotNull Location end)
+            throws PathfindingUtils.PathfindingException
+    {
+        SearchArena arena = SearchArena.get();
+        begin(arena, view, start, end);
+
+        while(!arena.isOpenEmpty())
+        {
+            if(lastExpansions > maxIterations)
+            {
+                lastResult = PathingResult.ITERATIONS_EXCEEDED;
+                return null;
+            }
+
+            if((lastExpansions & 1023) == 1023 && PathfindingExecutor.isAborted())
+            {
+                lastResult = PathingResult.CANCELLED;
+                return null;
+            }
+
+            lastExpansions++;
+
+            int current = arena.pop();
+            if(isGoal(arena, current, end))
+            {
+                lastResult = PathingResult.SUCCESS;
+                return retracePath(arena, current);
+            }
+
+            expand(arena, current, end);
+        }
+        return null;
+    }
 
-        openSet.add(startNode);
-        openSetIds.add(startNode.id);
-        allNodes.put(startNode.id, startNode);
+    /**
+     * Searches from the start and from the goal at once. The backward search expands the blocks from which the entity can walk to a node, so its parents
+     * point toward the goal. The search stops once the cheapest meeting point found cannot be improved by either side.
+     */
+    private @Nullable List<Location> searchBidirectional(@NotNull PathWorld view, @NotNull Location start, @NotNull Location end)
+            throws PathfindingUtils.PathfindingException
+    {
+        SearchArena forward = SearchArena.get();
+        begin(forward, view, start, end);
 
-        int iterations = 0;
+        if(startX == goalX && startY == goalY && startZ == goalZ)
+        {
+            lastResult = PathingResult.SUCCESS;
+            return retracePath(forward, 0);
+        }
 
-        while(!openSet.isEmpty())
+        SearchArena backward = SearchArena.acquire();
+        try
         {
-            if(iterations > maxIterations)
+            int goalNode = backward.add(pack(goalX, goalY, goalZ), goalX, goalY, goalZ);
+            backward.g[goalNode] = 0;
+            backward.h[goalNode] = octile(goalX - startX, goalY - startY, goalZ - startZ) * TIE_BREAK;
+            backward.push(goalNode);
+
+            meetCost = Double.MAX_VALUE;
+            while(!forward.isOpenEmpty() && !backward.isOpenEmpty())
+            {
+                if(meetCost <= Math.max(forward.peekF(), backward.peekF()))
+                    break;
+
+                if(lastExpansions > maxIterations)
+                {
+                    lastResult = PathingResult.ITERATIONS_EXCEEDED;
+                    return null;
+                }
+
+                if((lastExpansions & 1023) == 1023 && PathfindingExecutor.isAborted())
+                {
+                    lastResult = PathingResult.CANCELLED;
+                    return null;
+                }
+
+                lastExpansions++;
+
+                if(forward.openSize() <= backward.openSize())
+                    expand(forward, forward.pop(), end, backward, false);
+                else
+                    expand(backward, backward.pop(), end, forward, true);
+            }
+
+            if(meetCost == Double.MAX_VALUE)
                 return null;
 
-            iterations++;
+            lastResult = PathingResult.SUCCESS;
+            List<Location> path = retracePath(forward, forward.find(meetKey));
+            for(int node = backward.parent[backward.find(meetKey)]; node >= 0; node = backward.parent[node])
+                path.add(toLocation(backward, node));
+            return path;
+        }
+        finally
+        {
+            backward.release();
+        }
+    }
 
-            Node current = openSet.poll();
-            openSetIds.remove(current.id);
+    /**
+     * Binds the view and pushes the start node of a new search into the arena.
+     *
+     * @param arena the cleared arena of the search
+     * @param view  the view of the world to search in
+     * @param start the start location
+     * @param end   the end location
+     * @throws PathfindingUtils.PathfindingException if the start or end is not on a valid floor
+     */
+    void begin(@NotNull SearchArena arena, @NotNull PathWorld view, @NotNull Location start, @NotNull Location end)
+            throws PathfindingUtils.PathfindingException
+    {
+        this.view = view;
 
-            if(distanceSq(current, end) < 1.0)
-                return retracePath(current);
+        int startFloorY = resolveFloorY(start);
+        int endFloorY = resolveFloorY(end);
+        startX = start.getBlockX();
+        startY = startFloorY;
+        startZ = start.getBlockZ();
+        goalX = end.getBlockX();
+        goalY = endFloorY;
+        goalZ = end.getBlockZ();
+
+        if(NpcApi.config.checkValidPath() && !view.isSafeFloor(start.getBlockX(), startFloorY, start.getBlockZ()))
+            throw new PathfindingUtils.PathfindingException("Start not on a valid floor: " + start);
 
-            current.closed = true;
+        if(NpcApi.config.checkValidPath() && !view.isSafeFloor(end.getBlockX(), endFloorY, end.getBlockZ()))
+            throw new PathfindingUtils.PathfindingException("End not on a valid floor: " + end);
+
+        int startNode = arena.add(pack(start.getBlockX(), startFloorY, start.getBlockZ()), start.getBlockX(), startFloorY, start.getBlockZ());
+        arena.g[startNode] = 0;
+        arena.h[startNode] = estimate(start.getBlockX(), startFloorY, start.getBlockZ(), end);
+        arena.push(startNode);
+    }
+
+    /**
+     * Checks whether a node popped from the open set reached the end.
+     *
+     * @param arena the arena of the search
+     * @param node  the node
+     * @param end   the end location
+     * @return {@code true} if the node is the goal
+     */
+    boolean isGoal(@NotNull SearchArena arena, int node, @NotNull Location end)
+    {
+        return distanceSq(arena.x[node], arena.y[node], arena.z[node], end) < 1.0;
+    }
 
-            for(int x = -1; x <= 1; x++)
+    /**
+     * Closes a node popped from the open set and opens or updates all neighbours the entity can walk to.
+     *
+     * @param arena   the arena of the search
+     * @param current the node
+     * @param end     the end location
+     */
+    void expand(@NotNull SearchArena arena, int current, @NotNull Location end)
+    {
+        expand(arena, current, end, null, false);
+    }
+
+    /**
+     * Closes a node popped from the open set and opens or updates its neighbours. A backward search opens the neighbours from which the entity can walk to
+     * the node. If the search of the opposite direction reached an updated neighbour, the cheapest meeting point is updated.
+     */
+    private void expand(@NotNull SearchArena arena, int current, @NotNull Location end, @Nullable SearchArena opposite, boolean backward)
+    {
+        int currentX = arena.x[current];
+        int currentY = arena.y[current];
+        int currentZ = arena.z[current];
+
+        arena.closed[current] = true;
+
+        for(int x = -1; x <= 1; x++)
+        {
+            for(int y = -1; y <= 1; y++)
             {
-                for(int y = -1; y <= 1; y++)
+                for(int z = -1; z <= 1; z++)
                 {
-                    for(int z = -1; z <= 1; z++)
-                    {
-                        if(x == 0 && y == 0 && z == 0)
-                            continue;
+                    if(x == 0 && y == 0 && z == 0)
+                        continue;
 
-                        if(!allowDiagonal && (Math.abs(x) + Math.abs(z) > 1))
-                            continue;
+                    if(!allowDiagonal && (Math.abs(x) + Math.abs(z) > 1))
+                        continue;
 
-                        int targetX = current.x + x;
-                        int targetY = current.y + y;
-                        int targetZ = current.z + z;
+                    int targetX = currentX + x;
+                    int targetY = currentY + y;
+                    int targetZ = currentZ + z;
 
-                        if(!canWalk(current.x, current.y, current.z, targetX, targetY, targetZ))
-                            continue;
+                    if(backward ? !isStandable(targetX, targetY, targetZ) || !canWalk(targetX, targetY, targetZ, currentX, currentY, currentZ)
+                            : !canWalk(currentX, currentY, currentZ, targetX, targetY, targetZ))
+                        continue;
 
-                        long id = Node.hash(targetX, targetY, targetZ);
-                        Node neighbor = allNodes.get(id);
+                    long id = pack(targetX, targetY, targetZ);
+                    int neighbor = arena.find(id);
 
-                        if(neighbor == null)
-                        {
-                            neighbor = new Node(targetX, targetY, targetZ, id);
-                            allNodes.put(id, neighbor);
-                        }
+                    if(neighbor < 0)
+                        neighbor = arena.add(id, targetX, targetY, targetZ);
 
-                        if(neighbor.closed)
-                            continue;
+                    if(arena.closed[neighbor])
+                        continue;
 
-                        double newGCost = current.gCost + MOVE_COSTS[x + 1][y + 1][z + 1];
+                    double newGCost = arena.g[current] + MOVE_COSTS[x + 1][y + 1][z + 1];
+                    boolean open = arena.isOpen(neighbor);
 
-                        if(newGCost < neighbor.gCost || !openSetIds.contains(id))
-                        {
-                            neighbor.gCost = newGCost;
-                            neighbor.calculateH(end);
-                            neighbor.parent = current;
+                    if(newGCost < arena.g[neighbor] || !open)
+                    {
+                        arena.g[neighbor] = newGCost;
+                        arena.h[neighbor] = backward ? octile(targetX - startX, targetY - startY, targetZ - startZ) * TIE_BREAK
+                                : estimate(targetX, targetY, targetZ, end);
+                        arena.parent[neighbor] = current;
 
-                            if(!openSetIds.contains(id))
+                        if(open)
+                            arena.decreaseKey(neighbor);
+                        else
+                            arena.push(neighbor);
+
+                        if(opposite != null)
+                        {
+                            int other = opposite.find(id);
+                            if(other >= 0 && opposite.g[other] + newGCost < meetCost)
                             {
-                                openSet.add(neighbor);
-                                openSetIds.add(id);
+                                meetCost = opposite.g[other] + newGCost;
+                                meetKey = id;
                             }
                         }
                     }
                 }
             }
         }
-        return null;
+    }
+
+    /**
+     * Sets the view that {@link #canWalk}, {@link #isStandable}, {@link #feetYAt} and {@link #resolveFloorY} read from.
+     *
+     * @param view the view of the world
+     */
+    void bind(@NotNull PathWorld view)
+    {
+        this.view = view;
+    }
+
+    /**
+     * Checks whether the entity can stand on a floor block, i.e. the block is a safe floor and the entity fits above it.
+     *
+     * @param x      the block x coordinate
+     * @param floorY the block y coordinate of the floor
+     * @param z      the block z coordinate
+     * @return {@code true} if the floor block can be a path node
+     */
+    boolean isStandable(int x, int floorY, int z)
+    {
+        return view.isSafeFloor(x, floorY, z) && isPositionValid(view, x + 0.5, feetYAt(x, floorY, z), z + 0.5, entityHeight, entityWidth);
+    }
+
+    /**
+     * Gets the cost of a single move.
+     *
+     * @param dx the x offset, between -1 and 1
+     * @param dy the y offset, between -1 and 1
+     * @param dz the z offset, between -1 and 1
+     * @return the cost of the move
+     */
+    static double moveCost(int dx, int dy, int dz)
+    {
+        return MOVE_COSTS[dx + 1][dy + 1][dz + 1];
+    }
+
+    /**
+     * Checks whether diagonal movement is allowed for this search.
+     *
+     * @return {@code true} if diagonal moves are allowed
+     */
+    boolean isAllowDiagonal()
+    {
+        return allowDiagonal;
     }
 
     /**
@@ -216,15 +480,14 @@ public class AStarPathfinder
      * <p>
      * The {@code fy} and {@code ty} values are floor-block Y coordinates. Entity feet and headspace are checked at {@code ty + 1} and {@code ty + 2}.
      */
-    private boolean canWalk(int fx, int fy, int fz, int tx, int ty, int tz)
+    boolean canWalk(int fx, int fy, int fz, int tx, int ty, int tz)
     {
-        Block floor = world.getBlockAt(tx, ty, tz);
-        if(!isSafeFloor(floor))
+        if(!view.isSafeFloor(tx, ty, tz))
             return false;
 
         double absoluteFeetY = feetYAt(tx, ty, tz);
 
-        if(!isPositionValid(world, tx + 0.5, absoluteFeetY, tz + 0.5, entityHeight, entityWidth))
+        if(!isPositionValid(view, tx + 0.5, absoluteFeetY, tz + 0.5, entityHeight, entityWidth))
             return false;
 
         if(fx != tx && fz != tz)
@@ -232,10 +495,10 @@ public class AStarPathfinder
             double currentFeetY = feetYAt(fx, fy, fz);
             double checkY = Math.max(currentFeetY, absoluteFeetY);
 
-            if(!isPositionValid(world, fx + 0.5, checkY, tz + 0.5, entityHeight, entityWidth))
+            if(!isPositionValid(view, fx + 0.5, checkY, tz + 0.5, entityHeight, entityWidth))
                 return false;
 
-            if(!isPositionValid(world, tx + 0.5, checkY, fz + 0.5, entityHeight, entityWidth))
+            if(!isPositionValid(view, tx + 0.5, checkY, fz + 0.5, entityHeight, entityWidth))
                 return false;
         }
 
@@ -244,8 +507,8 @@ public class AStarPathfinder
             double currentFeetY = feetYAt(fx, fy, fz);
             double highestFloorY = Math.max(currentFeetY, absoluteFeetY);
 
-            if(!isPositionValid(world, tx + 0.5, highestFloorY, tz + 0.5, entityHeight, entityWidth) ||
-                    !isPositionValid(world, fx + 0.5, highestFloorY, fz + 0.5, entityHeight, entityWidth))
+            if(!isPositionValid(view, tx + 0.5, highestFloorY, tz + 0.5, entityHeight, entityWidth) ||
+                    !isPositionValid(view, fx + 0.5, highestFloorY, fz + 0.5, entityHeight, entityWidth))
                 return false;
         }
 
@@ -259,42 +522,21 @@ public class AStarPathfinder
      * @param loc the feet-based location to inspect
      * @return the Y coordinate of the floor block
      */
-    private int resolveFloorY(@NotNull Location loc)
+    int resolveFloorY(@NotNull Location loc)
     {
-        World w = loc.getWorld();
-        if(w == null)
-            return loc.getBlockY() - 1;
-
         int bx = loc.getBlockX();
         int bz = loc.getBlockZ();
         int startY = loc.getBlockY();
 
-        double lx = loc.getX() - bx;
-        double lz = loc.getZ() - bz;
-
         for(int y = startY + 1; y >= startY - 6; y--)
         {
-            Block block = w.getBlockAt(bx, y, bz);
-
-            if(block.getBlockData() instanceof Openable)
-                continue;
-
-            if(block.isLiquid())
+            int id = view.getStateId(bx, y, bz);
+            if(CollisionTable.isOpenable(id) || CollisionTable.isLiquid(id) || !CollisionTable.isSolid(id))
                 continue;
 
-            if(!block.getType().isSolid() || block.isPassable())
+            if(view.isPassable(bx, y, bz))
                 continue;
 
-            Collection<BoundingBox> boxes = block.getCollisionShape().getBoundingBoxes();
-            if(boxes.isEmpty())
-                return y;
-
-            for(BoundingBox bb : boxes)
-            {
-                if(lx >= bb.getMinX() && lx <= bb.getMaxX() && lz >= bb.getMinZ() && lz <= bb.getMaxZ())
-                    return y;
-            }
-
             return y;
         }
 
@@ -316,99 +558,86 @@ public class AStarPathfinder
         return !block.isPassable();
     }
 
-    private @NotNull List<Location> retracePath(@NotNull Node current)
+    @NotNull List<Location> retracePath(@NotNull SearchArena arena, int current)
     {
         List<Location> path = new ArrayList<>();
-        while(current != null)
+        while(current >= 0)
         {
-            double feetY = feetYAt(current.x, current.y, current.z);
-            path.add(new Location(world, current.x + 0.5, feetY, current.z + 0.5));
-            current = current.parent;
+            path.add(toLocation(arena, current));
+            current = arena.parent[current];
         }
         Collections.reverse(path);
         return path;
     }
 
-    private double feetYAt(int x, int floorY, int z)
+    private @NotNull Location toLocation(@NotNull SearchArena arena, int node)
     {
-        Block floor = world.getBlockAt(x, floorY, z);
-        return floorY + topSurfaceAt(floor, 0.5, 0.5);
+        return new Location(view.getWorld(), arena.x[node] + 0.5, feetYAt(arena.x[node], arena.y[node], arena.z[node]), arena.z[node] + 0.5);
     }
 
-    private double topSurfaceAt(@NotNull Block block, double lx, double lz)
+    double feetYAt(int x, int floorY, int z)
     {
-        Collection<BoundingBox> boxes = block.getCollisionShape().getBoundingBoxes();
-        if(boxes.isEmpty())
-            return 1.0;
-
-        double bestTop = -1.0;
-
-        for(BoundingBox bb : boxes)
-        {
-            if(lx >= bb.getMinX() && lx <= bb.getMaxX() && lz >= bb.getMinZ() && lz <= bb.getMaxZ())
-                bestTop = Math.max(bestTop, bb.getMaxY());
-        }
-
-        if(bestTop < 0.0)
-        {
-            for(BoundingBox bb : boxes)
-                bestTop = Math.max(bestTop, bb.getMaxY());
-        }
+        return floorY + topSurfaceAt(x, floorY, z, 0.5, 0.5);
+    }
 
+    private double topSurfaceAt(int x, int y, int z, double lx, double lz)
+    {
+        double bestTop = view.topAt(x, y, z, lx, lz);
         if(bestTop <= 0.0)
             return 1.0;
 
         return bestTop;
     }
 
-    private double distanceSq(@NotNull Node n, @NotNull Location l)
+    private double distanceSq(int x, int y, int z, @NotNull Location l)
     {
-        double dx = (n.x + 0.5) - l.getX();
-        double dy = feetYAt(n.x, n.y, n.z) - l.getY();
-        double dz = (n.z + 0.5) - l.getZ();
+        double dx = (x + 0.5) - l.getX();
+        double dy = feetYAt(x, y, z) - l.getY();
+        double dz = (z + 0.5) - l.getZ();
         return dx * dx + dy * dy + dz * dz;
     }
 
-    private static class Node implements Comparable<Node>
+    private double estimate(int x, int y, int z, @NotNull Location end)
     {
-        final int x, y, z;
-        final long id;
+        if(mode == SearchMode.EUCLIDEAN)
+            return heuristic(x, y, z, end);
 
-        double gCost = Double.MAX_VALUE;
-        double hCost = 0;
-        Node parent = null;
-        boolean closed = false;
+        return octile(x - goalX, y - goalY, z - goalZ) * TIE_BREAK;
+    }
 
-        public Node(int x, int y, int z, Long id)
-        {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-            this.id = (id != null) ? id : hash(x, y, z);
-        }
+    /**
+     * Gets the cost of the cheapest sequence of moves covering an offset if nothing was in the way. Every move that changes more than one axis costs the same,
+     * so the cost only depends on the largest and second-largest axis distance; without diagonal movement, only the vertical axis can be combined with a
+     * horizontal one.
+     */
+    private double octile(int dx, int dy, int dz)
+    {
+        dx = Math.abs(dx);
+        dy = Math.abs(dy);
+        dz = Math.abs(dz);
 
-        public static long hash(int x, int y, int z)
+        if(!allowDiagonal)
         {
-            return ((long) x & 0x3FFFFFF) | (((long) z & 0x3FFFFFF) << 26) | (((long) y & 0xFFF) << 52);
+            int horizontal = dx + dz;
+            return DIAGONAL_COST * Math.min(horizontal, dy) + Math.abs(horizontal - dy);
         }
 
-        public void calculateH(@NotNull Location end)
-        {
-            double dx = (x + 0.5) - end.getX();
-            double dy = (y + 1.0) - end.getY();
-            double dz = (z + 0.5) - end.getZ();
-            this.hCost = Math.sqrt(dx * dx + dy * dy + dz * dz);
-        }
+        int max = Math.max(dx, Math.max(dy, dz));
+        int min = Math.min(dx, Math.min(dy, dz));
+        int mid = dx + dy + dz - max - min;
+        return DIAGONAL_COST * mid + (max - mid);
+    }
 
-        public double getFCost()
-        {
-            return gCost + hCost;
-        }
+    private static double heuristic(int x, int y, int z, @NotNull Location end)
+    {
+        double dx = (x + 0.5) - end.getX();
+        double dy = (y + 1.0) - end.getY();
+        double dz = (z + 0.5) - end.getZ();
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
 
-        @Override
-        public int compareTo(@NotNull Node other)
-        {
-            return Double.compare(this.getFCost(), other.getFCost());
-        }
+    static long pack(int x, int y, int z)
+    {
+        return ((long) x & 0x3FFFFFF) | (((long) z & 0x3FFFFFF) << 26) | (((long) y & 0xFFF) << 52);
     }
 }
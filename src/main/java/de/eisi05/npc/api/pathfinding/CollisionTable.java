@@ -0,0 +1,410 @@
+package de.eisi05.npc.api.pathfinding;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.world.level.EmptyBlockGetter;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.shapes.VoxelShape;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Openable;
+import org.bukkit.craftbukkit.block.data.CraftBlockData;
+import org.bukkit.craftbukkit.util.CraftMagicNumbers;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A table of compact collision descriptors for every block state, indexed by the block state id.
+ * <p>
+ * The table is built once when the class is first used. Most states collapse into one of three kinds: {@link #EMPTY}, {@link #FULL}, or a {@link #SLAB} that
+ * covers the whole block footprint between two heights, which includes slabs, carpets, snow layers and similar blocks. Only the remaining states, such as
+ * stairs, fences and walls, keep their list of boxes. Pathfinding and walking physics can then check collisions with array lookups instead of creating shape
+ * objects for every block.
+ * </p>
+ * <p>
+ * Shapes are taken from the block state alone. States whose shape depends on the world or the colliding entity are marked as {@link #isDynamic(int) dynamic},
+ * so views of the live world can fall back to the real shape.
+ * </p>
+ */
+public final class CollisionTable
+{
+    /**
+     * The state has no collision.
+     */
+    public static final byte EMPTY = 0;
+
+    /**
+     * The state collides as a full block.
+     */
+    public static final byte FULL = 1;
+
+    /**
+     * The state covers the whole block footprint between {@link #getMinY(int)} and {@link #getMaxY(int)}.
+     */
+    public static final byte SLAB = 2;
+
+    /**
+     * The state has any other shape, see {@link #getBoxes(int)}.
+     */
+    public static final byte COMPLEX = 3;
+
+    private static final byte FLAG_OPENABLE = 1;
+    private static final byte FLAG_LIQUID = 1 << 1;
+    private static final byte FLAG_SOLID = 1 << 2;
+    private static final byte FLAG_AIR = 1 << 3;
+    private static final byte FLAG_DYNAMIC = 1 << 4;
+
+    private static final List<BoundingBox> FULL_BOXES = List.of(new BoundingBox(0, 0, 0, 1, 1, 1));
+
+    /**
+     * The id of {@code void_air}, returned by views for positions they do not cover.
+     */
+    public static final int VOID_AIR = Block.getId(Blocks.VOID_AIR.defaultBlockState());
+
+    /**
+     * The id of {@code air}.
+     */
+    public static final int AIR = Block.getId(Blocks.AIR.defaultBlockState());
+
+    private static final byte[] KINDS;
+    private static final byte[] FLAGS;
+    private static final float[] MIN_Y;
+    private static final float[] MAX_Y;
+    private static final Material[] MATERIALS;
+    private static final List<BoundingBox>[] BOXES;
+
+    static
+    {
+        int size = Block.BLOCK_STATE_REGISTRY.size();
+        KINDS = new byte[size];
+        FLAGS = new byte[size];
+        MIN_Y = new float[size];
+        MAX_Y = new float[size];
+        MATERIALS = new Material[size];
+        BOXES = newBoxArray(size);
+
+        for(BlockState state : Block.BLOCK_STATE_REGISTRY)
+        {
+            int id = Block.getId(state);
+            if(id < 0 || id >= size)
+                continue;
+
+            Material material = CraftMagicNumbers.getMaterial(state.getBlock());
+            MATERIALS[id] = material;
+
+            byte flags = 0;
+            if(CraftBlockData.fromData(state) instanceof Openable)
+                flags |= FLAG_OPENABLE;
+            if(material == Material.WATER || material == Material.LAVA)
+                flags |= FLAG_LIQUID;
+            if(material.isSolid())
+                flags |= FLAG_SOLID;
+            if(material.isAir())
+                flags |= FLAG_AIR;
+            if(state.hasDynamicShape())
+                flags |= FLAG_DYNAMIC;
+            FLAGS[id] = flags;
+
+            describe(id, state.getCollisionShape(EmptyBlockGetter.INSTANCE, BlockPos.ZERO));
+        }
+    }
+
+    private CollisionTable() {}
+
+    @SuppressWarnings("unchecked")
+    private static List<BoundingBox>[] newBoxArray(int size)
+    {
+        return (List<BoundingBox>[]) new List<?>[size];
+    }
+
+    private static void describe(int id, @NotNull VoxelShape shape)
+    {
+        if(shape.isEmpty())
+        {
+            KINDS[id] = EMPTY;
+            BOXES[id] = List.of();
+            return;
+        }
+
+        List<AABB> aabbs = shape.toAabbs();
+        if(aabbs.size() == 1)
+        {
+            AABB box = aabbs.getFirst();
+            if(box.minX <= 0 && box.minZ <= 0 && box.maxX >= 1 && box.maxZ >= 1)
+            {
+                MIN_Y[id] = (float) box.minY;
+                MAX_Y[id] = (float) box.maxY;
+
+                if(box.minY <= 0 && box.maxY == 1)
+                {
+                    KINDS[id] = FULL;
+                    BOXES[id] = FULL_BOXES;
+                    return;
+                }
+
+                KINDS[id] = SLAB;
+                BOXES[id] = List.of(new BoundingBox(0, box.minY, 0, 1, box.maxY, 1));
+                return;
+            }
+        }
+
+        KINDS[id] = COMPLEX;
+        BOXES[id] = aabbs.stream().map(aabb -> new BoundingBox(aabb.minX, aabb.minY, aabb.minZ, aabb.maxX, aabb.maxY, aabb.maxZ)).toList();
+        MIN_Y[id] = (float) shape.min(Direction.Axis.Y);
+        MAX_Y[id] = (float) shape.max(Direction.Axis.Y);
+    }
+
+    /**
+     * Gets the id of a block state.
+     *
+     * @param state the NMS block state. Must not be null.
+     * @return the block state id
+     */
+    public static int getId(@NotNull BlockState state)
+    {
+        return Block.getId(state);
+    }
+
+    /**
+     * Gets the id of a block data.
+     *
+     * @param data the block data. Must not be null.
+     * @return the block state id
+     */
+    public static int getId(@NotNull BlockData data)
+    {
+        return Block.getId(((CraftBlockData) data).getState());
+    }
+
+    private static boolean inTable(int id)
+    {
+        return id >= 0 && id < KINDS.length;
+    }
+
+    /**
+     * Gets the kind of collision shape of a state.
+     *
+     * @param id the block state id
+     * @return one of {@link #EMPTY}, {@link #FULL}, {@link #SLAB} or {@link #COMPLEX}
+     */
+    public static byte getKind(int id)
+    {
+        return inTable(id) ? KINDS[id] : EMPTY;
+    }
+
+    /**
+     * Gets the lowest point of the collision shape of a state, relative to the block.
+     *
+     * @param id the block state id
+     * @return the minimum y, 0 for empty shapes
+     */
+    public static double getMinY(int id)
+    {
+        return inTable(id) ? MIN_Y[id] : 0;
+    }
+
+    /**
+     * Gets the highest point of the collision shape of a state, relative to the block.
+     *
+     * @param id the block state id
+     * @return the maximum y, 0 for empty shapes
+     */
+    public static double getMaxY(int id)
+    {
+        return inTable(id) ? MAX_Y[id] : 0;
+    }
+
+    /**
+     * Gets the collision boxes of a state, relative to the block. The returned list and its boxes must not be modified.
+     *
+     * @param id the block state id
+     * @return the collision boxes. Never null.
+     */
+    public static @NotNull List<BoundingBox> getBoxes(int id)
+    {
+        return inTable(id) ? BOXES[id] : List.of();
+    }
+
+    /**
+     * Gets the material of a state.
+     *
+     * @param id the block state id
+     * @return the material, {@link Material#VOID_AIR} for unknown ids. Never null.
+     */
+    public static @NotNull Material getMaterial(int id)
+    {
+        return inTable(id) ? MATERIALS[id] : Material.VOID_AIR;
+    }
+
+    /**
+     * Checks whether a state can be opened (doors, gates, trapdoors).
+     *
+     * @param id the block state id
+     * @return {@code true} if the state is openable
+     */
+    public static boolean isOpenable(int id)
+    {
+        return inTable(id) && (FLAGS[id] & FLAG_OPENABLE) != 0;
+    }
+
+    /**
+     * Checks whether a state is water or lava.
+     *
+     * @param id the block state id
+     * @return {@code true} if the state is a liquid
+     */
+    public static boolean isLiquid(int id)
+    {
+        return inTable(id) && (FLAGS[id] & FLAG_LIQUID) != 0;
+    }
+
+    /**
+     * Checks whether the material of a state is {@link Material#isSolid() solid}.
+     *
+     * @param id the block state id
+     * @return {@code true} if the material is solid
+     */
+    public static boolean isSolid(int id)
+    {
+        return inTable(id) && (FLAGS[id] & FLAG_SOLID) != 0;
+    }
+
+    /**
+     * Checks whether a state is any kind of air.
+     *
+     * @param id the block state id
+     * @return {@code true} if the state is air or unknown
+     */
+    public static boolean isAir(int id)
+    {
+        return !inTable(id) || (FLAGS[id] & FLAG_AIR) != 0;
+    }
+
+    /**
+     * Checks whether the real shape of a state may differ from the table, because it depends on the world or the colliding entity.
+     *
+     * @param id the block state id
+     * @return {@code true} if the shape is dynamic
+     */
+    public static boolean isDynamic(int id)
+    {
+        return inTable(id) && (FLAGS[id] & FLAG_DYNAMIC) != 0;
+    }
+
+    /**
+     * Checks whether a state is valid to stand on.
+     *
+     * @param id the block state id
+     * @return {@code true} if the state is not air, not a liquid and has collision
+     */
+    public static boolean isSafeFloor(int id)
+    {
+        return inTable(id) && (FLAGS[id] & (FLAG_AIR | FLAG_LIQUID)) == 0 && KINDS[id] != EMPTY;
+    }
+
+    /**
+     * Checks whether the collision shape of a state placed at a block position overlaps an axis-aligned box.
+     *
+     * @param id   the block state id
+     * @param x    the block x coordinate
+     * @param y    the block y coordinate
+     * @param z    the block z coordinate
+     * @param minX the minimum x of the box
+     * @param minY the minimum y of the box
+     * @param minZ the minimum z of the box
+     * @param maxX the maximum x of the box
+     * @param maxY the maximum y of the box
+     * @param maxZ the maximum z of the box
+     * @return {@code true} if the shape overlaps the box
+     */
+    public static boolean intersects(int id, int x, int y, int z, double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+    {
+        switch(getKind(id))
+        {
+            case EMPTY:
+                return false;
+            case FULL:
+            case SLAB:
+                return minX < x + 1 && maxX > x && minZ < z + 1 && maxZ > z && minY < y + MAX_Y[id] && maxY > y + MIN_Y[id];
+            default:
+                return intersects(BOXES[id], x, y, z, minX, minY, minZ, maxX, maxY, maxZ);
+        }
+    }
+
+    /**
+     * Checks whether any of the given block-relative boxes placed at a block position overlaps an axis-aligned box.
+     *
+     * @param boxes the boxes relative to the block. Must not be null.
+     * @param x     the block x coordinate
+     * @param y     the block y coordinate
+     * @param z     the block z coordinate
+     * @param minX  the minimum x of the box
+     * @param minY  the minimum y of the box
+     * @param minZ  the minimum z of the box
+     * @param maxX  the maximum x of the box
+     * @param maxY  the maximum y of the box
+     * @param maxZ  the maximum z of the box
+     * @return {@code true} if any box overlaps
+     */
+    public static boolean intersects(@NotNull List<BoundingBox> boxes, int x, int y, int z, double minX, double minY, double minZ, double maxX, double maxY,
+            double maxZ)
+    {
+        for(BoundingBox box : boxes)
+        {
+            if(minX < box.getMaxX() + x && maxX > box.getMinX() + x && minY < box.getMaxY() + y && maxY > box.getMinY() + y &&
+                    minZ < box.getMaxZ() + z && maxZ > box.getMinZ() + z)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the top of the collision shape of a state at a point of the block footprint. If no box covers the point, the highest box is used.
+     *
+     * @param id the block state id
+     * @param lx the x coordinate inside the block, between 0 and 1
+     * @param lz the z coordinate inside the block, between 0 and 1
+     * @return the top relative to the block, or -1 if the shape is empty
+     */
+    public static double topAt(int id, double lx, double lz)
+    {
+        return switch(getKind(id))
+        {
+            case EMPTY -> -1;
+            case FULL -> 1;
+            case SLAB -> MAX_Y[id];
+            default -> topAt(BOXES[id], lx, lz);
+        };
+    }
+
+    /**
+     * Gets the top of block-relative boxes at a point of the block footprint. If no box covers the point, the highest box is used.
+     *
+     * @param boxes the boxes relative to the block. Must not be null.
+     * @param lx    the x coordinate inside the block, between 0 and 1
+     * @param lz    the z coordinate inside the block, between 0 and 1
+     * @return the top relative to the block, or -1 if there are no boxes
+     */
+    public static double topAt(@NotNull List<BoundingBox> boxes, double lx, double lz)
+    {
+        double bestTop = -1.0;
+        for(BoundingBox bb : boxes)
+        {
+            if(lx >= bb.getMinX() && lx <= bb.getMaxX() && lz >= bb.getMinZ() && lz <= bb.getMaxZ())
+                bestTop = Math.max(bestTop, bb.getMaxY());
+        }
+
+        if(bestTop < 0.0)
+        {
+            for(BoundingBox bb : boxes)
+                bestTop = Math.max(bestTop, bb.getMaxY());
+        }
+
+        return bestTop;
+    }
+}
@@ -0,0 +1,284 @@
+package de.eisi05.npc.api.pathfinding;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The distance from every reachable block around a goal to that goal, computed once by a reverse Dijkstra search and shared by all entities walking to it.
+ * <p>
+ * Every node stores the next node on its shortest route to the goal, so a path from any reachable block is read off the field by following these links,
+ * without a search. Once computed, a field keeps only its nodes in compact arrays sorted by position, together with the feet height and doors of each node;
+ * the search memory and the blocks it read are let go. Paths read off a field are therefore not smoothed. Fields are immutable and safe to read from any
+ * thread. They are created and cached by the {@link FlowFieldNavigator}.
+ * </p>
+ */
+public final class FlowField
+{
+    private static final int MAX_NODES = 1 << 18;
+    private static final double EPSILON = 1e-4;
+
+    private final Location goal;
+    private final double entityHeight;
+    private final long generation;
+    private final long[] keys;
+    private final int[] parents;
+    private final float[] distances;
+    private final float[] feetY;
+    private final float[] groundY;
+    private final byte[] doors;
+
+    private FlowField(@NotNull Location goal, double entityHeight, long generation, long @NotNull [] keys, int @NotNull [] parents, float @NotNull [] distances,
+            float @NotNull [] feetY, float @NotNull [] groundY, byte @NotNull [] doors)
+    {
+        this.goal = goal;
+        this.entityHeight = entityHeight;
+        this.generation = generation;
+        this.keys = keys;
+        this.parents = parents;
+        this.distances = distances;
+        this.feetY = feetY;
+        this.groundY = groundY;
+        this.doors = doors;
+    }
+
+    /**
+     * Computes the field around a goal. Every block within {@code radius} horizontal blocks of the goal from which the entity can walk to the goal becomes a
+     * node.
+     *
+     * @param view          the view of the world to search in. Must cover the radius around the goal.
+     * @param goal          the goal
+     * @param radius        the maximum horizontal distance of a node from the goal
+     * @param allowDiagonal whether diagonal movement is allowed
+     * @param entityHeight  the height of the entities walking the field
+     * @param entityWidth   the width of the entities walking the field
+     * @return the field. Never null.
+     * @throws PathfindingUtils.PathfindingException if the goal is not on a valid floor
+     */
+    static @NotNull FlowField compute(@NotNull PathWorld view, @NotNull Location goal, int radius, boolean allowDiagonal, double entityHeight,
+            double entityWidth) throws PathfindingUtils.PathfindingException
+    {
+        AStarPathfinder pathfinder = new AStarPathfinder(0, allowDiagonal, entityHeight, entityWidth);
+        pathfinder.bind(view);
+        long generation = view.getCacheGeneration();
+
+        int goalX = goal.getBlockX();
+        int goalZ = goal.getBlockZ();
+        int goalFloorY = pathfinder.resolveFloorY(goal);
+        if(!pathfinder.isStandable(goalX, goalFloorY, goalZ))
+            throw new PathfindingUtils.PathfindingException("Goal not on a valid floor: " + goal);
+
+        SearchArena arena = SearchArena.acquire();
+        int goalNode = arena.add(AStarPathfinder.pack(goalX, goalFloorY, goalZ), goalX, goalFloorY, goalZ);
+        arena.g[goalNode] = 0;
+        arena.push(goalNode);
+
+        while(!arena.isOpenEmpty() && arena.size() < MAX_NODES)
+        {
+            int current = arena.pop();
+            int currentX = arena.x[current];
+            int currentY = arena.y[current];
+            int currentZ = arena.z[current];
+            arena.closed[current] = true;
+
+            for(int x = -1; x <= 1; x++)
+            {
+                for(int y = -1; y <= 1; y++)
+                {
+                    for(int z = -1; z <= 1; z++)
+                    {
+                        if(x == 0 && y == 0 && z == 0)
+                            continue;
+
+                        if(!allowDiagonal && (Math.abs(x) + Math.abs(z) > 1))
+                            continue;
+
+                        int sourceX = currentX + x;
+                        int sourceY = currentY + y;
+                        int sourceZ = currentZ + z;
+                        if(Math.abs(sourceX - goalX) > radius || Math.abs(sourceZ - goalZ) > radius)
+                            continue;
+
+                        long id = AStarPathfinder.pack(sourceX, sourceY, sourceZ);
+                        int neighbor = arena.find(id);
+                        if(neighbor >= 0 && arena.closed[neighbor])
+                            continue;
+
+                        double newGCost = arena.g[current] + AStarPathfinder.moveCost(x, y, z);
+                        if(neighbor >= 0 && arena.isOpen(neighbor) && newGCost >= arena.g[neighbor])
+                            continue;
+
+                        if(!pathfinder.isStandable(sourceX, sourceY, sourceZ) || !pathfinder.canWalk(sourceX, sourceY, sourceZ, currentX, currentY, currentZ))
+                            continue;
+
+                        if(neighbor < 0)
+                            neighbor = arena.add(id, sourceX, sourceY, sourceZ);
+
+                        boolean open = arena.isOpen(neighbor);
+                        arena.g[neighbor] = newGCost;
+                        arena.h[neighbor] = 0;
+                        arena.parent[neighbor] = current;
+
+                        if(open)
+                            arena.decreaseKey(neighbor);
+                        else
+                            arena.push(neighbor);
+                    }
+                }
+            }
+        }
+
+        try
+        {
+            return compact(view, pathfinder, arena, goal.clone(), entityHeight, generation);
+        }
+        finally
+        {
+            arena.release();
+        }
+    }
+
+    /**
+     * Copies the closed nodes of a finished search into a field.
+     */
+    private static @NotNull FlowField compact(@NotNull PathWorld view, @NotNull AStarPathfinder pathfinder, @NotNull SearchArena arena, @NotNull Location goal,
+            double entityHeight, long generation)
+    {
+        int count = 0;
+        for(int node = 0; node < arena.size(); node++)
+        {
+            if(arena.closed[node])
+                count++;
+        }
+
+        long[] keys = new long[count];
+        count = 0;
+        for(int node = 0; node < arena.size(); node++)
+        {
+            if(arena.closed[node])
+                keys[count++] = AStarPathfinder.pack(arena.x[node], arena.y[node], arena.z[node]);
+        }
+        Arrays.sort(keys);
+
+        int[] parents = new int[count];
+        float[] distances = new float[count];
+        float[] feetY = new float[count];
+        float[] groundY = new float[count];
+        byte[] doors = new byte[count];
+        for(int node = 0; node < arena.size(); node++)
+        {
+            if(!arena.closed[node])
+                continue;
+
+            int x = arena.x[node], y = arena.y[node], z = arena.z[node];
+            int index = Arrays.binarySearch(keys, AStarPathfinder.pack(x, y, z));
+            int parent = arena.parent[node];
+            parents[index] = parent < 0 ? -1 : Arrays.binarySearch(keys, AStarPathfinder.pack(arena.x[parent], arena.y[parent], arena.z[parent]));
+            distances[index] = (float) arena.g[node];
+
+            double feet = pathfinder.feetYAt(x, y, z);
+            feetY[index] = (float) feet;
+            groundY[index] = (float) PathProfile.readGroundY(view, x + 0.5, feet, z + 0.5);
+            doors[index] = PathProfile.readDoors(view, x, (int) Math.floor(feet), z);
+        }
+
+        return new FlowField(goal, entityHeight, generation, keys, parents, distances, feetY, groundY, doors);
+    }
+
+    /**
+     * Reads the path from a location to the goal off the field.
+     *
+     * @param from the location to start at
+     * @return the path, or {@code null} if the goal cannot be reached from the location or it is outside the field
+     */
+    public @Nullable Path pathFrom(@NotNull Location from)
+    {
+        int node = nodeAt(from);
+        if(node < 0)
+            return null;
+
+        int length = 0;
+        for(int current = node; current >= 0; current = parents[current])
+            length++;
+
+        List<Location> path = new ArrayList<>(length);
+        double[] ground = new double[length];
+        byte[] nodeDoors = new byte[length];
+        for(int i = 0; node >= 0; node = parents[node], i++)
+        {
+            long key = keys[node];
+            path.add(new Location(goal.getWorld(), unpackX(key) + 0.5, feetY[node], unpackZ(key) + 0.5));
+            ground[i] = groundY[node];
+            nodeDoors[i] = doors[node];
+        }
+
+        return new Path(path, List.of(from.clone(), goal.clone())).setExpansions(0)
+                .setProfile(PathProfile.of(goal.getWorld(), path, ground, nodeDoors, generation, entityHeight));
+    }
+
+    /**
+     * Gets the walking distance from a location to the goal.
+     *
+     * @param from the location
+     * @return the distance, or -1 if the goal cannot be reached from the location or it is outside the field
+     */
+    public double getDistance(@NotNull Location from)
+    {
+        int node = nodeAt(from);
+        return node < 0 ? -1 : distances[node];
+    }
+
+    /**
+     * Gets the goal of the field.
+     *
+     * @return a copy of the goal. Never null.
+     */
+    public @NotNull Location getGoal()
+    {
+        return goal.clone();
+    }
+
+    /**
+     * Gets the number of blocks from which the goal can be reached.
+     *
+     * @return the node count
+     */
+    public int getNodeCount()
+    {
+        return keys.length;
+    }
+
+    /**
+     * Finds the node a location stands on: the highest node of its block column from the block of its feet down to 6 blocks below.
+     */
+    private int nodeAt(@NotNull Location from)
+    {
+        if(from.getWorld() == null || !from.getWorld().equals(goal.getWorld()))
+            return -1;
+
+        int x = from.getBlockX();
+        int z = from.getBlockZ();
+        int feet = (int) Math.floor(from.getY() + EPSILON);
+        for(int y = feet; y >= feet - 6; y--)
+        {
+            int node = Arrays.binarySearch(keys, AStarPathfinder.pack(x, y, z));
+            if(node >= 0)
+                return node;
+        }
+        return -1;
+    }
+
+    private static int unpackX(long key)
+    {
+        return (int) (key << 38 >> 38);
+    }
+
+    private static int unpackZ(long key)
+    {
+        return (int) (key << 12 >> 38);
+    }
+}
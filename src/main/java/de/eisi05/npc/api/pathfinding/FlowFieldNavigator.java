@@ -0,0 +1,257 @@
+package de.eisi05.npc.api.pathfinding;
+
+import de.eisi05.npc.api.NpcApi;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Navigates crowds of NPCs to common destinations using shared {@link FlowField}s.
+ * <p>
+ * The first request for a destination computes a field covering {@link de.eisi05.npc.api.objects.NpcConfig#flowFieldRadius()} blocks around it; every
+ * further NPC walking there reads its path off the same field, so the cost of navigating a crowd no longer grows with its size. Fields are dropped when a
+ * block inside them changes and when they were not used for {@link #FIELD_LIFETIME_MILLIS}. NPCs outside a field, or in a part from which the destination
+ * cannot be reached, fall back to a regular search.
+ * </p>
+ */
+public class FlowFieldNavigator
+{
+    private static final long FIELD_LIFETIME_MILLIS = 60_000;
+
+    /**
+     * How often a field is computed before giving up when blocks inside it keep changing during the computation.
+     */
+    private static final int MAX_COMPUTE_ATTEMPTS = 2;
+
+    private static final Map<FieldKey, Entry> fields = new ConcurrentHashMap<>();
+
+    /**
+     * Finds a path from a location to a destination, reading it off the shared field of the destination.
+     *
+     * @param from                  the location to start at
+     * @param goal                  the destination
+     * @param maxIterations         the maximum number of iterations of the fallback search
+     * @param allowDiagonalMovement whether diagonal movement is allowed
+     * @param entityHeight          the height of the entity traversing the path
+     * @param entityWidth           the width of the entity traversing the path
+     * @return a future that completes with the path, or exceptionally with a {@link RuntimeException} wrapping a
+     * {@link PathfindingUtils.PathfindingException} if no path was found. Cancelling it also cancels the fallback search.
+     */
+    public static @NotNull CompletableFuture<Path> findPath(@NotNull Location from, @NotNull Location goal, int maxIterations, boolean allowDiagonalMovement,
+            double entityHeight, double entityWidth)
+    {
+        CompletableFuture<Path> result = new CompletableFuture<>();
+        getField(goal, allowDiagonalMovement, entityHeight, entityWidth).whenComplete((field, error) ->
+        {
+            if(result.isDone())
+                return;
+
+            Path path;
+            try
+            {
+                path = field == null ? null : field.pathFrom(from);
+            }
+            catch(RuntimeException e)
+            {
+                result.completeExceptionally(e);
+                return;
+            }
+
+            if(path != null)
+            {
+                result.complete(path);
+                return;
+            }
+
+            CompletableFuture<Path> fallback = PathfindingUtils.findPathAsync(List.of(from, goal), maxIterations, allowDiagonalMovement, entityHeight,
+                    entityWidth, null);
+            result.whenComplete((ignored, resultError) ->
+            {
+                if(result.isCancelled())
+                    fallback.cancel(true);
+            });
+            fallback.whenComplete((fallbackPath, fallbackError) ->
+            {
+                if(fallbackError != null)
+                    result.completeExceptionally(fallbackError);
+                else
+                    result.complete(fallbackPath);
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Gets the shared field of a destination, computing it if there is none yet.
+     *
+     * @param goal          the destination
+     * @param allowDiagonal whether diagonal movement is allowed
+     * @param entityHeight  the height of the entities walking the field
+     * @param entityWidth   the width of the entities walking the field
+     * @return a future that completes with the field, with {@code null} if blocks inside it kept changing while it was computed, or exceptionally with a
+     * {@link RuntimeException} wrapping a {@link PathfindingUtils.PathfindingException} if the destination is not on a valid floor
+     */
+    public static @NotNull CompletableFuture<FlowField> getField(@NotNull Location goal, boolean allowDiagonal, double entityHeight, double entityWidth)
+    {
+        long now = System.currentTimeMillis();
+        fields.values().removeIf(entry -> now - entry.lastUsed > FIELD_LIFETIME_MILLIS);
+
+        FieldKey key = FieldKey.of(goal, allowDiagonal, entityHeight, entityWidth);
+        Entry entry = fields.computeIfAbsent(key, k -> new Entry(compute(goal, allowDiagonal, entityHeight, entityWidth, MAX_COMPUTE_ATTEMPTS), k.x, k.z,
+                Math.max(1, NpcApi.config.flowFieldRadius())));
+        entry.lastUsed = now;
+        entry.future.whenComplete((field, error) ->
+        {
+            if(field == null)
+                fields.remove(key, entry);
+        });
+
+        return entry.future;
+    }
+
+    /**
+     * Drops all fields containing a block, or whose edge touches it. Called when the block changed.
+     *
+     * @param world the world of the block
+     * @param x     the block x coordinate
+     * @param y     the block y coordinate
+     * @param z     the block z coordinate
+     */
+    public static void invalidate(@NotNull World world, int x, int y, int z)
+    {
+        invalidate(world, x, z, x, z);
+    }
+
+    /**
+     * Drops all fields overlapping an area, or whose edge touches it. Called when blocks in the area changed.
+     *
+     * @param world the world of the area
+     * @param minX  the smallest block x coordinate of the area
+     * @param minZ  the smallest block z coordinate of the area
+     * @param maxX  the largest block x coordinate of the area
+     * @param maxZ  the largest block z coordinate of the area
+     */
+    public static void invalidate(@NotNull World world, int minX, int minZ, int maxX, int maxZ)
+    {
+        if(fields.isEmpty())
+            return;
+
+        UUID worldId = world.getUID();
+        fields.entrySet().removeIf(entry ->
+        {
+            Entry field = entry.getValue();
+            return entry.getKey().world.equals(worldId) && minX - field.centerX <= field.radius + 1 && field.centerX - maxX <= field.radius + 1
+                    && minZ - field.centerZ <= field.radius + 1 && field.centerZ - maxZ <= field.radius + 1;
+        });
+    }
+
+    /**
+     * Drops all fields of a world.
+     *
+     * @param world the world
+     */
+    public static void invalidate(@NotNull World world)
+    {
+        UUID worldId = world.getUID();
+        fields.keySet().removeIf(key -> key.world.equals(worldId));
+    }
+
+    /**
+     * Drops all fields.
+     */
+    public static void clear()
+    {
+        fields.clear();
+    }
+
+    /**
+     * Gets the number of cached fields, including those still being computed.
+     *
+     * @return the number of fields
+     */
+    public static int getFieldCount()
+    {
+        return fields.size();
+    }
+
+    /**
+     * Computes the field of a destination. A field whose blocks changed while it was computed is computed again, since it may lead NPCs into the changed
+     * blocks; after the last attempt, the future completes with {@code null}.
+     */
+    private static @NotNull CompletableFuture<FlowField> compute(@NotNull Location goal, boolean allowDiagonal, double entityHeight, double entityWidth,
+            int attempts)
+    {
+        int radius = Math.max(1, NpcApi.config.flowFieldRadius());
+        Location target = goal.clone();
+        long generation = SectionChanges.getGeneration();
+        return PathfindingUtils.capturePathWorld(target, radius).thenApplyAsync(view ->
+        {
+            try
+            {
+                return FlowField.compute(view, target, radius, allowDiagonal, entityHeight, entityWidth);
+            }
+            catch(PathfindingUtils.PathfindingException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }, PathfindingExecutor.getSegmentPool()).thenCompose(field ->
+        {
+            if(!hasChanged(target, radius, generation))
+                return CompletableFuture.completedFuture(field);
+
+            return attempts > 1 ? compute(goal, allowDiagonal, entityHeight, entityWidth, attempts - 1) : CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private static boolean hasChanged(@NotNull Location center, int radius, long since)
+    {
+        UUID world = center.getWorld().getUID();
+        int x = center.getBlockX(), y = center.getBlockY(), z = center.getBlockZ();
+        for(int sx = (x - radius) >> 4; sx <= (x + radius) >> 4; sx++)
+        {
+            for(int sy = (y - radius) >> 4; sy <= (y + radius) >> 4; sy++)
+            {
+                for(int sz = (z - radius) >> 4; sz <= (z + radius) >> 4; sz++)
+                {
+                    if(SectionChanges.hasChanged(world, SectionChanges.sectionKey(sx, sy, sz), since))
+                        return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private record FieldKey(@NotNull UUID world, int x, int y, int z, int height, int width, boolean allowDiagonal)
+    {
+        static @NotNull FieldKey of(@NotNull Location goal, boolean allowDiagonal, double entityHeight, double entityWidth)
+        {
+            return new FieldKey(goal.getWorld().getUID(), goal.getBlockX(), goal.getBlockY(), goal.getBlockZ(), (int) Math.round(entityHeight * 16),
+                    (int) Math.round(entityWidth * 16), allowDiagonal);
+        }
+    }
+
+    private static final class Entry
+    {
+        final CompletableFuture<FlowField> future;
+        final int centerX;
+        final int centerZ;
+        final int radius;
+        volatile long lastUsed;
+
+        Entry(@NotNull CompletableFuture<FlowField> future, int centerX, int centerZ, int radius)
+        {
+            this.future = future;
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.radius = radius;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+}
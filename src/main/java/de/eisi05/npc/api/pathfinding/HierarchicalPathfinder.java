@@ -0,0 +1,795 @@
+package de.eisi05.npc.api.pathfinding;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A hierarchical (HPA*) planner for long walks.
+ * <p>
+ * Every 16&times;16&times;16 chunk section is a cluster. Where the entity can step from one cluster into a neighboring one, the border crossings are grouped
+ * into portals, and the walking costs between the portals of a cluster are computed once inside that cluster. A long search then only expands portals on an
+ * abstract graph, and just the legs of the abstract route are refined block by block with the {@link AStarPathfinder}.
+ * </p>
+ * <p>
+ * Clusters are built the first time a search reaches them and are kept per world, entity size and diagonal setting, up to {@value #MAX_CLUSTERS} clusters
+ * per graph with the least recently used ones evicted first. Every cluster and portal remembers the {@link SectionChanges} generation it was built at; a
+ * lookup drops it if a section around it changed since, and the next search that needs it rebuilds it. The rest of the graph stays valid.
+ * </p>
+ */
+public class HierarchicalPathfinder
+{
+    private static final int MAX_CLUSTERS = 1 << 14;
+    private static final int MAX_PORTAL_WIDTH = 6;
+    private static final long START = Long.MIN_VALUE;
+    private static final long GOAL = Long.MAX_VALUE;
+    private static final Map<GraphKey, Graph> graphs = new ConcurrentHashMap<>();
+
+    private final int maxIterations;
+    private final boolean allowDiagonal;
+    private final double entityHeight;
+    private final double entityWidth;
+    private final AStarPathfinder aStar;
+    private int lastExpansions;
+
+    public HierarchicalPathfinder(int maxIterations, boolean allowDiagonal, double entityHeight, double entityWidth)
+    {
+        this(maxIterations, allowDiagonal, entityHeight, entityWidth, SearchMode.EUCLIDEAN);
+    }
+
+    public HierarchicalPathfinder(int maxIterations, boolean allowDiagonal, double entityHeight, double entityWidth, @NotNull SearchMode mode)
+    {
+        this.maxIterations = maxIterations;
+        this.allowDiagonal = allowDiagonal;
+        this.entityHeight = entityHeight;
+        this.entityWidth = entityWidth;
+        this.aStar = new AStarPathfinder(maxIterations, allowDiagonal, entityHeight, entityWidth, mode);
+    }
+
+    /**
+     * Drops all clusters of a world.
+     *
+     * @param world the world to clear
+     */
+    public static void invalidate(@NotNull World world)
+    {
+        graphs.keySet().removeIf(key -> key.world.equals(world.getUID()));
+    }
+
+    /**
+     * Drops all clusters of all worlds.
+     */
+    public static void clear()
+    {
+        graphs.clear();
+    }
+
+    /**
+     * Gets the number of clusters currently kept over all worlds and entity sizes.
+     *
+     * @return the number of built clusters
+     */
+    public static int getClusterCount()
+    {
+        return graphs.values().stream().mapToInt(Graph::size).sum();
+    }
+
+    /**
+     * Finds a path between two locations, reading blocks only from the given view. With a {@link SnapshotPathWorld} this is safe to call from any thread.
+     * <p>
+     * If the start and the end lie in the same or in neighboring clusters, or no abstract route is found, this falls back to a plain
+     * {@link AStarPathfinder} search.
+     * </p>
+     *
+     * @param view  the view of the world to search in
+     * @param start the start location
+     * @param end   the end location
+     * @return the path, or {@code null} if no path was found
+     * @throws PathfindingUtils.PathfindingException if the start or end is not on a valid floor
+     */
+    public @Nullable List<Location> getPath(@NotNull PathWorld view, @NotNull Location start, @NotNull Location end) throws PathfindingUtils.PathfindingException
+    {
+        if(start.getWorld() == null || !start.getWorld().equals(end.getWorld()) || !start.getWorld().equals(view.getWorld()))
+            return null;
+
+        lastExpansions = 0;
+        aStar.bind(view);
+
+        int startX = start.getBlockX(), startY = aStar.resolveFloorY(start), startZ = start.getBlockZ();
+        int endX = end.getBlockX(), endY = aStar.resolveFloorY(end), endZ = end.getBlockZ();
+
+        if(Math.max(Math.abs((startX >> 4) - (endX >> 4)), Math.max(Math.abs((startY >> 4) - (endY >> 4)), Math.abs((startZ >> 4) - (endZ >> 4)))) <= 1
+                || !aStar.isStandable(startX, startY, startZ) || !aStar.isStandable(endX, endY, endZ))
+            return flat(view, start, end);
+
+        Graph graph = graphs.computeIfAbsent(new GraphKey(view.getWorld().getUID(), (int) Math.round(entityHeight * 16),
+                (int) Math.round(entityWidth * 16), allowDiagonal), key -> new Graph(key.world));
+
+        LocalGraph startLocal = LocalGraph.build(aStar, startX >> 4, startY >> 4, startZ >> 4);
+        Cluster startCluster = getCluster(graph, view, startX >> 4, startY >> 4, startZ >> 4, startLocal);
+        double[] startCosts = startCluster.costsFrom(startLocal, startLocal.indexOf(startX, startY, startZ));
+
+        LocalGraph endLocal = LocalGraph.build(aStar, endX >> 4, endY >> 4, endZ >> 4);
+        Cluster endCluster = getCluster(graph, view, endX >> 4, endY >> 4, endZ >> 4, endLocal);
+        double[] endCosts = endCluster.costsFrom(endLocal, endLocal.indexOf(endX, endY, endZ));
+        long endClusterKey = clusterKey(endX >> 4, endY >> 4, endZ >> 4);
+
+        List<Long> route = searchAbstract(graph, view, startCluster, startCosts, clusterKey(startX >> 4, startY >> 4, startZ >> 4), endCluster, endCosts,
+                endClusterKey, end);
+        if(route == null)
+            return flat(view, start, end);
+
+        List<Location> path = new ArrayList<>();
+        path.add(new Location(view.getWorld(), startX + 0.5, aStar.feetYAt(startX, startY, startZ), startZ + 0.5));
+        long previous = AStarPathfinder.pack(startX, startY, startZ);
+        for(int i = 1; i < route.size(); i++)
+        {
+            long node = route.get(i) == GOAL ? AStarPathfinder.pack(endX, endY, endZ) : route.get(i);
+            if(node == previous)
+                continue;
+
+            Location target = route.get(i) == GOAL ? end.clone() : toLocation(view.getWorld(), node);
+            if(clusterOf(node) != clusterOf(previous) && isAdjacent(node, previous))
+            {
+                path.add(target);
+            }
+            else
+            {
+                List<Location> leg = flat(view, path.getLast(), target);
+                if(leg == null)
+                    return flat(view, start, end);
+
+                path.addAll(leg.subList(1, leg.size()));
+            }
+            previous = node;
+        }
+
+        return path;
+    }
+
+    /**
+     * Gets the outcome of the last {@link #getPath(PathWorld, Location, Location)} call. A failed search always ends in a plain A* search, so this is the result
+     * of that search.
+     *
+     * @return the result
+     */
+    @NotNull PathingResult getLastResult()
+    {
+        return aStar.getLastResult();
+    }
+
+    /**
+     * Gets the number of nodes the last {@link #getPath(PathWorld, Location, Location)} call expanded, in the abstract graph and in all plain searches.
+     *
+     * @return the number of expansions
+     */
+    public int getLastExpansions()
+    {
+        return lastExpansions;
+    }
+
+    private @Nullable List<Location> flat(@NotNull PathWorld view, @NotNull Location start, @NotNull Location end) throws PathfindingUtils.PathfindingException
+    {
+        try
+        {
+            return aStar.getPath(view, start, end);
+        }
+        finally
+        {
+            lastExpansions += aStar.getLastExpansions();
+        }
+    }
+
+    private @Nullable List<Long> searchAbstract(@NotNull Graph graph, @NotNull PathWorld view, @NotNull Cluster startCluster, double @NotNull [] startCosts,
+            long startClusterKey, @NotNull Cluster endCluster, double @NotNull [] endCosts, long endClusterKey, @NotNull Location end)
+    {
+        Map<Long, Cluster> seen = new HashMap<>();
+        Map<Long, Double> gCosts = new HashMap<>();
+        Map<Long, Long> parents = new HashMap<>();
+        seen.put(startClusterKey, startCluster);
+        seen.put(endClusterKey, endCluster);
+        Set<Long> closed = new HashSet<>();
+        PriorityQueue<OpenEntry> open = new PriorityQueue<>(Comparator.comparingDouble(OpenEntry::f));
+
+        gCosts.put(START, 0.0);
+        open.add(new OpenEntry(START, 0, 0));
+
+        int iterations = 0;
+        while(!open.isEmpty())
+        {
+            OpenEntry entry = open.poll();
+            if(!closed.add(entry.node))
+                continue;
+
+            if(entry.node == GOAL)
+            {
+                LinkedList<Long> route = new LinkedList<>();
+                for(Long node = GOAL; node != null; node = parents.get(node))
+                    route.addFirst(node);
+                return route;
+            }
+
+            lastExpansions++;
+            if(++iterations > maxIterations)
+                return null;
+
+            if((iterations & 1023) == 0 && PathfindingExecutor.isAborted())
+                return null;
+
+            if(entry.node == START)
+            {
+                for(int i = 0; i < startCluster.entrances.length; i++)
+                    relax(open, gCosts, parents, closed, START, entry.g, startCluster.entrances[i], startCosts[i], end);
+                continue;
+            }
+
+            long clusterKey = clusterOf(entry.node);
+            Cluster cluster = seen.computeIfAbsent(clusterKey, key -> getCluster(graph, view, unpackX(entry.node) >> 4, unpackY(entry.node) >> 4,
+                    unpackZ(entry.node) >> 4, null));
+            int index = cluster.indexOf(entry.node);
+            if(index < 0)
+                continue;
+
+            if(clusterKey == endClusterKey)
+                relax(open, gCosts, parents, closed, entry.node, entry.g, GOAL, endCosts[index], end);
+
+            int count = cluster.entrances.length;
+            for(int i = 0; i < count; i++)
+            {
+                if(i != index)
+                    relax(open, gCosts, parents, closed, entry.node, entry.g, cluster.entrances[i], cluster.costs[index * count + i], end);
+            }
+
+            for(Portal portal : cluster.links[index])
+                relax(open, gCosts, parents, closed, entry.node, entry.g, portal.to, portal.cost, end);
+        }
+
+        return null;
+    }
+
+    private void relax(@NotNull PriorityQueue<OpenEntry> open, @NotNull Map<Long, Double> gCosts, @NotNull Map<Long, Long> parents, @NotNull Set<Long> closed,
+            long from, double fromCost, long to, double cost, @NotNull Location end)
+    {
+        if(cost == Double.POSITIVE_INFINITY || closed.contains(to))
+            return;
+
+        double g = fromCost + cost;
+        Double known = gCosts.get(to);
+        if(known != null && known <= g)
+            return;
+
+        gCosts.put(to, g);
+        parents.put(to, from);
+        open.add(new OpenEntry(to, g, g + (to == GOAL ? 0 : heuristic(to, end))));
+    }
+
+    private @NotNull Cluster getCluster(@NotNull Graph graph, @NotNull PathWorld view, int cx, int cy, int cz, @Nullable LocalGraph local)
+    {
+        long key = clusterKey(cx, cy, cz);
+        Cluster cluster = graph.getCluster(cx, cy, cz);
+        if(cluster != null)
+            return cluster;
+
+        long generation = view.getCacheGeneration();
+        boolean storable = isAvailable(view, cx, cz);
+        if(!storable && !view.isAvailable(cx << 4, cz << 4))
+            return Cluster.EMPTY;
+
+        if(local == null)
+            local = LocalGraph.build(aStar, cx, cy, cz);
+
+        List<Portal> portals = new ArrayList<>();
+        for(int dx = -1; dx <= 1; dx++)
+        {
+            for(int dy = -1; dy <= 1; dy++)
+            {
+                for(int dz = -1; dz <= 1; dz++)
+                {
+                    if(dx == 0 && dy == 0 && dz == 0)
+                        continue;
+
+                    if(!view.isAvailable((cx + dx) << 4, (cz + dz) << 4))
+                        continue;
+
+                    long neighbor = clusterKey(cx + dx, cy + dy, cz + dz);
+                    boolean lower = key < neighbor;
+                    long pairKey0 = lower ? key : neighbor;
+                    long pairKey1 = lower ? neighbor : key;
+
+                    List<Portal> pair = graph.getPortals(pairKey0, pairKey1, cx, cy, cz, cx + dx, cy + dy, cz + dz);
+                    if(pair == null)
+                    {
+                        pair = lower ? scanPortals(cx, cy, cz, dx, dy, dz) : scanPortals(cx + dx, cy + dy, cz + dz, -dx, -dy, -dz);
+                        if(storable && isAvailable(view, cx + dx, cz + dz))
+                            graph.putPortals(pairKey0, pairKey1, pair, generation);
+                    }
+
+                    for(Portal portal : pair)
+                        portals.add(lower ? portal : new Portal(portal.to, portal.from, portal.cost));
+                }
+            }
+        }
+
+        cluster = Cluster.build(local, portals);
+        if(storable)
+            graph.putCluster(key, cluster, generation);
+        return cluster;
+    }
+
+    /**
+     * Finds the portals from a cluster into one of its neighbors. Crossings whose inner nodes touch each other are grouped; a narrow group becomes a single
+     * portal at its middle, a wide one two portals at its ends.
+     */
+    private @NotNull List<Portal> scanPortals(int cx, int cy, int cz, int dx, int dy, int dz)
+    {
+        int minX = dx == 0 ? cx << 4 : dx > 0 ? (cx << 4) + 15 : cx << 4, maxX = dx == 0 ? (cx << 4) + 15 : minX;
+        int minY = dy == 0 ? cy << 4 : dy > 0 ? (cy << 4) + 15 : cy << 4, maxY = dy == 0 ? (cy << 4) + 15 : minY;
+        int minZ = dz == 0 ? cz << 4 : dz > 0 ? (cz << 4) + 15 : cz << 4, maxZ = dz == 0 ? (cz << 4) + 15 : minZ;
+        long target = clusterKey(cx + dx, cy + dy, cz + dz);
+
+        Map<Long, Portal> crossings = new LinkedHashMap<>();
+        for(int x = minX; x <= maxX; x++)
+        {
+            for(int y = minY; y <= maxY; y++)
+            {
+                for(int z = minZ; z <= maxZ; z++)
+                {
+                    if(!aStar.isStandable(x, y, z))
+                        continue;
+
+                    Portal best = null;
+                    for(int mx = -1; mx <= 1; mx++)
+                    {
+                        for(int my = -1; my <= 1; my++)
+                        {
+                            for(int mz = -1; mz <= 1; mz++)
+                            {
+                                if((mx == 0 && my == 0 && mz == 0) || (!allowDiagonal && Math.abs(mx) + Math.abs(mz) > 1))
+                                    continue;
+
+                                int tx = x + mx, ty = y + my, tz = z + mz;
+                                if(clusterKey(tx >> 4, ty >> 4, tz >> 4) != target)
+                                    continue;
+
+                                double cost = AStarPathfinder.moveCost(mx, my, mz);
+                                if(best != null && best.cost <= cost)
+                                    continue;
+
+                                if(aStar.canWalk(x, y, z, tx, ty, tz) && aStar.canWalk(tx, ty, tz, x, y, z))
+                                    best = new Portal(AStarPathfinder.pack(x, y, z), AStarPathfinder.pack(tx, ty, tz), cost);
+                            }
+                        }
+                    }
+
+                    if(best != null)
+                        crossings.put(best.from, best);
+                }
+            }
+        }
+
+        List<Portal> portals = new ArrayList<>();
+        Set<Long> visited = new HashSet<>();
+        for(long seed : crossings.keySet())
+        {
+            if(!visited.add(seed))
+                continue;
+
+            List<Portal> group = new ArrayList<>();
+            ArrayDeque<Long> queue = new ArrayDeque<>(List.of(seed));
+            while(!queue.isEmpty())
+            {
+                long node = queue.poll();
+                group.add(crossings.get(node));
+
+                int x = unpackX(node), y = unpackY(node), z = unpackZ(node);
+                for(int mx = -1; mx <= 1; mx++)
+                {
+                    for(int my = -1; my <= 1; my++)
+                    {
+                        for(int mz = -1; mz <= 1; mz++)
+                        {
+                            long next = AStarPathfinder.pack(x + mx, y + my, z + mz);
+                            if(crossings.containsKey(next) && visited.add(next))
+                                queue.add(next);
+                        }
+                    }
+                }
+            }
+
+            group.sort(Comparator.comparingInt((Portal portal) -> unpackX(portal.from)).thenComparingInt(portal -> unpackY(portal.from))
+                    .thenComparingInt(portal -> unpackZ(portal.from)));
+            if(group.size() <= MAX_PORTAL_WIDTH)
+            {
+                portals.add(group.get(group.size() / 2));
+            }
+            else
+            {
+                portals.add(group.getFirst());
+                portals.add(group.getLast());
+            }
+        }
+
+        return portals;
+    }
+
+    private static boolean isAvailable(@NotNull PathWorld view, int cx, int cz)
+    {
+        for(int dx = -1; dx <= 1; dx++)
+        {
+            for(int dz = -1; dz <= 1; dz++)
+            {
+                if(!view.isAvailable((cx + dx) << 4, (cz + dz) << 4))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private @NotNull Location toLocation(@NotNull World world, long node)
+    {
+        int x = unpackX(node), y = unpackY(node), z = unpackZ(node);
+        return new Location(world, x + 0.5, aStar.feetYAt(x, y, z), z + 0.5);
+    }
+
+    private static boolean isAdjacent(long a, long b)
+    {
+        return Math.abs(unpackX(a) - unpackX(b)) <= 1 && Math.abs(unpackY(a) - unpackY(b)) <= 1 && Math.abs(unpackZ(a) - unpackZ(b)) <= 1;
+    }
+
+    private static double heuristic(long node, @NotNull Location end)
+    {
+        double dx = (unpackX(node) + 0.5) - end.getX();
+        double dy = (unpackY(node) + 1.0) - end.getY();
+        double dz = (unpackZ(node) + 0.5) - end.getZ();
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private static long clusterOf(long node)
+    {
+        return clusterKey(unpackX(node) >> 4, unpackY(node) >> 4, unpackZ(node) >> 4);
+    }
+
+    private static long clusterKey(int cx, int cy, int cz)
+    {
+        return ((long) cx << 44) | (((long) cy & 0xFFFFFL) << 22) | ((long) cz & 0x3FFFFFL);
+    }
+
+    private static int unpackX(long node)
+    {
+        return (int) (node << 38 >> 38);
+    }
+
+    private static int unpackZ(long node)
+    {
+        return (int) (node << 12 >> 38);
+    }
+
+    private static int unpackY(long node)
+    {
+        return (int) (node >> 52);
+    }
+
+    private record GraphKey(@NotNull UUID world, int height, int width, boolean diagonal) {}
+
+    private record Portal(long from, long to, double cost) {}
+
+    private record OpenEntry(long node, double g, double f) {}
+
+    /**
+     * The standable floor blocks of one cluster and the moves between them that stay inside the cluster, in compressed adjacency arrays. It is only kept while
+     * a cluster is built or a search connects its start or goal.
+     */
+    private static final class LocalGraph
+    {
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int[] index = new int[4096];
+        private int[] offsets;
+        private int[] targets;
+        private double[] costs;
+        private int size;
+
+        private LocalGraph(int cx, int cy, int cz)
+        {
+            this.minX = cx << 4;
+            this.minY = cy << 4;
+            this.minZ = cz << 4;
+        }
+
+        static @NotNull LocalGraph build(@NotNull AStarPathfinder aStar, int cx, int cy, int cz)
+        {
+            LocalGraph local = new LocalGraph(cx, cy, cz);
+            Arrays.fill(local.index, -1);
+
+            int[] cells = new int[4096];
+            for(int cell = 0; cell < 4096; cell++)
+            {
+                if(aStar.isStandable(local.minX + (cell >> 8), local.minY + ((cell >> 4) & 15), local.minZ + (cell & 15)))
+                {
+                    local.index[cell] = local.size;
+                    cells[local.size++] = cell;
+                }
+            }
+
+            local.offsets = new int[local.size + 1];
+            int[] targets = new int[local.size * 8];
+            double[] costs = new double[targets.length];
+            int edges = 0;
+
+            for(int node = 0; node < local.size; node++)
+            {
+                local.offsets[node] = edges;
+                int lx = cells[node] >> 8, ly = (cells[node] >> 4) & 15, lz = cells[node] & 15;
+                for(int mx = -1; mx <= 1; mx++)
+                {
+                    for(int my = -1; my <= 1; my++)
+                    {
+                        for(int mz = -1; mz <= 1; mz++)
+                        {
+                            if((mx == 0 && my == 0 && mz == 0) || (!aStar.isAllowDiagonal() && Math.abs(mx) + Math.abs(mz) > 1))
+                                continue;
+
+                            int tx = lx + mx, ty = ly + my, tz = lz + mz;
+                            if(tx < 0 || ty < 0 || tz < 0 || tx > 15 || ty > 15 || tz > 15)
+                                continue;
+
+                            int target = local.index[(tx << 8) | (ty << 4) | tz];
+                            if(target < 0 || !aStar.canWalk(local.minX + lx, local.minY + ly, local.minZ + lz, local.minX + tx, local.minY + ty,
+                                    local.minZ + tz))
+                                continue;
+
+                            if(edges == targets.length)
+                            {
+                                targets = Arrays.copyOf(targets, edges << 1);
+                                costs = Arrays.copyOf(costs, edges << 1);
+                            }
+
+                            targets[edges] = target;
+                            costs[edges++] = AStarPathfinder.moveCost(mx, my, mz);
+                        }
+                    }
+                }
+            }
+
+            local.offsets[local.size] = edges;
+            local.targets = targets;
+            local.costs = costs;
+            return local;
+        }
+
+        int indexOf(int x, int y, int z)
+        {
+            int lx = x - minX, ly = y - minY, lz = z - minZ;
+            if(lx < 0 || ly < 0 || lz < 0 || lx > 15 || ly > 15 || lz > 15)
+                return -1;
+
+            return index[(lx << 8) | (ly << 4) | lz];
+        }
+
+        int indexOf(long node)
+        {
+            return indexOf(unpackX(node), unpackY(node), unpackZ(node));
+        }
+
+        /**
+         * Runs Dijkstra from a node over the moves inside the cluster.
+         */
+        double @NotNull [] distances(int source)
+        {
+            double[] distances = new double[size];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            distances[source] = 0;
+
+            PriorityQueue<double[]> queue = new PriorityQueue<>(Comparator.comparingDouble(entry -> entry[0]));
+            queue.add(new double[]{0, source});
+            while(!queue.isEmpty())
+            {
+                double[] entry = queue.poll();
+                int node = (int) entry[1];
+                if(entry[0] > distances[node])
+                    continue;
+
+                for(int edge = offsets[node]; edge < offsets[node + 1]; edge++)
+                {
+                    double cost = entry[0] + costs[edge];
+                    if(cost < distances[targets[edge]])
+                    {
+                        distances[targets[edge]] = cost;
+                        queue.add(new double[]{cost, targets[edge]});
+                    }
+                }
+            }
+
+            return distances;
+        }
+    }
+
+    /**
+     * The abstract nodes of one cluster: its portal entrances, the walking costs between every pair of them inside the cluster, and the portals leaving from
+     * each of them.
+     */
+    private static final class Cluster
+    {
+        @SuppressWarnings("unchecked")
+        static final Cluster EMPTY = new Cluster(new long[0], new double[0], new List[0]);
+
+        final long[] entrances;
+        final double[] costs;
+        final List<Portal>[] links;
+
+        private Cluster(long @NotNull [] entrances, double @NotNull [] costs, @NotNull List<Portal> @NotNull [] links)
+        {
+            this.entrances = entrances;
+            this.costs = costs;
+            this.links = links;
+        }
+
+        @SuppressWarnings("unchecked")
+        static @NotNull Cluster build(@NotNull LocalGraph local, @NotNull List<Portal> portals)
+        {
+            long[] entrances = portals.stream().mapToLong(Portal::from).filter(node -> local.indexOf(node) >= 0).distinct().sorted().toArray();
+            List<Portal>[] links = new List[entrances.length];
+            for(int i = 0; i < links.length; i++)
+                links[i] = new ArrayList<>(1);
+
+            for(Portal portal : portals)
+            {
+                int index = Arrays.binarySearch(entrances, portal.from);
+                if(index >= 0)
+                    links[index].add(portal);
+            }
+
+            double[] costs = new double[entrances.length * entrances.length];
+            for(int i = 0; i < entrances.length; i++)
+            {
+                double[] distances = local.distances(local.indexOf(entrances[i]));
+                for(int j = 0; j < entrances.length; j++)
+                    costs[i * entrances.length + j] = distances[local.indexOf(entrances[j])];
+            }
+
+            return new Cluster(entrances, costs, links);
+        }
+
+        int indexOf(long node)
+        {
+            int index = Arrays.binarySearch(entrances, node);
+            return index < 0 ? -1 : index;
+        }
+
+        /**
+         * Gets the walking costs from a node of the cluster to each of its entrances.
+         */
+        double @NotNull [] costsFrom(@NotNull LocalGraph local, int source)
+        {
+            double[] result = new double[entrances.length];
+            if(source < 0)
+            {
+                Arrays.fill(result, Double.POSITIVE_INFINITY);
+                return result;
+            }
+
+            double[] distances = local.distances(source);
+            for(int i = 0; i < entrances.length; i++)
+            {
+                int index = local.indexOf(entrances[i]);
+                result[i] = index < 0 ? Double.POSITIVE_INFINITY : distances[index];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The clusters and portals built for one world and entity size.
+     */
+    private static final class Graph
+    {
+        private final UUID world;
+        private final Map<Long, Built<Cluster>> clusters = new LinkedHashMap<>(256, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Built<Cluster>> eldest)
+            {
+                return size() > MAX_CLUSTERS;
+            }
+        };
+        private final Map<PortalKey, Built<List<Portal>>> portals = new LinkedHashMap<>(256, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PortalKey, Built<List<Portal>>> eldest)
+            {
+                return size() > MAX_CLUSTERS * 13;
+            }
+        };
+
+        Graph(@NotNull UUID world)
+        {
+            this.world = world;
+        }
+
+        synchronized @Nullable Cluster getCluster(int cx, int cy, int cz)
+        {
+            long key = clusterKey(cx, cy, cz);
+            Built<Cluster> built = clusters.get(key);
+            if(built == null)
+                return null;
+
+            if(!isCurrent(built, cx, cy, cz))
+            {
+                clusters.remove(key);
+                return null;
+            }
+            return built.value;
+        }
+
+        synchronized void putCluster(long key, @NotNull Cluster cluster, long generation)
+        {
+            if(!SectionChanges.hasNeighborhoodChanged(world, (int) (key >> 44), (int) (key << 22 >> 44), (int) (key << 42 >> 42), generation))
+                clusters.put(key, new Built<>(cluster, generation));
+        }
+
+        synchronized @Nullable List<Portal> getPortals(long lower, long higher, int cx, int cy, int cz, int nx, int ny, int nz)
+        {
+            PortalKey key = new PortalKey(lower, higher);
+            Built<List<Portal>> built = portals.get(key);
+            if(built == null)
+                return null;
+
+            if(!isCurrent(built, cx, cy, cz) || !isCurrent(built, nx, ny, nz))
+            {
+                portals.remove(key);
+                return null;
+            }
+            return built.value;
+        }
+
+        synchronized void putPortals(long lower, long higher, @NotNull List<Portal> pair, long generation)
+        {
+            if(!SectionChanges.hasNeighborhoodChanged(world, (int) (lower >> 44), (int) (lower << 22 >> 44), (int) (lower << 42 >> 42), generation)
+                    && !SectionChanges.hasNeighborhoodChanged(world, (int) (higher >> 44), (int) (higher << 22 >> 44), (int) (higher << 42 >> 42), generation))
+                portals.put(new PortalKey(lower, higher), new Built<>(pair, generation));
+        }
+
+        /**
+         * Checks that no section around a cluster changed after the entry was last checked, and moves the check forward so the next lookup is cheap.
+         */
+        private boolean isCurrent(@NotNull Built<?> built, int cx, int cy, int cz)
+        {
+            long now = SectionChanges.getGeneration();
+            if(built.checked >= now)
+                return true;
+
+            if(SectionChanges.hasNeighborhoodChanged(world, cx, cy, cz, built.checked))
+                return false;
+
+            built.checked = now;
+            return true;
+        }
+
+        synchronized int size()
+        {
+            return clusters.size();
+        }
+    }
+
+    /**
+     * A cluster or portal list with the latest {@link SectionChanges} generation it is known to be current at.
+     */
+    private static final class Built<T>
+    {
+        final T value;
+        long checked;
+
+        Built(@NotNull T value, long generation)
+        {
+            this.value = value;
+            this.checked = generation;
+        }
+    }
+
+    private record PortalKey(long lower, long higher) {}
+}
@@ -0,0 +1,76 @@
+package de.eisi05.npc.api.pathfinding;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import org.bukkit.World;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A {@link PathWorld} that reads the live world. It must only be used on the main thread.
+ * <p>
+ * Blocks with a {@link CollisionTable#isDynamic(int) dynamic} shape are checked against their real shape in the world.
+ * </p>
+ */
+public class LivePathWorld implements PathWorld
+{
+    private final World world;
+    private final ServerLevel level;
+    private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+    /**
+     * Creates a view of the live world.
+     *
+     * @param world the world to read. Must not be null.
+     */
+    public LivePathWorld(@NotNull World world)
+    {
+        this.world = world;
+        this.level = ((CraftWorld) world).getHandle();
+    }
+
+    @Override
+    public @NotNull World getWorld()
+    {
+        return world;
+    }
+
+    @Override
+    public int getStateId(int x, int y, int z)
+    {
+        return CollisionTable.getId(level.getBlockState(pos.set(x, y, z)));
+    }
+
+    @Override
+    public @NotNull List<BoundingBox> getCollisionBoxes(int x, int y, int z)
+    {
+        int id = getStateId(x, y, z);
+        if(!CollisionTable.isDynamic(id))
+            return CollisionTable.getBoxes(id);
+
+        return List.copyOf(world.getBlockAt(x, y, z).getCollisionShape().getBoundingBoxes());
+    }
+
+    @Override
+    public boolean intersects(int x, int y, int z, double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+    {
+        int id = getStateId(x, y, z);
+        if(!CollisionTable.isDynamic(id))
+            return CollisionTable.intersects(id, x, y, z, minX, minY, minZ, maxX, maxY, maxZ);
+
+        return CollisionTable.intersects(getCollisionBoxes(x, y, z), x, y, z, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    @Override
+    public double topAt(int x, int y, int z, double lx, double lz)
+    {
+        int id = getStateId(x, y, z);
+        if(!CollisionTable.isDynamic(id))
+            return CollisionTable.topAt(id, lx, lz);
+
+        return CollisionTable.topAt(getCollisionBoxes(x, y, z), lx, lz);
+    }
+}
@@ -24,6 +24,8 @@ public class Path implements ConfigurationSerializable
     private final List<Location> waypoints;
 
     private String name;
+    private int expansions = -1;
+    private PathProfile profile;
 
     /**
      * Constructs a Path from a list of Bukkit {@link Location} objects.
@@ -63,6 +65,39 @@ public class Path implements ConfigurationSerializable
         return name;
     }
 
+    /**
+     * Gets the number of nodes the searches that found this path expanded, summed over all segments. Segments taken from the {@link PathCache} and paths read
+     * off a {@link FlowField} count as 0. Only planned paths are {@link PathRepair repaired} when a block on them changes.
+     *
+     * @return the number of expansions, or -1 if the path was not planned by the pathfinder, e.g. because it was loaded or built by hand
+     */
+    public int getExpansions()
+    {
+        return expansions;
+    }
+
+    @NotNull Path setExpansions(int expansions)
+    {
+        this.expansions = expansions;
+        return this;
+    }
+
+    /**
+     * Gets the ground and door profile of this path, read from the world when it was planned.
+     *
+     * @return the profile, or {@code null} if the path was not planned by the pathfinder
+     */
+    public @Nullable PathProfile getProfile()
+    {
+        return profile;
+    }
+
+    @NotNull Path setProfile(@Nullable PathProfile profile)
+    {
+        this.profile = profile;
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     public static Path deserialize(Map<String, Object> map)
     {
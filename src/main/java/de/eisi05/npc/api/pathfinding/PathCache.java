@@ -0,0 +1,291 @@
+package de.eisi05.npc.api.pathfinding;
+
+import de.eisi05.npc.api.NpcApi;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A cache of A* segments, so NPCs that repeatedly walk between the same points do not search again every time.
+ * <p>
+ * Segments are keyed by the world, the start and goal blocks, the entity size in 1/16 blocks and whether diagonal movement was allowed. The iteration limit
+ * is not part of the key, because a segment that was found is optimal no matter how many iterations were allowed. Failed searches are not cached.
+ * </p>
+ * <p>
+ * Every cached segment is indexed by the 16&times;16&times;16 chunk sections its nodes and their headroom lie in. {@link #invalidate(World, int, int, int)},
+ * called for every block change by the {@link de.eisi05.npc.api.listeners.BlockChangeListener}, drops all segments in the sections around the changed block
+ * and records the change in {@link SectionChanges}. A search result is only rejected by {@link #put} if one of its own sections changed while it was
+ * searching, so block changes elsewhere do not keep results out of the cache.
+ * The cache holds at most {@link de.eisi05.npc.api.objects.NpcConfig#pathCacheSize()} segments and evicts the least recently used one.
+ * </p>
+ */
+public class PathCache
+{
+    private static final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private static final Map<UUID, Map<Long, Set<Key>>> sectionIndex = new HashMap<>();
+
+    private static long hits;
+    private static long misses;
+    private static long invalidations;
+
+    /**
+     * Gets a cached segment.
+     *
+     * @param start         the start location
+     * @param end           the goal location
+     * @param entityHeight  the height of the entity
+     * @param entityWidth   the width of the entity
+     * @param allowDiagonal whether diagonal movement is allowed
+     * @return a copy of the cached segment, or {@code null} if there is none
+     */
+    public static synchronized @Nullable List<Location> get(@NotNull Location start, @NotNull Location end, double entityHeight, double entityWidth,
+            boolean allowDiagonal)
+    {
+        if(NpcApi.config == null || NpcApi.config.pathCacheSize() <= 0)
+            return null;
+
+        Entry entry = entries.get(Key.of(start, end, entityHeight, entityWidth, allowDiagonal));
+        if(entry == null)
+        {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        List<Location> copy = new ArrayList<>(entry.path.size());
+        entry.path.forEach(location -> copy.add(location.clone()));
+        return copy;
+    }
+
+    /**
+     * Gets the current {@link SectionChanges#getGeneration() change generation}. A search can pass the generation from before it read the world to
+     * {@link #put(Location, Location, double, double, boolean, List, long)}, so results based on blocks that changed since are not cached.
+     *
+     * @return the generation
+     */
+    public static long getGeneration()
+    {
+        return SectionChanges.getGeneration();
+    }
+
+    /**
+     * Caches a segment that was found by a search.
+     *
+     * @param start         the start location
+     * @param end           the goal location
+     * @param entityHeight  the height of the entity
+     * @param entityWidth   the width of the entity
+     * @param allowDiagonal whether diagonal movement is allowed
+     * @param path          the found segment. Must not be empty.
+     * @param generation    the {@link #getGeneration() generation} from before the search read the world
+     */
+    public static synchronized void put(@NotNull Location start, @NotNull Location end, double entityHeight, double entityWidth, boolean allowDiagonal,
+            @NotNull List<Location> path, long generation)
+    {
+        if(NpcApi.config == null || NpcApi.config.pathCacheSize() <= 0 || path.isEmpty())
+            return;
+
+        Key key = Key.of(start, end, entityHeight, entityWidth, allowDiagonal);
+
+        Set<Long> sections = new HashSet<>();
+        int headroom = (int) Math.ceil(entityHeight) + 1;
+        for(Location location : path)
+        {
+            int x = location.getBlockX();
+            int z = location.getBlockZ();
+            for(int y = location.getBlockY() - 1; y <= location.getBlockY() + headroom; y += 16)
+                sections.add(SectionChanges.sectionKey(x >> 4, y >> 4, z >> 4));
+            sections.add(SectionChanges.sectionKey(x >> 4, (location.getBlockY() + headroom) >> 4, z >> 4));
+        }
+
+        for(long section : sections)
+        {
+            if(SectionChanges.hasChanged(key.world, section, generation))
+                return;
+        }
+
+        remove(key);
+
+        List<Location> copy = new ArrayList<>(path.size());
+        path.forEach(location -> copy.add(location.clone()));
+
+        entries.put(key, new Entry(copy, sections));
+        Map<Long, Set<Key>> worldIndex = sectionIndex.computeIfAbsent(key.world, uuid -> new HashMap<>());
+        sections.forEach(section -> worldIndex.computeIfAbsent(section, s -> new HashSet<>()).add(key));
+
+        int maxSize = NpcApi.config.pathCacheSize();
+        Iterator<Key> iterator = entries.keySet().iterator();
+        while(entries.size() > maxSize && iterator.hasNext())
+        {
+            Key eldest = iterator.next();
+            Entry entry = entries.get(eldest);
+            iterator.remove();
+            unindex(eldest, entry);
+        }
+    }
+
+    /**
+     * Drops all segments that may be affected by a change of the given block, i.e. all segments in the sections touched by the block and its neighbors.
+     *
+     * @param world the world of the block
+     * @param x     the block x coordinate
+     * @param y     the block y coordinate
+     * @param z     the block z coordinate
+     */
+    public static void invalidate(@NotNull World world, int x, int y, int z)
+    {
+        SectionChanges.markChanged(world, x, y, z);
+
+        synchronized(PathCache.class)
+        {
+            drop(world, x, y, z);
+        }
+    }
+
+    private static void drop(@NotNull World world, int x, int y, int z)
+    {
+        Map<Long, Set<Key>> worldIndex = sectionIndex.get(world.getUID());
+        if(worldIndex == null)
+            return;
+
+        for(int sx = (x - 1) >> 4; sx <= (x + 1) >> 4; sx++)
+        {
+            for(int sy = (y - 1) >> 4; sy <= (y + 1) >> 4; sy++)
+            {
+                for(int sz = (z - 1) >> 4; sz <= (z + 1) >> 4; sz++)
+                {
+                    Set<Key> keys = worldIndex.get(SectionChanges.sectionKey(sx, sy, sz));
+                    if(keys == null)
+                        continue;
+
+                    for(Key key : new ArrayList<>(keys))
+                    {
+                        if(remove(key))
+                            invalidations++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all cached segments of a world.
+     *
+     * @param world the world to clear
+     */
+    public static synchronized void invalidate(@NotNull World world)
+    {
+        SectionChanges.markChanged(world);
+        entries.keySet().removeIf(key -> key.world.equals(world.getUID()));
+        sectionIndex.remove(world.getUID());
+    }
+
+    /**
+     * Drops all cached segments and resets the statistics.
+     */
+    public static synchronized void clear()
+    {
+        SectionChanges.markAllChanged();
+        entries.clear();
+        sectionIndex.clear();
+        hits = 0;
+        misses = 0;
+        invalidations = 0;
+    }
+
+    /**
+     * Gets the number of cached segments.
+     *
+     * @return the size of the cache
+     */
+    public static synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lookups that found a segment.
+     *
+     * @return the number of hits
+     */
+    public static synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that found no segment.
+     *
+     * @return the number of misses
+     */
+    public static synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Gets the number of segments dropped because of block changes.
+     *
+     * @return the number of invalidated segments
+     */
+    public static synchronized long getInvalidations()
+    {
+        return invalidations;
+    }
+
+    /**
+     * Gets the share of lookups that found a segment.
+     *
+     * @return the hit rate between 0 and 1, or 0 if there were no lookups
+     */
+    public static synchronized double getHitRate()
+    {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private static boolean remove(@NotNull Key key)
+    {
+        Entry entry = entries.remove(key);
+        if(entry == null)
+            return false;
+
+        unindex(key, entry);
+        return true;
+    }
+
+    private static void unindex(@NotNull Key key, @NotNull Entry entry)
+    {
+        Map<Long, Set<Key>> worldIndex = sectionIndex.get(key.world);
+        if(worldIndex == null)
+            return;
+
+        for(long section : entry.sections)
+        {
+            Set<Key> keys = worldIndex.get(section);
+            if(keys == null)
+                continue;
+
+            keys.remove(key);
+            if(keys.isEmpty())
+                worldIndex.remove(section);
+        }
+
+        if(worldIndex.isEmpty())
+            sectionIndex.remove(key.world);
+    }
+
+    private record Entry(@NotNull List<Location> path, @NotNull Set<Long> sections) {}
+
+    private record Key(@NotNull UUID world, int startX, int startY, int startZ, int endX, int endY, int endZ, int height, int width, boolean diagonal)
+    {
+        static @NotNull Key of(@NotNull Location start, @NotNull Location end, double entityHeight, double entityWidth, boolean allowDiagonal)
+        {
+            return new Key(start.getWorld().getUID(), start.getBlockX(), start.getBlockY(), start.getBlockZ(), end.getBlockX(), end.getBlockY(),
+                    end.getBlockZ(), (int) Math.round(entityHeight * 16), (int) Math.round(entityWidth * 16), allowDiagonal);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package de.eisi05.npc.api.pathfinding;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ground height and doors of every node of a path, read from the world once when the path is planned.
+ * <p>
+ * A walking NPC reads its ground and the doors ahead of it from the profile instead of the world. Its ground between two nodes is the ground of the node
+ * whose block it is in, as the pathfinder only connects neighbouring blocks or nodes on a flat, door-free straight line. The profile of a planned path is
+ * returned by {@link Path#getProfile()}; a walking NPC works on a {@link #copy()} and {@link #update updates} the nodes ahead of it when a block in one of
+ * their {@link #getSections() sections} changes.
+ * </p>
+ */
+public final class PathProfile
+{
+    private static final double EPSILON = 1e-4;
+    private static final byte DOOR_FEET = 1;
+    private static final byte DOOR_HEAD = 2;
+
+    private final double[] groundY;
+    private final byte[] doors;
+    private final long generation;
+    private final RouteSections sections;
+
+    private PathProfile(double @NotNull [] groundY, byte @NotNull [] doors, long generation, @NotNull RouteSections sections)
+    {
+        this.groundY = groundY;
+        this.doors = doors;
+        this.generation = generation;
+        this.sections = sections;
+    }
+
+    /**
+     * Computes the profile of a path.
+     *
+     * @param view         the view of the world the path was planned in
+     * @param nodes        the nodes of the path
+     * @param entityHeight the height of the entity walking the path
+     * @return the profile. Never null.
+     */
+    public static @NotNull PathProfile compute(@NotNull PathWorld view, @NotNull List<Location> nodes, double entityHeight)
+    {
+        long generation = view.getCacheGeneration();
+        PathProfile profile = new PathProfile(new double[nodes.size()], new byte[nodes.size()], generation,
+                RouteSections.of(view.getWorld(), nodes, entityHeight, generation));
+        profile.update(view, nodes, 0, nodes.size());
+        return profile;
+    }
+
+    /**
+     * Reads the ground and doors of a range of nodes from the world again, e.g. after a block on them changed.
+     *
+     * @param view  the view of the world
+     * @param nodes the nodes of the path, in the same order as when the profile was computed
+     * @param from  the index of the first node to update
+     * @param to    the index after the last node to update
+     */
+    public void update(@NotNull PathWorld view, @NotNull List<Location> nodes, int from, int to)
+    {
+        for(int i = Math.max(0, from); i < Math.min(to, groundY.length); i++)
+        {
+            Location node = nodes.get(i);
+            groundY[i] = readGroundY(view, node.getX(), node.getY(), node.getZ());
+            doors[i] = readDoors(view, node.getBlockX(), node.getBlockY(), node.getBlockZ());
+        }
+    }
+
+    /**
+     * Creates the profile of a path whose ground and doors were already read, e.g. when a {@link FlowField} was computed.
+     *
+     * @param world        the world of the path
+     * @param nodes        the nodes of the path
+     * @param groundY      the ground of every node, as read by {@link #readGroundY}
+     * @param doors        the doors of every node, as read by {@link #readDoors}
+     * @param generation   the generation the ground and doors were read at
+     * @param entityHeight the height of the entity walking the path
+     * @return the profile. Never null.
+     */
+    static @NotNull PathProfile of(@NotNull World world, @NotNull List<Location> nodes, double @NotNull [] groundY, byte @NotNull [] doors, long generation,
+            double entityHeight)
+    {
+        return new PathProfile(groundY, doors, generation, RouteSections.of(world, nodes, entityHeight, generation));
+    }
+
+    /**
+     * Reads the ground below the feet of an entity standing at a position.
+     *
+     * @return the feet y coordinate on the ground, or {@link Double#NaN} if there is no floor
+     */
+    static double readGroundY(@NotNull PathWorld view, double x, double y, double z)
+    {
+        int blockX = (int) Math.floor(x);
+        int blockZ = (int) Math.floor(z);
+        int floorY = (int) Math.floor(y - EPSILON);
+
+        double top = view.topAt(blockX, floorY, blockZ, x - blockX, z - blockZ);
+        return top < 0.0 ? Double.NaN : floorY + top;
+    }
+
+    /**
+     * Reads the doors at the feet and head of an entity whose feet are in a block.
+     *
+     * @return the door flags
+     */
+    static byte readDoors(@NotNull PathWorld view, int x, int y, int z)
+    {
+        byte door = 0;
+        if(view.isOpenable(x, y, z))
+            door |= DOOR_FEET;
+        if(view.isOpenable(x, y + 1, z))
+            door |= DOOR_HEAD;
+        return door;
+    }
+
+    /**
+     * Creates a copy of this profile that can be updated without changing this one.
+     *
+     * @return the copy. Never null.
+     */
+    public @NotNull PathProfile copy()
+    {
+        return new PathProfile(Arrays.copyOf(groundY, groundY.length), Arrays.copyOf(doors, doors.length), generation, sections.copy());
+    }
+
+    /**
+     * Gets the sections the nodes of the path depend on, recorded when the profile was computed. Each node counts as checked at the
+     * {@link #getGeneration() generation} of the profile until it is checked again.
+     *
+     * @return the sections of the path. Never null.
+     */
+    public @NotNull RouteSections getSections()
+    {
+        return sections;
+    }
+
+    /**
+     * Gets the {@link SectionChanges#getGeneration() change generation} of the blocks the profile was computed from. Blocks changed after it may not be
+     * reflected by the profile or the path.
+     *
+     * @return the generation
+     */
+    public long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Gets the number of nodes of the profile.
+     *
+     * @return the node count
+     */
+    public int size()
+    {
+        return groundY.length;
+    }
+
+    /**
+     * Gets the feet y coordinate of an entity standing on a node.
+     *
+     * @param node the index of the node
+     * @return the ground height, or {@link Double#NaN} if the node has no floor anymore
+     */
+    public double getGroundY(int node)
+    {
+        return groundY[node];
+    }
+
+    /**
+     * Gets the height an entity steps up, or down if negative, when it walks onto a node from the node before it.
+     *
+     * @param node the index of the node
+     * @return the step height, 0 for the first node
+     */
+    public double getStep(int node)
+    {
+        return node == 0 ? 0 : groundY[node] - groundY[node - 1];
+    }
+
+    /**
+     * Checks whether the block at the feet of an entity standing on a node can be opened.
+     *
+     * @param node the index of the node
+     * @return true if there is a door, gate or trapdoor at the feet
+     */
+    public boolean hasDoorAtFeet(int node)
+    {
+        return (doors[node] & DOOR_FEET) != 0;
+    }
+
+    /**
+     * Checks whether the block above the feet of an entity standing on a node can be opened.
+     *
+     * @param node the index of the node
+     * @return true if there is a door, gate or trapdoor above the feet
+     */
+    public boolean hasDoorAtHead(int node)
+    {
+        return (doors[node] & DOOR_HEAD) != 0;
+    }
+}
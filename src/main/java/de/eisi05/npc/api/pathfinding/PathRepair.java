@@ -0,0 +1,209 @@
+package de.eisi05.npc.api.pathfinding;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Repairs a path locally when a block change breaks it, instead of searching the whole path again.
+ * <p>
+ * The first node that can no longer be stood on or reached from its predecessor is found, and a small {@link SearchMode#OCTILE} search connects the last
+ * valid node before it to the first valid node after it. The rest of the path is kept. If that search fails, it is retried with rejoin nodes further along
+ * the path and a larger budget. The budget of every search grows with the distance it bridges, so the cost of a repair is proportional to the size of the
+ * change, not to the length of the path.
+ * </p>
+ */
+public class PathRepair
+{
+    private static final double EPSILON = 1e-4;
+    private static final int DETOUR_MARGIN = 4;
+    private static final int ITERATIONS_PER_AREA = 4;
+    private static final int MAX_ITERATIONS = 4000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int REJOIN_STEP = 4;
+
+    private static long repairs;
+    private static long failures;
+    private static long expansions;
+
+    /**
+     * Finds the first node of a path that is no longer valid, i.e. its floor is gone or changed height, the entity no longer fits above it, or it can no
+     * longer be reached from the node before it.
+     *
+     * @param view          the view of the world
+     * @param nodes         the nodes of the path
+     * @param from          the index of the first node to check. The move from the node before it is checked too.
+     * @param to            the index after the last node to check
+     * @param allowDiagonal whether diagonal movement is allowed
+     * @param entityHeight  the height of the entity walking the path
+     * @param entityWidth   the width of the entity walking the path
+     * @return the index of the first invalid node, or -1 if all checked nodes are valid
+     */
+    public static int findInvalidNode(@NotNull PathWorld view, @NotNull List<Location> nodes, int from, int to, boolean allowDiagonal, double entityHeight,
+            double entityWidth)
+    {
+        AStarPathfinder pathfinder = new AStarPathfinder(0, allowDiagonal, entityHeight, entityWidth);
+        pathfinder.bind(view);
+
+        for(int i = Math.max(0, from); i < Math.min(to, nodes.size()); i++)
+        {
+            if(!isNodeValid(pathfinder, nodes.get(i)))
+                return i;
+
+            if(i > 0 && !canMove(view, pathfinder, nodes.get(i - 1), nodes.get(i), entityHeight, entityWidth))
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Repairs the part of a path around an invalid node.
+     *
+     * @param view          the view of the world
+     * @param position      the current position of the entity. The repair starts here if the invalid node is the next one the entity walks to.
+     * @param nodes         the nodes of the path
+     * @param from          the index of the next node the entity walks to
+     * @param invalid       the index of the invalid node, as found by {@link #findInvalidNode}. Must be at least {@code from}.
+     * @param allowDiagonal whether diagonal movement is allowed
+     * @param entityHeight  the height of the entity walking the path
+     * @param entityWidth   the width of the entity walking the path
+     * @return the new nodes from {@code from} to the end of the path, or {@code null} if the path could not be repaired locally
+     */
+    public static @Nullable List<Location> repair(@NotNull PathWorld view, @NotNull Location position, @NotNull List<Location> nodes, int from, int invalid,
+            boolean allowDiagonal, double entityHeight, double entityWidth)
+    {
+        AStarPathfinder pathfinder = new AStarPathfinder(0, allowDiagonal, entityHeight, entityWidth);
+        pathfinder.bind(view);
+
+        Location start = invalid > from ? nodes.get(invalid - 1) : position;
+        int rejoin = invalid;
+        for(int attempt = 0; attempt < MAX_ATTEMPTS; attempt++)
+        {
+            rejoin = findRejoin(view, pathfinder, nodes, attempt == 0 ? rejoin + 1 : rejoin + REJOIN_STEP, entityHeight, entityWidth);
+            if(rejoin < 0)
+                break;
+
+            List<Location> detour = search(view, start, nodes.get(rejoin), allowDiagonal, entityHeight, entityWidth);
+            if(detour == null)
+                continue;
+
+            List<Location> repaired = new ArrayList<>(nodes.size() - from + detour.size());
+            for(int i = from; i < invalid; i++)
+                repaired.add(nodes.get(i));
+
+            PathfindingUtils.appendSegment(view, repaired, detour, allowDiagonal, entityHeight, entityWidth);
+            for(int i = rejoin + 1; i < nodes.size(); i++)
+                repaired.add(nodes.get(i));
+
+            repairs++;
+            return repaired;
+        }
+
+        failures++;
+        return null;
+    }
+
+    /**
+     * Gets the number of paths that were repaired locally.
+     *
+     * @return the number of repairs
+     */
+    public static long getRepairs()
+    {
+        return repairs;
+    }
+
+    /**
+     * Gets the number of paths that could not be repaired locally and had to be searched again.
+     *
+     * @return the number of failed repairs
+     */
+    public static long getFailures()
+    {
+        return failures;
+    }
+
+    /**
+     * Gets the number of nodes expanded by all repair searches.
+     *
+     * @return the number of expansions
+     */
+    public static long getExpansions()
+    {
+        return expansions;
+    }
+
+    /**
+     * Resets the repair statistics.
+     */
+    public static void resetStatistics()
+    {
+        repairs = 0;
+        failures = 0;
+        expansions = 0;
+    }
+
+    private static @Nullable List<Location> search(@NotNull PathWorld view, @NotNull Location start, @NotNull Location end, boolean allowDiagonal,
+            double entityHeight, double entityWidth)
+    {
+        int radius = (int) Math.ceil(start.distance(end)) + DETOUR_MARGIN;
+        AStarPathfinder aStar = new AStarPathfinder(Math.min(MAX_ITERATIONS, radius * radius * ITERATIONS_PER_AREA), allowDiagonal, entityHeight, entityWidth,
+                SearchMode.OCTILE);
+        try
+        {
+            return aStar.getPath(view, start, end);
+        }
+        catch(PathfindingUtils.PathfindingException e)
+        {
+            return null;
+        }
+        finally
+        {
+            expansions += aStar.getLastExpansions();
+        }
+    }
+
+    private static int findRejoin(@NotNull PathWorld view, @NotNull AStarPathfinder pathfinder, @NotNull List<Location> nodes, int from, double entityHeight,
+            double entityWidth)
+    {
+        if(from >= nodes.size())
+            return -1;
+
+        for(int i = from; i < nodes.size() - 1; i++)
+        {
+            if(isNodeValid(pathfinder, nodes.get(i)) && isNodeValid(pathfinder, nodes.get(i + 1))
+                    && canMove(view, pathfinder, nodes.get(i), nodes.get(i + 1), entityHeight, entityWidth))
+                return i;
+        }
+
+        return isNodeValid(pathfinder, nodes.getLast()) ? nodes.size() - 1 : -1;
+    }
+
+    private static boolean isNodeValid(@NotNull AStarPathfinder pathfinder, @NotNull Location node)
+    {
+        int x = node.getBlockX();
+        int z = node.getBlockZ();
+        int floorY = floorY(node);
+        return pathfinder.isStandable(x, floorY, z) && Math.abs(pathfinder.feetYAt(x, floorY, z) - node.getY()) < EPSILON;
+    }
+
+    private static boolean canMove(@NotNull PathWorld view, @NotNull AStarPathfinder pathfinder, @NotNull Location from, @NotNull Location to,
+            double entityHeight, double entityWidth)
+    {
+        int fromY = floorY(from);
+        int toY = floorY(to);
+        if(Math.abs(to.getBlockX() - from.getBlockX()) <= 1 && Math.abs(to.getBlockZ() - from.getBlockZ()) <= 1 && Math.abs(toY - fromY) <= 1)
+            return pathfinder.canWalk(from.getBlockX(), fromY, from.getBlockZ(), to.getBlockX(), toY, to.getBlockZ());
+
+        return PathSmoother.canWalkStraight(view, from, to, entityHeight, entityWidth);
+    }
+
+    private static int floorY(@NotNull Location node)
+    {
+        return (int) Math.floor(node.getY() - EPSILON);
+    }
+}
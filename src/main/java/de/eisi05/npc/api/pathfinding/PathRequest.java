@@ -0,0 +1,317 @@
+package de.eisi05.npc.api.pathfinding;
+
+import de.eisi05.npc.api.NpcApi;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * A request for an asynchronous path search, submitted to the {@link PathfindingExecutor}.
+ * <p>
+ * Besides the search parameters, a request carries a {@link Priority} that decides which searches run first when the executor is busy, and an optional
+ * deadline after which the search is abandoned and its future completes with a {@link java.util.concurrent.TimeoutException}.
+ * </p>
+ */
+public final class PathRequest
+{
+    private final List<Location> waypoints;
+    private final int maxIterations;
+    private final boolean allowDiagonal;
+    private final double entityHeight;
+    private final double entityWidth;
+    private final Priority priority;
+    private final SearchMode searchMode;
+    private final long deadlineMillis;
+    private final BiConsumer<Integer, Integer> progressListener;
+
+    private PathRequest(@NotNull Builder builder)
+    {
+        this.waypoints = List.copyOf(builder.waypoints);
+        this.maxIterations = builder.maxIterations;
+        this.allowDiagonal = builder.allowDiagonal;
+        this.entityHeight = builder.entityHeight;
+        this.entityWidth = builder.entityWidth;
+        this.priority = builder.priority;
+        this.searchMode = builder.searchMode != null ? builder.searchMode : NpcApi.config != null ? NpcApi.config.searchMode() : SearchMode.EUCLIDEAN;
+        this.deadlineMillis = builder.deadlineMillis;
+        this.progressListener = builder.progressListener;
+    }
+
+    /**
+     * Gets the ordered waypoints the path must pass through.
+     *
+     * @return an unmodifiable list of waypoints. Never null.
+     */
+    public @NotNull List<Location> getWaypoints()
+    {
+        return waypoints;
+    }
+
+    /**
+     * Gets the maximum number of iterations per segment.
+     *
+     * @return the iteration limit
+     */
+    public int getMaxIterations()
+    {
+        return maxIterations;
+    }
+
+    /**
+     * Gets whether diagonal movement is allowed.
+     *
+     * @return true if diagonal movement is allowed
+     */
+    public boolean isAllowDiagonal()
+    {
+        return allowDiagonal;
+    }
+
+    /**
+     * Gets the height of the entity traversing the path.
+     *
+     * @return the entity height
+     */
+    public double getEntityHeight()
+    {
+        return entityHeight;
+    }
+
+    /**
+     * Gets the width of the entity traversing the path.
+     *
+     * @return the entity width
+     */
+    public double getEntityWidth()
+    {
+        return entityWidth;
+    }
+
+    /**
+     * Gets the priority of the request.
+     *
+     * @return the priority. Never null.
+     */
+    public @NotNull Priority getPriority()
+    {
+        return priority;
+    }
+
+    /**
+     * Gets the search mode of the request.
+     *
+     * @return the search mode. Never null.
+     */
+    public @NotNull SearchMode getSearchMode()
+    {
+        return searchMode;
+    }
+
+    /**
+     * Gets the time in milliseconds after submission at which the search is abandoned.
+     *
+     * @return the deadline in milliseconds, 0 if the request has no deadline
+     */
+    public long getDeadlineMillis()
+    {
+        return deadlineMillis;
+    }
+
+    /**
+     * Gets the progress listener.
+     *
+     * @return the listener with the signature (segmentIndex, totalSegments), or {@code null}
+     */
+    public @Nullable BiConsumer<Integer, Integer> getProgressListener()
+    {
+        return progressListener;
+    }
+
+    /**
+     * Gets the key identifying requests that produce the same path. Identical requests in flight at the same time share one search.
+     */
+    @NotNull Key key()
+    {
+        int[] blocks = new int[waypoints.size() * 3];
+        for(int i = 0; i < waypoints.size(); i++)
+        {
+            Location waypoint = waypoints.get(i);
+            blocks[i * 3] = waypoint.getBlockX();
+            blocks[i * 3 + 1] = waypoint.getBlockY();
+            blocks[i * 3 + 2] = waypoint.getBlockZ();
+        }
+
+        return new Key(waypoints.getFirst().getWorld().getUID(), blocks, maxIterations, allowDiagonal, (int) Math.round(entityHeight * 16),
+                (int) Math.round(entityWidth * 16), searchMode);
+    }
+
+    record Key(@NotNull UUID world, int @NotNull [] blocks, int maxIterations, boolean allowDiagonal, int height, int width, @NotNull SearchMode searchMode)
+    {
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Key other && world.equals(other.world) && Arrays.equals(blocks, other.blocks) && maxIterations == other.maxIterations
+                    && allowDiagonal == other.allowDiagonal && height == other.height && width == other.width && searchMode == other.searchMode;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(world, Arrays.hashCode(blocks), maxIterations, allowDiagonal, height, width, searchMode);
+        }
+    }
+
+    /**
+     * The order in which queued requests are searched. When the queue is full, requests of the lowest priority are rejected first.
+     */
+    public enum Priority
+    {
+        /**
+         * Searches the player is waiting for, e.g. an NPC that was told to walk somewhere.
+         */
+        HIGH,
+
+        /**
+         * Regular searches, e.g. goals re-planning their route.
+         */
+        NORMAL,
+
+        /**
+         * Background searches whose result is only used if it is available, e.g. checking whether a target is reachable.
+         */
+        LOW
+    }
+
+    /**
+     * Builder class for creating PathRequest instances with a fluent API.
+     */
+    public static class Builder
+    {
+        private final List<Location> waypoints;
+        private int maxIterations = 5000;
+        private boolean allowDiagonal = true;
+        private double entityHeight = 1.8;
+        private double entityWidth = 0.6;
+        private Priority priority = Priority.NORMAL;
+        private SearchMode searchMode;
+        private long deadlineMillis = 0;
+        private BiConsumer<Integer, Integer> progressListener;
+
+        /**
+         * Creates a new Builder with the required waypoints.
+         *
+         * @param waypoints the ordered list of locations to traverse. Must contain at least 2 locations in the same world.
+         */
+        public Builder(@NotNull List<Location> waypoints)
+        {
+            if(waypoints.size() < 2)
+                throw new IllegalArgumentException("Waypoints list must contain at least 2 locations.");
+
+            this.waypoints = new ArrayList<>(waypoints);
+        }
+
+        /**
+         * Sets the maximum number of iterations per segment.
+         *
+         * @param maxIterations the iteration limit
+         * @return this builder for chaining
+         */
+        public @NotNull Builder maxIterations(int maxIterations)
+        {
+            this.maxIterations = maxIterations;
+            return this;
+        }
+
+        /**
+         * Sets whether diagonal movement is allowed.
+         *
+         * @param allowDiagonal whether diagonal movement is allowed
+         * @return this builder for chaining
+         */
+        public @NotNull Builder allowDiagonal(boolean allowDiagonal)
+        {
+            this.allowDiagonal = allowDiagonal;
+            return this;
+        }
+
+        /**
+         * Sets the size of the entity traversing the path.
+         *
+         * @param entityHeight the height of the entity
+         * @param entityWidth  the width of the entity
+         * @return this builder for chaining
+         */
+        public @NotNull Builder entitySize(double entityHeight, double entityWidth)
+        {
+            this.entityHeight = entityHeight;
+            this.entityWidth = entityWidth;
+            return this;
+        }
+
+        /**
+         * Sets the priority of the request.
+         *
+         * @param priority the priority
+         * @return this builder for chaining
+         */
+        public @NotNull Builder priority(@NotNull Priority priority)
+        {
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * Sets the search mode. Defaults to {@link de.eisi05.npc.api.objects.NpcConfig#searchMode()} when the request is built, or to
+         * {@link SearchMode#EUCLIDEAN} if the API is not enabled yet.
+         *
+         * @param searchMode the search mode
+         * @return this builder for chaining
+         */
+        public @NotNull Builder searchMode(@NotNull SearchMode searchMode)
+        {
+            this.searchMode = searchMode;
+            return this;
+        }
+
+        /**
+         * Sets the time after submission at which the search is abandoned.
+         *
+         * @param deadlineMillis the deadline in milliseconds, 0 or less for no deadline
+         * @return this builder for chaining
+         */
+        public @NotNull Builder deadline(long deadlineMillis)
+        {
+            this.deadlineMillis = Math.max(0, deadlineMillis);
+            return this;
+        }
+
+        /**
+         * Sets the progress listener.
+         *
+         * @param progressListener a listener with the signature (segmentIndex, totalSegments)
+         * @return this builder for chaining
+         */
+        public @NotNull Builder progressListener(@Nullable BiConsumer<Integer, Integer> progressListener)
+        {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        /**
+         * Builds the PathRequest instance.
+         *
+         * @return a new PathRequest instance
+         */
+        public @NotNull PathRequest build()
+        {
+            return new PathRequest(this);
+        }
+    }
+}
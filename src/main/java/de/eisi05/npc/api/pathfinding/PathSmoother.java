@@ -0,0 +1,120 @@
+package de.eisi05.npc.api.pathfinding;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes intermediate nodes from a path wherever the entity can walk straight from one node to a later one (string pulling).
+ * <p>
+ * A straight walk is only taken between nodes at the same feet height, when every point along the line stands on the same floor and the entity's hitbox
+ * collides with nothing on the way. Height changes, doors and the first and last node are always kept, so {@link de.eisi05.npc.api.scheduler.PathTask}
+ * still steps, jumps and opens doors at the same places.
+ * </p>
+ */
+public class PathSmoother
+{
+    private static final double SAMPLE_STEP = 0.1;
+    private static final double MAX_STRAIGHT_DISTANCE = 16;
+    private static final double EPSILON = 1e-4;
+
+    /**
+     * Smooths a path found by a search.
+     *
+     * @param view          the view of the world the path was found in
+     * @param path          the nodes of the path, one per block. Must not be modified while smoothing.
+     * @param allowDiagonal whether diagonal movement is allowed. If not, only nodes on straight axis-aligned runs are removed.
+     * @param entityHeight  the height of the entity walking the path
+     * @param entityWidth   the width of the entity walking the path
+     * @return a new list with the remaining nodes. Never null.
+     */
+    public static @NotNull List<Location> smooth(@NotNull PathWorld view, @NotNull List<Location> path, boolean allowDiagonal, double entityHeight,
+            double entityWidth)
+    {
+        if(path.size() < 3)
+            return new ArrayList<>(path);
+
+        List<Location> result = new ArrayList<>();
+        result.add(path.getFirst());
+
+        int anchor = 0;
+        while(anchor < path.size() - 1)
+        {
+            int next = anchor + 1;
+            if(!isDoor(view, path.get(anchor)))
+            {
+                while(next + 1 < path.size() && !isDoor(view, path.get(next))
+                        && (allowDiagonal ? canWalkStraight(view, path.get(anchor), path.get(next + 1), entityHeight, entityWidth)
+                        : isCollinear(path.get(anchor), path.get(next), path.get(next + 1))))
+                    next++;
+            }
+
+            result.add(path.get(next));
+            anchor = next;
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks whether the entity can walk in a straight line between two nodes without stepping, falling or colliding.
+     *
+     * @param view         the view of the world
+     * @param from         the start node
+     * @param to           the end node
+     * @param entityHeight the height of the entity
+     * @param entityWidth  the width of the entity
+     * @return {@code true} if the straight walk is safe
+     */
+    public static boolean canWalkStraight(@NotNull PathWorld view, @NotNull Location from, @NotNull Location to, double entityHeight, double entityWidth)
+    {
+        double feetY = from.getY();
+        if(Math.abs(to.getY() - feetY) > EPSILON)
+            return false;
+
+        double dx = to.getX() - from.getX();
+        double dz = to.getZ() - from.getZ();
+        double distance = Math.sqrt(dx * dx + dz * dz);
+        if(distance > MAX_STRAIGHT_DISTANCE)
+            return false;
+
+        int floorY = (int) Math.floor(feetY - EPSILON);
+        int samples = Math.max(1, (int) Math.ceil(distance / SAMPLE_STEP));
+        for(int i = 1; i < samples; i++)
+        {
+            double x = from.getX() + dx * i / samples;
+            double z = from.getZ() + dz * i / samples;
+            int bx = (int) Math.floor(x);
+            int bz = (int) Math.floor(z);
+
+            if(!view.isSafeFloor(bx, floorY, bz) || view.isOpenable(bx, floorY + 1, bz))
+                return false;
+
+            if(Math.abs(floorY + view.topAt(bx, floorY, bz, x - bx, z - bz) - feetY) > EPSILON)
+                return false;
+
+            if(!AStarPathfinder.isPositionValid(view, x, feetY, z, entityHeight, entityWidth))
+                return false;
+        }
+
+        return true;
+    }
+
+    private static boolean isDoor(@NotNull PathWorld view, @NotNull Location node)
+    {
+        int x = node.getBlockX(), y = node.getBlockY(), z = node.getBlockZ();
+        return view.isOpenable(x, y, z) || view.isOpenable(x, y + 1, z);
+    }
+
+    private static boolean isCollinear(@NotNull Location a, @NotNull Location b, @NotNull Location c)
+    {
+        if(Math.abs(a.getY() - b.getY()) > EPSILON || Math.abs(b.getY() - c.getY()) > EPSILON)
+            return false;
+
+        double abx = b.getX() - a.getX(), abz = b.getZ() - a.getZ();
+        double bcx = c.getX() - b.getX(), bcz = c.getZ() - b.getZ();
+        return Math.abs(abx * bcz - abz * bcx) < EPSILON && abx * bcx + abz * bcz > 0;
+    }
+}
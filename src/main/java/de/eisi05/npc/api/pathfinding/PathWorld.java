@@ -0,0 +1,187 @@
+package de.eisi05.npc.api.pathfinding;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * The view of a world the pathfinder reads blocks from.
+ * <p>
+ * A view only provides the block state id at a position; all collision queries are answered by the {@link CollisionTable}. {@link LivePathWorld} reads the
+ * live world and may only be used on the main thread. {@link SnapshotPathWorld} is captured on the main thread from the chunk sections and is immutable
+ * afterward, so asynchronous searches can read it without touching the live world.
+ * </p>
+ */
+public interface PathWorld
+{
+    /**
+     * Gets the world this view belongs to.
+     *
+     * @return the world. Never null.
+     */
+    @NotNull World getWorld();
+
+    /**
+     * Gets the block state id at a position.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return the block state id, {@link CollisionTable#VOID_AIR} for blocks outside the view
+     */
+    int getStateId(int x, int y, int z);
+
+    /**
+     * Gets the {@link PathCache#getGeneration() path cache generation} the blocks of this view correspond to. Segments found in this view are only cached if
+     * no block changed since.
+     *
+     * @return the generation, by default the current one
+     */
+    default long getCacheGeneration()
+    {
+        return PathCache.getGeneration();
+    }
+
+    /**
+     * Checks whether the blocks of a column are known to this view. Columns outside a {@link SnapshotPathWorld} read as {@code void_air}, so results computed
+     * from them must not be kept.
+     *
+     * @param x the block x coordinate
+     * @param z the block z coordinate
+     * @return {@code true} if the view holds the real blocks of the column
+     */
+    default boolean isAvailable(int x, int z)
+    {
+        return true;
+    }
+
+    /**
+     * Checks whether this view may be read by several threads at once. Only then are the segments of a multi-waypoint path searched in parallel.
+     *
+     * @return {@code true} if the view is immutable, by default {@code false}
+     */
+    default boolean isThreadSafe()
+    {
+        return false;
+    }
+
+    /**
+     * Gets the material of a block.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return the material, {@link Material#VOID_AIR} for blocks outside the view. Never null.
+     */
+    default @NotNull Material getType(int x, int y, int z)
+    {
+        return CollisionTable.getMaterial(getStateId(x, y, z));
+    }
+
+    /**
+     * Checks whether a block can be opened (doors, gates, trapdoors). The pathfinder treats these as passable.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return {@code true} if the block is openable
+     */
+    default boolean isOpenable(int x, int y, int z)
+    {
+        return CollisionTable.isOpenable(getStateId(x, y, z));
+    }
+
+    /**
+     * Gets the collision boxes of a block, relative to the block's origin. The returned list and its boxes must not be modified.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return the collision boxes, empty for passable blocks. Never null.
+     */
+    default @NotNull List<BoundingBox> getCollisionBoxes(int x, int y, int z)
+    {
+        return CollisionTable.getBoxes(getStateId(x, y, z));
+    }
+
+    /**
+     * Checks whether the collision shape of a block overlaps an axis-aligned box.
+     *
+     * @param x    the block x coordinate
+     * @param y    the block y coordinate
+     * @param z    the block z coordinate
+     * @param minX the minimum x of the box
+     * @param minY the minimum y of the box
+     * @param minZ the minimum z of the box
+     * @param maxX the maximum x of the box
+     * @param maxY the maximum y of the box
+     * @param maxZ the maximum z of the box
+     * @return {@code true} if the block collides with the box
+     */
+    default boolean intersects(int x, int y, int z, double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+    {
+        return CollisionTable.intersects(getStateId(x, y, z), x, y, z, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Gets the top of the collision shape of a block at a point of its footprint.
+     *
+     * @param x  the block x coordinate
+     * @param y  the block y coordinate
+     * @param z  the block z coordinate
+     * @param lx the x coordinate inside the block, between 0 and 1
+     * @param lz the z coordinate inside the block, between 0 and 1
+     * @return the top relative to the block, or -1 if the block has no collision
+     * @see CollisionTable#topAt(int, double, double)
+     */
+    default double topAt(int x, int y, int z, double lx, double lz)
+    {
+        return CollisionTable.topAt(getStateId(x, y, z), lx, lz);
+    }
+
+    /**
+     * Checks whether a block is water or lava.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return {@code true} if the block is a liquid
+     */
+    default boolean isLiquid(int x, int y, int z)
+    {
+        return CollisionTable.isLiquid(getStateId(x, y, z));
+    }
+
+    /**
+     * Checks whether a block has no collision.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return {@code true} if entities can move through the block
+     */
+    default boolean isPassable(int x, int y, int z)
+    {
+        return getCollisionBoxes(x, y, z).isEmpty();
+    }
+
+    /**
+     * Checks whether a block is valid to stand on.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return {@code true} if the block is a safe floor
+     */
+    default boolean isSafeFloor(int x, int y, int z)
+    {
+        int id = getStateId(x, y, z);
+        if(CollisionTable.isDynamic(id))
+            return !CollisionTable.isAir(id) && !CollisionTable.isLiquid(id) && !isPassable(x, y, z);
+
+        return CollisionTable.isSafeFloor(id);
+    }
+}
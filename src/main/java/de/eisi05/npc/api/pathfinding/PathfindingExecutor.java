@@ -0,0 +1,580 @@
+package de.eisi05.npc.api.pathfinding;
+
+import de.eisi05.npc.api.NpcApi;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A bounded pool of worker threads that runs all asynchronous path searches, separate from Bukkit's shared asynchronous scheduler.
+ * <p>
+ * Requests wait in a queue ordered by {@link PathRequest.Priority} and submission order. The queue holds at most
+ * {@link de.eisi05.npc.api.objects.NpcConfig#pathfindingQueueSize()} requests; when it is full, the request with the lowest priority is rejected. A request
+ * whose deadline passes is abandoned, even while it is being searched. Identical requests submitted while one of them is still in flight share a single
+ * search, and a search is abandoned as soon as every future waiting for it was cancelled, e.g. because the goal that requested it stopped.
+ * </p>
+ */
+public class PathfindingExecutor
+{
+    private static final Object lock = new Object();
+    private static final TreeSet<Task> queue = new TreeSet<>(Comparator.comparing((Task task) -> task.priority).thenComparingLong(task -> task.sequence));
+    private static final Map<PathRequest.Key, Task> inFlight = new HashMap<>();
+    private static final ThreadLocal<BooleanSupplier> abortCheck = new ThreadLocal<>();
+    private static final List<Thread> workers = new ArrayList<>();
+
+    private static ExecutorService segmentPool;
+    private static long sequence;
+    private static int runningSearches;
+
+    private static long submitted;
+    private static long deduplicated;
+    private static long rejected;
+    private static long expired;
+    private static long cancelled;
+    private static long completed;
+    private static long failed;
+    private static long totalLatencyNanos;
+    private static long maxLatencyNanos;
+    private static long totalWaitNanos;
+
+    /**
+     * Submits a path search. Must not be called while the API is disabled.
+     * <p>
+     * The blocks are captured into a {@link SnapshotPathWorld} on the main thread before the request is queued. If an identical request is already in flight,
+     * the returned future completes with the result of that search instead.
+     * </p>
+     *
+     * @param request the request to run
+     * @return a future that completes with the path. It completes exceptionally with a {@link RejectedExecutionException} if the queue was full, with a
+     * {@link TimeoutException} if the deadline passed, and with a {@link RuntimeException} wrapping a {@link PathfindingUtils.PathfindingException} if no path
+     * was found. Cancelling it abandons the search once no other request shares it.
+     */
+    public static @NotNull CompletableFuture<Path> submit(@NotNull PathRequest request)
+    {
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        PathRequest.Key key = request.key();
+        long now = System.nanoTime();
+        long deadline = request.getDeadlineMillis() > 0 ? now + request.getDeadlineMillis() * 1_000_000L : Long.MAX_VALUE;
+
+        Task task;
+        boolean created = false;
+        synchronized(lock)
+        {
+            startWorkers();
+            submitted++;
+
+            task = inFlight.get(key);
+            if(task != null)
+            {
+                deduplicated++;
+                boolean queued = queue.remove(task);
+                if(request.getPriority().compareTo(task.priority) < 0)
+                    task.priority = request.getPriority();
+                task.deadline = Math.max(task.deadline, deadline);
+                if(queued)
+                    queue.add(task);
+            }
+            else
+            {
+                task = new Task(key, request, sequence++, now, deadline);
+                inFlight.put(key, task);
+                created = true;
+            }
+
+            task.subscribers.add(future);
+            if(request.getProgressListener() != null)
+                task.listeners.add(request.getProgressListener());
+        }
+
+        Task finalTask = task;
+        future.whenComplete((path, error) ->
+        {
+            if(future.isCancelled())
+                unsubscribe(finalTask, future);
+        });
+
+        if(created)
+        {
+            PathfindingUtils.capturePathWorld(request.getWaypoints()).whenComplete((view, error) ->
+            {
+                if(error != null)
+                    finish(finalTask, null, error);
+                else
+                    enqueue(finalTask, view);
+            });
+        }
+
+        return future;
+    }
+
+    /**
+     * Stops all workers and cancels every queued and running search. Called when the API is disabled; the workers are started again by the next
+     * {@link #submit(PathRequest)}.
+     */
+    public static void shutdown()
+    {
+        List<CompletableFuture<Path>> futures = new ArrayList<>();
+        synchronized(lock)
+        {
+            for(Task task : inFlight.values())
+            {
+                task.cancelled = true;
+                futures.addAll(task.subscribers);
+                task.subscribers.clear();
+            }
+
+            inFlight.clear();
+            queue.clear();
+            workers.forEach(Thread::interrupt);
+            workers.clear();
+            lock.notifyAll();
+
+            if(segmentPool != null)
+            {
+                segmentPool.shutdownNow();
+                segmentPool = null;
+            }
+        }
+
+        futures.forEach(future -> future.cancel(true));
+    }
+
+    /**
+     * Gets the number of requests waiting for a worker.
+     *
+     * @return the queue depth
+     */
+    public static int getQueueDepth()
+    {
+        synchronized(lock)
+        {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Gets the number of searches currently running on a worker.
+     *
+     * @return the number of running searches
+     */
+    public static int getRunningSearches()
+    {
+        synchronized(lock)
+        {
+            return runningSearches;
+        }
+    }
+
+    /**
+     * Gets the number of submitted requests.
+     *
+     * @return the number of requests
+     */
+    public static long getSubmitted()
+    {
+        synchronized(lock)
+        {
+            return submitted;
+        }
+    }
+
+    /**
+     * Gets the number of requests that shared the search of an identical request in flight.
+     *
+     * @return the number of de-duplicated requests
+     */
+    public static long getDeduplicated()
+    {
+        synchronized(lock)
+        {
+            return deduplicated;
+        }
+    }
+
+    /**
+     * Gets the number of searches rejected because the queue was full.
+     *
+     * @return the number of rejected searches
+     */
+    public static long getRejected()
+    {
+        synchronized(lock)
+        {
+            return rejected;
+        }
+    }
+
+    /**
+     * Gets the number of searches abandoned because their deadline passed.
+     *
+     * @return the number of expired searches
+     */
+    public static long getExpired()
+    {
+        synchronized(lock)
+        {
+            return expired;
+        }
+    }
+
+    /**
+     * Gets the number of searches abandoned because all their futures were cancelled.
+     *
+     * @return the number of cancelled searches
+     */
+    public static long getCancelled()
+    {
+        synchronized(lock)
+        {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Gets the number of searches that found a path.
+     *
+     * @return the number of completed searches
+     */
+    public static long getCompleted()
+    {
+        synchronized(lock)
+        {
+            return completed;
+        }
+    }
+
+    /**
+     * Gets the number of searches that found no path or failed.
+     *
+     * @return the number of failed searches
+     */
+    public static long getFailed()
+    {
+        synchronized(lock)
+        {
+            return failed;
+        }
+    }
+
+    /**
+     * Gets the average time from submission to the result of searches that completed or failed.
+     *
+     * @return the average latency in milliseconds
+     */
+    public static double getAverageLatencyMillis()
+    {
+        synchronized(lock)
+        {
+            long finished = completed + failed;
+            return finished == 0 ? 0 : totalLatencyNanos / 1_000_000.0 / finished;
+        }
+    }
+
+    /**
+     * Gets the longest time from submission to the result of a search that completed or failed.
+     *
+     * @return the maximum latency in milliseconds
+     */
+    public static double getMaxLatencyMillis()
+    {
+        synchronized(lock)
+        {
+            return maxLatencyNanos / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Gets the average time searches waited in the queue before a worker picked them up.
+     *
+     * @return the average queue wait in milliseconds
+     */
+    public static double getAverageWaitMillis()
+    {
+        synchronized(lock)
+        {
+            long started = completed + failed;
+            return started == 0 ? 0 : totalWaitNanos / 1_000_000.0 / started;
+        }
+    }
+
+    /**
+     * Resets all counters and latency statistics.
+     */
+    public static void resetStatistics()
+    {
+        synchronized(lock)
+        {
+            submitted = deduplicated = rejected = expired = cancelled = completed = failed = 0;
+            totalLatencyNanos = maxLatencyNanos = totalWaitNanos = 0;
+        }
+    }
+
+    /**
+     * Checks whether the search running on the current thread should stop, because its deadline passed or every future waiting for it was cancelled. Long
+     * searches poll this regularly.
+     *
+     * @return {@code true} if the current search should be abandoned, always {@code false} outside the executor
+     */
+    static boolean isAborted()
+    {
+        BooleanSupplier check = abortCheck.get();
+        return check != null && check.getAsBoolean();
+    }
+
+    /**
+     * Gets the condition {@link #isAborted()} checks on the current thread, to hand it on to work forked from the current search.
+     *
+     * @return the condition, or {@code null} outside the executor
+     */
+    static @Nullable BooleanSupplier getAbortCheck()
+    {
+        return abortCheck.get();
+    }
+
+    /**
+     * Sets the condition {@link #isAborted()} checks on the current thread.
+     *
+     * @param check the condition, or {@code null} to remove it
+     */
+    static void setAbortCheck(@Nullable BooleanSupplier check)
+    {
+        if(check == null)
+            abortCheck.remove();
+        else
+            abortCheck.set(check);
+    }
+
+    /**
+     * Gets the pool that searches the segments of multi-waypoint paths in parallel and computes {@link FlowField}s. It has
+     * {@link de.eisi05.npc.api.objects.NpcConfig#pathfindingThreads()} daemon threads and is stopped by {@link #shutdown()}.
+     *
+     * @return the pool. Never null.
+     */
+    static @NotNull ExecutorService getSegmentPool()
+    {
+        synchronized(lock)
+        {
+            if(segmentPool == null)
+            {
+                AtomicInteger count = new AtomicInteger();
+                segmentPool = Executors.newFixedThreadPool(Math.max(1, NpcApi.config.pathfindingThreads()), runnable ->
+                {
+                    Thread thread = new Thread(runnable, "NpcApi Pathfinding Segment #" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+
+            return segmentPool;
+        }
+    }
+
+    private static void startWorkers()
+    {
+        if(!workers.isEmpty())
+            return;
+
+        int threads = Math.max(1, NpcApi.config.pathfindingThreads());
+        for(int i = 0; i < threads; i++)
+        {
+            Thread thread = new Thread(PathfindingExecutor::work, "NpcApi Pathfinding #" + (i + 1));
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+    }
+
+    private static void enqueue(@NotNull Task task, @NotNull PathWorld view)
+    {
+        Task evicted = null;
+        synchronized(lock)
+        {
+            if(task.cancelled || inFlight.get(task.key) != task)
+                return;
+
+            task.view = view;
+            if(queue.size() >= Math.max(1, NpcApi.config.pathfindingQueueSize()))
+            {
+                Task lowest = queue.last();
+                if(lowest.priority.compareTo(task.priority) > 0)
+                {
+                    queue.remove(lowest);
+                    evicted = lowest;
+                }
+                else
+                    evicted = task;
+            }
+
+            if(evicted != task)
+            {
+                queue.add(task);
+                lock.notify();
+            }
+        }
+
+        if(evicted != null)
+        {
+            synchronized(lock)
+            {
+                rejected++;
+            }
+            finish(evicted, null, new RejectedExecutionException("The pathfinding queue is full"));
+        }
+    }
+
+    private static void unsubscribe(@NotNull Task task, @NotNull CompletableFuture<Path> future)
+    {
+        synchronized(lock)
+        {
+            if(!task.subscribers.remove(future) || !task.subscribers.isEmpty() || task.cancelled)
+                return;
+
+            task.cancelled = true;
+            cancelled++;
+            queue.remove(task);
+            inFlight.remove(task.key, task);
+        }
+    }
+
+    private static void work()
+    {
+        while(true)
+        {
+            Task task;
+            synchronized(lock)
+            {
+                while(queue.isEmpty())
+                {
+                    if(!workers.contains(Thread.currentThread()))
+                        return;
+
+                    try
+                    {
+                        lock.wait();
+                    }
+                    catch(InterruptedException e)
+                    {
+                        return;
+                    }
+                }
+
+                if(!workers.contains(Thread.currentThread()))
+                    return;
+
+                task = queue.pollFirst();
+                if(System.nanoTime() > task.deadline)
+                {
+                    expired++;
+                    task.cancelled = true;
+                }
+                else
+                {
+                    runningSearches++;
+                    totalWaitNanos += System.nanoTime() - task.submitted;
+                }
+            }
+
+            if(task.cancelled)
+            {
+                finish(task, null, new TimeoutException("The pathfinding deadline passed before the search started"));
+                continue;
+            }
+
+            setAbortCheck(() -> task.cancelled || System.nanoTime() > task.deadline);
+            try
+            {
+                Path path = PathfindingUtils.findPath(task.view, task.request.getWaypoints(), task.request.getMaxIterations(), task.request.isAllowDiagonal(),
+                        task.request.getEntityHeight(), task.request.getEntityWidth(), task.request.getSearchMode(),
+                        (segment, total) -> task.listeners.forEach(listener -> listener.accept(segment, total)));
+                finish(task, path, null);
+            }
+            catch(Throwable e)
+            {
+                finish(task, null, e);
+            }
+            finally
+            {
+                setAbortCheck(null);
+                synchronized(lock)
+                {
+                    runningSearches--;
+                }
+            }
+        }
+    }
+
+    private static void finish(@NotNull Task task, @Nullable Path path, @Nullable Throwable error)
+    {
+        List<CompletableFuture<Path>> futures;
+        synchronized(lock)
+        {
+            inFlight.remove(task.key, task);
+            futures = new ArrayList<>(task.subscribers);
+            task.subscribers.clear();
+
+            if(error instanceof PathfindingUtils.PathfindingException && System.nanoTime() > task.deadline)
+            {
+                expired++;
+                error = new TimeoutException("The pathfinding deadline passed during the search");
+            }
+            else if(!(error instanceof RejectedExecutionException) && !(error instanceof TimeoutException) && !task.cancelled)
+            {
+                if(error == null)
+                    completed++;
+                else
+                    failed++;
+
+                long latency = System.nanoTime() - task.submitted;
+                totalLatencyNanos += latency;
+                maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            }
+        }
+
+        for(CompletableFuture<Path> future : futures)
+        {
+            if(error == null)
+                future.complete(path);
+            else if(error instanceof PathfindingUtils.PathfindingException)
+                future.completeExceptionally(new RuntimeException(error));
+            else if(error instanceof CancellationException)
+                future.cancel(true);
+            else
+                future.completeExceptionally(error);
+        }
+    }
+
+    private static final class Task
+    {
+        final PathRequest.Key key;
+        final PathRequest request;
+        final long sequence;
+        final long submitted;
+        final List<CompletableFuture<Path>> subscribers = new ArrayList<>(1);
+        final List<BiConsumer<Integer, Integer>> listeners = new CopyOnWriteArrayList<>();
+        PathRequest.Priority priority;
+        volatile long deadline;
+        volatile boolean cancelled;
+        PathWorld view;
+
+        Task(@NotNull PathRequest.Key key, @NotNull PathRequest request, long sequence, long submitted, long deadline)
+        {
+            this.key = key;
+            this.request = request;
+            this.sequence = sequence;
+            this.submitted = submitted;
+            this.priority = request.getPriority();
+            this.deadline = deadline;
+        }
+    }
+}
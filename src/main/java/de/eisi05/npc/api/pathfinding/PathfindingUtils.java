@@ -7,9 +7,16 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 /**
  * Utility class for calculating paths between locations using A* pathfinding.
@@ -32,17 +39,7 @@ public class PathfindingUtils
     public static @NotNull CompletableFuture<Path> findPathAsync(@NotNull List<Location> waypoints, int maxIterations, boolean allowDiagonalMovement,
                                                                  @Nullable BiConsumer<Integer, Integer> progressListener)
     {
-        return CompletableFuture.supplyAsync(() ->
-        {
-            try
-            {
-                return findPath(waypoints, maxIterations, allowDiagonalMovement, progressListener);
-            }
-            catch(PathfindingException e)
-            {
-                throw new RuntimeException(e);
-            }
-        }, runnable -> Bukkit.getScheduler().runTaskAsynchronously(NpcApi.plugin, runnable));
+        return findPathAsync(waypoints, maxIterations, allowDiagonalMovement, 1.8, 0.6, progressListener);
     }
 
     /**
@@ -50,6 +47,10 @@ public class PathfindingUtils
      * <p>
      * Each segment between consecutive waypoints is calculated in parallel using {@link CompletableFuture}. The returned future completes with a {@link Path}
      * containing the full path, or completes exceptionally if an {@link PathfindingException} occurs.
+     * <p>
+     * The search reads blocks from a {@link SnapshotPathWorld} captured on the main thread, never from the live world, and runs on the
+     * {@link PathfindingExecutor} with {@link PathRequest.Priority#NORMAL} priority. Use {@link PathfindingExecutor#submit(PathRequest)} to pass a priority
+     * or deadline.
      *
      * @param waypoints             the ordered list of locations to traverse
      * @param maxIterations         the maximum number of iterations the A* algorithm will attempt per segment
@@ -63,17 +64,56 @@ public class PathfindingUtils
                                                                  double entityHeight, double entityWidth,
                                                                  @Nullable BiConsumer<Integer, Integer> progressListener)
     {
-        return CompletableFuture.supplyAsync(() ->
+        return PathfindingExecutor.submit(new PathRequest.Builder(waypoints).maxIterations(maxIterations).allowDiagonal(allowDiagonalMovement)
+                .entitySize(entityHeight, entityWidth).progressListener(progressListener).build());
+    }
+
+    /**
+     * Captures a {@link SnapshotPathWorld} covering the corridor along the segments between the waypoints, expanded by
+     * {@link de.eisi05.npc.api.objects.NpcConfig#pathfindingSnapshotMargin()}. The capture runs on the main thread; if this is called from another thread,
+     * it is scheduled for the next tick. The future fails with an {@link IllegalArgumentException} if the corridor covers more than
+     * {@link de.eisi05.npc.api.objects.NpcConfig#pathfindingSnapshotMaxChunks()} chunks.
+     *
+     * @param waypoints the waypoints the search has to cover. Must not be empty.
+     * @return a future that completes with the captured view
+     */
+    public static @NotNull CompletableFuture<PathWorld> capturePathWorld(@NotNull List<Location> waypoints)
+    {
+        if(waypoints.isEmpty())
+            throw new IllegalArgumentException("Waypoints list must not be empty.");
+
+        return onMainThread(() -> SnapshotPathWorld.capture(waypoints.getFirst().getWorld(), waypoints, NpcApi.config.pathfindingSnapshotMargin()));
+    }
+
+    /**
+     * Captures a {@link SnapshotPathWorld} covering the cube of blocks within a radius around a center. The capture runs on the main thread; if this is
+     * called from another thread, it is scheduled for the next tick.
+     *
+     * @param center the center of the area. Must have a world.
+     * @param radius the radius in blocks
+     * @return a future that completes with the captured view
+     */
+    public static @NotNull CompletableFuture<PathWorld> capturePathWorld(@NotNull Location center, int radius)
+    {
+        int x = center.getBlockX(), y = center.getBlockY(), z = center.getBlockZ();
+        return onMainThread(() -> SnapshotPathWorld.capture(center.getWorld(), x - radius, y - radius, z - radius, x + radius, y + radius, z + radius));
+    }
+
+    private static @NotNull CompletableFuture<PathWorld> onMainThread(@NotNull Supplier<PathWorld> capture)
+    {
+        if(Bukkit.isPrimaryThread())
         {
             try
             {
-                return findPath(waypoints, maxIterations, allowDiagonalMovement, entityHeight, entityWidth, progressListener);
+                return CompletableFuture.completedFuture(capture.get());
             }
-            catch(PathfindingException e)
+            catch(RuntimeException e)
             {
-                throw new RuntimeException(e);
+                return CompletableFuture.failedFuture(e);
             }
-        }, runnable -> Bukkit.getScheduler().runTaskAsynchronously(NpcApi.plugin, runnable));
+        }
+
+        return CompletableFuture.supplyAsync(capture, runnable -> Bukkit.getScheduler().runTask(NpcApi.plugin, runnable));
     }
 
     /**
@@ -117,35 +157,310 @@ public class PathfindingUtils
         if(waypoints.size() < 2)
             throw new IllegalArgumentException("Waypoints list must contain at least 2 locations.");
 
+        return findPath(new LivePathWorld(waypoints.getFirst().getWorld()), waypoints, maxIterations, allowDiagonalMovement, entityHeight, entityWidth,
+                progressListener);
+    }
+
+    /**
+     * Synchronously calculates a path through a list of waypoints, reading blocks only from the given view. With a {@link SnapshotPathWorld} this is safe to
+     * call from any thread.
+     * <p>
+     * If the view is {@link PathWorld#isThreadSafe() thread-safe} and {@link de.eisi05.npc.api.objects.NpcConfig#parallelPathSegments()} is enabled, the
+     * segments are searched in parallel on the {@link PathfindingExecutor}'s segment pool and stitched together in order; the progress listener then
+     * receives the number of finished segments. If a segment fails, the thrown {@link PathfindingException} tells which one and how every segment ended.
+     *
+     * @param view                  the view of the world to search in
+     * @param waypoints             the ordered list of locations to traverse
+     * @param maxIterations         the maximum number of iterations the A* algorithm will attempt per segment
+     * @param allowDiagonalMovement whether diagonal movement is allowed
+     * @param entityHeight          the height of the entity traversing the path
+     * @param entityWidth           the width of the entity traversing the path
+     * @param progressListener      a progress listener with the signature (segmentIndex, totalSegments)
+     * @return the calculated {@link Path} containing all intermediate locations
+     * @throws PathfindingException if any segment's start or end location is invalid/unwalkable
+     */
+    public static @NotNull Path findPath(@NotNull PathWorld view, @NotNull List<Location> waypoints, int maxIterations, boolean allowDiagonalMovement,
+                                         double entityHeight, double entityWidth, @Nullable BiConsumer<Integer, Integer> progressListener)
+            throws PathfindingException
+    {
+        return findPath(view, waypoints, maxIterations, allowDiagonalMovement, entityHeight, entityWidth, NpcApi.config.searchMode(), progressListener);
+    }
+
+    /**
+     * Synchronously calculates a path through a list of waypoints with the given {@link SearchMode}, reading blocks only from the given view. The number of
+     * nodes expanded is reported by {@link Path#getExpansions()}.
+     *
+     * @param view                  the view of the world to search in
+     * @param waypoints             the ordered list of locations to traverse
+     * @param maxIterations         the maximum number of iterations the A* algorithm will attempt per segment
+     * @param allowDiagonalMovement whether diagonal movement is allowed
+     * @param entityHeight          the height of the entity traversing the path
+     * @param entityWidth           the width of the entity traversing the path
+     * @param mode                  the search mode of every segment
+     * @param progressListener      a progress listener with the signature (segmentIndex, totalSegments)
+     * @return the calculated {@link Path} containing all intermediate locations
+     * @throws PathfindingException if any segment's start or end location is invalid/unwalkable
+     */
+    public static @NotNull Path findPath(@NotNull PathWorld view, @NotNull List<Location> waypoints, int maxIterations, boolean allowDiagonalMovement,
+                                         double entityHeight, double entityWidth, @NotNull SearchMode mode,
+                                         @Nullable BiConsumer<Integer, Integer> progressListener) throws PathfindingException
+    {
+        if(waypoints.size() < 2)
+            throw new IllegalArgumentException("Waypoints list must contain at least 2 locations.");
+
+        int segments = waypoints.size() - 1;
+        if(segments > 1 && view.isThreadSafe() && NpcApi.config.parallelPathSegments())
+            return findPathParallel(view, waypoints, maxIterations, allowDiagonalMovement, entityHeight, entityWidth, mode, progressListener);
+
+        PathingResult[] results = new PathingResult[segments];
+        Arrays.fill(results, PathingResult.CANCELLED);
+        int[] expansions = new int[segments];
+
         List<Location> fullPathPoints = new ArrayList<>();
+        for(int i = 0; i < segments; i++)
+        {
+            List<Location> segment = findSegment(view, waypoints, i, maxIterations, allowDiagonalMovement, entityHeight, entityWidth, mode, results,
+                    expansions);
+            if(segment == null)
+                throw new PathfindingException("Could not find path between waypoint " + i + " and " + (i + 1), i, results);
 
-        AStarPathfinder aStar = new AStarPathfinder(maxIterations, allowDiagonalMovement, entityHeight, entityWidth);
-        for(int i = 0; i < waypoints.size() - 1; i++)
+            appendSegment(view, fullPathPoints, segment, allowDiagonalMovement, entityHeight, entityWidth);
+            if(progressListener != null)
+                progressListener.accept(i + 1, segments);
+        }
+
+        return new Path(fullPathPoints, waypoints).setExpansions(Arrays.stream(expansions).sum())
+                .setProfile(PathProfile.compute(view, fullPathPoints, entityHeight));
+    }
+
+    /**
+     * Searches all segments at once on the {@link PathfindingExecutor#getSegmentPool() segment pool} and stitches them together in order. When a segment
+     * fails, the segments still running are abandoned.
+     */
+    private static @NotNull Path findPathParallel(@NotNull PathWorld view, @NotNull List<Location> waypoints, int maxIterations,
+            boolean allowDiagonalMovement, double entityHeight, double entityWidth, @NotNull SearchMode mode,
+            @Nullable BiConsumer<Integer, Integer> progressListener) throws PathfindingException
+    {
+        int segments = waypoints.size() - 1;
+        PathingResult[] results = new PathingResult[segments];
+        Arrays.fill(results, PathingResult.CANCELLED);
+        int[] expansions = new int[segments];
+
+        BooleanSupplier parentCheck = PathfindingExecutor.getAbortCheck();
+        AtomicBoolean failed = new AtomicBoolean();
+        BooleanSupplier check = parentCheck == null ? failed::get : () -> failed.get() || parentCheck.getAsBoolean();
+        AtomicInteger done = new AtomicInteger();
+
+        List<CompletableFuture<List<Location>>> futures = new ArrayList<>(segments);
+        for(int i = 0; i < segments; i++)
         {
-            Location start = waypoints.get(i);
-            Location end = waypoints.get(i + 1);
+            int index = i;
+            futures.add(CompletableFuture.supplyAsync(() ->
+            {
+                if(check.getAsBoolean())
+                    return null;
 
-            List<Location> segment = aStar.getPath(start, end);
+                PathfindingExecutor.setAbortCheck(check);
+                try
+                {
+                    List<Location> segment = findSegment(view, waypoints, index, maxIterations, allowDiagonalMovement, entityHeight, entityWidth, mode,
+                            results, expansions);
+                    if(segment == null)
+                        failed.set(true);
+                    else if(progressListener != null)
+                    {
+                        synchronized(progressListener)
+                        {
+                            progressListener.accept(done.incrementAndGet(), segments);
+                        }
+                    }
+                    return segment;
+                }
+                catch(PathfindingException e)
+                {
+                    failed.set(true);
+                    return null;
+                }
+                finally
+                {
+                    PathfindingExecutor.setAbortCheck(null);
+                }
+            }, PathfindingExecutor.getSegmentPool()));
+        }
 
-            if(segment == null)
-                throw new PathfindingException("Could not find path between waypoint " + i + " and " + (i + 1));
+        List<List<Location>> found = new ArrayList<>(segments);
+        for(CompletableFuture<List<Location>> future : futures)
+        {
+            try
+            {
+                found.add(future.join());
+            }
+            catch(CancellationException | CompletionException e)
+            {
+                found.add(null);
+            }
+        }
 
-            if(!fullPathPoints.isEmpty() && !segment.isEmpty())
-                segment.removeFirst();
+        List<Location> fullPathPoints = new ArrayList<>();
+        for(int i = 0; i < segments; i++)
+        {
+            List<Location> segment = found.get(i);
+            if(segment == null || results[i] != PathingResult.SUCCESS)
+            {
+                int failure = firstFailure(results, i);
+                throw new PathfindingException("Could not find path between waypoint " + failure + " and " + (failure + 1), failure, results);
+            }
 
-            fullPathPoints.addAll(segment.stream().map(Location::clone).toList());
-            if(progressListener != null)
-                progressListener.accept(i + 1, waypoints.size() - 1);
+            appendSegment(view, fullPathPoints, segment, allowDiagonalMovement, entityHeight, entityWidth);
         }
 
-        return new Path(fullPathPoints, waypoints);
+        return new Path(fullPathPoints, waypoints).setExpansions(Arrays.stream(expansions).sum())
+                .setProfile(PathProfile.compute(view, fullPathPoints, entityHeight));
     }
 
+    /**
+     * Finds one segment of a path, from the {@link PathCache} or by a search, and records its outcome and the number of nodes expanded.
+     *
+     * @return the nodes of the segment, or {@code null} if no path was found
+     */
+    private static @Nullable List<Location> findSegment(@NotNull PathWorld view, @NotNull List<Location> waypoints, int index, int maxIterations,
+            boolean allowDiagonalMovement, double entityHeight, double entityWidth, @NotNull SearchMode mode, @NotNull PathingResult @NotNull [] results,
+            int @NotNull [] expansions) throws PathfindingException
+    {
+        Location start = waypoints.get(index);
+        Location end = waypoints.get(index + 1);
+
+        List<Location> segment = PathCache.get(start, end, entityHeight, entityWidth, allowDiagonalMovement);
+        if(segment != null)
+        {
+            results[index] = PathingResult.SUCCESS;
+            return segment;
+        }
+
+        int hierarchicalDistance = NpcApi.config.hierarchicalPathfindingDistance();
+        try
+        {
+            if(hierarchicalDistance > 0 && horizontalDistanceSquared(start, end) >= (double) hierarchicalDistance * hierarchicalDistance)
+            {
+                HierarchicalPathfinder hierarchical = new HierarchicalPathfinder(maxIterations, allowDiagonalMovement, entityHeight, entityWidth, mode);
+                segment = hierarchical.getPath(view, start, end);
+                results[index] = segment != null ? PathingResult.SUCCESS : hierarchical.getLastResult();
+                expansions[index] = hierarchical.getLastExpansions();
+            }
+            else
+            {
+                AStarPathfinder aStar = new AStarPathfinder(maxIterations, allowDiagonalMovement, entityHeight, entityWidth, mode);
+                segment = aStar.getPath(view, start, end);
+                results[index] = segment != null ? PathingResult.SUCCESS : aStar.getLastResult();
+                expansions[index] = aStar.getLastExpansions();
+            }
+        }
+        catch(PathfindingException e)
+        {
+            results[index] = PathingResult.NO_PATH;
+            throw new PathfindingException(e.getMessage(), index, results);
+        }
+
+        if(segment != null)
+            PathCache.put(start, end, entityHeight, entityWidth, allowDiagonalMovement, segment, view.getCacheGeneration());
+
+        return segment;
+    }
+
+    private static int firstFailure(@NotNull PathingResult @NotNull [] results, int fallback)
+    {
+        for(int i = 0; i < results.length; i++)
+        {
+            if(results[i] != PathingResult.SUCCESS && results[i] != PathingResult.CANCELLED)
+                return i;
+        }
+
+        return fallback;
+    }
+
+    /**
+     * Appends the nodes of a found segment to a path, smoothing the segment first if {@link de.eisi05.npc.api.objects.NpcConfig#smoothPaths()} is enabled.
+     *
+     * @param view                  the view of the world the segment was found in
+     * @param fullPath              the path to append to
+     * @param segment               the nodes of the segment. Not modified.
+     * @param allowDiagonalMovement whether diagonal movement is allowed
+     * @param entityHeight          the height of the entity traversing the path
+     * @param entityWidth           the width of the entity traversing the path
+     */
+    static void appendSegment(@NotNull PathWorld view, @NotNull List<Location> fullPath, @NotNull List<Location> segment, boolean allowDiagonalMovement,
+            double entityHeight, double entityWidth)
+    {
+        List<Location> nodes = NpcApi.config.smoothPaths() ? PathSmoother.smooth(view, segment, allowDiagonalMovement, entityHeight, entityWidth) : segment;
+        int from = !fullPath.isEmpty() && !nodes.isEmpty() ? 1 : 0;
+        for(int i = from; i < nodes.size(); i++)
+            fullPath.add(nodes.get(i).clone());
+    }
+
+    private static double horizontalDistanceSquared(@NotNull Location start, @NotNull Location end)
+    {
+        double dx = end.getX() - start.getX();
+        double dz = end.getZ() - start.getZ();
+        return dx * dx + dz * dz;
+    }
+
+    /**
+     * Thrown when no path could be found. For multi-waypoint paths it tells which segment failed and how every segment ended.
+     */
     public static class PathfindingException extends Exception
     {
+        private final int segment;
+        private final List<PathingResult> segmentResults;
+
         public PathfindingException(String message)
         {
             super(message);
+            this.segment = -1;
+            this.segmentResults = List.of();
+        }
+
+        /**
+         * Creates an exception for a failed segment.
+         *
+         * @param message        the detail message
+         * @param segment        the index of the failed segment, i.e. the index of its start waypoint
+         * @param segmentResults the outcome of every segment of the path; segments that were not searched to the end are {@link PathingResult#CANCELLED}
+         */
+        public PathfindingException(String message, int segment, @NotNull PathingResult @NotNull [] segmentResults)
+        {
+            super(message);
+            this.segment = segment;
+            this.segmentResults = List.of(segmentResults.clone());
+        }
+
+        /**
+         * Gets the index of the segment that failed, i.e. the index of its start waypoint.
+         *
+         * @return the segment index, or -1 if the failure does not belong to a segment
+         */
+        public int getSegment()
+        {
+            return segment;
+        }
+
+        /**
+         * Gets the outcome of the failed segment.
+         *
+         * @return the result, or {@code null} if the failure does not belong to a segment
+         */
+        public @Nullable PathingResult getResult()
+        {
+            return segment < 0 ? null : segmentResults.get(segment);
+        }
+
+        /**
+         * Gets the outcome of every segment of the path, in waypoint order.
+         *
+         * @return an unmodifiable list with one result per segment, empty if the failure does not belong to a segment. Never null.
+         */
+        public @NotNull List<PathingResult> getSegmentResults()
+        {
+            return segmentResults;
         }
 
         @Override
@@ -18,7 +18,12 @@ public enum PathingResult
     /**
      * Pathfinding stopped because the maximum iteration limit was exceeded.
      */
-    ITERATIONS_EXCEEDED(-2);
+    ITERATIONS_EXCEEDED(-2),
+
+    /**
+     * Pathfinding was abandoned before it finished, because the request was cancelled, its deadline passed or another segment of the same path failed.
+     */
+    CANCELLED(-3);
 
     private final int ec;
 
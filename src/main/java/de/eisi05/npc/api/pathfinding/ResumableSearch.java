@@ -0,0 +1,185 @@
+package de.eisi05.npc.api.pathfinding;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * An A* search between two locations that can be paused and resumed. Each call to {@link #step(int, long)} expands a bounded number of nodes and keeps the
+ * open and closed sets for the next call, so a long search can be spread over several ticks.
+ * <p>
+ * The search owns a {@link SearchArena} from the shared pool until it finishes or is {@link #cancel() cancelled}. It is not thread-safe; all calls must come
+ * from the same thread, usually the main thread together with a {@link LivePathWorld}. A search can only run in one direction, so
+ * {@link SearchMode#BIDIRECTIONAL} searches run as {@link SearchMode#OCTILE}.
+ * </p>
+ */
+public final class ResumableSearch
+{
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+
+    private final AStarPathfinder pathfinder;
+    private final int maxIterations;
+    private final PathWorld view;
+    private final Location start;
+    private final Location end;
+
+    private SearchArena arena;
+    private int expansions;
+    private boolean finished;
+    private List<Location> result;
+
+    /**
+     * Creates a new search. No work is done until the first {@link #step(int, long)}.
+     *
+     * @param view          the view of the world to search in
+     * @param start         the start location
+     * @param end           the end location
+     * @param maxIterations the maximum number of node expansions before the search gives up
+     * @param allowDiagonal whether diagonal movement is allowed
+     * @param entityHeight  the height of the entity traversing the path
+     * @param entityWidth   the width of the entity traversing the path
+     */
+    public ResumableSearch(@NotNull PathWorld view, @NotNull Location start, @NotNull Location end, int maxIterations, boolean allowDiagonal,
+            double entityHeight, double entityWidth)
+    {
+        this(view, start, end, maxIterations, allowDiagonal, entityHeight, entityWidth, SearchMode.EUCLIDEAN);
+    }
+
+    /**
+     * Creates a new search with the given {@link SearchMode}. No work is done until the first {@link #step(int, long)}.
+     *
+     * @param view          the view of the world to search in
+     * @param start         the start location
+     * @param end           the end location
+     * @param maxIterations the maximum number of node expansions before the search gives up
+     * @param allowDiagonal whether diagonal movement is allowed
+     * @param entityHeight  the height of the entity traversing the path
+     * @param entityWidth   the width of the entity traversing the path
+     * @param mode          the search mode, which decides the heuristic
+     */
+    public ResumableSearch(@NotNull PathWorld view, @NotNull Location start, @NotNull Location end, int maxIterations, boolean allowDiagonal,
+            double entityHeight, double entityWidth, @NotNull SearchMode mode)
+    {
+        this.pathfinder = new AStarPathfinder(maxIterations, allowDiagonal, entityHeight, entityWidth,
+                mode == SearchMode.BIDIRECTIONAL ? SearchMode.OCTILE : mode);
+        this.maxIterations = maxIterations;
+        this.view = view;
+        this.start = start.clone();
+        this.end = end.clone();
+    }
+
+    /**
+     * Continues the search.
+     *
+     * @param maxExpansions the maximum number of nodes to expand in this call
+     * @param deadlineNanos the {@link System#nanoTime()} after which this call returns, {@link Long#MAX_VALUE} for none
+     * @return the number of nodes expanded in this call
+     * @throws PathfindingUtils.PathfindingException if the start or end is not on a valid floor
+     */
+    public int step(int maxExpansions, long deadlineNanos) throws PathfindingUtils.PathfindingException
+    {
+        if(finished)
+            return 0;
+
+        if(arena == null)
+        {
+            if(start.getWorld() == null || !start.getWorld().equals(end.getWorld()) || !start.getWorld().equals(view.getWorld()))
+            {
+                finish(null);
+                return 0;
+            }
+
+            arena = SearchArena.acquire();
+            try
+            {
+                pathfinder.begin(arena, view, start, end);
+            }
+            catch(PathfindingUtils.PathfindingException e)
+            {
+                finish(null);
+                throw e;
+            }
+        }
+
+        pathfinder.bind(view);
+        int expanded = 0;
+        while(expanded < maxExpansions)
+        {
+            if(arena.isOpenEmpty() || expansions > maxIterations)
+            {
+                finish(null);
+                break;
+            }
+
+            if(expanded % CLOCK_CHECK_INTERVAL == CLOCK_CHECK_INTERVAL - 1 && System.nanoTime() > deadlineNanos)
+                break;
+
+            expansions++;
+            expanded++;
+
+            int current = arena.pop();
+            if(pathfinder.isGoal(arena, current, end))
+            {
+                finish(pathfinder.retracePath(arena, current));
+                break;
+            }
+
+            pathfinder.expand(arena, current, end);
+        }
+
+        return expanded;
+    }
+
+    /**
+     * Stops the search and gives its memory back. A cancelled search is finished without a result.
+     */
+    public void cancel()
+    {
+        if(!finished)
+            finish(null);
+    }
+
+    /**
+     * Checks whether the search is finished, either because it found a path, gave up or was cancelled.
+     *
+     * @return {@code true} if no further steps are needed
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+    /**
+     * Gets the path found by the search.
+     *
+     * @return the path, or {@code null} if the search is not finished or found no path
+     */
+    public @Nullable List<Location> getResult()
+    {
+        return result;
+    }
+
+    /**
+     * Gets the total number of nodes expanded so far.
+     *
+     * @return the number of expansions
+     */
+    public int getExpansions()
+    {
+        return expansions;
+    }
+
+    private void finish(@Nullable List<Location> result)
+    {
+        this.result = result;
+        this.finished = true;
+
+        if(arena != null)
+        {
+            arena.release();
+            arena = null;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package de.eisi05.npc.api.pathfinding;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The chunk sections each node of a route depends on, and the {@link SectionChanges} generation each node was last checked at.
+ * <p>
+ * A node depends on the sections of its block column from the floor below it up to the headroom of the entity, and on the sections of the blocks between it
+ * and the node before it. A walking NPC only checks a node again if one of these sections changed after the node was last checked, so block changes away
+ * from its route cost it nothing.
+ * </p>
+ */
+public final class RouteSections
+{
+    private final UUID world;
+    private final int[] start;
+    private final long[] sections;
+    private final long[] checked;
+
+    private RouteSections(@NotNull UUID world, int @NotNull [] start, long @NotNull [] sections, long @NotNull [] checked)
+    {
+        this.world = world;
+        this.start = start;
+        this.sections = sections;
+        this.checked = checked;
+    }
+
+    /**
+     * Records the sections of a route.
+     *
+     * @param world        the world of the route
+     * @param nodes        the nodes of the route
+     * @param entityHeight the height of the entity walking the route
+     * @param generation   the generation the nodes are known to be valid at, or {@link Long#MIN_VALUE} if they were never checked
+     * @return the sections of the route. Never null.
+     */
+    public static @NotNull RouteSections of(@NotNull World world, @NotNull List<Location> nodes, double entityHeight, long generation)
+    {
+        int headroom = (int) Math.ceil(entityHeight) + 1;
+        int[] start = new int[nodes.size() + 1];
+        long[] sections = new long[Math.max(16, nodes.size() * 2)];
+        long[] nodeSections = new long[16];
+        int size = 0;
+
+        for(int i = 0; i < nodes.size(); i++)
+        {
+            start[i] = size;
+            Location node = nodes.get(i);
+            Location previous = i == 0 ? node : nodes.get(i - 1);
+
+            int count = 0;
+            double dx = node.getX() - previous.getX();
+            double dz = node.getZ() - previous.getZ();
+            int steps = Math.max(1, (int) Math.ceil(Math.max(Math.abs(dx), Math.abs(dz))));
+            for(int step = 0; step <= steps; step++)
+            {
+                double t = (double) step / steps;
+                int x = (int) Math.floor(previous.getX() + dx * t);
+                int z = (int) Math.floor(previous.getZ() + dz * t);
+                int low = Math.min(previous.getBlockY(), node.getBlockY()) - 1;
+                int high = Math.max(previous.getBlockY(), node.getBlockY()) + headroom;
+
+                for(int sy = low >> 4; sy <= high >> 4; sy++)
+                {
+                    long key = SectionChanges.sectionKey(x >> 4, sy, z >> 4);
+                    if(contains(nodeSections, count, key))
+                        continue;
+
+                    if(count == nodeSections.length)
+                        nodeSections = Arrays.copyOf(nodeSections, count * 2);
+                    nodeSections[count++] = key;
+                }
+            }
+
+            if(size + count > sections.length)
+                sections = Arrays.copyOf(sections, Math.max(sections.length * 2, size + count));
+            System.arraycopy(nodeSections, 0, sections, size, count);
+            size += count;
+        }
+        start[nodes.size()] = size;
+
+        long[] checked = new long[nodes.size()];
+        Arrays.fill(checked, generation);
+        return new RouteSections(world.getUID(), start, Arrays.copyOf(sections, size), checked);
+    }
+
+    private static boolean contains(long @NotNull [] keys, int count, long key)
+    {
+        for(int i = 0; i < count; i++)
+        {
+            if(keys[i] == key)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates a copy whose check generations can be updated without changing this one.
+     *
+     * @return the copy. Never null.
+     */
+    public @NotNull RouteSections copy()
+    {
+        return new RouteSections(world, start, sections, Arrays.copyOf(checked, checked.length));
+    }
+
+    /**
+     * Gets the number of nodes of the route.
+     *
+     * @return the node count
+     */
+    public int size()
+    {
+        return checked.length;
+    }
+
+    /**
+     * Checks whether a section a node depends on changed after the node was last checked.
+     *
+     * @param node the index of the node
+     * @return true if the node has to be checked again
+     */
+    public boolean hasChanged(int node)
+    {
+        long since = checked[node];
+        if(since == Long.MIN_VALUE)
+            return true;
+        if(since >= SectionChanges.getGeneration())
+            return false;
+
+        for(int i = start[node]; i < start[node + 1]; i++)
+        {
+            if(SectionChanges.hasChanged(world, sections[i], since))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the generation a range of nodes was checked at.
+     *
+     * @param from       the index of the first node
+     * @param to         the index after the last node
+     * @param generation the generation from before the blocks of the nodes were read
+     */
+    public void setChecked(int from, int to, long generation)
+    {
+        for(int i = Math.max(0, from); i < Math.min(to, checked.length); i++)
+            checked[i] = Math.max(checked[i], generation);
+    }
+}
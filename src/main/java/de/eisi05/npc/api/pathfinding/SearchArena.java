@@ -0,0 +1,359 @@
+package de.eisi05.npc.api.pathfinding;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The reusable memory of an A* search: node data in parallel primitive arrays, an open-addressing map from packed block positions to node indices, and an
+ * indexed binary min-heap over the f-costs that supports decrease-key. Nodes with equal f-costs are ordered by their h-cost, so the search deterministically
+ * prefers nodes closer to the goal.
+ * <p>
+ * Every node remembers the map slot it occupies, so clearing the arena for the next search only resets the slots the last search used.
+ * </p>
+ * <p>
+ * Each thread owns one arena, see {@link #get()}, so a search allocates nothing once the arrays have grown to the size of the largest search on that thread.
+ * Arenas that grew beyond {@link #RETAIN_NODES} nodes are shrunk again before the next search. Searches that outlive a single call, such as a
+ * {@link ResumableSearch}, borrow an arena from a small shared pool instead, see {@link #acquire()}.
+ * </p>
+ */
+final class SearchArena
+{
+    private static final int INITIAL_NODES = 1 << 12;
+    private static final int RETAIN_NODES = 1 << 18;
+    private static final int POOLED_ARENAS = 16;
+    private static final ThreadLocal<SearchArena> ARENAS = ThreadLocal.withInitial(SearchArena::new);
+    private static final Queue<SearchArena> POOL = new ConcurrentLinkedQueue<>();
+
+    int[] x;
+    int[] y;
+    int[] z;
+    double[] g;
+    double[] h;
+    int[] parent;
+    boolean[] closed;
+    private int[] heapIndex;
+    private int size;
+
+    private int[] heap;
+    private int heapSize;
+
+    private long[] keys;
+    private int[] slots;
+    private int[] nodeSlots;
+    private int mask;
+
+    private SearchArena()
+    {
+        allocate(INITIAL_NODES);
+    }
+
+    /**
+     * Gets the arena of the current thread, cleared for a new search.
+     *
+     * @return the arena
+     */
+    static SearchArena get()
+    {
+        SearchArena arena = ARENAS.get();
+        arena.clear();
+        return arena;
+    }
+
+    /**
+     * Borrows an arena from the shared pool, cleared for a new search. The arena must be given back with {@link #release()} once the search is finished.
+     *
+     * @return the arena
+     */
+    static SearchArena acquire()
+    {
+        SearchArena arena = POOL.poll();
+        if(arena == null)
+            return new SearchArena();
+
+        arena.clear();
+        return arena;
+    }
+
+    /**
+     * Gives an arena borrowed with {@link #acquire()} back to the shared pool. The arena must not be used afterwards.
+     */
+    void release()
+    {
+        if(POOL.size() < POOLED_ARENAS)
+            POOL.offer(this);
+    }
+
+    private void allocate(int nodes)
+    {
+        x = new int[nodes];
+        y = new int[nodes];
+        z = new int[nodes];
+        g = new double[nodes];
+        h = new double[nodes];
+        parent = new int[nodes];
+        closed = new boolean[nodes];
+        heapIndex = new int[nodes];
+        heap = new int[nodes];
+        nodeSlots = new int[nodes];
+
+        int capacity = Integer.highestOneBit(nodes) << 1;
+        keys = new long[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        mask = capacity - 1;
+    }
+
+    private void clear()
+    {
+        if(x.length > RETAIN_NODES)
+        {
+            allocate(INITIAL_NODES);
+        }
+        else
+        {
+            for(int node = 0; node < size; node++)
+                slots[nodeSlots[node]] = -1;
+        }
+
+        size = 0;
+        heapSize = 0;
+    }
+
+    /**
+     * Gets the number of nodes created in the current search.
+     *
+     * @return the node count
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Finds the node of a packed position.
+     *
+     * @param key the packed position
+     * @return the node index, or -1 if there is no node yet
+     */
+    int find(long key)
+    {
+        int slot = mix(key) & mask;
+        while(slots[slot] >= 0)
+        {
+            if(keys[slot] == key)
+                return slots[slot];
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a node for a position that has none yet. The node starts with an infinite g-cost, no parent, and neither open nor closed.
+     *
+     * @param key the packed position
+     * @param nx  the block x coordinate
+     * @param ny  the block y coordinate
+     * @param nz  the block z coordinate
+     * @return the index of the new node
+     */
+    int add(long key, int nx, int ny, int nz)
+    {
+        if(size == x.length)
+            grow();
+
+        int node = size++;
+        x[node] = nx;
+        y[node] = ny;
+        z[node] = nz;
+        g[node] = Double.MAX_VALUE;
+        h[node] = 0;
+        parent[node] = -1;
+        closed[node] = false;
+        heapIndex[node] = -1;
+
+        int slot = mix(key) & mask;
+        while(slots[slot] >= 0)
+            slot = (slot + 1) & mask;
+        keys[slot] = key;
+        slots[slot] = node;
+        nodeSlots[node] = slot;
+        return node;
+    }
+
+    private void grow()
+    {
+        int nodes = x.length << 1;
+        x = Arrays.copyOf(x, nodes);
+        y = Arrays.copyOf(y, nodes);
+        z = Arrays.copyOf(z, nodes);
+        g = Arrays.copyOf(g, nodes);
+        h = Arrays.copyOf(h, nodes);
+        parent = Arrays.copyOf(parent, nodes);
+        closed = Arrays.copyOf(closed, nodes);
+        heapIndex = Arrays.copyOf(heapIndex, nodes);
+        heap = Arrays.copyOf(heap, nodes);
+        nodeSlots = Arrays.copyOf(nodeSlots, nodes);
+
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        int capacity = oldKeys.length << 1;
+        keys = new long[capacity];
+        slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        mask = capacity - 1;
+
+        for(int i = 0; i < oldSlots.length; i++)
+        {
+            if(oldSlots[i] < 0)
+                continue;
+
+            int slot = mix(oldKeys[i]) & mask;
+            while(slots[slot] >= 0)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            slots[slot] = oldSlots[i];
+            nodeSlots[oldSlots[i]] = slot;
+        }
+    }
+
+    private static int mix(long key)
+    {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Checks whether the open set is empty.
+     *
+     * @return {@code true} if no node is open
+     */
+    boolean isOpenEmpty()
+    {
+        return heapSize == 0;
+    }
+
+    /**
+     * Checks whether a node is in the open set.
+     *
+     * @param node the node index
+     * @return {@code true} if the node is open
+     */
+    boolean isOpen(int node)
+    {
+        return heapIndex[node] >= 0;
+    }
+
+    /**
+     * Gets the number of nodes in the open set.
+     *
+     * @return the open set size
+     */
+    int openSize()
+    {
+        return heapSize;
+    }
+
+    /**
+     * Gets the lowest f-cost in the open set without removing the node.
+     *
+     * @return the f-cost, {@link Double#MAX_VALUE} if the open set is empty
+     */
+    double peekF()
+    {
+        return heapSize == 0 ? Double.MAX_VALUE : f(heap[0]);
+    }
+
+    /**
+     * Adds a node to the open set.
+     *
+     * @param node the node index
+     */
+    void push(int node)
+    {
+        heap[heapSize] = node;
+        heapIndex[node] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    /**
+     * Restores the heap order after the f-cost of an open node decreased.
+     *
+     * @param node the node index
+     */
+    void decreaseKey(int node)
+    {
+        siftUp(heapIndex[node]);
+    }
+
+    /**
+     * Removes the open node with the lowest f-cost.
+     *
+     * @return the node index
+     */
+    int pop()
+    {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if(heapSize > 0)
+        {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private double f(int node)
+    {
+        return g[node] + h[node];
+    }
+
+    private boolean before(int node, int other)
+    {
+        double cost = f(node);
+        double otherCost = f(other);
+        return cost < otherCost || (cost == otherCost && h[node] < h[other]);
+    }
+
+    private void siftUp(int index)
+    {
+        int node = heap[index];
+        while(index > 0)
+        {
+            int parentIndex = (index - 1) >>> 1;
+            int parentNode = heap[parentIndex];
+            if(!before(node, parentNode))
+                break;
+
+            heap[index] = parentNode;
+            heapIndex[parentNode] = index;
+            index = parentIndex;
+        }
+        heap[index] = node;
+        heapIndex[node] = index;
+    }
+
+    private void siftDown(int index)
+    {
+        int node = heap[index];
+        int half = heapSize >>> 1;
+        while(index < half)
+        {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if(right < heapSize && before(heap[right], heap[child]))
+                child = right;
+
+            if(!before(heap[child], node))
+                break;
+
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = node;
+        heapIndex[node] = index;
+    }
+}
@@ -0,0 +1,81 @@
+package de.eisi05.npc.api.pathfinding;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The variant of A* a search uses. Every mode counts the searches it ran and the nodes they expanded, so modes can be compared on the same server.
+ */
+public enum SearchMode
+{
+    /**
+     * A* with the straight-line distance to the goal as heuristic. It underestimates the cost of the actual moves, so it expands many equivalent nodes on
+     * open terrain.
+     */
+    EUCLIDEAN,
+
+    /**
+     * A* with an octile heuristic matched to the move set: straight moves cost 1, every move that changes more than one axis costs 1.414. Equal f-costs are
+     * broken deterministically toward the goal. Expands far fewer nodes than {@link #EUCLIDEAN} on open terrain; paths may be up to 0.1% longer.
+     */
+    OCTILE,
+
+    /**
+     * {@link #OCTILE} A* run from the start and from the goal at once, always expanding the side with the smaller open set, until the two searches meet.
+     * Usually expands more nodes than {@link #OCTILE}, but fails after a few expansions instead of exhausting the iteration limit when the goal is enclosed.
+     */
+    BIDIRECTIONAL;
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder expansions = new LongAdder();
+
+    /**
+     * Records a finished search.
+     *
+     * @param expanded the number of nodes the search expanded
+     */
+    void record(int expanded)
+    {
+        searches.increment();
+        expansions.add(expanded);
+    }
+
+    /**
+     * Gets the number of searches run with this mode.
+     *
+     * @return the number of searches
+     */
+    public long getSearches()
+    {
+        return searches.sum();
+    }
+
+    /**
+     * Gets the number of nodes expanded by all searches run with this mode.
+     *
+     * @return the number of expansions
+     */
+    public long getExpansions()
+    {
+        return expansions.sum();
+    }
+
+    /**
+     * Gets the average number of nodes a search with this mode expanded.
+     *
+     * @return the average number of expansions, 0 if no search was run
+     */
+    public double getAverageExpansions()
+    {
+        long count = searches.sum();
+        return count == 0 ? 0 : (double) expansions.sum() / count;
+    }
+
+    /**
+     * Resets the statistics of this mode.
+     */
+    public void resetStatistics()
+    {
+        searches.reset();
+        expansions.reset();
+    }
+}
@@ -0,0 +1,181 @@
+package de.eisi05.npc.api.pathfinding;
+
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records when each 16&times;16&times;16 chunk section last changed, so caches and walking NPCs only react to block changes near the blocks they depend on.
+ * <p>
+ * Every change gets the next value of a global generation, and the sections containing the changed block and its neighbors store it. A result computed from
+ * blocks read at some generation is still valid as long as none of the sections it depends on changed after that generation. Changes are recorded on the
+ * main thread; they can be queried from any thread. Only the last change of each section is kept; when a world has more than {@value #MAX_SECTIONS} changed
+ * sections, the older half is forgotten and counts as changed for every generation before it.
+ * </p>
+ */
+public final class SectionChanges
+{
+    private static final int MAX_SECTIONS = 1 << 16;
+
+    private static final AtomicLong generation = new AtomicLong();
+    private static final Map<UUID, WorldChanges> worlds = new ConcurrentHashMap<>();
+    private static volatile long forgottenBefore = Long.MIN_VALUE;
+
+    private SectionChanges()
+    {
+    }
+
+    /**
+     * Gets the generation of the last recorded change. Read it before reading blocks, and pass it to {@link #hasChanged} afterward.
+     *
+     * @return the current generation
+     */
+    public static long getGeneration()
+    {
+        return generation.get();
+    }
+
+    /**
+     * Records a change of a block. The sections containing the block and its direct neighbors are marked.
+     *
+     * @param world the world of the block
+     * @param x     the block x coordinate
+     * @param y     the block y coordinate
+     * @param z     the block z coordinate
+     * @return the generation of the change
+     */
+    public static long markChanged(@NotNull World world, int x, int y, int z)
+    {
+        long changed = generation.incrementAndGet();
+        WorldChanges changes = worlds.computeIfAbsent(world.getUID(), uuid -> new WorldChanges());
+
+        for(int sx = (x - 1) >> 4; sx <= (x + 1) >> 4; sx++)
+        {
+            for(int sy = (y - 1) >> 4; sy <= (y + 1) >> 4; sy++)
+            {
+                for(int sz = (z - 1) >> 4; sz <= (z + 1) >> 4; sz++)
+                    changes.sections.put(sectionKey(sx, sy, sz), changed);
+            }
+        }
+
+        if(changes.sections.size() > MAX_SECTIONS)
+            changes.forgetOlderHalf();
+        return changed;
+    }
+
+    /**
+     * Records a change of a whole world, e.g. because it was unloaded.
+     *
+     * @param world the world
+     * @return the generation of the change
+     */
+    public static long markChanged(@NotNull World world)
+    {
+        long changed = generation.incrementAndGet();
+        WorldChanges changes = new WorldChanges();
+        changes.forgottenBefore = changed;
+        worlds.put(world.getUID(), changes);
+        return changed;
+    }
+
+    /**
+     * Records a change of every world.
+     *
+     * @return the generation of the change
+     */
+    public static long markAllChanged()
+    {
+        long changed = generation.incrementAndGet();
+        worlds.clear();
+        forgottenBefore = changed;
+        return changed;
+    }
+
+    /**
+     * Checks whether a section changed after a generation.
+     *
+     * @param world the world of the section
+     * @param key   the {@link #sectionKey key} of the section
+     * @param since the generation the blocks were read at
+     * @return true if the section changed after the generation, or if that is no longer known
+     */
+    public static boolean hasChanged(@NotNull UUID world, long key, long since)
+    {
+        if(since < forgottenBefore)
+            return true;
+
+        WorldChanges changes = worlds.get(world);
+        if(changes == null)
+            return false;
+
+        if(since < changes.forgottenBefore)
+            return true;
+
+        Long changed = changes.sections.get(key);
+        return changed != null && changed > since;
+    }
+
+    /**
+     * Checks whether any section of the 3&times;3&times;3 neighborhood around a section changed after a generation.
+     *
+     * @param world the world of the section
+     * @param sx    the section x coordinate
+     * @param sy    the section y coordinate
+     * @param sz    the section z coordinate
+     * @param since the generation the blocks were read at
+     * @return true if a section of the neighborhood changed after the generation, or if that is no longer known
+     */
+    public static boolean hasNeighborhoodChanged(@NotNull UUID world, int sx, int sy, int sz, long since)
+    {
+        if(since >= generation.get())
+            return false;
+
+        for(int dx = -1; dx <= 1; dx++)
+        {
+            for(int dy = -1; dy <= 1; dy++)
+            {
+                for(int dz = -1; dz <= 1; dz++)
+                {
+                    if(hasChanged(world, sectionKey(sx + dx, sy + dy, sz + dz), since))
+                        return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Packs the coordinates of a section into a key.
+     *
+     * @param sx the section x coordinate
+     * @param sy the section y coordinate
+     * @param sz the section z coordinate
+     * @return the key
+     */
+    public static long sectionKey(int sx, int sy, int sz)
+    {
+        return ((long) sx & 0x3FFFFF) | (((long) sz & 0x3FFFFF) << 22) | (((long) sy & 0xFFFFF) << 44);
+    }
+
+    private static final class WorldChanges
+    {
+        final Map<Long, Long> sections = new ConcurrentHashMap<>();
+        volatile long forgottenBefore = Long.MIN_VALUE;
+
+        void forgetOlderHalf()
+        {
+            long[] values = sections.values().stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(values);
+            long threshold = values[values.length / 2];
+
+            forgottenBefore = Math.max(forgottenBefore, threshold);
+            sections.values().removeIf(changed -> changed <= threshold);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package de.eisi05.npc.api.pathfinding;
+
+import de.eisi05.npc.api.NpcApi;
+import de.eisi05.npc.api.objects.NpcConfig;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.bukkit.craftbukkit.block.data.CraftBlockData;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable {@link PathWorld} backed by copies of the block palettes of the chunk sections in an area.
+ * <p>
+ * The view is captured on the main thread and can then be read from any thread. It covers either a rectangle of chunks or a corridor of chunks around the
+ * segments between waypoints, and only the sections within a height range. Blocks outside the captured chunks or height range, in chunks that were not
+ * loaded during the capture, or outside the world's height range read as {@code void_air}, which the pathfinder never walks on. Empty sections are not
+ * copied.
+ * </p>
+ */
+public class SnapshotPathWorld implements PathWorld
+{
+    private static final int MIN_MARGIN = 8;
+
+    private final World world;
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int sizeX;
+    private final int sizeZ;
+    private final int minSection;
+    private final int sectionCount;
+    private final int[] columns;
+    private final boolean[] loaded;
+    private final PalettedContainer<BlockState>[] sections;
+    private final long cacheGeneration;
+
+    @SuppressWarnings("unchecked")
+    private SnapshotPathWorld(@NotNull World world, @NotNull Set<Long> chunks, int minY, int maxY)
+    {
+        ServerLevel level = ((CraftWorld) world).getHandle();
+
+        int minChunkX = Integer.MAX_VALUE, minChunkZ = Integer.MAX_VALUE, maxChunkX = Integer.MIN_VALUE, maxChunkZ = Integer.MIN_VALUE;
+        for(long chunk : chunks)
+        {
+            minChunkX = Math.min(minChunkX, chunkX(chunk));
+            minChunkZ = Math.min(minChunkZ, chunkZ(chunk));
+            maxChunkX = Math.max(maxChunkX, chunkX(chunk));
+            maxChunkZ = Math.max(maxChunkZ, chunkZ(chunk));
+        }
+
+        this.world = world;
+        this.cacheGeneration = SectionChanges.getGeneration();
+        this.minChunkX = minChunkX;
+        this.minChunkZ = minChunkZ;
+        this.sizeX = chunks.isEmpty() ? 0 : maxChunkX - minChunkX + 1;
+        this.sizeZ = chunks.isEmpty() ? 0 : maxChunkZ - minChunkZ + 1;
+
+        int worldMinSection = world.getMinHeight() >> 4;
+        this.minSection = Math.max(worldMinSection, minY >> 4);
+        this.sectionCount = Math.max(0, Math.min((world.getMaxHeight() - 1) >> 4, maxY >> 4) - minSection + 1);
+        this.columns = new int[sizeX * sizeZ];
+        this.loaded = new boolean[chunks.size()];
+        this.sections = (PalettedContainer<BlockState>[]) new PalettedContainer<?>[chunks.size() * sectionCount];
+        Arrays.fill(columns, -1);
+
+        int column = 0;
+        for(long key : chunks)
+        {
+            int chunkX = chunkX(key);
+            int chunkZ = chunkZ(key);
+            columns[(chunkX - minChunkX) * sizeZ + chunkZ - minChunkZ] = column;
+
+            LevelChunk chunk = level.getChunkIfLoaded(chunkX, chunkZ);
+            if(chunk != null)
+            {
+                loaded[column] = true;
+
+                LevelChunkSection[] chunkSections = chunk.getSections();
+                for(int i = 0; i < sectionCount; i++)
+                {
+                    int index = minSection - worldMinSection + i;
+                    LevelChunkSection section = index < chunkSections.length ? chunkSections[index] : null;
+                    if(section != null && !section.hasOnlyAir())
+                        sections[column * sectionCount + i] = section.getStates().copy();
+                }
+            }
+
+            column++;
+        }
+    }
+
+    /**
+     * Captures the loaded chunks covering the given block rectangle over the whole height of the world. Must be called on the main thread.
+     *
+     * @param world the world to capture. Must not be null.
+     * @param minX  the minimum block x coordinate
+     * @param minZ  the minimum block z coordinate
+     * @param maxX  the maximum block x coordinate
+     * @param maxZ  the maximum block z coordinate
+     * @return the captured view. Never null.
+     * @throws IllegalStateException    if called off the main thread
+     * @throws IllegalArgumentException if the rectangle covers more than {@link NpcConfig#pathfindingSnapshotMaxChunks()} chunks
+     */
+    public static @NotNull SnapshotPathWorld capture(@NotNull World world, int minX, int minZ, int maxX, int maxZ)
+    {
+        return capture(world, minX, world.getMinHeight(), minZ, maxX, world.getMaxHeight() - 1, maxZ);
+    }
+
+    /**
+     * Captures the loaded chunks covering the given block box. Only the sections within the height range of the box are copied. Must be called on the main
+     * thread.
+     *
+     * @param world the world to capture. Must not be null.
+     * @param minX  the minimum block x coordinate
+     * @param minY  the minimum block y coordinate
+     * @param minZ  the minimum block z coordinate
+     * @param maxX  the maximum block x coordinate
+     * @param maxY  the maximum block y coordinate
+     * @param maxZ  the maximum block z coordinate
+     * @return the captured view. Never null.
+     * @throws IllegalStateException    if called off the main thread
+     * @throws IllegalArgumentException if the box covers more than {@link NpcConfig#pathfindingSnapshotMaxChunks()} chunks
+     */
+    public static @NotNull SnapshotPathWorld capture(@NotNull World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ)
+    {
+        if(!Bukkit.isPrimaryThread())
+            throw new IllegalStateException("Path world snapshots must be captured on the main thread");
+
+        int minChunkX = Math.min(minX, maxX) >> 4, minChunkZ = Math.min(minZ, maxZ) >> 4;
+        int maxChunkX = Math.max(minX, maxX) >> 4, maxChunkZ = Math.max(minZ, maxZ) >> 4;
+        long area = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+        if(area > getMaxChunks())
+            throw tooLarge(area);
+
+        Set<Long> chunks = new LinkedHashSet<>();
+        for(int cx = minChunkX; cx <= maxChunkX; cx++)
+        {
+            for(int cz = minChunkZ; cz <= maxChunkZ; cz++)
+                chunks.add(chunkKey(cx, cz));
+        }
+
+        return new SnapshotPathWorld(world, chunks, Math.min(minY, maxY), Math.max(minY, maxY));
+    }
+
+    /**
+     * Captures the loaded chunks within a margin around the straight segments between consecutive locations, and the sections from the margin below the
+     * lowest to the margin above the highest location. Must be called on the main thread.
+     * <p>
+     * If the corridor covers more than {@link NpcConfig#pathfindingSnapshotMaxChunks()} chunks, the margin is halved until it fits, down to
+     * {@value #MIN_MARGIN} blocks.
+     * </p>
+     *
+     * @param world     the world to capture. Must not be null.
+     * @param locations the locations the search has to cover in order, e.g. the waypoints of a path. Must not be empty.
+     * @param margin    the number of blocks to add around the segments
+     * @return the captured view. Never null.
+     * @throws IllegalStateException    if called off the main thread
+     * @throws IllegalArgumentException if even the smallest corridor covers more than {@link NpcConfig#pathfindingSnapshotMaxChunks()} chunks
+     */
+    public static @NotNull SnapshotPathWorld capture(@NotNull World world, @NotNull List<Location> locations, int margin)
+    {
+        if(!Bukkit.isPrimaryThread())
+            throw new IllegalStateException("Path world snapshots must be captured on the main thread");
+
+        int maxChunks = getMaxChunks();
+        for(int current = Math.max(0, margin); ; current = Math.max(MIN_MARGIN, current / 2))
+        {
+            Set<Long> chunks = corridor(locations, current, maxChunks);
+            if(chunks != null)
+            {
+                int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+                for(Location location : locations)
+                {
+                    minY = Math.min(minY, location.getBlockY());
+                    maxY = Math.max(maxY, location.getBlockY());
+                }
+
+                return new SnapshotPathWorld(world, chunks, minY - current, maxY + current);
+            }
+
+            if(current <= MIN_MARGIN)
+                throw tooLarge(corridor(locations, current, Integer.MAX_VALUE).size());
+        }
+    }
+
+    /**
+     * Collects the chunks within a margin around the segments between consecutive locations.
+     *
+     * @return the chunk keys, or {@code null} if there are more than {@code maxChunks}
+     */
+    private static @Nullable Set<Long> corridor(@NotNull List<Location> locations, int margin, int maxChunks)
+    {
+        // A chunk is included if its center is within the margin plus half its diagonal of a segment
+        double reach = margin + 8 * Math.sqrt(2);
+        Set<Long> chunks = new LinkedHashSet<>();
+        for(int i = 0; i < locations.size(); i++)
+        {
+            Location from = locations.get(Math.max(0, i - 1));
+            Location to = locations.get(i);
+            double ax = from.getX(), az = from.getZ();
+            double dx = to.getX() - ax, dz = to.getZ() - az;
+            double lengthSquared = dx * dx + dz * dz;
+
+            for(int cx = (int) Math.floor(Math.min(ax, to.getX()) - margin) >> 4; cx <= (int) Math.floor(Math.max(ax, to.getX()) + margin) >> 4; cx++)
+            {
+                for(int cz = (int) Math.floor(Math.min(az, to.getZ()) - margin) >> 4; cz <= (int) Math.floor(Math.max(az, to.getZ()) + margin) >> 4; cz++)
+                {
+                    double px = (cx << 4) + 8 - ax, pz = (cz << 4) + 8 - az;
+                    double t = lengthSquared == 0 ? 0 : Math.clamp((px * dx + pz * dz) / lengthSquared, 0, 1);
+                    double ox = px - dx * t, oz = pz - dz * t;
+                    if(ox * ox + oz * oz > reach * reach)
+                        continue;
+
+                    chunks.add(chunkKey(cx, cz));
+                    if(chunks.size() > maxChunks)
+                        return null;
+                }
+            }
+        }
+
+        return chunks;
+    }
+
+    private static int getMaxChunks()
+    {
+        return NpcApi.config == null ? Integer.MAX_VALUE : Math.max(1, NpcApi.config.pathfindingSnapshotMaxChunks());
+    }
+
+    private static @NotNull IllegalArgumentException tooLarge(long chunks)
+    {
+        return new IllegalArgumentException("The path search area covers " + chunks + " chunks, more than the limit of " + getMaxChunks() +
+                " set by NpcConfig#pathfindingSnapshotMaxChunks");
+    }
+
+    private static long chunkKey(int cx, int cz)
+    {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    private static int chunkX(long key)
+    {
+        return (int) (key >> 32);
+    }
+
+    private static int chunkZ(long key)
+    {
+        return (int) key;
+    }
+
+    /**
+     * Gets the collision boxes of a block data, relative to the block's origin.
+     *
+     * @param data the block data. Must not be null.
+     * @return the collision boxes from the {@link CollisionTable}. Never null.
+     */
+    public static @NotNull List<BoundingBox> getCollisionBoxes(@NotNull BlockData data)
+    {
+        return CollisionTable.getBoxes(CollisionTable.getId(data));
+    }
+
+    private int column(int x, int z)
+    {
+        int cx = (x >> 4) - minChunkX;
+        int cz = (z >> 4) - minChunkZ;
+        if(cx < 0 || cz < 0 || cx >= sizeX || cz >= sizeZ)
+            return -1;
+
+        return columns[cx * sizeZ + cz];
+    }
+
+    private @Nullable BlockState stateAt(int x, int y, int z)
+    {
+        int column = column(x, z);
+        int section = (y >> 4) - minSection;
+        if(column < 0 || !loaded[column] || section < 0 || section >= sectionCount)
+            return null;
+
+        PalettedContainer<BlockState> states = sections[column * sectionCount + section];
+        return states == null ? null : states.get(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * Gets the block data at a position.
+     *
+     * @param x the block x coordinate
+     * @param y the block y coordinate
+     * @param z the block z coordinate
+     * @return the block data, or {@code null} if the block is outside the captured area or in an empty section
+     */
+    public @Nullable BlockData getBlockData(int x, int y, int z)
+    {
+        BlockState state = stateAt(x, y, z);
+        return state == null ? null : CraftBlockData.fromData(state);
+    }
+
+    /**
+     * Checks whether a block column lies in a chunk that was captured.
+     *
+     * @param x the block x coordinate
+     * @param z the block z coordinate
+     * @return {@code true} if the chunk of the column was captured and loaded during the capture
+     */
+    public boolean isCaptured(int x, int z)
+    {
+        int column = column(x, z);
+        return column >= 0 && loaded[column];
+    }
+
+    @Override
+    public boolean isAvailable(int x, int z)
+    {
+        return isCaptured(x, z);
+    }
+
+    @Override
+    public boolean isThreadSafe()
+    {
+        return true;
+    }
+
+    @Override
+    public long getCacheGeneration()
+    {
+        return cacheGeneration;
+    }
+
+    @Override
+    public @NotNull World getWorld()
+    {
+        return world;
+    }
+
+    @Override
+    public int getStateId(int x, int y, int z)
+    {
+        BlockState state = stateAt(x, y, z);
+        if(state != null)
+            return CollisionTable.getId(state);
+
+        int section = (y >> 4) - minSection;
+        return isCaptured(x, z) && section >= 0 && section < sectionCount ? CollisionTable.AIR : CollisionTable.VOID_AIR;
+    }
+}
@@ -0,0 +1,298 @@
+package de.eisi05.npc.api.pathfinding;
+
+import de.eisi05.npc.api.NpcApi;
+import org.bukkit.Location;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs path searches on the main thread, spread over several ticks. For servers where asynchronous pathfinding is not possible.
+ * <p>
+ * Every tick, all pending searches share one budget of {@link de.eisi05.npc.api.objects.NpcConfig#timeSlicedPathfindingNanos()} and
+ * {@link de.eisi05.npc.api.objects.NpcConfig#timeSlicedPathfindingExpansions()}, split evenly between them. Each search is a {@link ResumableSearch} that keeps
+ * its state between ticks, so many NPCs can plan their paths without a long search blowing a tick. Searches read the live world; a block change while a
+ * search is spread over several ticks is seen by the remaining expansions.
+ * </p>
+ */
+public class TimeSlicedPathfinder
+{
+    private static final int MIN_SHARE = 64;
+
+    private static final Queue<Job> pending = new ConcurrentLinkedQueue<>();
+    private static final List<Job> active = new ArrayList<>();
+    private static BukkitTask task;
+    private static int nextJob;
+
+    private static long lastTickNanos;
+    private static int lastTickExpansions;
+
+    /**
+     * Submits a path search through a list of waypoints. Can be called from any thread; the search itself runs on the main thread.
+     *
+     * @param waypoints             the ordered list of locations to traverse. Must contain at least 2 locations in the same world.
+     * @param maxIterations         the maximum number of node expansions per segment
+     * @param allowDiagonalMovement whether diagonal movement is allowed
+     * @param entityHeight          the height of the entity traversing the path
+     * @param entityWidth           the width of the entity traversing the path
+     * @param progressListener      a progress listener with the signature (segmentIndex, totalSegments)
+     * @return a future that completes on the main thread with the path, or exceptionally with a {@link RuntimeException} wrapping a
+     * {@link PathfindingUtils.PathfindingException} if no path was found. Cancelling it stops the search.
+     */
+    public static @NotNull CompletableFuture<Path> findPath(@NotNull List<Location> waypoints, int maxIterations, boolean allowDiagonalMovement,
+            double entityHeight, double entityWidth, @Nullable BiConsumer<Integer, Integer> progressListener)
+    {
+        return findPath(waypoints, maxIterations, allowDiagonalMovement, entityHeight, entityWidth, NpcApi.config.searchMode(), progressListener);
+    }
+
+    /**
+     * Submits a path search through a list of waypoints with the given {@link SearchMode}. Can be called from any thread; the search itself runs on the main
+     * thread.
+     *
+     * @param waypoints             the ordered list of locations to traverse. Must contain at least 2 locations in the same world.
+     * @param maxIterations         the maximum number of node expansions per segment
+     * @param allowDiagonalMovement whether diagonal movement is allowed
+     * @param entityHeight          the height of the entity traversing the path
+     * @param entityWidth           the width of the entity traversing the path
+     * @param mode                  the search mode, see {@link ResumableSearch} for how it is applied
+     * @param progressListener      a progress listener with the signature (segmentIndex, totalSegments)
+     * @return a future that completes on the main thread with the path, or exceptionally with a {@link RuntimeException} wrapping a
+     * {@link PathfindingUtils.PathfindingException} if no path was found, or with the exception the search threw. Cancelling it stops the search.
+     */
+    public static @NotNull CompletableFuture<Path> findPath(@NotNull List<Location> waypoints, int maxIterations, boolean allowDiagonalMovement,
+            double entityHeight, double entityWidth, @NotNull SearchMode mode, @Nullable BiConsumer<Integer, Integer> progressListener)
+    {
+        if(waypoints.size() < 2)
+            throw new IllegalArgumentException("Waypoints list must contain at least 2 locations.");
+
+        Job job = new Job(List.copyOf(waypoints), maxIterations, allowDiagonalMovement, entityHeight, entityWidth, mode, progressListener);
+        pending.add(job);
+        startTask();
+        return job.future;
+    }
+
+    /**
+     * Cancels all searches and stops the tick task. Called when the API is disabled.
+     */
+    public static synchronized void shutdown()
+    {
+        if(task != null && !task.isCancelled())
+            task.cancel();
+        task = null;
+
+        Job job;
+        while((job = pending.poll()) != null)
+            active.add(job);
+
+        for(Job activeJob : active)
+        {
+            if(activeJob.search != null)
+                activeJob.search.cancel();
+            activeJob.future.cancel(true);
+        }
+        active.clear();
+    }
+
+    /**
+     * Gets the number of searches that are not finished yet.
+     *
+     * @return the number of searches
+     */
+    public static int getActiveSearches()
+    {
+        return active.size() + pending.size();
+    }
+
+    /**
+     * Gets the time spent searching in the last tick.
+     *
+     * @return the time in nanoseconds
+     */
+    public static long getLastTickNanos()
+    {
+        return lastTickNanos;
+    }
+
+    /**
+     * Gets the number of nodes expanded in the last tick.
+     *
+     * @return the number of expansions
+     */
+    public static int getLastTickExpansions()
+    {
+        return lastTickExpansions;
+    }
+
+    private static synchronized void startTask()
+    {
+        if(task != null)
+            return;
+
+        task = new BukkitRunnable()
+        {
+            @Override
+            public void run()
+            {
+                tick();
+            }
+        }.runTaskTimer(NpcApi.plugin, 1, 1);
+    }
+
+    private static void tick()
+    {
+        Job job;
+        while((job = pending.poll()) != null)
+            active.add(job);
+
+        active.removeIf(activeJob ->
+        {
+            if(!activeJob.future.isDone())
+                return false;
+
+            if(activeJob.search != null)
+                activeJob.search.cancel();
+            return true;
+        });
+
+        if(active.isEmpty())
+        {
+            lastTickNanos = 0;
+            lastTickExpansions = 0;
+            stopIfIdle();
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + Math.max(0, NpcApi.config.timeSlicedPathfindingNanos());
+        int maxExpansions = NpcApi.config.timeSlicedPathfindingExpansions();
+        int budget = maxExpansions > 0 ? maxExpansions : Integer.MAX_VALUE;
+        int expanded = 0;
+
+        int count = active.size();
+        for(int i = 0; i < count && budget > 0 && System.nanoTime() < deadline; i++)
+        {
+            Job current = active.get((nextJob + i) % count);
+            int share = Math.max(MIN_SHARE, budget / (count - i));
+            int used = current.step(Math.min(share, budget), deadline);
+            budget -= used;
+            expanded += used;
+        }
+        nextJob = (nextJob + 1) % count;
+
+        active.removeIf(activeJob -> activeJob.future.isDone());
+        lastTickNanos = System.nanoTime() - start;
+        lastTickExpansions = expanded;
+    }
+
+    private static synchronized void stopIfIdle()
+    {
+        if(!pending.isEmpty() || task == null)
+            return;
+
+        task.cancel();
+        task = null;
+    }
+
+    private static final class Job
+    {
+        final List<Location> waypoints;
+        final int maxIterations;
+        final boolean allowDiagonal;
+        final double entityHeight;
+        final double entityWidth;
+        final SearchMode mode;
+        final BiConsumer<Integer, Integer> progressListener;
+        final CompletableFuture<Path> future = new CompletableFuture<>();
+        final List<Location> fullPath = new ArrayList<>();
+        final PathWorld view;
+
+        int segment;
+        int expansions;
+        long generation;
+        ResumableSearch search;
+
+        Job(@NotNull List<Location> waypoints, int maxIterations, boolean allowDiagonal, double entityHeight, double entityWidth, @NotNull SearchMode mode,
+                @Nullable BiConsumer<Integer, Integer> progressListener)
+        {
+            this.waypoints = waypoints;
+            this.maxIterations = maxIterations;
+            this.allowDiagonal = allowDiagonal;
+            this.entityHeight = entityHeight;
+            this.entityWidth = entityWidth;
+            this.mode = mode;
+            this.progressListener = progressListener;
+            this.view = new LivePathWorld(waypoints.getFirst().getWorld());
+        }
+
+        /**
+         * Continues the job and completes its future when the last segment is found. If the search throws, the future completes with the exception, so the
+         * job is dropped instead of failing again every tick.
+         *
+         * @return the number of nodes expanded
+         */
+        int step(int maxExpansions, long deadline)
+        {
+            int expanded = 0;
+            try
+            {
+                while(!future.isDone() && expanded < maxExpansions)
+                {
+                    Location start = waypoints.get(segment);
+                    Location end = waypoints.get(segment + 1);
+
+                    List<Location> nodes = null;
+                    if(search == null)
+                    {
+                        nodes = PathCache.get(start, end, entityHeight, entityWidth, allowDiagonal);
+                        if(nodes == null)
+                        {
+                            generation = PathCache.getGeneration();
+                            search = new ResumableSearch(view, start, end, maxIterations, allowDiagonal, entityHeight, entityWidth, mode);
+                        }
+                    }
+
+                    if(nodes == null)
+                    {
+                        expanded += search.step(maxExpansions - expanded, deadline);
+                        if(!search.isFinished())
+                            break;
+
+                        nodes = search.getResult();
+                        expansions += search.getExpansions();
+                        search = null;
+                        if(nodes == null)
+                            throw new PathfindingUtils.PathfindingException("Could not find path between waypoint " + segment + " and " + (segment + 1));
+
+                        PathCache.put(start, end, entityHeight, entityWidth, allowDiagonal, nodes, generation);
+                    }
+
+                    PathfindingUtils.appendSegment(view, fullPath, nodes, allowDiagonal, entityHeight, entityWidth);
+                    segment++;
+                    if(progressListener != null)
+                        progressListener.accept(segment, waypoints.size() - 1);
+
+                    if(segment == waypoints.size() - 1)
+                        future.complete(new Path(fullPath, waypoints).setExpansions(expansions).setProfile(PathProfile.compute(view, fullPath, entityHeight)));
+                }
+            }
+            catch(PathfindingUtils.PathfindingException e)
+            {
+                future.completeExceptionally(new RuntimeException(e));
+            }
+            catch(RuntimeException e)
+            {
+                future.completeExceptionally(e);
+            }
+
+            return expanded;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package de.eisi05.npc.api.scheduler;
+
+import de.eisi05.npc.api.NpcApi;
+import org.bukkit.Location;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.util.Vector;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * Moves all walking NPCs from a single task, instead of one scheduler entry per {@link PathTask}.
+ * <p>
+ * The movement state of every walker, i.e. its position, vertical velocity, rotation and last horizontal move direction, is kept in primitive arrays indexed
+ * by the walker's slot, so moving an NPC does not allocate. Walkers are added by {@link de.eisi05.npc.api.objects.NPC#walkTo} and removed at the end of the
+ * tick in which they finished or were cancelled. The task only runs while there are walkers. All methods must be called on the main thread.
+ * </p>
+ */
+public class MovementSystem
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    static double[] x = new double[INITIAL_CAPACITY];
+    static double[] y = new double[INITIAL_CAPACITY];
+    static double[] z = new double[INITIAL_CAPACITY];
+    static double[] velocityY = new double[INITIAL_CAPACITY];
+    static float[] yaw = new float[INITIAL_CAPACITY];
+    static float[] pitch = new float[INITIAL_CAPACITY];
+    static double[] moveDirX = new double[INITIAL_CAPACITY];
+    static double[] moveDirZ = new double[INITIAL_CAPACITY];
+
+    private static PathTask[] walkers = new PathTask[INITIAL_CAPACITY];
+    private static int count;
+    static long currentTick;
+    private static BukkitTask task;
+
+    private static long lastTickNanos;
+    private static long maxTickNanos;
+    private static long totalTickNanos;
+    private static long ticks;
+    private static int peakWalkers;
+
+    /**
+     * Adds a walker, starting at the NPC's current location. It is moved from the next tick on.
+     *
+     * @param walker the walker to add
+     */
+    static void add(@NotNull PathTask walker)
+    {
+        if(walker.slot >= 0 || walker.isFinished())
+            return;
+
+        if(count == walkers.length)
+            grow();
+
+        Location location = walker.getNpc().getLocation();
+        Vector direction = location.getDirection();
+
+        int slot = count++;
+        x[slot] = location.getX();
+        y[slot] = location.getY();
+        z[slot] = location.getZ();
+        velocityY[slot] = 0;
+        yaw[slot] = location.getYaw();
+        pitch[slot] = location.getPitch();
+        moveDirX[slot] = direction.getX();
+        moveDirZ[slot] = direction.getZ();
+        walkers[slot] = walker;
+        walker.slot = slot;
+
+        peakWalkers = Math.max(peakWalkers, count);
+        start();
+    }
+
+    /**
+     * Stops the task and drops all walkers without calling their callbacks. Called when the API is disabled.
+     */
+    public static void shutdown()
+    {
+        if(task != null && !task.isCancelled())
+            task.cancel();
+        task = null;
+
+        for(int i = 0; i < count; i++)
+        {
+            walkers[i].slot = -1;
+            walkers[i] = null;
+        }
+        count = 0;
+    }
+
+    /**
+     * Gets the number of NPCs currently walking.
+     *
+     * @return the number of walkers
+     */
+    public static int getActiveWalkers()
+    {
+        return count;
+    }
+
+    /**
+     * Gets the highest number of NPCs that walked at the same time since the statistics were last reset.
+     *
+     * @return the peak number of walkers
+     */
+    public static int getPeakWalkers()
+    {
+        return peakWalkers;
+    }
+
+    /**
+     * Gets the time the last tick took to move all walkers.
+     *
+     * @return the time in nanoseconds
+     */
+    public static long getLastTickNanos()
+    {
+        return lastTickNanos;
+    }
+
+    /**
+     * Gets the longest time a tick took to move all walkers.
+     *
+     * @return the time in nanoseconds
+     */
+    public static long getMaxTickNanos()
+    {
+        return maxTickNanos;
+    }
+
+    /**
+     * Gets the average time a tick took to move all walkers, counting only ticks with at least one walker.
+     *
+     * @return the time in nanoseconds, 0 if no tick ran yet
+     */
+    public static double getAverageTickNanos()
+    {
+        return ticks == 0 ? 0 : (double) totalTickNanos / ticks;
+    }
+
+    /**
+     * Resets the tick time and peak walker statistics.
+     */
+    public static void resetStatistics()
+    {
+        lastTickNanos = 0;
+        maxTickNanos = 0;
+        totalTickNanos = 0;
+        ticks = 0;
+        peakWalkers = count;
+    }
+
+    private static void start()
+    {
+        if(task != null)
+            return;
+
+        task = new BukkitRunnable()
+        {
+            @Override
+            public void run()
+            {
+                tick();
+            }
+        }.runTaskTimer(NpcApi.plugin, 1, 1);
+    }
+
+    private static void tick()
+    {
+        long start = System.nanoTime();
+        currentTick++;
+
+        for(int i = 0; i < count; i++)
+        {
+            PathTask walker = walkers[i];
+            if(walker.isFinished())
+                continue;
+
+            try
+            {
+                walker.tick();
+            }
+            catch(RuntimeException e)
+            {
+                NpcApi.plugin.getLogger().log(Level.WARNING, "Stopped walking NPC " + walker.getNpc().getUUID() + " after an error", e);
+                walker.cancel();
+            }
+        }
+
+        removeFinished();
+
+        lastTickNanos = System.nanoTime() - start;
+        maxTickNanos = Math.max(maxTickNanos, lastTickNanos);
+        totalTickNanos += lastTickNanos;
+        ticks++;
+
+        if(count == 0 && task != null)
+        {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private static void removeFinished()
+    {
+        int alive = 0;
+        for(int i = 0; i < count; i++)
+        {
+            PathTask walker = walkers[i];
+            if(walker.isFinished())
+            {
+                walker.slot = -1;
+                continue;
+            }
+
+            if(i != alive)
+            {
+                x[alive] = x[i];
+                y[alive] = y[i];
+                z[alive] = z[i];
+                velocityY[alive] = velocityY[i];
+                yaw[alive] = yaw[i];
+                pitch[alive] = pitch[i];
+                moveDirX[alive] = moveDirX[i];
+                moveDirZ[alive] = moveDirZ[i];
+                walkers[alive] = walker;
+                walker.slot = alive;
+            }
+            alive++;
+        }
+
+        Arrays.fill(walkers, alive, count, null);
+        count = alive;
+    }
+
+    private static void grow()
+    {
+        int capacity = walkers.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+        yaw = Arrays.copyOf(yaw, capacity);
+        pitch = Arrays.copyOf(pitch, capacity);
+        moveDirX = Arrays.copyOf(moveDirX, capacity);
+        moveDirZ = Arrays.copyOf(moveDirZ, capacity);
+        walkers = Arrays.copyOf(walkers, capacity);
+    }
+}
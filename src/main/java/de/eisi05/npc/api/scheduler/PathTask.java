@@ -6,7 +6,14 @@ import de.eisi05.npc.api.events.NpcStopWalkingEvent;
 import de.eisi05.npc.api.objects.NPC;
 import de.eisi05.npc.api.objects.NpcOption;
 import de.eisi05.npc.api.pathfinding.AStarPathfinder;
+import de.eisi05.npc.api.pathfinding.CollisionTable;
+import de.eisi05.npc.api.pathfinding.LivePathWorld;
 import de.eisi05.npc.api.pathfinding.Path;
+import de.eisi05.npc.api.pathfinding.PathProfile;
+import de.eisi05.npc.api.pathfinding.PathRepair;
+import de.eisi05.npc.api.pathfinding.PathWorld;
+import de.eisi05.npc.api.pathfinding.RouteSections;
+import de.eisi05.npc.api.pathfinding.SectionChanges;
 import de.eisi05.npc.api.wrapper.packets.TeleportEntityPacket;
 import net.minecraft.network.protocol.game.ClientboundMoveEntityPacket;
 import net.minecraft.network.protocol.game.ClientboundRotateHeadPacket;
@@ -17,12 +24,11 @@ import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 import org.bukkit.block.data.Openable;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.util.BoundingBox;
-import org.bukkit.util.Vector;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -30,15 +36,33 @@ import java.util.*;
 import java.util.function.Consumer;
 
 /**
- * A task that handles the movement of an NPC along a calculated path. This class extends BukkitRunnable to handle the movement in a scheduled task, providing
- * smooth movement, physics, and door interaction capabilities.
+ * A task that handles the movement of an NPC along a calculated path, providing smooth movement, physics, and door interaction capabilities.
+ * <p>
+ * All path tasks are moved by the {@link MovementSystem} from a single scheduler task, which keeps their position, velocity and rotation in primitive arrays.
+ * The task itself is the {@link BukkitTask} handle returned by {@link NPC#walkTo}; a path task started with the Bukkit scheduler hands itself over to the
+ * movement system on its first run.
+ * </p>
+ * <p>
+ * Paths planned by the pathfinder carry a {@link PathProfile}; while the NPC walks the nodes it covers, its ground, steps and doors are read from the
+ * profile instead of the world. The nodes ahead are read again only after a block in one of their chunk sections changed.
+ * </p>
+ * <p>
+ * While nobody sees the walk, the NPC is moved headless: it advances along the path at its speed without physics, block reads or packets. Its viewers are
+ * synced with a teleport as soon as one appears.
+ * </p>
  */
-public class PathTask extends BukkitRunnable
+public class PathTask extends BukkitRunnable implements BukkitTask
 {
     private static final double gravity = -0.08;
     private static final double jumpVelocity = 0.5;
     private static final double terminalVelocity = -0.5;
     private static final double stepHeight = 0.55;
+    private static final int repairLookAhead = 16;
+    private static final int viewerCacheTicks = 10;
+    private static final int resyncTicks = 100;
+    private static final int tierRefreshTicks = 10;
+    private static final int headlessLocationTicks = 20;
+    private static final long maxDelta = Short.MAX_VALUE;
 
     private final NPC npc;
     private final double entityHeight;
@@ -50,21 +74,52 @@ public class PathTask extends BukkitRunnable
     private final Entity serverEntity;
     private final Consumer<WalkingResult> callback;
     private final boolean withRotation;
+    private final boolean allowDiagonal;
+    private final boolean repairable;
 
     // Settings
     private final double speed;
     private final boolean updateRealLocation;
     private final Set<Block> openedDoors = new HashSet<>();
-    // State
+    // State, the movement state is kept by the MovementSystem at the slot
+    int slot = -1;
     private boolean finished = false;
     private int index = 0;
-    private Vector currentPos;
-    private final Vector previousMoveDir;
-    private float previousPitch;
-    private float previousYaw;
-    private double verticalVelocity = 0.0;
     private int viewerRefreshTicks = 0;
+    private boolean headless = false;
+    private int headlessTicks = 0;
+    private Player[] viewerCache;
+    private int viewerCacheAge;
+    // The update tier of each viewer in the viewer cache, -1 if not looked up yet
+    private int[] viewerTiers;
+    private final Location realLocation = new Location(null, 0, 0, 0);
+    // Position and rotation as last sent to the viewers of each update tier, in the units of the move packets
+    private final Player[][] tierViewers = new Player[UpdateRate.TIERS][0];
+    private final int[] tierViewerCounts = new int[UpdateRate.TIERS];
+    private final World[] syncedWorld = new World[UpdateRate.TIERS];
+    private final int[] ticksSinceSync = new int[UpdateRate.TIERS];
+    private final long[] sentX = new long[UpdateRate.TIERS];
+    private final long[] sentY = new long[UpdateRate.TIERS];
+    private final long[] sentZ = new long[UpdateRate.TIERS];
+    private final byte[] sentYaw = new byte[UpdateRate.TIERS];
+    private final byte[] sentPitch = new byte[UpdateRate.TIERS];
+    private int tierRefreshAge;
     private boolean isWaitingForChunkLoad = false;
+    private LivePathWorld pathWorld;
+    private int nodeEnd;
+    private PathProfile profile;
+    private RouteSections routeSections;
+    private long seenGeneration = Long.MIN_VALUE;
+    private int checkedUntil;
+    private boolean blocked = false;
+
+    // Scratch values of the current tick
+    private double moveX;
+    private double moveZ;
+    private double physicsY;
+    private boolean physicsGrounded;
+    private boolean physicsSkipHorizontal;
+    private double physicsSlowdown;
 
     /**
      * Private constructor used by the Builder pattern.
@@ -91,28 +146,67 @@ public class PathTask extends BukkitRunnable
         this.autoManageWalkingViewers = builder.autoManageWalkingViewers;
         this.callback = builder.callback;
         this.withRotation = builder.withRotation;
+        this.allowDiagonal = builder.allowDiagonal;
+        this.repairable = NpcApi.config.repairPaths() && path.getExpansions() >= 0;
+        this.nodeEnd = pathPoints.size();
+        this.profile = path.getProfile() == null || path.getProfile().size() != nodeEnd ? null : path.getProfile().copy();
 
         this.speed = builder.speed;
         this.updateRealLocation = builder.updateRealLocation;
 
-        this.currentPos = npc.getLocation().toVector();
-        this.previousPitch = npc.getLocation().getPitch();
-        this.previousYaw = npc.getLocation().getYaw();
-        this.previousMoveDir = npc.getLocation().getDirection();
         this.serverEntity = (Entity) npc.getEntity();
     }
 
     /**
-     * The main execution method called by the Bukkit scheduler. Handles the NPC's movement along the path, including physics and door interactions.
+     * Starts moving the NPC along the path. The NPC is moved by the {@link MovementSystem} from the next tick on.
+     *
+     * @return this task
+     */
+    public @NotNull PathTask start()
+    {
+        MovementSystem.add(this);
+        return this;
+    }
+
+    /**
+     * Hands the task over to the {@link MovementSystem} if it was started with the Bukkit scheduler. The movement itself is done by the movement system.
      */
     @Override
     public void run()
+    {
+        super.cancel();
+        MovementSystem.add(this);
+    }
+
+    /**
+     * Moves the NPC one tick along the path, including physics and door interactions. Called by the {@link MovementSystem}.
+     */
+    void tick()
     {
         World world = npc.getLocation().getWorld();
         if(world == null) return;
 
-        int currentChunkX = currentPos.getBlockX() >> 4;
-        int currentChunkZ = currentPos.getBlockZ() >> 4;
+        if(autoManageWalkingViewers && viewerRefreshTicks++ >= 10)
+        {
+            viewerRefreshTicks = 0;
+            npc.refreshWalkingViewers();
+        }
+
+        if(finished)
+            return;
+
+        Player[] viewers = getViewers();
+        if(viewers.length == 0)
+        {
+            tickHeadless(world);
+            return;
+        }
+
+        if(headless)
+            resync(viewers);
+
+        int currentChunkX = (int) Math.floor(MovementSystem.x[slot]) >> 4;
+        int currentChunkZ = (int) Math.floor(MovementSystem.z[slot]) >> 4;
 
         if (!world.isChunkLoaded(currentChunkX, currentChunkZ))
         {
@@ -135,11 +229,8 @@ public class PathTask extends BukkitRunnable
 
         isWaitingForChunkLoad = false;
 
-        if(autoManageWalkingViewers && viewerRefreshTicks++ >= 10)
-        {
-            viewerRefreshTicks = 0;
-            npc.refreshWalkingViewers();
-        }
+        if((repairable || profile != null) && index < nodeEnd)
+            checkPath(world);
 
         if(index >= pathPoints.size())
         {
@@ -147,81 +238,129 @@ public class PathTask extends BukkitRunnable
                 return;
         }
 
-        Vector target = pathPoints.get(index).toVector();
-        Vector toTarget = target.clone().subtract(currentPos);
+        Location target = pathPoints.get(index);
+        double targetX = target.getX();
+        double targetY = target.getY();
+        double targetZ = target.getZ();
+        double toX = targetX - MovementSystem.x[slot];
+        double toY = targetY - MovementSystem.y[slot];
+        double toZ = targetZ - MovementSystem.z[slot];
 
-        if(hasReachedWaypoint(toTarget))
+        if(hasReachedWaypoint(toX, toY, toZ))
         {
             index++;
             return;
         }
 
-        int chunkX = currentPos.getBlockX() >> 4;
-        int chunkZ = currentPos.getBlockZ() >> 4;
-        boolean isChunkLoaded = world.isChunkLoaded(chunkX, chunkZ);
+        processDoors(world);
+        cleanupDoors();
+
+        calculateHorizontalMovement(toX, toZ, targetX, targetY, targetZ);
+
+        if(moveX * moveX + moveZ * moveZ < 1e-6 && index < pathPoints.size() && Math.abs(MovementSystem.x[slot] - targetX) < 1e-6
+                && Math.abs(MovementSystem.y[slot] - targetY) < 1e-6 && Math.abs(MovementSystem.z[slot] - targetZ) < 1e-6)
+            return;
+
+        applyPhysics(world, toY);
 
-        if(isChunkLoaded)
+        if(physicsSkipHorizontal)
         {
-            processDoors();
-            cleanupDoors();
+            moveX = 0;
+            moveZ = 0;
+        }
+        else if(physicsSlowdown < 1.0)
+        {
+            moveX *= physicsSlowdown;
+            moveZ *= physicsSlowdown;
+        }
 
-            Vector movement = calculateHorizontalMovement(toTarget, target);
+        MovementSystem.x[slot] += moveX;
+        MovementSystem.y[slot] += physicsY;
+        MovementSystem.z[slot] += moveZ;
 
-            if(movement.lengthSquared() < 1e-6 && index < pathPoints.size() && currentPos.equals(target))
-                return;
+        float yaw, pitch;
+        if(withRotation)
+        {
+            updateRotation();
+            yaw = MovementSystem.yaw[slot];
+            pitch = MovementSystem.pitch[slot];
+        }
+        else
+        {
+            yaw = npc.getLocation().getYaw();
+            pitch = npc.getLocation().getPitch();
+        }
 
-            PhysicsResult physics = applyPhysics(movement, toTarget);
+        sendMovePackets(moveX, physicsY, moveZ, yaw, pitch, physicsGrounded);
+    }
 
-            if(physics.skipHorizontal)
-            {
-                movement.setX(0);
-                movement.setZ(0);
-            }
-            else if(physics.horizontalSlowdown < 1.0)
-                movement.multiply(physics.horizontalSlowdown);
+    /**
+     * Moves the NPC one tick along the path while nobody sees it. The NPC advances along the path by its speed in a straight line from node to node, without
+     * physics, path checks, chunk checks or packets. Its real location is updated every {@value #headlessLocationTicks} ticks.
+     *
+     * @param world The world the NPC is in
+     */
+    private void tickHeadless(@NotNull World world)
+    {
+        headless = true;
+        cleanupDoors();
 
-            movement.setY(physics.yChange);
+        double remaining = speed;
+        while(remaining > 1e-6)
+        {
+            if(index >= pathPoints.size() && finishPath())
+                return;
 
-            currentPos.add(movement);
+            Location target = pathPoints.get(index);
+            double toX = target.getX() - MovementSystem.x[slot];
+            double toY = target.getY() - MovementSystem.y[slot];
+            double toZ = target.getZ() - MovementSystem.z[slot];
+            double dist = Math.sqrt(toX * toX + toZ * toZ);
 
-            float yaw, pitch;
-            if(withRotation)
+            if(dist <= remaining)
             {
-                float[] rotation = calculateSmoothRotation();
-                yaw = rotation[0];
-                pitch = rotation[1];
+                MovementSystem.x[slot] = target.getX();
+                MovementSystem.y[slot] = target.getY();
+                MovementSystem.z[slot] = target.getZ();
+                remaining -= dist;
+                index++;
             }
             else
             {
-                yaw = npc.getLocation().getYaw();
-                pitch = npc.getLocation().getPitch();
+                double fraction = remaining / dist;
+                MovementSystem.x[slot] += toX * fraction;
+                MovementSystem.y[slot] += toY * fraction;
+                MovementSystem.z[slot] += toZ * fraction;
+                MovementSystem.moveDirX[slot] = toX;
+                MovementSystem.moveDirZ[slot] = toZ;
+                remaining = 0;
             }
-
-            sendMovePackets(movement, yaw, pitch, physics.isGrounded);
         }
-        else
-        {
-            double distanceToTarget = toTarget.length();
-            double moveDist = Math.min(speed, distanceToTarget);
 
-            if(distanceToTarget > 1e-6)
-            {
-                Vector movement = toTarget.normalize().multiply(moveDist);
-                currentPos.add(movement);
-            }
-            else
-                currentPos = target.clone();
+        MovementSystem.velocityY[slot] = 0;
+        if(updateRealLocation && headlessTicks++ % headlessLocationTicks == 0)
+            updateRealLocation(world);
+    }
 
-            if(withRotation)
-            {
-                float[] rotation = calculateSmoothRotation();
-                previousYaw = rotation[0];
-                previousPitch = rotation[1];
-            }
+    /**
+     * Ends headless movement when a viewer appeared. All viewers are teleported to the NPC's current position, and every update tier is synced with a
+     * teleport on its next update.
+     *
+     * @param viewers The viewers of the walk
+     */
+    private void resync(Player @NotNull [] viewers)
+    {
+        headless = false;
+        headlessTicks = 0;
+        Arrays.fill(syncedWorld, null);
+        if(viewerTiers != null)
+            Arrays.fill(viewerTiers, -1);
 
-            if(updateRealLocation)
-                npc.setLocation(currentPos.toLocation(world));
-        }
+        for(Player viewer : viewers)
+            sendCurrentPosition(viewer);
+
+        if(updateRealLocation)
+            updateRealLocation(npc.getLocation().getWorld());
     }
 
     /**
@@ -236,36 +375,150 @@ public class PathTask extends BukkitRunnable
         }
     }
 
+    /**
+     * Checks the nodes ahead of the NPC whose sections changed since they were last checked, and repairs the path locally if one of them became invalid.
+     * Only the next {@value #repairLookAhead} nodes are checked and read into the profile again; further nodes are checked as the NPC gets closer to them.
+     * If a node became invalid and the path is not repaired, the profile is dropped and the NPC reads the world again.
+     *
+     * @param world The world the NPC is in
+     */
+    private void checkPath(@NotNull World world)
+    {
+        if(routeSections == null)
+            routeSections = profile != null ? profile.getSections() : RouteSections.of(world, pathPoints.subList(0, nodeEnd), entityHeight, Long.MIN_VALUE);
+
+        long generation = SectionChanges.getGeneration();
+        int checkTo = Math.min(index + repairLookAhead, nodeEnd);
+        if(generation == seenGeneration && checkTo <= checkedUntil)
+            return;
+
+        seenGeneration = generation;
+        checkedUntil = Math.max(checkedUntil, checkTo);
+
+        int checkFrom = -1;
+        int checkEnd = -1;
+        int changed = 0;
+        for(int i = index; i < checkTo; i++)
+        {
+            if(!routeSections.hasChanged(i))
+                continue;
+
+            if(checkFrom < 0)
+                checkFrom = i;
+            checkEnd = i + 1;
+            changed |= 1 << (i - index);
+        }
+
+        if(checkFrom < 0)
+            return;
+
+        PathWorld view = getPathWorld(world);
+        List<Location> nodes = pathPoints.subList(0, nodeEnd);
+        int invalid = PathRepair.findInvalidNode(view, nodes, checkFrom, checkEnd, allowDiagonal, entityHeight, entityWidth);
+        routeSections.setChecked(checkFrom, invalid < 0 ? checkEnd : invalid, generation);
+        if(profile != null)
+        {
+            for(int i = checkFrom; i < checkEnd; i++)
+            {
+                if((changed & 1 << (i - index)) != 0)
+                    profile.update(view, nodes, i, i + 1);
+            }
+        }
+
+        if(invalid < 0)
+        {
+            if(checkFrom == index)
+                blocked = false;
+            return;
+        }
+
+        if(!repairable)
+        {
+            profile = null;
+            return;
+        }
+
+        Location position = new Location(world, MovementSystem.x[slot], MovementSystem.y[slot], MovementSystem.z[slot]);
+        List<Location> repaired = PathRepair.repair(view, position, nodes, index, invalid, allowDiagonal, entityHeight, entityWidth);
+        if(repaired == null)
+        {
+            profile = null;
+            blocked = true;
+            return;
+        }
+
+        pathPoints.subList(index, nodeEnd).clear();
+        pathPoints.addAll(index, repaired);
+        nodeEnd = index + repaired.size();
+        if(profile != null)
+            profile = PathProfile.compute(view, pathPoints.subList(0, nodeEnd), entityHeight);
+        routeSections = RouteSections.of(world, pathPoints.subList(0, nodeEnd), entityHeight, Long.MIN_VALUE);
+        checkedUntil = index;
+        blocked = false;
+    }
+
     /**
      * Processes door interactions along the NPC's path. Opens doors that are in the NPC's path and within interaction range.
+     *
+     * @param world The world the NPC is in
      */
-    private void processDoors()
+    private void processDoors(@NotNull World world)
     {
-        World world = npc.getLocation().getWorld();
-        if(world == null)
+        if(isProfiled())
+        {
+            openProfiledDoors(world, index - 1);
+            openProfiledDoors(world, index);
             return;
+        }
 
-        checkAndOpenDoor(currentPos.toLocation(world).getBlock());
-        checkAndOpenDoor(currentPos.toLocation(world).getBlock().getRelative(BlockFace.UP));
+        PathWorld view = getPathWorld(world);
+        int x = (int) Math.floor(MovementSystem.x[slot]);
+        int y = (int) Math.floor(MovementSystem.y[slot]);
+        int z = (int) Math.floor(MovementSystem.z[slot]);
+        checkAndOpenDoor(world, view, x, y, z);
+        checkAndOpenDoor(world, view, x, y + 1, z);
 
         if(index < pathPoints.size())
         {
             Location next = pathPoints.get(index);
-            if(currentPos.distanceSquared(next.toVector()) < 4.0)
+            double dx = next.getX() - MovementSystem.x[slot];
+            double dy = next.getY() - MovementSystem.y[slot];
+            double dz = next.getZ() - MovementSystem.z[slot];
+            if(dx * dx + dy * dy + dz * dz < 4.0)
             {
-                checkAndOpenDoor(next.getBlock());
-                checkAndOpenDoor(next.getBlock().getRelative(BlockFace.UP));
+                checkAndOpenDoor(world, view, next.getBlockX(), next.getBlockY(), next.getBlockZ());
+                checkAndOpenDoor(world, view, next.getBlockX(), next.getBlockY() + 1, next.getBlockZ());
             }
         }
     }
 
     /**
-     * Checks if a block is a door and opens it if it's closed.
+     * Checks if a block is a door and opens it if it's closed. The block is only looked up in the world if the view reports it as openable.
      *
-     * @param block The block to check for door interaction
+     * @param world The world the block is in
+     * @param view  The view of the world
+     * @param x     The block x coordinate
+     * @param y     The block y coordinate
+     * @param z     The block z coordinate
      */
-    private void checkAndOpenDoor(@NotNull Block block)
+    private void checkAndOpenDoor(@NotNull World world, @NotNull PathWorld view, int x, int y, int z)
     {
+        if(!view.isOpenable(x, y, z))
+            return;
+
+        openDoor(world.getBlockAt(x, y, z));
+    }
+
+    /**
+     * Opens a door if it's closed. Doors this task already opened are not read again.
+     *
+     * @param block The block of the door
+     */
+    private void openDoor(@NotNull Block block)
+    {
+        if(openedDoors.contains(block))
+            return;
+
         if(block.getBlockData() instanceof Openable openable)
         {
             if(!openable.isOpen())
@@ -279,6 +532,30 @@ public class PathTask extends BukkitRunnable
         }
     }
 
+    /**
+     * Opens the doors the profile records at a node if the NPC is within 2 blocks of it.
+     *
+     * @param world The world the NPC is in
+     * @param node  The index of the node
+     */
+    private void openProfiledDoors(@NotNull World world, int node)
+    {
+        if(node < 0 || node >= nodeEnd || !(profile.hasDoorAtFeet(node) || profile.hasDoorAtHead(node)))
+            return;
+
+        Location location = pathPoints.get(node);
+        double dx = location.getX() - MovementSystem.x[slot];
+        double dy = location.getY() - MovementSystem.y[slot];
+        double dz = location.getZ() - MovementSystem.z[slot];
+        if(dx * dx + dy * dy + dz * dz >= 4.0)
+            return;
+
+        if(profile.hasDoorAtFeet(node))
+            openDoor(world.getBlockAt(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+        if(profile.hasDoorAtHead(node))
+            openDoor(world.getBlockAt(location.getBlockX(), location.getBlockY() + 1, location.getBlockZ()));
+    }
+
     /**
      * Cleans up opened doors that are no longer near the NPC. Closes doors that the NPC has moved away from.
      */
@@ -291,17 +568,11 @@ public class PathTask extends BukkitRunnable
         while(iterator.hasNext())
         {
             Block door = iterator.next();
-            if(!(door.getBlockData() instanceof Openable openable))
-            {
-                iterator.remove();
-                continue;
-            }
-
-            double distSq = Math.pow(door.getX() + 0.5 - currentPos.getX(), 2) + Math.pow(door.getZ() + 0.5 - currentPos.getZ(), 2);
+            double distSq = Math.pow(door.getX() + 0.5 - MovementSystem.x[slot], 2) + Math.pow(door.getZ() + 0.5 - MovementSystem.z[slot], 2);
 
             if(distSq > 1.69)
             {
-                if(openable.isOpen())
+                if(door.getBlockData() instanceof Openable openable && openable.isOpen())
                 {
                     openable.setOpen(false);
                     door.setBlockData(openable);
@@ -340,7 +611,10 @@ public class PathTask extends BukkitRunnable
 
         if(last != null)
         {
-            if(currentPos.distanceSquared(last.toVector()) > 0.04)
+            double dx = last.getX() - MovementSystem.x[slot];
+            double dy = last.getY() - MovementSystem.y[slot];
+            double dz = last.getZ() - MovementSystem.z[slot];
+            if(dx * dx + dy * dy + dz * dz > 0.04)
             {
                 pathPoints.add(last);
                 return false;
@@ -394,232 +668,298 @@ public class PathTask extends BukkitRunnable
     /**
      * Checks if the NPC has reached the current waypoint.
      *
-     * @param toTarget The vector to the target waypoint
+     * @param toX The x distance to the target waypoint
+     * @param toY The y distance to the target waypoint
+     * @param toZ The z distance to the target waypoint
      * @return true if the waypoint has been reached, false otherwise
      */
-    private boolean hasReachedWaypoint(@NotNull Vector toTarget)
+    private boolean hasReachedWaypoint(double toX, double toY, double toZ)
     {
-        double horizontalDistSq = (toTarget.getX() * toTarget.getX()) + (toTarget.getZ() * toTarget.getZ());
-        double verticalDiff = Math.abs(toTarget.getY());
+        double horizontalDistSq = (toX * toX) + (toZ * toZ);
+        double verticalDiff = Math.abs(toY);
         return horizontalDistSq <= 0.04 && verticalDiff < 0.5;
     }
 
     /**
-     * Calculates the horizontal movement vector for the NPC.
+     * Calculates the horizontal movement of the NPC into {@link #moveX} and {@link #moveZ}. Snaps the NPC onto the target waypoint if it is reached in this
+     * tick.
      *
-     * @param toTarget    The vector to the target waypoint
-     * @param targetPoint The absolute target point
-     * @return A vector representing the horizontal movement
+     * @param toX     The x distance to the target waypoint
+     * @param toZ     The z distance to the target waypoint
+     * @param targetX The absolute x coordinate of the target waypoint
+     * @param targetY The absolute y coordinate of the target waypoint
+     * @param targetZ The absolute z coordinate of the target waypoint
      */
-    private @NotNull Vector calculateHorizontalMovement(@NotNull Vector toTarget, @NotNull Vector targetPoint)
+    private void calculateHorizontalMovement(double toX, double toZ, double targetX, double targetY, double targetZ)
     {
-        Vector horizontal = new Vector(toTarget.getX(), 0, toTarget.getZ());
-        double distSq = horizontal.lengthSquared();
+        moveX = 0;
+        moveZ = 0;
+
+        double distSq = toX * toX + toZ * toZ;
         if(distSq < 1e-6)
-            return new Vector(0, 0, 0);
+            return;
 
         double dist = Math.sqrt(distSq);
         double moveDistance = Math.min(speed, dist);
-        Vector moveStep = horizontal.clone().normalize().multiply(moveDistance);
 
         if(Math.abs(moveDistance - dist) < 1e-6)
         {
-            this.currentPos = targetPoint.clone();
+            MovementSystem.x[slot] = targetX;
+            MovementSystem.y[slot] = targetY;
+            MovementSystem.z[slot] = targetZ;
             index++;
-            return new Vector(0, 0, 0);
+            return;
         }
 
-        return moveStep;
+        moveX = toX / dist * moveDistance;
+        moveZ = toZ / dist * moveDistance;
     }
 
     /**
-     * Applies physics (gravity, jumping, collision) to the NPC's movement.
+     * Applies physics (gravity, jumping, collision) to the NPC's movement. Reads the horizontal movement from {@link #moveX} and {@link #moveZ} and stores the
+     * vertical movement and ground state in the physics scratch fields.
      *
-     * @param movement The current movement vector
-     * @param toTarget The vector to the target waypoint
-     * @return A PhysicsResult containing the vertical movement and ground state
+     * @param world The world the NPC is in
+     * @param toY   The y distance to the target waypoint
      */
-    private @NotNull PhysicsResult applyPhysics(Vector movement, Vector toTarget)
+    private void applyPhysics(@NotNull World world, double toY)
     {
-        World world = npc.getLocation().getWorld();
-        if(world == null)
-            return new PhysicsResult(0, false, false, 1.0);
+        double x = MovementSystem.x[slot];
+        double y = MovementSystem.y[slot];
+        double z = MovementSystem.z[slot];
+        double testX = x + moveX;
+        double testZ = z + moveZ;
 
-        double groundY = getGroundY(world, currentPos);
-        boolean onGround = currentPos.getY() <= groundY + 1e-5;
+        physicsSkipHorizontal = false;
+        physicsSlowdown = 1.0;
+
+        double groundY = getGroundY(world, x, y, z);
+        boolean onGround = y <= groundY + 1e-5;
         double yChange = 0;
 
         if(onGround)
         {
-            if(toTarget.getY() < 0 && Math.abs(toTarget.getY()) <= stepHeight)
+            if(toY < 0 && Math.abs(toY) <= stepHeight)
             {
-                Vector testPos = currentPos.clone().add(movement);
-                testPos.setY(currentPos.getY() + toTarget.getY());
-                if(isPositionValid(world, testPos))
+                if(isPositionValid(world, testX, y + toY, testZ))
                 {
-                    yChange = toTarget.getY();
-                    verticalVelocity = 0;
-                    double slowdown = 0.5;
-                    return new PhysicsResult(yChange, true, false, slowdown);
+                    MovementSystem.velocityY[slot] = 0;
+                    setPhysics(toY, true, false, 0.5);
+                    return;
                 }
             }
 
-            if(toTarget.getY() > 0 && toTarget.getY() <= stepHeight && movement.lengthSquared() > 1e-6)
+            if(toY > 0 && toY <= stepHeight && moveX * moveX + moveZ * moveZ > 1e-6)
             {
-                Vector testPos = currentPos.clone().add(movement);
-                testPos.setY(currentPos.getY() + Math.min(toTarget.getY(), stepHeight));
-                if(!isPositionValid(world, testPos))
-                {
-                    yChange = Math.min(toTarget.getY(), stepHeight);
-                    verticalVelocity = 0;
-                    return new PhysicsResult(yChange, true, true, 1.0);
-                }
-                yChange = Math.min(toTarget.getY(), stepHeight);
-                verticalVelocity = 0;
-                return new PhysicsResult(yChange, true, false, 1.0);
+                yChange = Math.min(toY, stepHeight);
+                MovementSystem.velocityY[slot] = 0;
+                setPhysics(yChange, true, !isPositionValid(world, testX, y + yChange, testZ), 1.0);
+                return;
             }
-            else if(toTarget.getY() > 0.5)
+            else if(toY > 0.5)
             {
-                Vector testPos = currentPos.clone().add(movement);
-                testPos.setY(currentPos.getY() + jumpVelocity);
-                if(!isPositionValid(world, testPos))
+                MovementSystem.velocityY[slot] = jumpVelocity;
+                if(!isPositionValid(world, testX, y + jumpVelocity, testZ))
                 {
-                    verticalVelocity = jumpVelocity;
-                    return new PhysicsResult(jumpVelocity, false, true, 1.0);
+                    setPhysics(jumpVelocity, false, true, 1.0);
+                    return;
                 }
-                verticalVelocity = jumpVelocity;
                 onGround = false;
             }
             else
             {
-                verticalVelocity = 0;
-                if(Math.abs(currentPos.getY() - groundY) > 1e-6)
-                    currentPos.setY(groundY);
-                return new PhysicsResult(0, true, false, 1.0);
+                MovementSystem.velocityY[slot] = 0;
+                if(Math.abs(y - groundY) > 1e-6)
+                    MovementSystem.y[slot] = groundY;
+                setPhysics(0, true, false, 1.0);
+                return;
             }
         }
 
         if(!onGround)
         {
-            verticalVelocity += gravity;
-            if(verticalVelocity < terminalVelocity)
-                verticalVelocity = terminalVelocity;
-            yChange = verticalVelocity;
+            double velocity = MovementSystem.velocityY[slot] + gravity;
+            if(velocity < terminalVelocity)
+                velocity = terminalVelocity;
+            MovementSystem.velocityY[slot] = velocity;
+            yChange = velocity;
 
-            Vector testPos = currentPos.clone().add(movement);
-            testPos.setY(currentPos.getY() + yChange);
-            if(!isPositionValid(world, testPos) && currentPos.getY() + yChange <= groundY + 0.1)
+            if(!isPositionValid(world, testX, y + yChange, testZ) && y + yChange <= groundY + 0.1)
             {
-                yChange = groundY - currentPos.getY();
-                verticalVelocity = 0;
+                yChange = groundY - y;
+                MovementSystem.velocityY[slot] = 0;
                 onGround = true;
             }
-            else if(currentPos.getY() + yChange <= groundY)
+            else if(y + yChange <= groundY)
             {
-                yChange = groundY - currentPos.getY();
-                verticalVelocity = 0;
+                yChange = groundY - y;
+                MovementSystem.velocityY[slot] = 0;
                 onGround = true;
             }
         }
 
-        return new PhysicsResult(yChange, onGround, false, 1.0);
+        setPhysics(yChange, onGround, false, 1.0);
     }
 
     /**
-     * Checks if a position is valid (not inside a solid block).
+     * Stores the result of the physics calculations of this tick.
+     *
+     * @param yChange            The vertical movement to apply
+     * @param grounded           Whether the NPC is on the ground
+     * @param skipHorizontal     Whether to skip horizontal movement this tick
+     * @param horizontalSlowdown Factor to slow down horizontal movement (1.0 = normal, <1.0 = slower)
+     */
+    private void setPhysics(double yChange, boolean grounded, boolean skipHorizontal, double horizontalSlowdown)
+    {
+        physicsY = yChange;
+        physicsGrounded = grounded;
+        physicsSkipHorizontal = skipHorizontal;
+        physicsSlowdown = horizontalSlowdown;
+    }
+
+    /**
+     * Checks if a position is valid (not inside a solid block). On a profiled node, the position is valid if it is not below the ground of its block.
      *
      * @param world The world to check in
-     * @param pos   The position to check
+     * @param x     The x coordinate of the position
+     * @param y     The y coordinate of the position
+     * @param z     The z coordinate of the position
      * @return true if the position is valid, false otherwise
      */
-    private boolean isPositionValid(@NotNull World world, @NotNull Vector pos)
+    private boolean isPositionValid(@NotNull World world, double x, double y, double z)
     {
-        return AStarPathfinder.isPositionValid(world, pos.getX(), pos.getY(), pos.getZ(), entityHeight, entityWidth);
+        if(isProfiled())
+            return y >= getProfiledGroundY(x, z) - 1e-5;
+
+        return AStarPathfinder.isPositionValid(getPathWorld(world), x, y, z, entityHeight, entityWidth);
     }
 
     /**
-     * Calculates the feet Y-coordinate of the ground at a given position.
+     * Gets the view of the live world used for collision checks, recreating it if the NPC changed worlds.
+     *
+     * @param world The world the NPC is in
+     * @return The view of the world
+     */
+    private @NotNull PathWorld getPathWorld(@NotNull World world)
+    {
+        if(pathWorld == null || pathWorld.getWorld() != world)
+            pathWorld = new LivePathWorld(world);
+        return pathWorld;
+    }
+
+    /**
+     * Calculates the feet Y-coordinate of the ground at a given position. On a profiled node, the ground is read from the profile.
      *
      * @param world The world to check in
-     * @param pos   The position to check
+     * @param x     The x coordinate of the position
+     * @param y     The y coordinate of the position
+     * @param z     The z coordinate of the position
      * @return The Y-coordinate where the NPC's feet should be
      */
-    private double getGroundY(@NotNull World world, @NotNull Vector pos)
+    private double getGroundY(@NotNull World world, double x, double y, double z)
     {
-        int bx = pos.getBlockX();
-        int bz = pos.getBlockZ();
-        int startY = pos.getBlockY();
+        if(isProfiled())
+            return getProfiledGroundY(x, z);
 
-        for(int y = startY; y >= startY - 4; y--)
-        {
-            Block block = world.getBlockAt(bx, y, bz);
+        int bx = (int) Math.floor(x);
+        int bz = (int) Math.floor(z);
+        int startY = (int) Math.floor(y);
 
-            if(block.getBlockData() instanceof Openable || block.isLiquid())
+        PathWorld view = getPathWorld(world);
+        double lx = x - bx;
+        double lz = z - bz;
+        for(int blockY = startY; blockY >= startY - 4; blockY--)
+        {
+            int id = view.getStateId(bx, blockY, bz);
+            if(CollisionTable.isOpenable(id) || CollisionTable.isLiquid(id))
                 continue;
 
-            Collection<BoundingBox> boxes = block.getCollisionShape().getBoundingBoxes();
-            if(boxes.isEmpty())
+            double bestTop = view.topAt(bx, blockY, bz, lx, lz);
+            if(bestTop < 0.0)
                 continue;
 
-            double lx = pos.getX() - bx;
-            double lz = pos.getZ() - bz;
+            return blockY + bestTop;
+        }
 
-            double bestTop = -1.0;
+        return world.getHighestBlockYAt(bx, bz);
+    }
 
-            for(BoundingBox bb : boxes)
-            {
-                if(lx >= bb.getMinX() && lx <= bb.getMaxX() && lz >= bb.getMinZ() && lz <= bb.getMaxZ())
-                    bestTop = Math.max(bestTop, bb.getMaxY());
-            }
+    /**
+     * Checks whether the NPC walks towards a node covered by a valid profile, so its ground and doors can be read from the profile.
+     *
+     * @return true if the profile is used for the current node
+     */
+    private boolean isProfiled()
+    {
+        if(profile == null || index >= nodeEnd)
+            return false;
 
-            if(bestTop < 0.0)
-            {
-                for(BoundingBox bb : boxes)
-                    bestTop = Math.max(bestTop, bb.getMaxY());
-            }
+        return !Double.isNaN(profile.getGroundY(index)) && (index == 0 || !Double.isNaN(profile.getGroundY(index - 1)));
+    }
 
-            return y + bestTop;
-        }
+    /**
+     * Gets the ground at a position between the previous and the current node from the profile: the ground of the current node once the position is in its
+     * block, otherwise the ground of the previous node.
+     *
+     * @param x The x coordinate of the position
+     * @param z The z coordinate of the position
+     * @return The Y-coordinate where the NPC's feet should be
+     */
+    private double getProfiledGroundY(double x, double z)
+    {
+        Location target = pathPoints.get(index);
+        if(index == 0 || ((int) Math.floor(x) == target.getBlockX() && (int) Math.floor(z) == target.getBlockZ()))
+            return profile.getGroundY(index);
 
-        return world.getHighestBlockYAt(bx, bz);
+        return profile.getGroundY(index - 1);
     }
 
     /**
-     * Calculates smooth rotation for the NPC's head and body.
-     *
-     * @return An array containing [yaw, pitch] for the NPC's rotation
+     * Calculates smooth rotation for the NPC's head and body and stores it in the NPC's slot of the {@link MovementSystem}.
      */
-    private float @NotNull [] calculateSmoothRotation()
+    private void updateRotation()
     {
-        Vector lookDir;
+        double x = MovementSystem.x[slot];
+        double y = MovementSystem.y[slot];
+        double z = MovementSystem.z[slot];
+
+        double lookX, lookZ;
         if(index + 1 < pathPoints.size())
         {
-            Vector p1 = pathPoints.get(index).toVector();
-            Vector p2 = pathPoints.get(index + 1).toVector();
-            lookDir = p1.add(p2).multiply(0.5).subtract(currentPos);
+            Location p1 = pathPoints.get(index);
+            Location p2 = pathPoints.get(index + 1);
+            lookX = (p1.getX() + p2.getX()) * 0.5 - x;
+            lookZ = (p1.getZ() + p2.getZ()) * 0.5 - z;
         }
         else
-            lookDir = pathPoints.get(Math.min(index, pathPoints.size() - 1)).toVector().subtract(currentPos);
+        {
+            Location p = pathPoints.get(Math.min(index, pathPoints.size() - 1));
+            lookX = p.getX() - x;
+            lookZ = p.getZ() - z;
+        }
 
-        Vector horizontalLook = new Vector(lookDir.getX(), 0, lookDir.getZ());
-        if(horizontalLook.lengthSquared() < 1e-6)
-            horizontalLook.copy(previousMoveDir.clone());
+        if(lookX * lookX + lookZ * lookZ < 1e-6)
+        {
+            lookX = MovementSystem.moveDirX[slot];
+            lookZ = MovementSystem.moveDirZ[slot];
+        }
 
-        float targetYaw = (float) (Math.toDegrees(Math.atan2(horizontalLook.getZ(), horizontalLook.getX())) - 90);
+        float targetYaw = (float) (Math.toDegrees(Math.atan2(lookZ, lookX)) - 90);
         targetYaw = normalizeAngle(targetYaw);
 
+        float previousYaw = MovementSystem.yaw[slot];
         float diff = normalizeAngle(targetYaw - previousYaw);
         diff = Math.max(-15f, Math.min(15f, diff));
 
-        float yaw = previousYaw + diff;
-        previousYaw = yaw;
-        previousMoveDir.copy(horizontalLook);
-
-        Vector targetVec = pathPoints.get(Math.min(index + 1, pathPoints.size() - 1)).toVector().subtract(currentPos);
-        double hLen = Math.sqrt(targetVec.getX() * targetVec.getX() + targetVec.getZ() * targetVec.getZ());
-        float pitch = (float) (-Math.toDegrees(Math.atan2(targetVec.getY(), hLen))) / 1.5f;
+        MovementSystem.yaw[slot] = previousYaw + diff;
+        MovementSystem.moveDirX[slot] = lookX;
+        MovementSystem.moveDirZ[slot] = lookZ;
 
-        return new float[]{yaw, pitch};
+        Location target = pathPoints.get(Math.min(index + 1, pathPoints.size() - 1));
+        double targetX = target.getX() - x;
+        double targetZ = target.getZ() - z;
+        double hLen = Math.sqrt(targetX * targetX + targetZ * targetZ);
+        MovementSystem.pitch[slot] = (float) (-Math.toDegrees(Math.atan2(target.getY() - y, hLen))) / 1.5f;
     }
 
     /**
@@ -654,8 +994,11 @@ public class PathTask extends BukkitRunnable
      */
     public @NotNull Location getCurrentLocation()
     {
+        if(slot < 0)
+            return npc.getLocation().clone();
+
         World world = npc.getLocation().getWorld();
-        return currentPos.toLocation(world);
+        return new Location(world, MovementSystem.x[slot], MovementSystem.y[slot], MovementSystem.z[slot]);
     }
 
     /**
@@ -672,6 +1015,7 @@ public class PathTask extends BukkitRunnable
         if(!viewerIds.add(player.getUniqueId()))
             return false;
 
+        viewerCacheAge = viewerCacheTicks;
         sendCurrentPosition(player);
         return true;
     }
@@ -694,20 +1038,73 @@ public class PathTask extends BukkitRunnable
      */
     public void removeViewer(@NotNull Player player)
     {
-        viewerIds.remove(player.getUniqueId());
+        if(viewerIds.remove(player.getUniqueId()))
+            viewerCacheAge = viewerCacheTicks;
     }
 
     /**
-     * Gets all online viewers currently attached to this path task.
+     * Gets all online viewers currently attached to this path task. The result is cached and looked up again when the viewers change or after
+     * {@value #viewerCacheTicks} calls, so players who went offline are dropped. Viewers that were cached before keep their update tier.
      *
      * @return online viewers
      */
     private Player @NotNull [] getViewers()
     {
-        return viewerIds.stream()
-                .map(Bukkit::getPlayer)
-                .filter(Objects::nonNull)
-                .toArray(Player[]::new);
+        if(viewerCache == null || viewerCacheAge++ >= viewerCacheTicks)
+        {
+            Player[] previous = viewerCache;
+            int[] previousTiers = viewerTiers;
+
+            viewerCache = viewerIds.stream()
+                    .map(Bukkit::getPlayer)
+                    .filter(Objects::nonNull)
+                    .toArray(Player[]::new);
+            viewerTiers = new int[viewerCache.length];
+            viewerCacheAge = 0;
+
+            for(int i = 0; i < viewerCache.length; i++)
+                viewerTiers[i] = previous == null ? -1 : findTier(previous, previousTiers, viewerCache[i], i);
+        }
+
+        return viewerCache;
+    }
+
+    /**
+     * Finds the update tier of a viewer in the viewer cache before it was rebuilt. The viewers mostly keep their order, so the search starts at the new
+     * index of the viewer.
+     *
+     * @param viewers The previous viewer cache
+     * @param tiers   The update tiers of the previous viewer cache
+     * @param viewer  The viewer
+     * @param hint    The index to search at first
+     * @return The tier, or -1 if the viewer was not cached before
+     */
+    private static int findTier(Player @NotNull [] viewers, int @NotNull [] tiers, @NotNull Player viewer, int hint)
+    {
+        if(hint < viewers.length && viewers[hint] == viewer)
+            return tiers[hint];
+
+        for(int i = 0; i < viewers.length; i++)
+        {
+            if(viewers[i] == viewer)
+                return tiers[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the NPC's real location to its walking position. The same location is reused for every update, so it is only changed right before it is
+     * handed to the NPC again.
+     *
+     * @param world The world the NPC walks in
+     */
+    private void updateRealLocation(World world)
+    {
+        realLocation.setWorld(world);
+        realLocation.setX(MovementSystem.x[slot]);
+        realLocation.setY(MovementSystem.y[slot]);
+        realLocation.setZ(MovementSystem.z[slot]);
+        npc.setLocation(realLocation);
     }
 
     /**
@@ -718,56 +1115,192 @@ public class PathTask extends BukkitRunnable
     private void sendCurrentPosition(@NotNull Player player)
     {
 
-        if(serverEntity == null)
+        if(serverEntity == null || slot < 0)
             return;
 
+        float yaw = MovementSystem.yaw[slot];
         ClientboundRotateHeadPacket head = new ClientboundRotateHeadPacket(
                 serverEntity,
-                (byte) (previousYaw * 256 / 360)
+                (byte) (yaw * 256 / 360)
         );
 
-        Vec3 currentVec = new Vec3(currentPos.getX(), currentPos.getY(), currentPos.getZ());
+        Vec3 currentVec = new Vec3(MovementSystem.x[slot], MovementSystem.y[slot], MovementSystem.z[slot]);
 
         ClientboundTeleportEntityPacket teleport = (ClientboundTeleportEntityPacket) TeleportEntityPacket.create(serverEntity, currentVec, Vec3.ZERO,
-                previousYaw, previousPitch, Set.of(), true);
+                yaw, MovementSystem.pitch[slot], Set.of(), true);
 
         npc.sendNpcMovePackets(teleport, head, player);
     }
 
     /**
      * Sends movement and rotation packets to update the NPC's position for viewers.
+     * <p>
+     * Viewers are grouped into the tiers of the {@link UpdateRate}, and every tier is only sent an update in the ticks it is due. The movement since the last
+     * update of a tier is sent as a relative move of at most 8 blocks, in 1/4096 of a block, and the rotation only when its sent value changes. A full
+     * teleport is sent instead on the first update of a tier, when the NPC changed worlds, when the movement does not fit into a relative move, and every
+     * {@value #resyncTicks} ticks to correct any drift on the client.
+     * </p>
      *
-     * @param movement The movement vector
-     * @param yaw      The yaw rotation
-     * @param pitch    The pitch rotation
-     * @param onGround Whether the NPC is on the ground
+     * @param movementX The x movement of this tick
+     * @param movementY The y movement of this tick
+     * @param movementZ The z movement of this tick
+     * @param yaw       The yaw rotation
+     * @param pitch     The pitch rotation
+     * @param onGround  Whether the NPC is on the ground
      */
-    private void sendMovePackets(Vector movement, float yaw, float pitch, boolean onGround)
+    private void sendMovePackets(double movementX, double movementY, double movementZ, float yaw, float pitch, boolean onGround)
     {
         if(serverEntity == null)
             return;
 
-        previousYaw = yaw;
-        previousPitch = pitch;
+        MovementSystem.yaw[slot] = yaw;
+        MovementSystem.pitch[slot] = pitch;
 
-        ClientboundRotateHeadPacket head = new ClientboundRotateHeadPacket(serverEntity, (byte) (yaw * 256 / 360));
+        World world = npc.getLocation().getWorld();
+        groupViewers(world);
 
-        Vec3 currentVec = new Vec3(currentPos.getX(), currentPos.getY(), currentPos.getZ());
-        Vec3 movementVec = new Vec3(movement.getX(), movement.getY(), movement.getZ());
+        long x = encodePosition(MovementSystem.x[slot]);
+        long y = encodePosition(MovementSystem.y[slot]);
+        long z = encodePosition(MovementSystem.z[slot]);
+        byte encodedYaw = (byte) (yaw * 256 / 360);
+        byte encodedPitch = (byte) (pitch * 256 / 360);
 
-        ClientboundTeleportEntityPacket teleport = (ClientboundTeleportEntityPacket) TeleportEntityPacket.create(serverEntity, currentVec, movementVec,
-                yaw, pitch, Set.of(), onGround);
+        for(int tier = 0; tier < UpdateRate.TIERS; tier++)
+        {
+            if(tierViewerCounts[tier] == 0 || !UpdateRate.isDue(tier, MovementSystem.currentTick, serverEntity.getId()))
+                continue;
 
-        npc.sendNpcMovePackets(teleport, head, getViewers());
+            Player[] viewers = tierViewers[tier];
+            ticksSinceSync[tier] += UpdateRate.getInterval(tier);
+            if(world != syncedWorld[tier] || ticksSinceSync[tier] >= resyncTicks || Math.abs(x - sentX[tier]) > maxDelta
+                    || Math.abs(y - sentY[tier]) > maxDelta || Math.abs(z - sentZ[tier]) > maxDelta)
+            {
+                ClientboundRotateHeadPacket head = new ClientboundRotateHeadPacket(serverEntity, encodedYaw);
+
+                Vec3 currentVec = new Vec3(MovementSystem.x[slot], MovementSystem.y[slot], MovementSystem.z[slot]);
+                Vec3 movementVec = new Vec3(movementX, movementY, movementZ);
+
+                ClientboundTeleportEntityPacket teleport = (ClientboundTeleportEntityPacket) TeleportEntityPacket.create(serverEntity, currentVec,
+                        movementVec, yaw, pitch, Set.of(), onGround);
+
+                npc.sendNpcMovePackets(teleport, head, viewers);
+                syncedWorld[tier] = world;
+                ticksSinceSync[tier] = 0;
+            }
+            else
+            {
+                boolean moved = x != sentX[tier] || y != sentY[tier] || z != sentZ[tier];
+                boolean rotated = encodedYaw != sentYaw[tier] || encodedPitch != sentPitch[tier];
+                short deltaX = (short) (x - sentX[tier]);
+                short deltaY = (short) (y - sentY[tier]);
+                short deltaZ = (short) (z - sentZ[tier]);
+
+                ClientboundMoveEntityPacket move = null;
+                if(moved && rotated)
+                    move = new ClientboundMoveEntityPacket.PosRot(serverEntity.getId(), deltaX, deltaY, deltaZ, encodedYaw, encodedPitch, onGround);
+                else if(moved)
+                    move = new ClientboundMoveEntityPacket.Pos(serverEntity.getId(), deltaX, deltaY, deltaZ, onGround);
+                else if(rotated)
+                    move = new ClientboundMoveEntityPacket.Rot(serverEntity.getId(), encodedYaw, encodedPitch, onGround);
+
+                if(move != null)
+                    npc.sendNpcBodyPackets(move, viewers);
+                if(encodedYaw != sentYaw[tier])
+                    npc.sendNpcMovePackets(null, new ClientboundRotateHeadPacket(serverEntity, encodedYaw), viewers);
+            }
+
+            sentX[tier] = x;
+            sentY[tier] = y;
+            sentZ[tier] = z;
+            sentYaw[tier] = encodedYaw;
+            sentPitch[tier] = encodedPitch;
+        }
 
         if(updateRealLocation)
-            npc.setLocation(currentPos.toLocation(npc.getLocation().getWorld()));
+            updateRealLocation(npc.getLocation().getWorld());
+    }
+
+    /**
+     * Sorts the viewers into the update tiers of the {@link UpdateRate}. The tier of a viewer is looked up when it first sees the walk and every
+     * {@value #tierRefreshTicks} ticks. A viewer that changes tiers is teleported to the position last sent to its new tier, so the relative moves of that
+     * tier apply to it. A tier without viewers is synced with a teleport on its next update.
+     *
+     * @param world The world the NPC is in
+     */
+    private void groupViewers(@NotNull World world)
+    {
+        Player[] viewers = getViewers();
+        boolean refresh = tierRefreshAge++ >= tierRefreshTicks;
+        if(refresh)
+            tierRefreshAge = 0;
+
+        Arrays.fill(tierViewerCounts, 0);
+        for(int tier = 0; tier < UpdateRate.TIERS; tier++)
+        {
+            if(tierViewers[tier].length < viewers.length)
+                tierViewers[tier] = new Player[viewers.length];
+        }
+
+        for(int i = 0; i < viewers.length; i++)
+        {
+            Player viewer = viewers[i];
+            int previous = viewerTiers[i];
+            int tier = previous < 0 || refresh
+                    ? UpdateRate.getTier(viewer, world, MovementSystem.x[slot], MovementSystem.y[slot], MovementSystem.z[slot])
+                    : previous;
+
+            if(previous != tier)
+            {
+                viewerTiers[i] = tier;
+                joinTier(viewer, tier);
+            }
+
+            tierViewers[tier][tierViewerCounts[tier]++] = viewer;
+        }
+
+        for(int tier = 0; tier < UpdateRate.TIERS; tier++)
+        {
+            Arrays.fill(tierViewers[tier], tierViewerCounts[tier], tierViewers[tier].length, null);
+            if(tierViewerCounts[tier] == 0)
+                syncedWorld[tier] = null;
+        }
+    }
+
+    /**
+     * Teleports a viewer to the position and rotation last sent to an update tier. Nothing is sent if the tier is not synced, as its next update is a
+     * teleport.
+     *
+     * @param viewer The viewer joining the tier
+     * @param tier   The tier
+     */
+    private void joinTier(@NotNull Player viewer, int tier)
+    {
+        if(syncedWorld[tier] == null)
+            return;
+
+        float yaw = sentYaw[tier] * 360f / 256f;
+        float pitch = sentPitch[tier] * 360f / 256f;
+        Vec3 position = new Vec3(sentX[tier] / 4096.0, sentY[tier] / 4096.0, sentZ[tier] / 4096.0);
+
+        ClientboundTeleportEntityPacket teleport = (ClientboundTeleportEntityPacket) TeleportEntityPacket.create(serverEntity, position, Vec3.ZERO, yaw,
+                pitch, Set.of(), true);
+        npc.sendNpcMovePackets(teleport, new ClientboundRotateHeadPacket(serverEntity, sentYaw[tier]), viewer);
     }
 
     /**
-     * Cancels the path task and cleans up resources. Calls the callback with CANCELLED status if not already finished.
+     * Encodes a coordinate in the units of relative move packets, 1/4096 of a block.
      *
-     * @throws IllegalStateException if the task was already cancelled
+     * @param coordinate The coordinate to encode
+     * @return The encoded coordinate
+     */
+    private static long encodePosition(double coordinate)
+    {
+        return Math.round(coordinate * 4096.0);
+    }
+
+    /**
+     * Cancels the path task and cleans up resources. Calls the callback with CANCELLED status if not already finished. The {@link MovementSystem} drops the
+     * task at the end of the tick.
      */
     @Override
     public synchronized void cancel() throws IllegalStateException
@@ -791,12 +1324,34 @@ public class PathTask extends BukkitRunnable
         if(event.changeRealLocation())
         {
             World world = path.getWaypoints().isEmpty() ? pathPoints.getLast().getWorld() : path.getWaypoints().getLast().getWorld();
-            Location loc = new Location(world, currentPos.getX(), currentPos.getY(), currentPos.getZ());
+            Location current = getCurrentLocation();
+            Location loc = new Location(world, current.getX(), current.getY(), current.getZ());
             npc.changeRealLocation(loc, getViewers());
         }
         npc.clearWalkingTask(this);
     }
 
+    /**
+     * Checks whether a block change made the path ahead of the NPC impassable and it could not be repaired locally. The NPC keeps walking; the owner of the
+     * task should search a new path.
+     *
+     * @return true if the path is blocked, false otherwise
+     */
+    public boolean isBlocked()
+    {
+        return blocked;
+    }
+
+    /**
+     * Checks whether the NPC is currently moved headless, because nobody sees the walk.
+     *
+     * @return true if the NPC is moved without physics and packets, false otherwise
+     */
+    public boolean isHeadless()
+    {
+        return headless;
+    }
+
     /**
      * Checks if the path task has been completed.
      *
@@ -808,14 +1363,56 @@ public class PathTask extends BukkitRunnable
     }
 
     /**
-     * A record representing the result of physics calculations.
+     * Checks if the path task has been completed or cancelled.
      *
-     * @param yChange            The vertical movement to apply
-     * @param isGrounded         Whether the NPC is on the ground
-     * @param skipHorizontal     Whether to skip horizontal movement this tick
-     * @param horizontalSlowdown Factor to slow down horizontal movement (1.0 = normal, <1.0 = slower)
+     * @return true if the task is finished, false otherwise
      */
-    private record PhysicsResult(double yChange, boolean isGrounded, boolean skipHorizontal, double horizontalSlowdown) {}
+    @Override
+    public boolean isCancelled()
+    {
+        return finished;
+    }
+
+    /**
+     * Gets the id of the Bukkit task. Path tasks are moved by the {@link MovementSystem}, so they only have one while they are handed over after being
+     * started with the Bukkit scheduler.
+     *
+     * @return the task id, or -1 if the task is not scheduled with the Bukkit scheduler
+     */
+    @Override
+    public synchronized int getTaskId()
+    {
+        try
+        {
+            return super.getTaskId();
+        }
+        catch(IllegalStateException e)
+        {
+            return -1;
+        }
+    }
+
+    @Override
+    public @NotNull Plugin getOwner()
+    {
+        return NpcApi.plugin;
+    }
+
+    @Override
+    public boolean isSync()
+    {
+        return true;
+    }
+
+    /**
+     * Gets the NPC moved by this task.
+     *
+     * @return the NPC
+     */
+    @NotNull NPC getNpc()
+    {
+        return npc;
+    }
 
     // --- Builder Class ---
 
@@ -833,6 +1430,7 @@ public class PathTask extends BukkitRunnable
         private boolean updateRealLocation = false;
         private boolean withRotation = true;
         private boolean autoManageWalkingViewers = false;
+        private boolean allowDiagonal = true;
 
         /**
          * Creates a new Builder for a PathTask.
@@ -920,6 +1518,18 @@ public class PathTask extends BukkitRunnable
             return this;
         }
 
+        /**
+         * Sets whether diagonal moves may be used when a part of the path broken by a block change is repaired.
+         *
+         * @param allowDiagonal true to allow diagonal moves, false otherwise
+         * @return This builder instance for method chaining
+         */
+        public @NotNull Builder allowDiagonal(boolean allowDiagonal)
+        {
+            this.allowDiagonal = allowDiagonal;
+            return this;
+        }
+
         /**
          * Builds and returns a new PathTask instance.
          *
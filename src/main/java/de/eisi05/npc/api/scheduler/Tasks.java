@@ -2,6 +2,7 @@ package de.eisi05.npc.api.scheduler;
 
 import de.eisi05.npc.api.NpcApi;
 import de.eisi05.npc.api.manager.NpcManager;
+import de.eisi05.npc.api.objects.LightweightNpc;
 import de.eisi05.npc.api.objects.NPC;
 import de.eisi05.npc.api.objects.NpcOption;
 import de.eisi05.npc.api.objects.NpcSkin;
@@ -14,6 +15,7 @@ import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,6 +30,7 @@ public class Tasks
     private static final List<CompletableFuture<?>> activeFutures = new ArrayList<>();
     private static BukkitTask lookAtTask;
     private static BukkitTask placeholderTask;
+    private static BukkitTask storageFlushTask;
 
     /**
      * Starts all defined NPC-related tasks. This method should be called when the plugin is enabled to ensure that NPC behaviors are active.
@@ -36,6 +39,7 @@ public class Tasks
     {
         lookAtTask();
         placeholderTask();
+        storageFlushTask();
     }
 
     /**
@@ -49,6 +53,9 @@ public class Tasks
         if(placeholderTask != null && !placeholderTask.isCancelled())
             placeholderTask.cancel();
 
+        if(storageFlushTask != null && !storageFlushTask.isCancelled())
+            storageFlushTask.cancel();
+
         synchronized(activeFutures)
         {
             for(CompletableFuture<?> future : activeFutures)
@@ -57,6 +64,31 @@ public class Tasks
         }
     }
 
+    /**
+     * Implements a recurring task that flushes the NPC storage every 30 seconds, off the main thread. This gives storages such as the
+     * {@link de.eisi05.npc.api.storage.LogNpcStorage} a chance to persist their writes and compact themselves.
+     */
+    private static void storageFlushTask()
+    {
+        storageFlushTask = new BukkitRunnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    NpcManager.getStorage().flush();
+                }
+                catch(IOException e)
+                {
+                    NpcApi.plugin.getLogger().warning("Failed to flush the NPC storage: " + e.getMessage());
+                    if(NpcApi.config.debug())
+                        e.printStackTrace();
+                }
+            }
+        }.runTaskTimerAsynchronously(NpcApi.plugin, 600, 600);
+    }
+
     /**
      * Implements a recurring task that makes NPCs look at nearby players. The task runs on a timer defined by {@code NpcApi.config.getLookAtTimer()}. NPCs will
      * only look at players within a specified range, which is configured via {@link NpcOption#LOOK_AT_PLAYER}.
@@ -79,6 +111,16 @@ public class Tasks
                             .stream().filter(entity -> entity instanceof Player)
                             .forEach(entity -> npc.lookAtPlayer((Player) entity));
                 }
+
+                for(LightweightNpc npc : NpcManager.getLightweightNPCs())
+                {
+                    double range = npc.getOption(NpcOption.LOOK_AT_PLAYER);
+
+                    if(range <= 0 || npc.getViewers().isEmpty())
+                        continue;
+
+                    npc.getLocation().getNearbyPlayers(range).forEach(npc::lookAtPlayer);
+                }
             }
         }.runTaskTimer(NpcApi.plugin, 0, NpcApi.config.lookAtTimer());
     }
@@ -151,12 +193,12 @@ public class Tasks
         {
             UUID skinUuid = UUID.fromString(newPlaceholder);
             Skin.fetchSkinAsync(skinUuid).thenAccept(skinOpt -> skinOpt.ifPresent(skin ->
-                    Bukkit.getScheduler().runTaskLater(NpcApi.plugin, () -> npc.updateSkin(player), 1)));
+                    Bukkit.getScheduler().runTaskLater(NpcApi.plugin, () -> npc.swapSkin(player), 1)));
         }
         catch(IllegalArgumentException e)
         {
             Skin.fetchSkinAsync(newPlaceholder).thenAccept(skinOpt -> skinOpt.ifPresent(skin ->
-                    Bukkit.getScheduler().runTaskLater(NpcApi.plugin, () -> npc.updateSkin(player), 1)));
+                    Bukkit.getScheduler().runTaskLater(NpcApi.plugin, () -> npc.swapSkin(player), 1)));
         }
     }
 
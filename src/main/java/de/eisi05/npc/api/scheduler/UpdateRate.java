@@ -0,0 +1,100 @@
+package de.eisi05.npc.api.scheduler;
+
+import de.eisi05.npc.api.NpcApi;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides how often a viewer is sent the movement of an NPC, depending on its distance to the NPC.
+ * <p>
+ * Viewers within {@link de.eisi05.npc.api.objects.NpcConfig#nearUpdateDistance()} blocks get every tick, viewers within
+ * {@link de.eisi05.npc.api.objects.NpcConfig#farUpdateDistance()} blocks every {@link de.eisi05.npc.api.objects.NpcConfig#midUpdateInterval()} ticks, and all
+ * others every {@link de.eisi05.npc.api.objects.NpcConfig#farUpdateInterval()} ticks. The client interpolates between the positions it receives, so distant
+ * NPCs still move smoothly. Every NPC sends on its own phase, so the updates of many NPCs are spread over the ticks. All methods must be called on the main
+ * thread.
+ * </p>
+ */
+public class UpdateRate
+{
+    /**
+     * The tier of viewers near the NPC.
+     */
+    public static final int NEAR = 0;
+
+    /**
+     * The tier of viewers at a medium distance to the NPC.
+     */
+    public static final int MID = 1;
+
+    /**
+     * The tier of viewers far from the NPC or in another world.
+     */
+    public static final int FAR = 2;
+
+    /**
+     * The number of tiers.
+     */
+    public static final int TIERS = 3;
+
+    private static final Location scratch = new Location(null, 0, 0, 0);
+
+    /**
+     * Gets the tier of a viewer.
+     *
+     * @param viewer the viewer
+     * @param world  the world of the NPC
+     * @param x      the x coordinate of the NPC
+     * @param y      the y coordinate of the NPC
+     * @param z      the z coordinate of the NPC
+     * @return {@link #NEAR}, {@link #MID} or {@link #FAR}
+     */
+    public static int getTier(@NotNull Player viewer, @NotNull World world, double x, double y, double z)
+    {
+        Location location = viewer.getLocation(scratch);
+        if(location.getWorld() != world)
+            return FAR;
+
+        double dx = location.getX() - x;
+        double dy = location.getY() - y;
+        double dz = location.getZ() - z;
+        double distanceSquared = dx * dx + dy * dy + dz * dz;
+
+        double near = NpcApi.config.nearUpdateDistance();
+        if(distanceSquared <= near * near)
+            return NEAR;
+
+        double far = NpcApi.config.farUpdateDistance();
+        return distanceSquared <= far * far ? MID : FAR;
+    }
+
+    /**
+     * Gets the number of ticks between two updates of a tier.
+     *
+     * @param tier the tier
+     * @return the interval in ticks, at least 1
+     */
+    public static int getInterval(int tier)
+    {
+        return switch(tier)
+        {
+            case MID -> Math.max(1, NpcApi.config.midUpdateInterval());
+            case FAR -> Math.max(1, NpcApi.config.farUpdateInterval());
+            default -> 1;
+        };
+    }
+
+    /**
+     * Checks whether a tier is sent an update in a tick.
+     *
+     * @param tier  the tier
+     * @param tick  the current tick
+     * @param phase the phase of the NPC, e.g. its entity id
+     * @return true if the tier is updated in this tick
+     */
+    public static boolean isDue(int tier, long tick, int phase)
+    {
+        return Math.floorMod(tick + phase, getInterval(tier)) == 0;
+    }
+}
@@ -0,0 +1,419 @@
+package de.eisi05.npc.api.storage;
+
+import de.eisi05.npc.api.NpcApi;
+import de.eisi05.npc.api.objects.NPC;
+import de.eisi05.npc.api.utils.serialize.BinaryNpcCodec;
+import de.eisi05.npc.api.utils.serialize.ObjectSaver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+/**
+ * The default {@link NpcStorage} that stores every NPC in its own file, either as JSON named {@code <uuid>.npc.json} or in the compact
+ * {@link BinaryNpcCodec binary format} named {@code <uuid>.npc.bin}.
+ * <p>
+ * Files are read and parsed in parallel on a small worker pool. Files in the old Java serialization format ({@code .npc}) are migrated while loading, a
+ * copy of the original file is kept in the {@code backup} folder. Files in the other of the two current formats are read as well and converted the next time
+ * the NPC is saved. If an NPC has a file in both formats, e.g. because deleting the old one failed, only the newer one is read.
+ * </p>
+ * <p>
+ * The world of every NPC is kept in the index file {@code worlds.idx}, so {@link #loadByWorld(UUID, BiConsumer)} only reads the files of that world. The
+ * index is rewritten by {@link #loadAll(BiConsumer)} and otherwise appended to when an NPC is saved in another world or deleted. Each record is
+ * {@code id (16) | world (16)}, where a zero world marks a deleted NPC. After a crash the index may miss the last changes until the next
+ * {@link #loadAll(BiConsumer)}; NPCs whose file names another world are never returned for the wrong world.
+ * </p>
+ */
+public class FileNpcStorage implements NpcStorage
+{
+    /**
+     * The maximum amount of threads used to read NPC files.
+     */
+    private static final int MAX_LOAD_THREADS = 8;
+
+    private static final String JSON_SUFFIX = ".npc.json";
+    private static final String BINARY_SUFFIX = ".npc.bin";
+    private static final String INDEX_FILE = "worlds.idx";
+    private static final int INDEX_RECORD_SIZE = 32;
+    private static final UUID DELETED = new UUID(0L, 0L);
+
+    /**
+     * The minimum amount of records in the index file before it is rewritten without the outdated ones.
+     */
+    private static final int MIN_INDEX_COMPACTION = 1024;
+
+    private final File folder;
+    private final boolean binary;
+
+    private Map<UUID, UUID> worldIndex;
+    private int indexRecords;
+
+    /**
+     * Creates a new file storage in the given folder that saves NPCs as JSON.
+     *
+     * @param folder the folder the NPC files are stored in
+     */
+    public FileNpcStorage(@NotNull File folder)
+    {
+        this(folder, false);
+    }
+
+    /**
+     * Creates a new file storage in the given folder.
+     *
+     * @param folder the folder the NPC files are stored in
+     * @param binary {@code true} to save NPCs in the {@link BinaryNpcCodec binary format}, {@code false} to save them as JSON
+     */
+    public FileNpcStorage(@NotNull File folder, boolean binary)
+    {
+        this.folder = folder;
+        this.binary = binary;
+    }
+
+    @Override
+    public @NotNull List<NPC.SerializedNPC> loadAll(@NotNull BiConsumer<String, Exception> errorHandler)
+    {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".npc") || name.endsWith(JSON_SUFFIX) || name.endsWith(BINARY_SUFFIX));
+        List<NPC.SerializedNPC> npcs = files == null ? new ArrayList<>() : load(newestFiles(files), errorHandler);
+
+        Map<UUID, UUID> index = new HashMap<>(npcs.size() * 2);
+        npcs.forEach(npc -> index.put(npc.getId(), npc.getWorld()));
+
+        try
+        {
+            writeIndex(index);
+        }
+        catch(IOException e)
+        {
+            NpcApi.plugin.getLogger().warning("Failed to write the NPC world index: " + e.getMessage());
+        }
+
+        return npcs;
+    }
+
+    @Override
+    public @NotNull List<NPC.SerializedNPC> loadByWorld(@NotNull UUID world, @NotNull BiConsumer<String, Exception> errorHandler) throws IOException
+    {
+        Map<UUID, UUID> index = readIndex();
+        if(index == null)
+            return new ArrayList<>(loadAll(errorHandler).stream().filter(npc -> npc.getWorld().equals(world)).toList());
+
+        List<File> files = new ArrayList<>();
+        synchronized(this)
+        {
+            for(Map.Entry<UUID, UUID> entry : index.entrySet())
+            {
+                if(!entry.getValue().equals(world))
+                    continue;
+
+                File file = getNewestFile(entry.getKey());
+                if(file != null)
+                    files.add(file);
+            }
+        }
+
+        return new ArrayList<>(load(files, errorHandler).stream().filter(npc -> npc.getWorld().equals(world)).toList());
+    }
+
+    /**
+     * Reads and parses the given files in parallel.
+     *
+     * @param files        the files to read
+     * @param errorHandler called with the file name and the exception for every file that could not be read
+     * @return the NPCs that could be read
+     */
+    private @NotNull List<NPC.SerializedNPC> load(@NotNull Collection<File> files, @NotNull BiConsumer<String, Exception> errorHandler)
+    {
+        if(files.isEmpty())
+            return new ArrayList<>();
+
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, MAX_LOAD_THREADS));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable ->
+        {
+            Thread thread = new Thread(runnable, "NpcApi-Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try
+        {
+            List<CompletableFuture<LoadedFile>> reads = files.stream()
+                    .map(file -> CompletableFuture.supplyAsync(() -> readFile(file), executor))
+                    .toList();
+
+            List<NPC.SerializedNPC> npcs = new ArrayList<>(files.size());
+            long migrations = 0;
+
+            for(CompletableFuture<LoadedFile> read : reads)
+            {
+                LoadedFile loadedFile = read.join();
+
+                if(loadedFile.error() != null)
+                {
+                    errorHandler.accept(loadedFile.file().getName(), loadedFile.error());
+                    continue;
+                }
+
+                if(loadedFile.migrated())
+                    migrations++;
+
+                npcs.add(loadedFile.serializedNPC());
+            }
+
+            if(migrations > 0)
+                NpcApi.plugin.getLogger().info("Successfully migrated " + migrations + " NPC's");
+
+            return npcs;
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public void save(@NotNull NPC.SerializedNPC npc) throws IOException
+    {
+        folder.mkdirs();
+
+        if(binary)
+            Files.write(getFile(npc.getId()).toPath(), BinaryNpcCodec.encode(npc));
+        else
+            new ObjectSaver(getFile(npc.getId())).write(npc, false);
+
+        Files.deleteIfExists(getFile(npc.getId(), !binary).toPath());
+        updateIndex(npc.getId(), npc.getWorld());
+    }
+
+    @Override
+    public void delete(@NotNull UUID id) throws IOException
+    {
+        Files.deleteIfExists(getFile(id, false).toPath());
+        Files.deleteIfExists(getFile(id, true).toPath());
+        updateIndex(id, DELETED);
+    }
+
+    @Override
+    public boolean contains(@NotNull UUID id)
+    {
+        return getFile(id, false).exists() || getFile(id, true).exists();
+    }
+
+    @Override
+    public void flush() {}
+
+    /**
+     * Gets the file an NPC is saved to in the format of this storage.
+     *
+     * @param id the UUID of the NPC
+     * @return the file of the NPC
+     */
+    public @NotNull File getFile(@NotNull UUID id)
+    {
+        return getFile(id, binary);
+    }
+
+    private @NotNull File getFile(@NotNull UUID id, boolean binary)
+    {
+        return new File(folder, id + (binary ? BINARY_SUFFIX : JSON_SUFFIX));
+    }
+
+    /**
+     * Gets the newer of the two files of an NPC.
+     *
+     * @param id the UUID of the NPC
+     * @return the file that was modified last, or {@code null} if the NPC has no file
+     */
+    private @Nullable File getNewestFile(@NotNull UUID id)
+    {
+        File file = getFile(id, binary);
+        File other = getFile(id, !binary);
+
+        if(!other.exists())
+            return file.exists() ? file : null;
+
+        return !file.exists() || other.lastModified() > file.lastModified() ? other : file;
+    }
+
+    /**
+     * Keeps only the newest file of every NPC, so an NPC with files in several formats is loaded once.
+     *
+     * @param files the NPC files in the folder
+     * @return the file that was modified last for every NPC
+     */
+    private static @NotNull Collection<File> newestFiles(@NotNull File @NotNull [] files)
+    {
+        Map<String, File> newest = new HashMap<>(files.length * 2);
+        for(File file : files)
+        {
+            String name = file.getName();
+            newest.merge(name.substring(0, name.indexOf('.')), file, (a, b) -> b.lastModified() > a.lastModified() ? b : a);
+        }
+
+        return newest.values();
+    }
+
+    /**
+     * Gets the world index, reading it from its file the first time. An incomplete record at the end of the file, e.g. after a crash, is dropped.
+     *
+     * @return the world of every NPC by its UUID, or {@code null} if there is no index yet
+     * @throws IOException if the index could not be read
+     */
+    private synchronized @Nullable Map<UUID, UUID> readIndex() throws IOException
+    {
+        if(worldIndex != null)
+            return worldIndex;
+
+        Path path = new File(folder, INDEX_FILE).toPath();
+        if(!Files.exists(path))
+            return null;
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        Map<UUID, UUID> index = new HashMap<>();
+        int records = 0;
+
+        while(buffer.remaining() >= INDEX_RECORD_SIZE)
+        {
+            UUID id = new UUID(buffer.getLong(), buffer.getLong());
+            UUID world = new UUID(buffer.getLong(), buffer.getLong());
+
+            if(world.equals(DELETED))
+                index.remove(id);
+            else
+                index.put(id, world);
+            records++;
+        }
+
+        if(buffer.hasRemaining())
+        {
+            writeIndex(index);
+            return index;
+        }
+
+        worldIndex = index;
+        indexRecords = records;
+        return index;
+    }
+
+    /**
+     * Replaces the world index file with the given index.
+     *
+     * @param index the world of every NPC by its UUID
+     * @throws IOException if the index could not be written
+     */
+    private synchronized void writeIndex(@NotNull Map<UUID, UUID> index) throws IOException
+    {
+        folder.mkdirs();
+        worldIndex = null;
+
+        ByteBuffer buffer = ByteBuffer.allocate(index.size() * INDEX_RECORD_SIZE);
+        index.forEach((id, world) -> putIndexRecord(buffer, id, world));
+
+        Path path = new File(folder, INDEX_FILE).toPath();
+        Path temp = new File(folder, INDEX_FILE + ".tmp").toPath();
+        Files.write(temp, buffer.array());
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        worldIndex = index;
+        indexRecords = index.size();
+    }
+
+    /**
+     * Records the world of an NPC in the index. Nothing is written if the world did not change. Once most records of the index file are outdated, it is
+     * rewritten.
+     *
+     * @param id    the UUID of the NPC
+     * @param world the UUID of the world of the NPC, or {@link #DELETED} if it was deleted
+     * @throws IOException if the index could not be written
+     */
+    private synchronized void updateIndex(@NotNull UUID id, @NotNull UUID world) throws IOException
+    {
+        Map<UUID, UUID> index = readIndex();
+        if(index == null)
+            return;
+
+        UUID old = world.equals(DELETED) ? index.remove(id) : index.put(id, world);
+        if(world.equals(old) || (old == null && world.equals(DELETED)))
+            return;
+
+        if(indexRecords >= MIN_INDEX_COMPACTION && indexRecords > index.size() * 2)
+        {
+            writeIndex(index);
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_RECORD_SIZE);
+        putIndexRecord(buffer, id, world);
+        Files.write(new File(folder, INDEX_FILE).toPath(), buffer.array(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        indexRecords++;
+    }
+
+    private static void putIndexRecord(@NotNull ByteBuffer buffer, @NotNull UUID id, @NotNull UUID world)
+    {
+        buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                .putLong(world.getMostSignificantBits()).putLong(world.getLeastSignificantBits());
+    }
+
+    /**
+     * Reads and parses a single NPC file. This is called on the loader threads and never throws, failures are stored in the returned {@link LoadedFile}.
+     *
+     * @param file the file to read
+     * @return the result of reading the file
+     */
+    private @NotNull LoadedFile readFile(@NotNull File file)
+    {
+        try
+        {
+            byte[] data = Files.readAllBytes(file.toPath());
+
+            if(BinaryNpcCodec.isBinary(data))
+                return new LoadedFile(file, BinaryNpcCodec.decodeSingle(data), false, null);
+
+            if(ObjectSaver.isJson(data))
+            {
+                NPC.SerializedNPC serializedNPC = ObjectSaver.fromJson(data, NPC.SerializedNPC.class);
+                if(serializedNPC == null)
+                    throw new IOException("Empty NPC file");
+
+                return new LoadedFile(file, serializedNPC, false, null);
+            }
+
+            File backupFolder = new File(folder, "backup");
+            if(!backupFolder.exists())
+                backupFolder.mkdirs();
+
+            Files.copy(file.toPath(), new File(backupFolder, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            NPC.SerializedNPC serializedNPC = new ObjectSaver(file).read();
+            file.delete();
+
+            save(serializedNPC);
+            return new LoadedFile(file, serializedNPC, true, null);
+        }
+        catch(Exception e)
+        {
+            return new LoadedFile(file, null, false, e);
+        }
+    }
+
+    /**
+     * The result of reading a single NPC file.
+     *
+     * @param file          the file that was read
+     * @param serializedNPC the parsed NPC, or {@code null} if the file could not be read
+     * @param migrated      whether the file was migrated from the old Java serialization format
+     * @param error         the exception that occurred while reading, or {@code null}
+     */
+    private record LoadedFile(@NotNull File file, @Nullable NPC.SerializedNPC serializedNPC, boolean migrated, @Nullable Exception error) {}
+}
@@ -0,0 +1,594 @@
+package de.eisi05.npc.api.storage;
+
+import de.eisi05.npc.api.NpcApi;
+import de.eisi05.npc.api.objects.NPC;
+import de.eisi05.npc.api.utils.serialize.BinaryNpcCodec;
+import de.eisi05.npc.api.utils.serialize.ObjectSaver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * An {@link NpcStorage} that appends every change to a segmented log instead of rewriting one file per NPC.
+ * <p>
+ * Every save or delete appends a single record to the active segment, while an in-memory index keeps the position of the latest record of every NPC. Loading
+ * all NPCs is one sequential read over the segments. Once outdated records make up too large a share of the log, {@link #flush()} compacts it by copying the
+ * live records into new segments and deleting the old ones.
+ * </p>
+ * <p>
+ * A record is laid out as {@code type (1) | id (16) | world (16) | payload length (4) | payload | crc32 (4)}, where the first byte of the payload tells whether
+ * the NPC is stored as JSON or in the {@link BinaryNpcCodec binary format}. Incomplete records at the end of a segment, for
+ * example after a crash, are detected by their checksum and cut off.
+ * </p>
+ * <p>
+ * Binary records reference one {@link BinaryNpcCodec.StringTable string table} shared by the whole log, so option paths and skins used by several NPCs are
+ * stored once. The strings a save adds to the table are appended as a strings record with the payload {@code first index (4) | strings} right before the
+ * NPC record. Compaction starts a new table at index 0 that only holds the strings of live NPCs.
+ * </p>
+ */
+public class LogNpcStorage implements NpcStorage
+{
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final byte TYPE_STRINGS = 3;
+    private static final int HEADER_SIZE = 1 + 16 + 16 + 4;
+    private static final int TRAILER_SIZE = 4;
+    private static final byte FORMAT_JSON = 0;
+    private static final byte FORMAT_BINARY = 1;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final UUID NO_WORLD = new UUID(0L, 0L);
+
+    /**
+     * The minimum amount of outdated bytes before a compaction is considered.
+     */
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+
+    private final File folder;
+    private final long maxSegmentSize;
+    private final double compactionRatio;
+    private final boolean binary;
+    private final Map<UUID, Entry> index = new HashMap<>();
+
+    private BinaryNpcCodec.StringTable strings = new BinaryNpcCodec.StringTable();
+    private FileChannel activeChannel;
+    private long activeSegment;
+    private long activeSize;
+    private long totalBytes;
+    private long liveBytes;
+
+    /**
+     * Creates a new log storage in the given folder with segments of up to 16 MiB, compacting once half of the log is outdated. NPCs are written as JSON.
+     *
+     * @param folder the folder the segments are stored in
+     */
+    public LogNpcStorage(@NotNull File folder)
+    {
+        this(folder, false);
+    }
+
+    /**
+     * Creates a new log storage in the given folder with segments of up to 16 MiB, compacting once half of the log is outdated.
+     *
+     * @param folder the folder the segments are stored in
+     * @param binary {@code true} to write new records in the {@link BinaryNpcCodec binary format}, {@code false} to write them as JSON
+     */
+    public LogNpcStorage(@NotNull File folder, boolean binary)
+    {
+        this(folder, 16 * 1024 * 1024, 0.5, binary);
+    }
+
+    /**
+     * Creates a new log storage in the given folder.
+     *
+     * @param folder          the folder the segments are stored in
+     * @param maxSegmentSize  the size in bytes after which a new segment is started
+     * @param compactionRatio the share of outdated bytes (between 0 and 1) after which the log is compacted
+     * @param binary          {@code true} to write new records in the {@link BinaryNpcCodec binary format}, {@code false} to write them as JSON
+     */
+    public LogNpcStorage(@NotNull File folder, long maxSegmentSize, double compactionRatio, boolean binary)
+    {
+        this.folder = folder;
+        this.maxSegmentSize = Math.max(1024, maxSegmentSize);
+        this.compactionRatio = Math.min(1, Math.max(0, compactionRatio));
+        this.binary = binary;
+    }
+
+    @Override
+    public synchronized @NotNull List<NPC.SerializedNPC> loadAll(@NotNull BiConsumer<String, Exception> errorHandler) throws IOException
+    {
+        Map<UUID, byte[]> payloads = new LinkedHashMap<>();
+
+        if(activeChannel == null)
+            open(payloads);
+        else
+            readPayloads(index.keySet(), payloads);
+
+        return decodeAll(payloads, errorHandler);
+    }
+
+    @Override
+    public synchronized @NotNull List<NPC.SerializedNPC> loadByWorld(@NotNull UUID world, @NotNull BiConsumer<String, Exception> errorHandler)
+            throws IOException
+    {
+        if(activeChannel == null)
+            open(null);
+
+        Map<UUID, byte[]> payloads = new LinkedHashMap<>();
+        readPayloads(index.entrySet().stream().filter(entry -> entry.getValue().world().equals(world)).map(Map.Entry::getKey).toList(), payloads);
+        return decodeAll(payloads, errorHandler);
+    }
+
+    @Override
+    public synchronized void save(@NotNull NPC.SerializedNPC npc) throws IOException
+    {
+        if(activeChannel == null)
+            open(null);
+
+        int known = strings.size();
+        byte[] data = binary ? BinaryNpcCodec.encode(npc, strings) : ObjectSaver.toJson(npc);
+        byte[] payload = new byte[data.length + 1];
+        payload[0] = binary ? FORMAT_BINARY : FORMAT_JSON;
+        System.arraycopy(data, 0, payload, 1, data.length);
+
+        appendStrings(known);
+        Entry entry = append(TYPE_PUT, npc.getId(), npc.getWorld(), payload, binary ? strings : null);
+        Entry old = index.put(npc.getId(), entry);
+
+        if(old != null)
+            liveBytes -= old.length();
+        liveBytes += entry.length();
+    }
+
+    @Override
+    public synchronized void delete(@NotNull UUID id) throws IOException
+    {
+        if(activeChannel == null)
+            open(null);
+
+        Entry old = index.remove(id);
+        if(old == null)
+            return;
+
+        liveBytes -= old.length();
+        append(TYPE_DELETE, id, NO_WORLD, new byte[0], null);
+    }
+
+    @Override
+    public synchronized boolean contains(@NotNull UUID id)
+    {
+        if(activeChannel == null)
+        {
+            try
+            {
+                open(null);
+            }
+            catch(IOException e)
+            {
+                return false;
+            }
+        }
+
+        return index.containsKey(id);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException
+    {
+        if(activeChannel == null)
+            return;
+
+        activeChannel.force(false);
+
+        long outdated = totalBytes - liveBytes;
+        if(outdated >= MIN_COMPACTION_BYTES && outdated >= totalBytes * compactionRatio)
+            compact();
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if(activeChannel == null)
+            return;
+
+        flush();
+        activeChannel.close();
+        activeChannel = null;
+        index.clear();
+    }
+
+    /**
+     * Copies all live records into new segments and deletes the old segments. Binary records are re-encoded against a new string table, so strings no longer
+     * used by any NPC are dropped. A crash during compaction is harmless, as replaying the old segments followed by the new ones yields the same state; every
+     * record keeps referencing the table it was written with.
+     *
+     * @throws IOException if the log could not be compacted
+     */
+    public synchronized void compact() throws IOException
+    {
+        if(activeChannel == null)
+            open(null);
+
+        long start = System.currentTimeMillis();
+        long oldActive = activeSegment;
+        long before = totalBytes;
+
+        List<Map.Entry<UUID, Entry>> live = new ArrayList<>(index.entrySet());
+        live.sort(Comparator.comparingLong((Map.Entry<UUID, Entry> entry) -> entry.getValue().segment())
+                .thenComparingLong(entry -> entry.getValue().offset()));
+
+        roll();
+        totalBytes = 0;
+        liveBytes = 0;
+        strings = new BinaryNpcCodec.StringTable();
+
+        Map<Long, FileChannel> channels = new HashMap<>();
+        try
+        {
+            for(Map.Entry<UUID, Entry> entry : live)
+            {
+                Entry oldEntry = entry.getValue();
+                byte[] payload = readPayload(oldEntry, channels);
+
+                if(oldEntry.strings() != null)
+                {
+                    int known = strings.size();
+                    byte[] data = BinaryNpcCodec.transcode(Arrays.copyOfRange(payload, 1, payload.length), oldEntry.strings(), strings);
+                    payload = new byte[data.length + 1];
+                    payload[0] = FORMAT_BINARY;
+                    System.arraycopy(data, 0, payload, 1, data.length);
+                    appendStrings(known);
+                }
+
+                Entry newEntry = append(TYPE_PUT, entry.getKey(), oldEntry.world(), payload, oldEntry.strings() != null ? strings : null);
+                index.put(entry.getKey(), newEntry);
+                liveBytes += newEntry.length();
+            }
+        }
+        finally
+        {
+            for(FileChannel channel : channels.values())
+                channel.close();
+        }
+
+        activeChannel.force(true);
+
+        for(long segment : listSegments())
+        {
+            if(segment <= oldActive)
+                Files.deleteIfExists(segmentPath(segment));
+        }
+
+        if(NpcApi.config.debug())
+            NpcApi.plugin.getLogger().info("Compacted NPC log from " + before + " to " + totalBytes + " bytes in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Replays all segments to build the index and opens the last segment for appending.
+     *
+     * @param payloads a map to collect the payloads of all live records in, or {@code null} to skip collecting them
+     * @throws IOException if the segments could not be read
+     */
+    private void open(@Nullable Map<UUID, byte[]> payloads) throws IOException
+    {
+        folder.mkdirs();
+        index.clear();
+        strings = new BinaryNpcCodec.StringTable();
+        totalBytes = 0;
+        liveBytes = 0;
+
+        List<Long> segments = listSegments();
+        for(long segment : segments)
+            replay(segment, payloads);
+
+        activeSegment = segments.isEmpty() ? 1 : segments.getLast();
+        activeChannel = FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeSize = activeChannel.size();
+    }
+
+    /**
+     * Reads all records of a segment and applies them to the index. The segment is truncated after the last intact record.
+     *
+     * @param segment  the id of the segment
+     * @param payloads a map to collect the payloads of all live records in, or {@code null} to skip collecting them
+     * @throws IOException if the segment could not be read
+     */
+    private void replay(long segment, @Nullable Map<UUID, byte[]> payloads) throws IOException
+    {
+        Path path = segmentPath(segment);
+        long size = Files.size(path);
+        long position = 0;
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16)))
+        {
+            byte[] header = new byte[HEADER_SIZE];
+            while(position + HEADER_SIZE + TRAILER_SIZE <= size)
+            {
+                in.readFully(header);
+                ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+
+                byte type = headerBuffer.get();
+                UUID id = new UUID(headerBuffer.getLong(), headerBuffer.getLong());
+                UUID world = new UUID(headerBuffer.getLong(), headerBuffer.getLong());
+                int length = headerBuffer.getInt();
+
+                if((type != TYPE_PUT && type != TYPE_DELETE && type != TYPE_STRINGS) || length < 0 || position + HEADER_SIZE + length + TRAILER_SIZE > size)
+                    break;
+
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                CRC32 crc = new CRC32();
+                crc.update(header);
+                crc.update(payload);
+                if(in.readInt() != (int) crc.getValue())
+                    break;
+
+                int recordLength = HEADER_SIZE + length + TRAILER_SIZE;
+                if(type == TYPE_STRINGS)
+                {
+                    readStrings(payload, path);
+                    liveBytes += recordLength;
+                    position += recordLength;
+                    continue;
+                }
+
+                Entry old;
+                if(type == TYPE_PUT)
+                {
+                    BinaryNpcCodec.StringTable table = length > 0 && payload[0] == FORMAT_BINARY ? strings : null;
+                    Entry entry = new Entry(segment, position, recordLength, world, table);
+                    old = index.put(id, entry);
+                    liveBytes += recordLength;
+
+                    if(payloads != null)
+                        payloads.put(id, payload);
+                }
+                else
+                {
+                    old = index.remove(id);
+
+                    if(payloads != null)
+                        payloads.remove(id);
+                }
+
+                if(old != null)
+                    liveBytes -= old.length();
+
+                position += recordLength;
+            }
+        }
+
+        if(position < size)
+        {
+            NpcApi.plugin.getLogger().warning("Discarding " + (size - position) + " bytes of incomplete NPC records in " + path.getFileName());
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+            {
+                channel.truncate(position);
+            }
+        }
+
+        totalBytes += position;
+    }
+
+    /**
+     * Applies a strings record to the string table. A record starting at index 0 starts a new table, as written by {@link #compact()}.
+     *
+     * @param payload the payload of the record
+     * @param path    the segment the record was read from
+     * @throws IOException if the record does not continue the current table
+     */
+    private void readStrings(byte @NotNull [] payload, @NotNull Path path) throws IOException
+    {
+        if(payload.length < 4)
+            throw new IOException("Invalid string table record in " + path.getFileName());
+
+        int first = ByteBuffer.wrap(payload).getInt();
+        if(first == 0)
+            strings = new BinaryNpcCodec.StringTable();
+        else if(first != strings.size())
+            throw new IOException("String table record in " + path.getFileName() + " starts at " + first + " but the table has " + strings.size() + " strings");
+
+        strings.read(payload, 4, payload.length - 4);
+    }
+
+    /**
+     * Appends the strings added to the string table since the given size. If this fails, the strings are removed from the table again, so no record can
+     * reference a string that was not persisted.
+     *
+     * @param from the size of the table before the strings were added
+     * @throws IOException if the record could not be written
+     */
+    private void appendStrings(int from) throws IOException
+    {
+        if(strings.size() == from)
+            return;
+
+        try
+        {
+            byte[] data = strings.write(from);
+            byte[] payload = ByteBuffer.allocate(4 + data.length).putInt(from).put(data).array();
+            liveBytes += append(TYPE_STRINGS, NO_WORLD, NO_WORLD, payload, null).length();
+        }
+        catch(IOException e)
+        {
+            strings.truncate(from);
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a record to the active segment, starting a new segment if the active one is full.
+     *
+     * @param strings the string table the payload references, or {@code null} if it does not reference one
+     * @return the index entry of the written record
+     */
+    private @NotNull Entry append(byte type, @NotNull UUID id, @NotNull UUID world, byte @NotNull [] payload,
+            BinaryNpcCodec.@Nullable StringTable strings) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length + TRAILER_SIZE);
+        buffer.put(type)
+                .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                .putLong(world.getMostSignificantBits()).putLong(world.getLeastSignificantBits())
+                .putInt(payload.length)
+                .put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, HEADER_SIZE + payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        if(activeSize > 0 && activeSize + buffer.remaining() > maxSegmentSize)
+            roll();
+
+        long position = activeSize;
+        int length = buffer.remaining();
+
+        activeChannel.position(position);
+        while(buffer.hasRemaining())
+            activeChannel.write(buffer);
+
+        activeSize += length;
+        totalBytes += length;
+        return new Entry(activeSegment, position, length, world, strings);
+    }
+
+    /**
+     * Closes the active segment and starts a new, empty one.
+     */
+    private void roll() throws IOException
+    {
+        activeChannel.force(false);
+        activeChannel.close();
+
+        activeSegment++;
+        activeChannel = FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        activeSize = 0;
+    }
+
+    private void readPayloads(@NotNull Collection<UUID> ids, @NotNull Map<UUID, byte[]> payloads) throws IOException
+    {
+        List<UUID> sorted = new ArrayList<>(ids);
+        sorted.sort(Comparator.comparingLong((UUID id) -> index.get(id).segment()).thenComparingLong(id -> index.get(id).offset()));
+
+        Map<Long, FileChannel> channels = new HashMap<>();
+        try
+        {
+            for(UUID id : sorted)
+                payloads.put(id, readPayload(index.get(id), channels));
+        }
+        finally
+        {
+            for(FileChannel channel : channels.values())
+                channel.close();
+        }
+    }
+
+    private byte @NotNull [] readPayload(@NotNull Entry entry, @NotNull Map<Long, FileChannel> channels) throws IOException
+    {
+        FileChannel channel = entry.segment() == activeSegment ? activeChannel : channels.get(entry.segment());
+        if(channel == null)
+        {
+            channel = FileChannel.open(segmentPath(entry.segment()), StandardOpenOption.READ);
+            channels.put(entry.segment(), channel);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length() - HEADER_SIZE - TRAILER_SIZE);
+        long position = entry.offset() + HEADER_SIZE;
+        while(buffer.hasRemaining())
+        {
+            int read = channel.read(buffer, position + buffer.position());
+            if(read < 0)
+                throw new EOFException("Unexpected end of segment " + entry.segment());
+        }
+
+        return buffer.array();
+    }
+
+    private @NotNull List<NPC.SerializedNPC> decodeAll(@NotNull Map<UUID, byte[]> payloads, @NotNull BiConsumer<String, Exception> errorHandler)
+    {
+        List<NPC.SerializedNPC> npcs = new ArrayList<>(payloads.size());
+
+        payloads.forEach((id, payload) ->
+        {
+            try
+            {
+                npcs.add(decode(payload, index.get(id).strings()));
+            }
+            catch(Exception e)
+            {
+                errorHandler.accept(id.toString(), e);
+            }
+        });
+
+        return npcs;
+    }
+
+    private static @NotNull NPC.SerializedNPC decode(byte @NotNull [] payload, BinaryNpcCodec.@Nullable StringTable strings) throws IOException
+    {
+        if(payload.length == 0)
+            throw new IOException("Empty NPC record");
+
+        byte[] data = Arrays.copyOfRange(payload, 1, payload.length);
+        NPC.SerializedNPC npc = switch(payload[0])
+        {
+            case FORMAT_JSON -> ObjectSaver.fromJson(data, NPC.SerializedNPC.class);
+            case FORMAT_BINARY ->
+            {
+                if(strings == null)
+                    throw new IOException("Binary NPC record without a string table");
+                yield BinaryNpcCodec.decode(data, strings);
+            }
+            default -> throw new IOException("Unknown NPC record format: " + payload[0]);
+        };
+        if(npc == null)
+            throw new IOException("Empty NPC record");
+
+        return npc;
+    }
+
+    private @NotNull List<Long> listSegments()
+    {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if(files == null)
+            return new ArrayList<>();
+
+        List<Long> segments = new ArrayList<>();
+        for(File file : files)
+        {
+            try
+            {
+                segments.add(Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length())));
+            }
+            catch(NumberFormatException ignored) {}
+        }
+
+        segments.sort(Comparator.naturalOrder());
+        return segments;
+    }
+
+    private @NotNull Path segmentPath(long segment)
+    {
+        return new File(folder, String.format("%010d", segment) + SEGMENT_SUFFIX).toPath();
+    }
+
+    /**
+     * The position of the latest record of an NPC.
+     *
+     * @param segment the id of the segment the record is in
+     * @param offset  the offset of the record in the segment
+     * @param length  the full length of the record in bytes
+     * @param world   the UUID of the world the NPC belongs to
+     * @param strings the string table a binary record references, or {@code null} for a JSON record
+     */
+    private record Entry(long segment, long offset, int length, @NotNull UUID world, BinaryNpcCodec.@Nullable StringTable strings) {}
+}
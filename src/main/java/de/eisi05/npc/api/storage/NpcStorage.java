@@ -0,0 +1,80 @@
+package de.eisi05.npc.api.storage;
+
+import de.eisi05.npc.api.objects.NPC;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * A storage backend that persists {@link NPC.SerializedNPC serialized NPCs}.
+ * <p>
+ * The API uses a {@link FileNpcStorage} by default, which stores every NPC in its own JSON file. Other implementations such as the {@link LogNpcStorage} can be
+ * configured with {@link de.eisi05.npc.api.objects.NpcConfig#storage(NpcStorage)}. Implementations have to be thread-safe, as NPCs are loaded on worker
+ * threads and saved in parallel when the API is disabled.
+ * </p>
+ */
+public interface NpcStorage
+{
+    /**
+     * Loads all stored NPCs.
+     *
+     * @param errorHandler called with the name of the entry and the exception for every NPC that could not be loaded
+     * @return a list of all NPCs that could be loaded, never {@code null}
+     * @throws IOException if the storage itself could not be read
+     */
+    @NotNull List<NPC.SerializedNPC> loadAll(@NotNull BiConsumer<String, Exception> errorHandler) throws IOException;
+
+    /**
+     * Loads all stored NPCs that belong to the given world.
+     *
+     * @param world        the UUID of the world
+     * @param errorHandler called with the name of the entry and the exception for every NPC that could not be loaded
+     * @return a list of the NPCs of the world that could be loaded, never {@code null}
+     * @throws IOException if the storage itself could not be read
+     */
+    @NotNull List<NPC.SerializedNPC> loadByWorld(@NotNull UUID world, @NotNull BiConsumer<String, Exception> errorHandler) throws IOException;
+
+    /**
+     * Saves the given NPC, replacing a previously stored version of it.
+     *
+     * @param npc the NPC to save
+     * @throws IOException if the NPC could not be written
+     */
+    void save(@NotNull NPC.SerializedNPC npc) throws IOException;
+
+    /**
+     * Deletes the NPC with the given id. Does nothing if no such NPC is stored.
+     *
+     * @param id the UUID of the NPC
+     * @throws IOException if the NPC could not be deleted
+     */
+    void delete(@NotNull UUID id) throws IOException;
+
+    /**
+     * Checks whether an NPC with the given id is stored.
+     *
+     * @param id the UUID of the NPC
+     * @return {@code true} if the NPC is stored, {@code false} otherwise
+     */
+    boolean contains(@NotNull UUID id);
+
+    /**
+     * Makes sure all previous writes are persisted. Implementations may also use this to perform maintenance work such as compaction.
+     *
+     * @throws IOException if the data could not be persisted
+     */
+    void flush() throws IOException;
+
+    /**
+     * Flushes and releases all resources held by this storage. The storage must not be used afterward.
+     *
+     * @throws IOException if the data could not be persisted
+     */
+    default void close() throws IOException
+    {
+        flush();
+    }
+}
@@ -0,0 +1,992 @@
+package de.eisi05.npc.api.utils.serialize;
+
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import de.eisi05.npc.api.objects.NPC;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A compact, versioned binary format for {@link NPC.SerializedNPC serialized NPCs}.
+ * <p>
+ * The codec writes the same JSON tree that {@link ObjectSaver} produces, so every NPC that can be stored as JSON can be stored in binary and both formats
+ * can be converted into each other without loss. Compared to the JSON files it saves space and parsing work by:
+ * <ul>
+ *     <li>storing every object key and string value, including option paths and skin textures, only once in a {@link StringTable string table} and
+ *     referencing it by index</li>
+ *     <li>writing integers and table indexes as variable-length integers</li>
+ *     <li>writing UUIDs as 16 raw bytes and decimals as 8 raw bytes</li>
+ * </ul>
+ * Decoding feeds the values straight into the streaming API of Gson, without building a JSON tree first. Only maps are read as a tree, see
+ * {@link MapTreeAdapterFactory}.
+ * </p>
+ * <p>
+ * Standalone data has the layout {@code magic "NPCB" | version | string count | strings | npc count | values}. The strings are ordered by how often they are
+ * referenced, so the most common ones get single byte indexes, and NPCs encoded together share them. A store that keeps one {@link StringTable} for all of
+ * its NPCs, like {@link de.eisi05.npc.api.storage.LogNpcStorage}, writes records with the layout {@code version | value} that reference this table, so a skin
+ * used by several NPCs is stored once in the whole store.
+ * </p>
+ */
+public final class BinaryNpcCodec
+{
+    /**
+     * The current format version. Readers reject data with a newer version.
+     */
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'N', 'P', 'C', 'B'};
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FALSE = 1;
+    private static final int TAG_TRUE = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_UUID = 6;
+    private static final int TAG_ARRAY = 7;
+    private static final int TAG_OBJECT = 8;
+
+    /**
+     * The Gson of {@link ObjectSaver} with maps read through {@link MapTreeAdapterFactory}, used to decode NPCs from a {@link BinaryJsonReader}.
+     */
+    private static final Gson DECODER = ObjectSaver.GSON.newBuilder().registerTypeAdapterFactory(new MapTreeAdapterFactory()).create();
+
+    private BinaryNpcCodec() {}
+
+    /**
+     * Checks whether the given data starts with the header of this format.
+     *
+     * @param data the raw data
+     * @return {@code true} if the data is in the binary format, {@code false} otherwise
+     */
+    public static boolean isBinary(byte @NotNull [] data)
+    {
+        if(data.length < MAGIC.length)
+            return false;
+
+        for(int i = 0; i < MAGIC.length; i++)
+        {
+            if(data[i] != MAGIC[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Encodes a single NPC.
+     *
+     * @param npc the NPC to encode
+     * @return the encoded data
+     */
+    public static byte @NotNull [] encode(@NotNull NPC.SerializedNPC npc)
+    {
+        return encode(List.of(npc));
+    }
+
+    /**
+     * Encodes multiple NPCs with a shared string table.
+     *
+     * @param npcs the NPCs to encode
+     * @return the encoded data
+     */
+    public static byte @NotNull [] encode(@NotNull Collection<NPC.SerializedNPC> npcs)
+    {
+        List<JsonElement> trees = new ArrayList<>(npcs.size());
+        for(NPC.SerializedNPC npc : npcs)
+            trees.add(ObjectSaver.GSON.toJsonTree(npc, NPC.SerializedNPC.class));
+
+        return encodeTrees(trees);
+    }
+
+    /**
+     * Encodes a single NPC whose strings are referenced from the given table instead of being written with it. Strings the table does not contain yet are
+     * appended to it; the caller has to persist them before the returned record, see {@link StringTable#write(int)}.
+     *
+     * @param npc     the NPC to encode
+     * @param strings the string table of the store
+     * @return the encoded record
+     */
+    public static byte @NotNull [] encode(@NotNull NPC.SerializedNPC npc, @NotNull StringTable strings)
+    {
+        JsonElement tree = ObjectSaver.GSON.toJsonTree(npc, NPC.SerializedNPC.class);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try(DataOutputStream out = new DataOutputStream(bytes))
+        {
+            writeVarInt(out, VERSION);
+            writeValue(out, tree, strings);
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes all NPCs of the given data.
+     *
+     * @param data the encoded data
+     * @return the decoded NPCs in the order they were encoded
+     * @throws IOException if the data is not in the binary format, has an unsupported version or is corrupt
+     */
+    public static @NotNull List<NPC.SerializedNPC> decode(byte @NotNull [] data) throws IOException
+    {
+        try(DataInputStream in = openStandalone(data))
+        {
+            StringTable strings = new StringTable();
+            strings.read(in, data.length);
+
+            int count = readLength(in, data.length);
+            BinaryJsonReader reader = new BinaryJsonReader(in, strings, data.length, count);
+
+            List<NPC.SerializedNPC> npcs = new ArrayList<>(count);
+            for(int i = 0; i < count; i++)
+                npcs.add(read(reader));
+
+            return npcs;
+        }
+    }
+
+    /**
+     * Decodes the single NPC of the given data.
+     *
+     * @param data the encoded data
+     * @return the decoded NPC
+     * @throws IOException if the data does not contain exactly one NPC or could not be decoded
+     */
+    public static @NotNull NPC.SerializedNPC decodeSingle(byte @NotNull [] data) throws IOException
+    {
+        List<NPC.SerializedNPC> npcs = decode(data);
+        if(npcs.size() != 1)
+            throw new IOException("Expected 1 NPC but found " + npcs.size());
+
+        return npcs.getFirst();
+    }
+
+    /**
+     * Decodes a record written by {@link #encode(NPC.SerializedNPC, StringTable)}.
+     *
+     * @param data    the encoded record
+     * @param strings the string table the record was encoded with
+     * @return the decoded NPC
+     * @throws IOException if the record has an unsupported version or is corrupt
+     */
+    public static @NotNull NPC.SerializedNPC decode(byte @NotNull [] data, @NotNull StringTable strings) throws IOException
+    {
+        try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(data)))
+        {
+            readVersion(in);
+            return read(new BinaryJsonReader(in, strings, data.length, 1));
+        }
+    }
+
+    /**
+     * Re-encodes a record written by {@link #encode(NPC.SerializedNPC, StringTable)} against another string table, e.g. to drop strings that are no longer
+     * referenced when a store is compacted. Strings the target table does not contain yet are appended to it.
+     *
+     * @param data the encoded record
+     * @param from the string table the record was encoded with
+     * @param to   the string table to encode the record with
+     * @return the re-encoded record
+     * @throws IOException if the record has an unsupported version or is corrupt
+     */
+    public static byte @NotNull [] transcode(byte @NotNull [] data, @NotNull StringTable from, @NotNull StringTable to) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length);
+        try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(data)); DataOutputStream out = new DataOutputStream(bytes))
+        {
+            readVersion(in);
+            writeVarInt(out, VERSION);
+            transcodeValue(in, out, from, to, data.length);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Converts binary data into the JSON format used by {@link ObjectSaver}. A single NPC is converted to a JSON object, multiple NPCs to a JSON array.
+     *
+     * @param data   the encoded data
+     * @param pretty whether the JSON should be indented, e.g. for diffing
+     * @return the UTF-8 encoded JSON
+     * @throws IOException if the data could not be decoded
+     */
+    public static byte @NotNull [] toJson(byte @NotNull [] data, boolean pretty) throws IOException
+    {
+        StringWriter writer = new StringWriter(data.length * 2);
+        try(DataInputStream in = openStandalone(data); JsonWriter out = new JsonWriter(writer))
+        {
+            if(pretty)
+                out.setIndent("  ");
+
+            StringTable strings = new StringTable();
+            strings.read(in, data.length);
+
+            int count = readLength(in, data.length);
+            if(count != 1)
+                out.beginArray();
+            for(int i = 0; i < count; i++)
+                writeJson(in, out, strings, data.length);
+            if(count != 1)
+                out.endArray();
+        }
+
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts NPC JSON in the format used by {@link ObjectSaver} into binary data. Accepts a single JSON object or a JSON array of NPCs.
+     *
+     * @param json the UTF-8 encoded JSON
+     * @return the encoded data
+     * @throws IOException if the JSON could not be parsed
+     */
+    public static byte @NotNull [] fromJson(byte @NotNull [] json) throws IOException
+    {
+        JsonElement root;
+        try
+        {
+            root = JsonParser.parseString(new String(json, StandardCharsets.UTF_8));
+        }
+        catch(JsonParseException e)
+        {
+            throw new IOException("Invalid NPC JSON", e);
+        }
+
+        List<JsonElement> trees = new ArrayList<>();
+        if(root.isJsonArray())
+            root.getAsJsonArray().forEach(trees::add);
+        else if(root.isJsonObject())
+            trees.add(root);
+        else
+            throw new IOException("Invalid NPC JSON");
+
+        return encodeTrees(trees);
+    }
+
+    private static byte @NotNull [] encodeTrees(@NotNull List<JsonElement> trees)
+    {
+        Map<String, Integer> counts = new HashMap<>();
+        for(JsonElement tree : trees)
+            countStrings(tree, counts);
+
+        List<String> sorted = new ArrayList<>(counts.keySet());
+        sorted.sort(Comparator.comparing((String string) -> counts.get(string)).reversed().thenComparing(Comparator.naturalOrder()));
+
+        StringTable strings = new StringTable();
+        sorted.forEach(strings::add);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try(DataOutputStream out = new DataOutputStream(bytes))
+        {
+            out.write(MAGIC);
+            writeVarInt(out, VERSION);
+            strings.write(out, 0);
+
+            writeVarInt(out, trees.size());
+            for(JsonElement tree : trees)
+                writeValue(out, tree, strings);
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static @NotNull DataInputStream openStandalone(byte @NotNull [] data) throws IOException
+    {
+        if(!isBinary(data))
+            throw new IOException("Not a binary NPC file");
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, MAGIC.length, data.length - MAGIC.length));
+        readVersion(in);
+        return in;
+    }
+
+    private static void readVersion(@NotNull DataInputStream in) throws IOException
+    {
+        int version = readVarInt(in);
+        if(version > VERSION)
+            throw new IOException("Unsupported binary NPC version " + version + " (supported up to " + VERSION + ")");
+    }
+
+    private static @NotNull NPC.SerializedNPC read(@NotNull BinaryJsonReader reader) throws IOException
+    {
+        NPC.SerializedNPC npc;
+        try
+        {
+            npc = DECODER.fromJson(reader, NPC.SerializedNPC.class);
+        }
+        catch(JsonParseException e)
+        {
+            throw new IOException("Failed to decode NPC", e);
+        }
+
+        if(npc == null)
+            throw new IOException("Empty NPC record");
+
+        return npc;
+    }
+
+    private static void countStrings(@NotNull JsonElement element, @NotNull Map<String, Integer> counts)
+    {
+        if(element.isJsonObject())
+        {
+            for(Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet())
+            {
+                counts.merge(entry.getKey(), 1, Integer::sum);
+                countStrings(entry.getValue(), counts);
+            }
+        }
+        else if(element.isJsonArray())
+        {
+            for(JsonElement child : element.getAsJsonArray())
+                countStrings(child, counts);
+        }
+        else if(element.isJsonPrimitive() && element.getAsJsonPrimitive().isString() && asUUID(element.getAsString()) == null)
+            counts.merge(element.getAsString(), 1, Integer::sum);
+    }
+
+    private static void writeValue(@NotNull DataOutputStream out, @NotNull JsonElement element, @NotNull StringTable strings) throws IOException
+    {
+        if(element.isJsonNull())
+        {
+            out.writeByte(TAG_NULL);
+            return;
+        }
+
+        if(element.isJsonObject())
+        {
+            Set<Map.Entry<String, JsonElement>> entries = element.getAsJsonObject().entrySet();
+            out.writeByte(TAG_OBJECT);
+            writeVarInt(out, entries.size());
+            for(Map.Entry<String, JsonElement> entry : entries)
+            {
+                writeVarInt(out, strings.add(entry.getKey()));
+                writeValue(out, entry.getValue(), strings);
+            }
+            return;
+        }
+
+        if(element.isJsonArray())
+        {
+            JsonArray array = element.getAsJsonArray();
+            out.writeByte(TAG_ARRAY);
+            writeVarInt(out, array.size());
+            for(JsonElement child : array)
+                writeValue(out, child, strings);
+            return;
+        }
+
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if(primitive.isBoolean())
+        {
+            out.writeByte(primitive.getAsBoolean() ? TAG_TRUE : TAG_FALSE);
+            return;
+        }
+
+        if(primitive.isNumber())
+        {
+            Long longValue = asLong(primitive.getAsNumber());
+            if(longValue != null)
+            {
+                out.writeByte(TAG_INT);
+                writeVarLong(out, (longValue << 1) ^ (longValue >> 63));
+            }
+            else
+            {
+                out.writeByte(TAG_DOUBLE);
+                out.writeDouble(asDouble(primitive.getAsNumber()));
+            }
+            return;
+        }
+
+        String string = primitive.getAsString();
+        UUID uuid = asUUID(string);
+        if(uuid != null)
+        {
+            out.writeByte(TAG_UUID);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+            return;
+        }
+
+        out.writeByte(TAG_STRING);
+        writeVarInt(out, strings.add(string));
+    }
+
+    private static void transcodeValue(@NotNull DataInputStream in, @NotNull DataOutputStream out, @NotNull StringTable from, @NotNull StringTable to,
+            int limit) throws IOException
+    {
+        int tag = in.readUnsignedByte();
+        out.writeByte(tag);
+
+        switch(tag)
+        {
+            case TAG_NULL, TAG_FALSE, TAG_TRUE -> {}
+            case TAG_INT -> writeVarLong(out, readVarLong(in));
+            case TAG_DOUBLE -> out.writeLong(in.readLong());
+            case TAG_STRING -> writeVarInt(out, to.add(from.get(readVarInt(in))));
+            case TAG_UUID ->
+            {
+                out.writeLong(in.readLong());
+                out.writeLong(in.readLong());
+            }
+            case TAG_ARRAY ->
+            {
+                int size = readLength(in, limit);
+                writeVarInt(out, size);
+                for(int i = 0; i < size; i++)
+                    transcodeValue(in, out, from, to, limit);
+            }
+            case TAG_OBJECT ->
+            {
+                int size = readLength(in, limit);
+                writeVarInt(out, size);
+                for(int i = 0; i < size; i++)
+                {
+                    writeVarInt(out, to.add(from.get(readVarInt(in))));
+                    transcodeValue(in, out, from, to, limit);
+                }
+            }
+            default -> throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static void writeJson(@NotNull DataInputStream in, @NotNull JsonWriter out, @NotNull StringTable strings, int limit) throws IOException
+    {
+        int tag = in.readUnsignedByte();
+        switch(tag)
+        {
+            case TAG_NULL -> out.nullValue();
+            case TAG_FALSE -> out.value(false);
+            case TAG_TRUE -> out.value(true);
+            case TAG_INT -> out.value(readZigzag(in));
+            case TAG_DOUBLE -> out.value(in.readDouble());
+            case TAG_STRING -> out.value(strings.get(readVarInt(in)));
+            case TAG_UUID -> out.value(new UUID(in.readLong(), in.readLong()).toString());
+            case TAG_ARRAY ->
+            {
+                int size = readLength(in, limit);
+                out.beginArray();
+                for(int i = 0; i < size; i++)
+                    writeJson(in, out, strings, limit);
+                out.endArray();
+            }
+            case TAG_OBJECT ->
+            {
+                int size = readLength(in, limit);
+                out.beginObject();
+                for(int i = 0; i < size; i++)
+                {
+                    out.name(strings.get(readVarInt(in)));
+                    writeJson(in, out, strings, limit);
+                }
+                out.endObject();
+            }
+            default -> throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * Gets the given number as a long if it was written as an integer, {@code null} otherwise. Integral doubles like {@code 1.0} or {@code -0.0} are not
+     * narrowed, since they would come back as {@code 1} and {@code 0}.
+     */
+    private static Long asLong(@NotNull Number number)
+    {
+        if(number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte)
+            return number.longValue();
+
+        if(!(number instanceof Double) && !(number instanceof Float))
+        {
+            try
+            {
+                return Long.parseLong(number.toString());
+            }
+            catch(NumberFormatException ignored) {}
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the given number as the double its JSON form stands for, so a float like {@code 0.1f} is stored as {@code 0.1} and not widened.
+     */
+    private static double asDouble(@NotNull Number number)
+    {
+        return number instanceof Double ? number.doubleValue() : Double.parseDouble(number.toString());
+    }
+
+    /**
+     * Parses the given string as a UUID if it is in the canonical lowercase form, so it can be restored exactly.
+     */
+    private static UUID asUUID(@NotNull String string)
+    {
+        if(string.length() != 36 || string.charAt(8) != '-')
+            return null;
+
+        try
+        {
+            UUID uuid = UUID.fromString(string);
+            return uuid.toString().equals(string) ? uuid : null;
+        }
+        catch(IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+
+    private static int readLength(@NotNull DataInputStream in, int limit) throws IOException
+    {
+        int length = readVarInt(in);
+        if(length < 0 || length > limit)
+            throw new IOException("Invalid length " + length);
+
+        return length;
+    }
+
+    private static void writeVarInt(@NotNull DataOutputStream out, int value) throws IOException
+    {
+        while((value & ~0x7F) != 0)
+        {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(@NotNull DataInputStream in) throws IOException
+    {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("VarInt too long");
+    }
+
+    private static void writeVarLong(@NotNull DataOutputStream out, long value) throws IOException
+    {
+        while((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(@NotNull DataInputStream in) throws IOException
+    {
+        long value = 0;
+        for(int shift = 0; shift < 70; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("VarLong too long");
+    }
+
+    private static long readZigzag(@NotNull DataInputStream in) throws IOException
+    {
+        long zigzag = readVarLong(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * The strings of encoded NPCs, each stored once and referenced by its index.
+     * <p>
+     * Strings are only ever appended, so an index stays valid as long as the table is used. A store can keep one table for all of its NPCs: it persists the
+     * strings each {@link BinaryNpcCodec#encode(NPC.SerializedNPC, StringTable) encode} call added with {@link #write(int)} and reads them back with
+     * {@link #read(byte[], int, int)} in the same order. Tables are not thread-safe.
+     * </p>
+     */
+    public static final class StringTable
+    {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        /**
+         * Gets the number of strings in the table.
+         *
+         * @return the string count
+         */
+        public int size()
+        {
+            return strings.size();
+        }
+
+        /**
+         * Removes all strings from the given index on, e.g. because persisting them failed.
+         *
+         * @param size the number of strings to keep
+         */
+        public void truncate(int size)
+        {
+            while(strings.size() > size)
+            {
+                String string = strings.removeLast();
+                Integer index = indexes.get(string);
+                if(index != null && index == strings.size())
+                    indexes.remove(string);
+            }
+        }
+
+        /**
+         * Encodes the strings from the given index on, so they can be read back into a table holding the strings before them.
+         *
+         * @param from the index of the first string to encode
+         * @return the encoded strings
+         */
+        public byte @NotNull [] write(int from)
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            try(DataOutputStream out = new DataOutputStream(bytes))
+            {
+                write(out, from);
+            }
+            catch(IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Appends strings encoded by {@link #write(int)} to the table.
+         *
+         * @param data   the buffer holding the encoded strings
+         * @param offset the offset of the encoded strings in the buffer
+         * @param length the length of the encoded strings
+         * @throws IOException if the strings are corrupt
+         */
+        public void read(byte @NotNull [] data, int offset, int length) throws IOException
+        {
+            try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length)))
+            {
+                read(in, length);
+            }
+        }
+
+        private void write(@NotNull DataOutputStream out, int from) throws IOException
+        {
+            writeVarInt(out, strings.size() - from);
+            for(int i = from; i < strings.size(); i++)
+            {
+                byte[] utf = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                writeVarInt(out, utf.length);
+                out.write(utf);
+            }
+        }
+
+        private void read(@NotNull DataInputStream in, int limit) throws IOException
+        {
+            int count = readLength(in, limit);
+            for(int i = 0; i < count; i++)
+            {
+                byte[] utf = new byte[readLength(in, limit)];
+                in.readFully(utf);
+
+                String string = new String(utf, StandardCharsets.UTF_8);
+                indexes.putIfAbsent(string, strings.size());
+                strings.add(string);
+            }
+        }
+
+        private int add(@NotNull String string)
+        {
+            return indexes.computeIfAbsent(string, key ->
+            {
+                strings.add(key);
+                return strings.size() - 1;
+            });
+        }
+
+        private @NotNull String get(int index) throws IOException
+        {
+            if(index < 0 || index >= strings.size())
+                throw new IOException("String index " + index + " out of bounds");
+
+            return strings.get(index);
+        }
+    }
+
+    /**
+     * Reads maps as a JSON tree and hands it to the adapter that would otherwise read them. Gson reads the keys of maps in a way only its own readers
+     * support, so maps are the one part of an NPC a {@link BinaryJsonReader} cannot stream. Maps are written unchanged.
+     */
+    private static final class MapTreeAdapterFactory implements TypeAdapterFactory
+    {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+        {
+            if(!Map.class.isAssignableFrom(type.getRawType()))
+                return null;
+
+            TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+            return new TypeAdapter<>()
+            {
+                @Override
+                public void write(JsonWriter out, T value) throws IOException
+                {
+                    delegate.write(out, value);
+                }
+
+                @Override
+                public T read(JsonReader in)
+                {
+                    return delegate.fromJsonTree(JsonParser.parseReader(in));
+                }
+            };
+        }
+    }
+
+    /**
+     * Reads binary values through the streaming API of Gson, so the type adapters of {@link ObjectSaver} decode an NPC token by token.
+     */
+    private static final class BinaryJsonReader extends JsonReader
+    {
+        private final DataInputStream in;
+        private final StringTable strings;
+        private final int limit;
+
+        private int[] remaining = new int[8];
+        private boolean[] objects = new boolean[8];
+        private int depth;
+        private boolean expectName;
+        private int tag = -1;
+
+        private BinaryJsonReader(@NotNull DataInputStream in, @NotNull StringTable strings, int limit, int count)
+        {
+            super(Reader.nullReader());
+            this.in = in;
+            this.strings = strings;
+            this.limit = limit;
+            this.remaining[0] = count;
+        }
+
+        @Override
+        public JsonToken peek() throws IOException
+        {
+            if(expectName)
+                return remaining[depth] == 0 ? JsonToken.END_OBJECT : JsonToken.NAME;
+            if(remaining[depth] == 0)
+                return depth == 0 ? JsonToken.END_DOCUMENT : JsonToken.END_ARRAY;
+
+            if(tag < 0)
+                tag = in.readUnsignedByte();
+
+            return switch(tag)
+            {
+                case TAG_NULL -> JsonToken.NULL;
+                case TAG_FALSE, TAG_TRUE -> JsonToken.BOOLEAN;
+                case TAG_INT, TAG_DOUBLE -> JsonToken.NUMBER;
+                case TAG_STRING, TAG_UUID -> JsonToken.STRING;
+                case TAG_ARRAY -> JsonToken.BEGIN_ARRAY;
+                case TAG_OBJECT -> JsonToken.BEGIN_OBJECT;
+                default -> throw new IOException("Unknown value tag " + tag);
+            };
+        }
+
+        @Override
+        public boolean hasNext() throws IOException
+        {
+            JsonToken token = peek();
+            return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+        }
+
+        @Override
+        public void beginArray() throws IOException
+        {
+            expect(JsonToken.BEGIN_ARRAY);
+            push(false);
+        }
+
+        @Override
+        public void endArray() throws IOException
+        {
+            expect(JsonToken.END_ARRAY);
+            depth--;
+            consumed();
+        }
+
+        @Override
+        public void beginObject() throws IOException
+        {
+            expect(JsonToken.BEGIN_OBJECT);
+            push(true);
+        }
+
+        @Override
+        public void endObject() throws IOException
+        {
+            expect(JsonToken.END_OBJECT);
+            depth--;
+            consumed();
+        }
+
+        @Override
+        public String nextName() throws IOException
+        {
+            expect(JsonToken.NAME);
+            expectName = false;
+            return strings.get(readVarInt(in));
+        }
+
+        @Override
+        public String nextString() throws IOException
+        {
+            JsonToken token = peek();
+            String value = switch(tag)
+            {
+                case TAG_STRING -> strings.get(readVarInt(in));
+                case TAG_UUID -> new UUID(in.readLong(), in.readLong()).toString();
+                case TAG_INT -> Long.toString(readZigzag(in));
+                case TAG_DOUBLE -> Double.toString(in.readDouble());
+                default -> throw new IllegalStateException("Expected a string but was " + token);
+            };
+            consumed();
+            return value;
+        }
+
+        @Override
+        public boolean nextBoolean() throws IOException
+        {
+            expect(JsonToken.BOOLEAN);
+            boolean value = tag == TAG_TRUE;
+            consumed();
+            return value;
+        }
+
+        @Override
+        public void nextNull() throws IOException
+        {
+            expect(JsonToken.NULL);
+            consumed();
+        }
+
+        @Override
+        public double nextDouble() throws IOException
+        {
+            JsonToken token = peek();
+            double value = switch(tag)
+            {
+                case TAG_INT -> readZigzag(in);
+                case TAG_DOUBLE -> in.readDouble();
+                case TAG_STRING -> Double.parseDouble(strings.get(readVarInt(in)));
+                default -> throw new IllegalStateException("Expected a double but was " + token);
+            };
+            consumed();
+            return value;
+        }
+
+        @Override
+        public long nextLong() throws IOException
+        {
+            JsonToken token = peek();
+            long value = switch(tag)
+            {
+                case TAG_INT -> readZigzag(in);
+                case TAG_DOUBLE ->
+                {
+                    double number = in.readDouble();
+                    if((long) number != number)
+                        throw new NumberFormatException("Expected a long but was " + number);
+                    yield (long) number;
+                }
+                case TAG_STRING -> Long.parseLong(strings.get(readVarInt(in)));
+                default -> throw new IllegalStateException("Expected a long but was " + token);
+            };
+            consumed();
+            return value;
+        }
+
+        @Override
+        public int nextInt() throws IOException
+        {
+            long value = nextLong();
+            if((int) value != value)
+                throw new NumberFormatException("Expected an int but was " + value);
+
+            return (int) value;
+        }
+
+        @Override
+        public void skipValue() throws IOException
+        {
+            switch(peek())
+            {
+                case NAME -> nextName();
+                case BEGIN_ARRAY ->
+                {
+                    beginArray();
+                    while(hasNext())
+                        skipValue();
+                    endArray();
+                }
+                case BEGIN_OBJECT ->
+                {
+                    beginObject();
+                    while(hasNext())
+                    {
+                        nextName();
+                        skipValue();
+                    }
+                    endObject();
+                }
+                case STRING, NUMBER -> nextString();
+                case BOOLEAN -> nextBoolean();
+                case NULL -> nextNull();
+                default -> throw new IllegalStateException("Expected a value but was " + peek());
+            }
+        }
+
+        private void expect(@NotNull JsonToken expected) throws IOException
+        {
+            JsonToken token = peek();
+            if(token != expected)
+                throw new IllegalStateException("Expected " + expected + " but was " + token);
+        }
+
+        private void push(boolean object) throws IOException
+        {
+            tag = -1;
+            int size = readLength(in, limit);
+
+            if(++depth == remaining.length)
+            {
+                remaining = Arrays.copyOf(remaining, depth * 2);
+                objects = Arrays.copyOf(objects, depth * 2);
+            }
+
+            remaining[depth] = size;
+            objects[depth] = object;
+            expectName = object;
+        }
+
+        /**
+         * Marks the current value as read, so the reader moves on to the next name or value of the enclosing container.
+         */
+        private void consumed()
+        {
+            tag = -1;
+            remaining[depth]--;
+            expectName = objects[depth];
+        }
+    }
+}
@@ -5,7 +5,6 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
 
 /**
  * The {@link ItemSerializer} class provides utility methods for serializing and deserializing
@@ -24,7 +23,7 @@ public class ItemSerializer
      */
     public static @NotNull String itemStackToBase64(@NotNull ItemStack item)
     {
-        return Base64Coder.encodeLines(item.serializeAsBytes());
+        return ItemStackCodec.encodeBase64(item);
     }
 
     /**
@@ -37,6 +36,6 @@ public class ItemSerializer
      */
     public static @Nullable ItemStack itemStackFromBase64(@NotNull String data)
     {
-        return ItemStack.deserializeBytes(Base64Coder.decodeLines(data));
+        return ItemStackCodec.decodeBase64(data);
     }
 }
@@ -0,0 +1,136 @@
+package de.eisi05.npc.api.utils.serialize;
+
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes {@link ItemStack ItemStacks} with {@link ItemStack#serializeAsBytes()} instead of a YAML round trip.
+ * <p>
+ * Decoded stacks are kept in a small LRU cache keyed by their encoded form, so identical equipment shared by many NPCs is only deserialized once. The cache
+ * hands out clones, callers may modify the returned stacks freely.
+ * </p>
+ */
+public class ItemStackCodec
+{
+    private static final int CACHE_SIZE = 256;
+
+    private static final Map<String, ItemStack> CACHE = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ItemStack> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private static long hits;
+    private static long misses;
+
+    /**
+     * Encodes an item stack into its raw byte form.
+     *
+     * @param item the item to encode. Must not be {@code null} or air.
+     * @return the encoded bytes. Never null.
+     */
+    public static byte @NotNull [] encode(@NotNull ItemStack item)
+    {
+        return item.serializeAsBytes();
+    }
+
+    /**
+     * Encodes an item stack into a Base64 string.
+     *
+     * @param item the item to encode. Must not be {@code null} or air.
+     * @return the Base64 encoded item. Never null.
+     */
+    public static @NotNull String encodeBase64(@NotNull ItemStack item)
+    {
+        return Base64.getEncoder().encodeToString(encode(item));
+    }
+
+    /**
+     * Decodes an item stack from its raw byte form. Raw bytes are not cached.
+     *
+     * @param data the encoded bytes. Must not be null.
+     * @return the decoded item. Never null.
+     */
+    public static @NotNull ItemStack decode(byte @NotNull [] data)
+    {
+        return ItemStack.deserializeBytes(data);
+    }
+
+    /**
+     * Decodes an item stack from a Base64 string, using the decode cache. Line breaks in the input, as written by older versions, are ignored.
+     *
+     * @param data the Base64 encoded item. Must not be null.
+     * @return a fresh copy of the decoded item, or {@code null} if the string is empty
+     */
+    public static @Nullable ItemStack decodeBase64(@NotNull String data)
+    {
+        if(data.isBlank())
+            return null;
+
+        synchronized(CACHE)
+        {
+            ItemStack cached = CACHE.get(data);
+            if(cached != null)
+            {
+                hits++;
+                return cached.clone();
+            }
+        }
+
+        ItemStack item = decode(Base64.getMimeDecoder().decode(data));
+
+        synchronized(CACHE)
+        {
+            misses++;
+            CACHE.put(data, item.clone());
+        }
+        return item;
+    }
+
+    /**
+     * Gets the number of Base64 decodes that were served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public static long getCacheHits()
+    {
+        synchronized(CACHE)
+        {
+            return hits;
+        }
+    }
+
+    /**
+     * Gets the number of Base64 decodes that had to deserialize the item.
+     *
+     * @return the number of cache misses
+     */
+    public static long getCacheMisses()
+    {
+        synchronized(CACHE)
+        {
+            return misses;
+        }
+    }
+
+    /**
+     * Clears the decode cache and its statistics.
+     */
+    public static void clearCache()
+    {
+        synchronized(CACHE)
+        {
+            CACHE.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+}
@@ -52,6 +52,9 @@ public class ObjectSaver
         }
     }.nullSafe();
 
+    /**
+     * Writes item stacks as Base64 strings of {@link ItemStack#serializeAsBytes()}. Item stacks written as YAML structures by older versions are still read.
+     */
     private static final TypeAdapter<ItemStack> ITEM_STACK_ADAPTER = new TypeAdapter<ItemStack>()
     {
         @Override
@@ -63,15 +66,7 @@ public class ObjectSaver
                 return;
             }
 
-            YamlConfiguration config = new YamlConfiguration();
-            config.set("item", value);
-
-            String yamlString = config.saveToString();
-            Map<String, Object> nativeMap = new org.yaml.snakeyaml.Yaml().load(yamlString);
-            Object itemStructure = nativeMap.get("item");
-
-            JsonElement element = CLEAN_GSON.toJsonTree(itemStructure);
-            CLEAN_GSON.toJson(element, out);
+            out.value(ItemStackCodec.encodeBase64(value));
         }
 
         @Override
@@ -83,6 +78,9 @@ public class ObjectSaver
                 return null;
             }
 
+            if(in.peek() == JsonToken.STRING)
+                return ItemStackCodec.decodeBase64(in.nextString());
+
             JsonElement element = Streams.parse(in);
             if(!element.isJsonObject())
                 return null;
@@ -267,6 +265,52 @@ public class ObjectSaver
         }
     }
 
+    /**
+     * Checks whether the given file content is JSON by looking at its first non-whitespace character.
+     *
+     * @param data the raw file content
+     * @return {@code true} if the content is empty or starts with a JSON object or array, {@code false} otherwise
+     */
+    public static boolean isJson(byte @NotNull [] data)
+    {
+        for(byte b : data)
+        {
+            if(Character.isWhitespace(b))
+                continue;
+            return b == '{' || b == '[';
+        }
+        return true;
+    }
+
+    /**
+     * Parses the given UTF-8 encoded JSON content with the same adapters used by {@link #read(Class)}.
+     * <p>
+     * This does not touch the file system, which allows reading files on one thread and parsing them on another.
+     * </p>
+     *
+     * @param data  the raw JSON content
+     * @param clazz the class of the object to parse
+     * @param <T>   the type of the object
+     * @return the parsed object, or {@code null} if the content is empty
+     */
+    public static <T> @Nullable T fromJson(byte @NotNull [] data, @NotNull Class<T> clazz)
+    {
+        return GSON.fromJson(new String(data, StandardCharsets.UTF_8), clazz);
+    }
+
+    /**
+     * Serializes the given object to compact UTF-8 encoded JSON with the same adapters used by {@link #write(Object, boolean)}.
+     *
+     * @param object the object to serialize
+     * @return the JSON content without any indentation
+     */
+    public static byte @NotNull [] toJson(@NotNull Object object)
+    {
+        StringWriter writer = new StringWriter();
+        GSON.toJson(object, object.getClass(), new JsonWriter(writer));
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
     public boolean isJson()
     {
         if(!file.exists() || file.length() == 0)